@@ -0,0 +1,62 @@
+package ru.team.up.app.config;
+
+import java.util.Arrays;
+
+/**
+ * Роли экземпляра приложения. Роли задаются списком в teamup.node.roles, по умолчанию экземпляр выполняет все.
+ * Для каждой роли в окружение добавляется свойство teamup.node.role.&lt;роль&gt;, по которому модули
+ * включают свои компоненты через @ConditionalOnProperty
+ */
+public enum NodeRole {
+
+    /**
+     * Запросы HTTP, которые не изменяют данные: GET, HEAD, OPTIONS
+     */
+    API_READ("api-read"),
+
+    /**
+     * Остальные запросы HTTP
+     */
+    API_WRITE("api-write"),
+
+    /**
+     * Задачи планировщиков с арендой и долями работы между экземплярами
+     */
+    SCHEDULER("scheduler"),
+
+    /**
+     * Консьюмеры событий kafka для модераторов в общей группе: каждое событие обрабатывает один экземпляр
+     */
+    KAFKA_WORKER("kafka-worker"),
+
+    /**
+     * Websocket-сессии модераторов. Назначения для сессий каждый такой экземпляр читает из kafka
+     * в собственной группе консьюмеров, поэтому роль не обязана совпадать с kafka-worker
+     */
+    WEBSOCKET("websocket");
+
+    public static final String ROLES_PROPERTY = "teamup.node.roles";
+    public static final String ROLE_PROPERTY_PREFIX = "teamup.node.role.";
+
+    private final String name;
+
+    NodeRole(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getProperty() {
+        return ROLE_PROPERTY_PREFIX + name;
+    }
+
+    public static NodeRole of(String name) {
+        return Arrays.stream(values())
+                .filter(role -> role.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Неизвестная роль экземпляра: " + name +
+                        ", допустимые роли: " + Arrays.toString(Arrays.stream(values()).map(NodeRole::getName).toArray())));
+    }
+}
@@ -0,0 +1,71 @@
+package ru.team.up.app.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Разделение запросов HTTP между ролями api-read и api-write.
+ * <p>
+ * Контроллеры смешивают чтение и изменение данных, поэтому роль определяется методом запроса: GET, HEAD
+ * и OPTIONS относятся к api-read, остальные к api-write. Запрос роли, которой у экземпляра нет, отклоняется
+ * до проверки авторизации с кодом 503, и балансировщик повторяет его на другом экземпляре.
+ * Подключение websocket и actuator не зависят от ролей api.
+ * <p>
+ * Роли api только разделяют запросы: контроллеры и сервисы, которые они используют, загружаются на каждом
+ * экземпляре, поэтому экземпляр без api-write не запускается быстрее и не занимает меньше памяти.
+ * Отдельно отключаются только планировщики (роль scheduler), консьюмеры kafka (kafka-worker) и websocket.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class NodeRoleFilter extends OncePerRequestFilter {
+
+    private final boolean apiRead;
+    private final boolean apiWrite;
+
+    @Autowired
+    public NodeRoleFilter(Environment environment) {
+        this.apiRead = isEnabled(environment, NodeRole.API_READ);
+        this.apiWrite = isEnabled(environment, NodeRole.API_WRITE);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return path.equals("/ws") || path.startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        NodeRole role = isRead(request.getMethod()) ? NodeRole.API_READ : NodeRole.API_WRITE;
+        if (role == NodeRole.API_READ ? apiRead : apiWrite) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        log.debug("Запрос {} {} отклонён: у экземпляра нет роли {}", request.getMethod(), request.getRequestURI(),
+                role.getName());
+        response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Экземпляр не обслуживает роль " + role.getName());
+    }
+
+    static boolean isRead(String method) {
+        return HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method) || HttpMethod.OPTIONS.matches(method);
+    }
+
+    static boolean isEnabled(Environment environment, NodeRole role) {
+        return environment.getProperty(role.getProperty(), Boolean.class, true);
+    }
+}
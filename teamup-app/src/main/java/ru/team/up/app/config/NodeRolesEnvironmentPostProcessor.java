@@ -0,0 +1,43 @@
+package ru.team.up.app.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Перевод списка ролей teamup.node.roles в свойства teamup.node.role.&lt;роль&gt;=true|false до создания бинов.
+ * Свойство отдельной роли, заданное явно, важнее списка
+ */
+public class NodeRolesEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    private static final String PROPERTY_SOURCE_NAME = "teamupNodeRoles";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        Set<NodeRole> roles = parseRoles(environment.getProperty(NodeRole.ROLES_PROPERTY));
+        Map<String, Object> properties = new HashMap<>();
+        for (NodeRole role : NodeRole.values()) {
+            properties.put(role.getProperty(), roles.contains(role));
+        }
+        environment.getPropertySources().addLast(new MapPropertySource(PROPERTY_SOURCE_NAME, properties));
+    }
+
+    static Set<NodeRole> parseRoles(String value) {
+        if (value == null || value.isBlank()) {
+            return EnumSet.allOf(NodeRole.class);
+        }
+        Set<NodeRole> roles = EnumSet.noneOf(NodeRole.class);
+        for (String name : value.split(",")) {
+            if (!name.isBlank()) {
+                roles.add(NodeRole.of(name.trim()));
+            }
+        }
+        return roles;
+    }
+}
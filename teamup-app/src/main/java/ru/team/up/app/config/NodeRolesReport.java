@@ -0,0 +1,73 @@
+package ru.team.up.app.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.scheduling.config.ScheduledTask;
+import org.springframework.scheduling.config.ScheduledTaskHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.socket.WebSocketHandler;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Отчёт при запуске: роли экземпляра и компоненты, которые для них загружены.
+ * По отчёту видно, какие планировщики, консьюмеры и обработчики websocket поднял экземпляр.
+ * Контроллеры загружаются всегда, роли api определяют только, какие запросы отклоняет {@link NodeRoleFilter}
+ */
+@Slf4j
+@Component
+public class NodeRolesReport {
+
+    private final ApplicationContext applicationContext;
+    private final ObjectProvider<KafkaListenerEndpointRegistry> kafkaListenerEndpointRegistry;
+
+    @Autowired
+    public NodeRolesReport(ApplicationContext applicationContext,
+                           ObjectProvider<KafkaListenerEndpointRegistry> kafkaListenerEndpointRegistry) {
+        this.applicationContext = applicationContext;
+        this.kafkaListenerEndpointRegistry = kafkaListenerEndpointRegistry;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        Set<String> roles = Arrays.stream(NodeRole.values())
+                .filter(role -> NodeRoleFilter.isEnabled(applicationContext.getEnvironment(), role))
+                .map(NodeRole::getName)
+                .collect(Collectors.toCollection(TreeSet::new));
+        log.info("Роли экземпляра: {}", roles);
+
+        Set<String> controllers = new TreeSet<>(Arrays.asList(applicationContext.getBeanNamesForAnnotation(Controller.class)));
+        controllers.addAll(Arrays.asList(applicationContext.getBeanNamesForAnnotation(RestController.class)));
+        log.info("api: контроллеров {} {} загружено независимо от ролей, запросы чтения {}, изменения {}",
+                controllers.size(), controllers,
+                roles.contains(NodeRole.API_READ.getName()) ? "обслуживаются" : "отклоняются с кодом 503",
+                roles.contains(NodeRole.API_WRITE.getName()) ? "обслуживаются" : "отклоняются с кодом 503");
+
+        Set<String> scheduledTasks = applicationContext.getBeansOfType(ScheduledTaskHolder.class).values().stream()
+                .map(ScheduledTaskHolder::getScheduledTasks)
+                .flatMap(Collection::stream)
+                .map(ScheduledTask::toString)
+                .collect(Collectors.toCollection(TreeSet::new));
+        log.info("scheduler: задач по расписанию {} {}, задачи с арендой {}", scheduledTasks.size(), scheduledTasks,
+                roles.contains(NodeRole.SCHEDULER.getName()) ? "выполняются" : "пропускаются");
+
+        // Консьюмер параметров СУП нужен каждому экземпляру и от ролей не зависит
+        Set<String> kafkaListeners = new TreeSet<>();
+        kafkaListenerEndpointRegistry.ifAvailable(registry -> kafkaListeners.addAll(registry.getListenerContainerIds()));
+        log.info("kafka-worker: консьюмеров {} {}", kafkaListeners.size(), kafkaListeners);
+
+        log.info("websocket: обработчиков {}",
+                Arrays.toString(applicationContext.getBeanNamesForType(WebSocketHandler.class)));
+    }
+}
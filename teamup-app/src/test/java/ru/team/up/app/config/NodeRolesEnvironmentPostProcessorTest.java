@@ -0,0 +1,47 @@
+package ru.team.up.app.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeRolesEnvironmentPostProcessorTest {
+
+    private final NodeRolesEnvironmentPostProcessor postProcessor = new NodeRolesEnvironmentPostProcessor();
+
+    @Test
+    void allRolesByDefault() {
+        MockEnvironment environment = new MockEnvironment();
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        for (NodeRole role : NodeRole.values()) {
+            assertEquals("true", environment.getProperty(role.getProperty()));
+        }
+    }
+
+    @Test
+    void rolesFromList() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty(NodeRole.ROLES_PROPERTY, "api-read, scheduler")
+                // Явно заданное свойство роли важнее списка
+                .withProperty(NodeRole.WEBSOCKET.getProperty(), "true");
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertEquals("true", environment.getProperty("teamup.node.role.api-read"));
+        assertEquals("true", environment.getProperty("teamup.node.role.scheduler"));
+        assertEquals("true", environment.getProperty("teamup.node.role.websocket"));
+        assertEquals("false", environment.getProperty("teamup.node.role.api-write"));
+        assertEquals("false", environment.getProperty("teamup.node.role.kafka-worker"));
+    }
+
+    @Test
+    void unknownRoleIsRejected() {
+        assertEquals(EnumSet.of(NodeRole.KAFKA_WORKER), NodeRolesEnvironmentPostProcessor.parseRoles("kafka-worker,"));
+        assertThrows(IllegalArgumentException.class, () -> NodeRolesEnvironmentPostProcessor.parseRoles("worker"));
+    }
+}
@@ -0,0 +1,75 @@
+package ru.team.up.core.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Два пула соединений: основная БД и реплика для транзакций только на чтение.
+ * Включается свойством spring.datasource.replica.url, без него используется один пул из автоконфигурации.
+ * Пулы называются primary и replica, под этими именами попадают в метрики пулов actuator
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "spring.datasource.replica.url")
+public class ReadWriteDataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties,
+                                              @Value("${spring.datasource.replica.url}") String url,
+                                              @Value("${spring.datasource.replica.username:}") String username,
+                                              @Value("${spring.datasource.replica.password:}") String password) {
+        // Учётные данные реплики по умолчанию совпадают с основной БД
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username.isEmpty() ? properties.determineUsername() : username)
+                .password(password.isEmpty() ? properties.determinePassword() : password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        // Недоступная реплика не должна задерживать чтение на стандартные 30 секунд ожидания пула,
+        // значение переопределяется свойством spring.datasource.replica.hikari.connection-timeout
+        dataSource.setConnectionTimeout(1000);
+        return dataSource;
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                        @Qualifier("replicaDataSource") DataSource replica,
+                                                        @Value("${spring.datasource.replica.max-lag:5000}") long maxLagMillis) {
+        log.info("Транзакции только на чтение направляются в реплику при отставании не больше {} мс", maxLagMillis);
+        return new ReadWriteRoutingDataSource(primary, replica, maxLagMillis);
+    }
+
+    /**
+     * Источник для JPA и JdbcTemplate. Физическое соединение берётся при первом запросе транзакции,
+     * когда уже известно, только ли на чтение транзакция
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
@@ -0,0 +1,169 @@
+package ru.team.up.core.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.team.up.core.projections.DataSourcePoolStats;
+import ru.team.up.core.projections.DataSourceRoutingStats;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Источник соединений, который отправляет транзакции только на чтение в реплику, остальные запросы - в основную БД.
+ * <p>
+ * Решение принимается при получении физического соединения, поэтому источник используется через
+ * LazyConnectionDataSourceProxy: менеджер транзакций получает соединение до того, как транзакция отмечена
+ * только на чтение, а физическое соединение берётся при первом запросе.
+ * <p>
+ * Отставание реплики периодически проверяется. Если реплика недоступна или отстаёт больше допустимого,
+ * транзакции только на чтение идут в основную БД до следующей успешной проверки.
+ * <p>
+ * Чтение, которому нужны только что записанные данные, явно направляется в основную БД через
+ * {@link #readFromPrimary(Supplier)} независимо от признака транзакции.
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    /**
+     * Отставание в миллисекундах по времени последней применённой транзакции. Реплика, применившая всё
+     * полученное, не отстаёт, даже если в основную БД давно ничего не записывалось. На основной БД равно 0
+     */
+    private static final String REPLICA_LAG_SQL =
+            "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END::bigint";
+
+    private static final ThreadLocal<Boolean> PRIMARY_READS = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final long maxLagMillis;
+
+    private final AtomicLong primaryConnections = new AtomicLong();
+    private final AtomicLong replicaConnections = new AtomicLong();
+    private final AtomicLong fallbackConnections = new AtomicLong();
+    private volatile boolean replicaAvailable;
+    private volatile long replicaLagMillis = -1;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, long maxLagMillis) {
+        this(primary, replica, new JdbcTemplate(replica), maxLagMillis);
+    }
+
+    ReadWriteRoutingDataSource(DataSource primary, DataSource replica, JdbcTemplate replicaJdbcTemplate,
+                               long maxLagMillis) {
+        this.primary = primary;
+        this.replica = replica;
+        this.replicaJdbcTemplate = replicaJdbcTemplate;
+        this.maxLagMillis = maxLagMillis;
+        checkReplica();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || PRIMARY_READS.get() != null) {
+            primaryConnections.incrementAndGet();
+            return primary.getConnection();
+        }
+        if (replicaAvailable) {
+            try {
+                Connection connection = replica.getConnection();
+                replicaConnections.incrementAndGet();
+                return connection;
+            } catch (SQLException e) {
+                replicaAvailable = false;
+                log.warn("Реплика недоступна, чтение переключено на основную БД до следующей проверки", e);
+            }
+        }
+        fallbackConnections.incrementAndGet();
+        primaryConnections.incrementAndGet();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Соединение с явными учётными данными может использоваться для записи, поэтому всегда из основной БД
+        primaryConnections.incrementAndGet();
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * Метод выполняет чтение с соединением из основной БД, в том числе внутри транзакции только на чтение.
+     * Соединение выбирается при первом запросе, поэтому транзакция, которая уже выполнила запрос на реплике,
+     * продолжает читать из реплики. Без реплики действие просто выполняется
+     *
+     * @param action чтение, которому нужны только что записанные данные
+     * @return результат действия
+     */
+    public static <T> T readFromPrimary(Supplier<T> action) {
+        if (PRIMARY_READS.get() != null) {
+            return action.get();
+        }
+        PRIMARY_READS.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            PRIMARY_READS.remove();
+        }
+    }
+
+    /**
+     * Метод проверяет отставание реплики и решает, отправлять ли в неё транзакции только на чтение
+     */
+    @Scheduled(fixedDelayString = "${spring.datasource.replica.check.delay:5000}")
+    public void checkReplica() {
+        boolean available;
+        try {
+            Long lag = replicaJdbcTemplate.queryForObject(REPLICA_LAG_SQL, Long.class);
+            replicaLagMillis = lag == null ? 0 : lag;
+            available = replicaLagMillis <= maxLagMillis;
+        } catch (DataAccessException e) {
+            log.debug("Не удалось проверить отставание реплики: {}", e.getMessage());
+            replicaLagMillis = -1;
+            available = false;
+        }
+
+        if (available != replicaAvailable) {
+            if (available) {
+                log.info("Реплика доступна, отставание {} мс, чтение переключено на реплику", replicaLagMillis);
+            } else {
+                log.warn("Реплика недоступна или отстаёт на {} мс (допустимо {} мс), чтение переключено на основную БД",
+                        replicaLagMillis, maxLagMillis);
+            }
+        }
+        replicaAvailable = available;
+        log.debug("Соединений: основная БД {}, реплика {}, чтение из основной БД вместо реплики {}",
+                primaryConnections.get(), replicaConnections.get(), fallbackConnections.get());
+    }
+
+    public DataSourceRoutingStats getStats() {
+        return DataSourceRoutingStats.builder()
+                .primary(poolStats(primary, primaryConnections.get()))
+                .replica(poolStats(replica, replicaConnections.get()))
+                .fallbackConnections(fallbackConnections.get())
+                .replicaLagMillis(replicaLagMillis)
+                .replicaAvailable(replicaAvailable)
+                .build();
+    }
+
+    private static DataSourcePoolStats poolStats(DataSource dataSource, long routedConnections) {
+        DataSourcePoolStats.DataSourcePoolStatsBuilder stats = DataSourcePoolStats.builder()
+                .routedConnections(routedConnections);
+        HikariPoolMXBean pool = dataSource instanceof HikariDataSource
+                ? ((HikariDataSource) dataSource).getHikariPoolMXBean() : null;
+        if (pool != null) {
+            stats.active(pool.getActiveConnections())
+                    .idle(pool.getIdleConnections())
+                    .waiting(pool.getThreadsAwaitingConnection());
+        }
+        return stats.build();
+    }
+}
@@ -28,7 +28,8 @@ public class Account implements UserDetails {
      */
     @EqualsAndHashCode.Include
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "account_id_seq")
+    @SequenceGenerator(name = "account_id_seq", sequenceName = "account_id_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -50,9 +51,9 @@ public class Account implements UserDetails {
     private String middleName;
 
     /**
-     * Изображения акаунта
+     * Изображения акаунта. Одинаковое содержимое хранится одной записью, поэтому изображение может быть общим
      */
-    @OneToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     private Image image;
 
     /**
@@ -24,7 +24,8 @@ public class Application {
      * Уникальный идентификатор
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "application_id_seq")
+    @SequenceGenerator(name = "application_id_seq", sequenceName = "application_id_seq", allocationSize = 50)
     private Long id;
 
 
@@ -19,7 +19,8 @@ public class AssignedEvents {
      */
     @Id
     @Column(name = "id", nullable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "assigned_events_id_seq")
+    @SequenceGenerator(name = "assigned_events_id_seq", sequenceName = "assigned_events_id_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -32,6 +33,6 @@ public class AssignedEvents {
     /**
      * ID мероприятия
      */
-    @Column(name = "event_id", nullable = false)
+    @Column(name = "event_id", nullable = false, unique = true)
     private Long eventId;
 }
@@ -30,7 +30,8 @@ public class City {
      * Id
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "city_id_seq")
+    @SequenceGenerator(name = "city_id_seq", sequenceName = "city_id_seq", allocationSize = 50)
     private Long id;
 
     /**
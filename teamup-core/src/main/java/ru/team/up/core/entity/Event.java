@@ -35,7 +35,8 @@ public class Event {
      */
     @EqualsAndHashCode.Include
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "event_id_seq")
+    @SequenceGenerator(name = "event_id_seq", sequenceName = "event_id_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -57,9 +58,9 @@ public class Event {
     private String placeEvent;
 
     /**
-     * Изображения мероприятия
+     * Изображения мероприятия. Одинаковое содержимое хранится одной записью, поэтому изображение может быть общим
      */
-    @OneToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     private Image image;
 
     /**
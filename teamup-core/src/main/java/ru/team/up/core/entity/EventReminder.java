@@ -0,0 +1,31 @@
+package ru.team.up.core.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Отправленное напоминание участникам о предстоящем мероприятии
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "EVENT_REMINDER")
+public class EventReminder {
+    /**
+     * ID мероприятия
+     */
+    @Id
+    @Column(name = "event_id", nullable = false)
+    private Long eventId;
+
+    /**
+     * Время мероприятия, о котором отправлено напоминание. При переносе мероприятия напоминание отправляется снова
+     */
+    @Column(name = "time_event", nullable = false)
+    private LocalDateTime timeEvent;
+}
@@ -15,6 +15,7 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
@@ -40,7 +41,8 @@ public class EventReview {
      */
     @Id
     @Column(name = "REVIEW_ID")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "event_review_review_id_seq")
+    @SequenceGenerator(name = "event_review_review_id_seq", sequenceName = "event_review_review_id_seq", allocationSize = 50)
     private Long reviewId;
 
     /**
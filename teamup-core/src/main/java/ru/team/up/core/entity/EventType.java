@@ -21,7 +21,8 @@ public class EventType {
      * Уникальный идентификатор
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "event_type_id_seq")
+    @SequenceGenerator(name = "event_type_id_seq", sequenceName = "event_type_id_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -3,11 +3,8 @@ package ru.team.up.core.entity;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
-import org.apache.commons.lang3.builder.ToStringExclude;
-import ru.team.up.dto.AccountDto;
 
 import javax.persistence.*;
-import java.util.Base64;
 
 @Entity
 @Getter
@@ -16,32 +13,32 @@ import java.util.Base64;
 @ToString
 @AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "IMAGE")
-@JsonIgnoreProperties({"hibernateLazyInitializer"})
+@Table(name = "IMAGE", indexes = @Index(name = "image_storage_key_idx", columnList = "storage_key", unique = true))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Image {
     /**
      * Первичный ключ
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "image_id_seq")
+    @SequenceGenerator(name = "image_id_seq", sequenceName = "image_id_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
     /**
-     * Изображение в базе данных в формате бейс64
+     * Ключ содержимого изображения в файловом хранилище (SHA-256 содержимого)
      */
-    @ToStringExclude
-    @Column(name = "value")
-    private String value;
+    @Column(name = "storage_key", nullable = false, length = 64)
+    private String storageKey;
     /**
-     * Формат изображения
+     * Формат изображения (MIME-тип)
      */
     @Column(name = "type")
     private String type;
     /**
-     * Размер изображения
+     * Размер изображения в байтах
      */
     @Column(name = "size")
-    private int size;
+    private long size;
     /**
      * Качество изображения
      */
@@ -62,12 +59,4 @@ public class Image {
      */
     @Column(name = "imageUrl")
     private String imageUrl;
-
-
-    /**
-     * Изображение в базе данных в формате бейс64 кодировка
-     */
-    public void setValue(String value) {
-        this.value =  Base64.getEncoder().encodeToString(value.getBytes());
-    }
 }
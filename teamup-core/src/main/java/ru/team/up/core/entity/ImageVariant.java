@@ -0,0 +1,64 @@
+package ru.team.up.core.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.*;
+
+import javax.persistence.*;
+
+/**
+ * Уменьшенная копия изображения (миниатюра, для списков и т.д.), построенная при загрузке
+ */
+@Entity
+@Getter
+@Setter
+@Builder
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "IMAGE_VARIANT", uniqueConstraints = @UniqueConstraint(columnNames = {"image_id", "variant"}))
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class ImageVariant {
+    /**
+     * Первичный ключ
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "image_variant_id_seq")
+    @SequenceGenerator(name = "image_variant_id_seq", sequenceName = "image_variant_id_seq", allocationSize = 50)
+    @Column(name = "id")
+    private Long id;
+    /**
+     * Идентификатор исходного изображения
+     */
+    @Column(name = "image_id", nullable = false)
+    private Long imageId;
+    /**
+     * Название варианта из настроек
+     */
+    @Column(name = "variant", nullable = false)
+    private String variant;
+    /**
+     * Ключ содержимого варианта в файловом хранилище
+     */
+    @Column(name = "storage_key", nullable = false, length = 64)
+    private String storageKey;
+    /**
+     * Формат варианта (MIME-тип)
+     */
+    @Column(name = "type")
+    private String type;
+    /**
+     * Размер варианта в байтах
+     */
+    @Column(name = "size")
+    private long size;
+    /**
+     * Ширина варианта
+     */
+    @Column(name = "width")
+    private int width;
+    /**
+     * Высота варианта
+     */
+    @Column(name = "height")
+    private int height;
+}
@@ -23,7 +23,8 @@ public class Interests {
      * Уникальный идентификатор
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "interests_id_seq")
+    @SequenceGenerator(name = "interests_id_seq", sequenceName = "interests_id_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -12,7 +12,8 @@ import java.time.LocalDateTime;
 @Builder
 @Getter
 @Setter
-@Table(name = "MODERATOR_SESSION")
+@Table(name = "MODERATOR_SESSION",
+        indexes = @Index(name = "moderator_session_moderator_id_idx", columnList = "moderator_id", unique = true))
 @JsonIgnoreProperties({"hibernateLazyInitializer"})
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,7 +22,8 @@ public class ModeratorSession {
      * Уникальный идентификатор
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "moderator_session_id_seq")
+    @SequenceGenerator(name = "moderator_session_id_seq", sequenceName = "moderator_session_id_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -0,0 +1,43 @@
+package ru.team.up.core.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Аренда задачи планировщика одним экземпляром приложения
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "SCHEDULER_LOCK")
+public class SchedulerLock {
+    /**
+     * Имя задачи планировщика
+     */
+    @Id
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    /**
+     * Идентификатор экземпляра, который держит аренду
+     */
+    @Column(name = "owner", nullable = false)
+    private String owner;
+
+    /**
+     * Токен аренды, увеличивается при каждой смене владельца
+     */
+    @Column(name = "token", nullable = false)
+    private Long token;
+
+    /**
+     * Время окончания аренды
+     */
+    @Column(name = "lease_until", nullable = false)
+    private LocalDateTime leaseUntil;
+}
@@ -0,0 +1,31 @@
+package ru.team.up.core.entity;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Работающий экземпляр приложения, среди живых экземпляров делится работа планировщиков
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table(name = "SCHEDULER_NODE")
+public class SchedulerNode {
+    /**
+     * Идентификатор экземпляра
+     */
+    @Id
+    @Column(name = "node_id", nullable = false)
+    private String nodeId;
+
+    /**
+     * Время последнего сигнала экземпляра
+     */
+    @Column(name = "heartbeat_time", nullable = false)
+    private LocalDateTime heartbeatTime;
+}
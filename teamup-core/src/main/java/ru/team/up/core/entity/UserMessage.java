@@ -29,7 +29,8 @@ public class UserMessage {
      * Уникальный идентификатор
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_message_id_seq")
+    @SequenceGenerator(name = "user_message_id_seq", sequenceName = "user_message_id_seq", allocationSize = 50)
     private Long id;
 
     /**
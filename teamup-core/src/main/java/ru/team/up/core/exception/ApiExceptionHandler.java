@@ -20,6 +20,12 @@ public class ApiExceptionHandler {
         return e.getMessage();
     }
 
+    @ExceptionHandler({ImageNotFoundException.class})
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public String handleImageNotFound(@NotNull Exception e) {
+        return e.getMessage();
+    }
+
     @ExceptionHandler({NoContentException.class})
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public String handleNoContent(@NotNull Exception e) {
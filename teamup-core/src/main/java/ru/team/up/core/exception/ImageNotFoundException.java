@@ -0,0 +1,11 @@
+package ru.team.up.core.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public class ImageNotFoundException extends ResponseStatusException {
+
+    public ImageNotFoundException(Long id) {
+        super(HttpStatus.NOT_FOUND, "Изображение не найдено. Id = " + id);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.team.up.core.initialization;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Готовит в БД последовательности идентификаторов сущностей.
+ * <p>
+ * Идентификаторы выдаёт Hibernate из последовательности блоками по {@link #ALLOCATION_SIZE}, поэтому
+ * вставки объединяются в пакеты JDBC. Последовательности называются так же, как последовательности колонок
+ * bigserial, которые создавались при IDENTITY: в существующей БД у последовательности меняется только шаг,
+ * и она сдвигается не ниже наибольшего id. Колонке id возвращается значение по умолчанию из последовательности,
+ * чтобы вставки SQL без id продолжали работать. Такая вставка забирает целый блок и не пересекается с Hibernate.
+ * <p>
+ * Выполняется сразу после создания схемы Hibernate (ddl-auto), до запуска планировщиков.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class EntitySequenceCreator {
+
+    static final int ALLOCATION_SIZE = 50;
+
+    /**
+     * Таблица и колонка идентификатора
+     */
+    static final String[][] ID_COLUMNS = {
+            {"account", "id"},
+            {"application", "id"},
+            {"assigned_events", "id"},
+            {"city", "id"},
+            {"event", "id"},
+            {"event_review", "review_id"},
+            {"event_type", "id"},
+            {"image", "id"},
+            {"image_variant", "id"},
+            {"interests", "id"},
+            {"moderator_session", "id"},
+            {"status", "id"},
+            {"user_message", "id"}
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public EntitySequenceCreator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void createSequences() {
+        log.debug("Создаём последовательности идентификаторов сущностей");
+        for (String[] idColumn : ID_COLUMNS) {
+            for (String ddl : sequenceDdl(idColumn[0], idColumn[1])) {
+                jdbcTemplate.execute(ddl);
+            }
+        }
+        log.debug("Последовательности идентификаторов созданы для {} таблиц", ID_COLUMNS.length);
+    }
+
+    static String[] sequenceDdl(String table, String column) {
+        String sequence = table + "_" + column + "_seq";
+        return new String[]{
+                "CREATE SEQUENCE IF NOT EXISTS " + sequence + " INCREMENT BY " + ALLOCATION_SIZE,
+
+                "ALTER SEQUENCE " + sequence + " INCREMENT BY " + ALLOCATION_SIZE,
+
+                // Следующий блок начнётся после наибольшего id и после уже выданных блоков
+                "SELECT setval('" + sequence + "', GREATEST((SELECT COALESCE(MAX(" + column + "), 0) FROM " + table +
+                        "), (SELECT last_value FROM " + sequence + "), 1))",
+
+                "ALTER TABLE " + table + " ALTER COLUMN " + column + " SET DEFAULT nextval('" + sequence + "')"
+        };
+    }
+}
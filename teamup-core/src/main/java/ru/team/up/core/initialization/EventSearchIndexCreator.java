@@ -0,0 +1,77 @@
+package ru.team.up.core.initialization;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Создаёт в БД поисковый вектор мероприятий для полнотекстового поиска.
+ * <p>
+ * Колонка SEARCH_VECTOR собирается из названия, описания и интересов мероприятия с русской морфологией
+ * и индексируется GIN-индексом. Актуальность вектора поддерживают триггеры на EVENT и INTERESTS_EVENT,
+ * поэтому любой путь записи мероприятия попадает в поиск. Схема создаётся Hibernate
+ * (ddl-auto), поэтому объекты создаются идемпотентно при каждом старте приложения.
+ */
+@Slf4j
+@Component
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class EventSearchIndexCreator {
+
+    private static final String[] SEARCH_DDL = {
+            "ALTER TABLE event ADD COLUMN IF NOT EXISTS search_vector tsvector",
+
+            "CREATE INDEX IF NOT EXISTS event_search_vector_idx ON event USING GIN (search_vector)",
+
+            "CREATE OR REPLACE FUNCTION event_search_vector_update() RETURNS trigger AS $$ " +
+                    "BEGIN " +
+                    "  NEW.search_vector := " +
+                    "      setweight(to_tsvector('russian', coalesce(NEW.event_name, '')), 'A') " +
+                    "   || setweight(to_tsvector('russian', coalesce(NEW.description_event, '')), 'B') " +
+                    "   || setweight(to_tsvector('russian', coalesce((" +
+                    "          SELECT string_agg(i.title, ' ') FROM interests_event ie " +
+                    "          JOIN interests i ON i.id = ie.interests_id WHERE ie.event_id = NEW.id), '')), 'C'); " +
+                    "  RETURN NEW; " +
+                    "END $$ LANGUAGE plpgsql",
+
+            "DROP TRIGGER IF EXISTS event_search_vector_trigger ON event",
+
+            "CREATE TRIGGER event_search_vector_trigger " +
+                    "BEFORE INSERT OR UPDATE OF event_name, description_event ON event " +
+                    "FOR EACH ROW EXECUTE PROCEDURE event_search_vector_update()",
+
+            // Изменение интересов мероприятия пересобирает его вектор через триггер на EVENT
+            "CREATE OR REPLACE FUNCTION interests_event_search_vector_update() RETURNS trigger AS $$ " +
+                    "BEGIN " +
+                    "  IF TG_OP = 'DELETE' THEN " +
+                    "    UPDATE event SET event_name = event_name WHERE id = OLD.event_id; " +
+                    "  ELSE " +
+                    "    UPDATE event SET event_name = event_name WHERE id = NEW.event_id; " +
+                    "  END IF; " +
+                    "  RETURN NULL; " +
+                    "END $$ LANGUAGE plpgsql",
+
+            "DROP TRIGGER IF EXISTS interests_event_search_vector_trigger ON interests_event",
+
+            "CREATE TRIGGER interests_event_search_vector_trigger " +
+                    "AFTER INSERT OR DELETE ON interests_event " +
+                    "FOR EACH ROW EXECUTE PROCEDURE interests_event_search_vector_update()",
+
+            // Мероприятия, сохранённые до создания триггеров
+            "UPDATE event SET event_name = event_name WHERE search_vector IS NULL"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createSearchIndex() {
+        log.debug("Создаём поисковый индекс мероприятий");
+        for (String ddl : SEARCH_DDL) {
+            jdbcTemplate.execute(ddl);
+        }
+        log.debug("Поисковый индекс мероприятий создан");
+    }
+}
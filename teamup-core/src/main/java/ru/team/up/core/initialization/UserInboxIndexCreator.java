@@ -0,0 +1,98 @@
+package ru.team.up.core.initialization;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Создаёт в БД структуры для входящих сообщений пользователя.
+ * <p>
+ * В USER_ACCOUNT_MESSAGES добавляются время создания сообщения и время прочтения получателем,
+ * а индекс (USER_ID, MESSAGE_CREATION_TIME, MESSAGE_ID) позволяет читать входящие постранично
+ * от новых к старым без сортировки всех сообщений пользователя. Количество непрочитанных хранится
+ * в USER_MESSAGE_UNREAD и меняется триггерами при добавлении, прочтении и удалении сообщения,
+ * поэтому учитывается любой путь записи: через JPA, пакетный INSERT или INSERT ... SELECT.
+ */
+@Slf4j
+@Component
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class UserInboxIndexCreator {
+
+    private static final String[] INBOX_DDL = {
+            "ALTER TABLE user_account_messages ADD COLUMN IF NOT EXISTS message_creation_time timestamp",
+
+            "ALTER TABLE user_account_messages ADD COLUMN IF NOT EXISTS read_time timestamp",
+
+            "CREATE INDEX IF NOT EXISTS user_account_messages_inbox_idx " +
+                    "ON user_account_messages (user_id, message_creation_time DESC, message_id DESC)",
+
+            "CREATE TABLE IF NOT EXISTS user_message_unread (" +
+                    "user_id bigint PRIMARY KEY, unread integer NOT NULL DEFAULT 0)",
+
+            "CREATE OR REPLACE FUNCTION user_account_messages_creation_time() RETURNS trigger AS $$ " +
+                    "BEGIN " +
+                    "  IF NEW.message_creation_time IS NULL THEN " +
+                    "    NEW.message_creation_time := coalesce((" +
+                    "        SELECT m.message_creation_time FROM user_message m WHERE m.id = NEW.message_id), now()); " +
+                    "  END IF; " +
+                    "  RETURN NEW; " +
+                    "END $$ LANGUAGE plpgsql",
+
+            "DROP TRIGGER IF EXISTS user_account_messages_creation_time_trigger ON user_account_messages",
+
+            "CREATE TRIGGER user_account_messages_creation_time_trigger " +
+                    "BEFORE INSERT ON user_account_messages " +
+                    "FOR EACH ROW EXECUTE PROCEDURE user_account_messages_creation_time()",
+
+            "CREATE OR REPLACE FUNCTION user_message_unread_update() RETURNS trigger AS $$ " +
+                    "DECLARE delta integer := 0; target bigint; " +
+                    "BEGIN " +
+                    "  IF TG_OP = 'INSERT' THEN " +
+                    "    target := NEW.user_id; " +
+                    "    IF NEW.read_time IS NULL THEN delta := 1; END IF; " +
+                    "  ELSIF TG_OP = 'DELETE' THEN " +
+                    "    target := OLD.user_id; " +
+                    "    IF OLD.read_time IS NULL THEN delta := -1; END IF; " +
+                    "  ELSE " +
+                    "    target := NEW.user_id; " +
+                    "    IF OLD.read_time IS NULL AND NEW.read_time IS NOT NULL THEN delta := -1; " +
+                    "    ELSIF OLD.read_time IS NOT NULL AND NEW.read_time IS NULL THEN delta := 1; END IF; " +
+                    "  END IF; " +
+                    "  IF delta <> 0 THEN " +
+                    "    INSERT INTO user_message_unread (user_id, unread) VALUES (target, greatest(delta, 0)) " +
+                    "    ON CONFLICT (user_id) DO UPDATE " +
+                    "    SET unread = greatest(user_message_unread.unread + delta, 0); " +
+                    "  END IF; " +
+                    "  RETURN NULL; " +
+                    "END $$ LANGUAGE plpgsql",
+
+            "DROP TRIGGER IF EXISTS user_message_unread_trigger ON user_account_messages",
+
+            "CREATE TRIGGER user_message_unread_trigger " +
+                    "AFTER INSERT OR DELETE OR UPDATE OF read_time ON user_account_messages " +
+                    "FOR EACH ROW EXECUTE PROCEDURE user_message_unread_update()",
+
+            // Сообщения, добавленные до создания триггеров
+            "UPDATE user_account_messages uam SET message_creation_time = coalesce(m.message_creation_time, now()) " +
+                    "FROM user_message m WHERE m.id = uam.message_id AND uam.message_creation_time IS NULL",
+
+            "INSERT INTO user_message_unread (user_id, unread) " +
+                    "SELECT user_id, count(*) FROM user_account_messages WHERE read_time IS NULL GROUP BY user_id " +
+                    "ON CONFLICT (user_id) DO UPDATE SET unread = EXCLUDED.unread"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createInboxIndex() {
+        log.debug("Создаём индекс входящих сообщений пользователей");
+        for (String ddl : INBOX_DDL) {
+            jdbcTemplate.execute(ddl);
+        }
+        log.debug("Индекс входящих сообщений пользователей создан");
+    }
+}
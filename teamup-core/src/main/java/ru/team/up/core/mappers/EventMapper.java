@@ -1,32 +1,45 @@
-package ru.team.up.core.mappers;
-
-import org.mapstruct.Mapper;
-import org.mapstruct.Mapping;
-import org.mapstruct.factory.Mappers;
-import ru.team.up.core.entity.Event;
-import ru.team.up.dto.EventDto;
-
-import java.util.List;
-
-@Mapper(uses = EventTranslator.class)
-public interface EventMapper {
-
-    EventMapper INSTANCE = Mappers.getMapper(EventMapper.class);
-
-    /**
-     * @return мэппинг Event в DTO
-     */
-    @Mapping(source = "eventNumberOfParticipant", target = "participantsCount")
-    List<EventDto> mapDtoEventToEvent(List<Event> eventList);
-
-    /**
-     * @return мэппинг Event в DTO
-     */
-    @Mapping(source = "eventNumberOfParticipant", target = "participantsCount")
-    EventDto mapEventToDto(Event event);
-
-    /**
-     * @return мэппинг Dto Event в Event
-     */
-    Event mapDtoEventToEvent(EventDto eventDto);
-}
+package ru.team.up.core.mappers;
+
+import org.mapstruct.AfterMapping;
+import org.mapstruct.Context;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.factory.Mappers;
+import ru.team.up.core.entity.Event;
+import ru.team.up.core.service.EventViewCounterService;
+import ru.team.up.dto.EventDto;
+
+import java.util.List;
+
+@Mapper(uses = EventTranslator.class)
+public interface EventMapper {
+
+    EventMapper INSTANCE = Mappers.getMapper(EventMapper.class);
+
+    /**
+     * @return мэппинг Event в DTO с учётом ещё не записанных в БД просмотров
+     */
+    @Mapping(source = "eventNumberOfParticipant", target = "participantsCount")
+    List<EventDto> mapDtoEventToEvent(List<Event> eventList, @Context EventViewCounterService eventViewCounterService);
+
+    /**
+     * @return мэппинг Event в DTO с учётом ещё не записанных в БД просмотров
+     */
+    @Mapping(source = "eventNumberOfParticipant", target = "participantsCount")
+    EventDto mapEventToDto(Event event, @Context EventViewCounterService eventViewCounterService);
+
+    /**
+     * Метод добавляет к количеству просмотров из БД просмотры, ещё не записанные в БД.
+     * Вызывается для каждого мероприятия, отображаемого в DTO
+     */
+    @AfterMapping
+    default void addPendingViews(Event event, @MappingTarget EventDto.EventDtoBuilder eventDto,
+                                 @Context EventViewCounterService eventViewCounterService) {
+        long pending = eventViewCounterService.getPendingViews(event.getId());
+        if (pending > 0) {
+            Integer persisted = event.getCountViewEvent();
+            eventDto.countViewEvent((int) ((persisted == null ? 0 : persisted) + pending));
+        }
+    }
+}
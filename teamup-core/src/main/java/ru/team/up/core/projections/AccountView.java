@@ -0,0 +1,23 @@
+package ru.team.up.core.projections;
+
+import java.time.LocalDateTime;
+
+/**
+ * Представление учётной записи для списков в административном API: без пароля и связанных сущностей
+ */
+public interface AccountView {
+
+    Long getId();
+
+    String getUsername();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getMiddleName();
+
+    String getEmail();
+
+    LocalDateTime getLastAccountActivity();
+}
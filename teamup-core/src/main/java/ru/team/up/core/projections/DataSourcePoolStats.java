@@ -0,0 +1,28 @@
+package ru.team.up.core.projections;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Состояние пула соединений с БД
+ */
+@Value
+@Builder
+public class DataSourcePoolStats {
+    /**
+     * Количество соединений, полученных из пула с запуска приложения
+     */
+    long routedConnections;
+    /**
+     * Соединения, занятые запросами
+     */
+    int active;
+    /**
+     * Свободные соединения
+     */
+    int idle;
+    /**
+     * Потоки, ожидающие соединения
+     */
+    int waiting;
+}
@@ -0,0 +1,32 @@
+package ru.team.up.core.projections;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Статистика распределения соединений между основной БД и репликой
+ */
+@Value
+@Builder
+public class DataSourceRoutingStats {
+    /**
+     * Пул основной БД: запись и чтение вне транзакций только на чтение
+     */
+    DataSourcePoolStats primary;
+    /**
+     * Пул реплики: транзакции только на чтение
+     */
+    DataSourcePoolStats replica;
+    /**
+     * Количество транзакций только на чтение, отправленных в основную БД из-за недоступности или отставания реплики
+     */
+    long fallbackConnections;
+    /**
+     * Отставание реплики в миллисекундах по последней проверке
+     */
+    long replicaLagMillis;
+    /**
+     * Отправляются ли сейчас транзакции только на чтение в реплику
+     */
+    boolean replicaAvailable;
+}
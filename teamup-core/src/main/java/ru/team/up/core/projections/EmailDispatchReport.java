@@ -0,0 +1,35 @@
+package ru.team.up.core.projections;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Итоги одного запуска рассылки уведомлений по электронной почте
+ */
+@Value
+@Builder
+public class EmailDispatchReport {
+    /**
+     * Количество отправленных пачек (SMTP-соединений)
+     */
+    int chunks;
+    /**
+     * Количество отправленных сообщений
+     */
+    int sent;
+    /**
+     * Количество сообщений, которые не удалось отправить
+     */
+    int failed;
+    /**
+     * Длительность рассылки в миллисекундах
+     */
+    long durationMillis;
+
+    /**
+     * @return Количество отправленных сообщений в секунду
+     */
+    public double getMessagesPerSecond() {
+        return durationMillis == 0 ? sent : sent * 1000.0 / durationMillis;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.team.up.core.projections;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Результат записи пользователя на мероприятие или отказа от участия
+ */
+@Value
+@Builder
+public class EventJoinResult {
+
+    /**
+     * Идентификатор мероприятия
+     */
+    Long eventId;
+
+    /**
+     * Идентификатор пользователя
+     */
+    Long userId;
+
+    /**
+     * Итог операции
+     */
+    JoinStatus status;
+
+    /**
+     * Число участников мероприятия после операции
+     */
+    Long participantsCount;
+
+    /**
+     * Максимальное число участников мероприятия
+     */
+    Integer capacity;
+
+    public enum JoinStatus {
+        JOINED,
+        ALREADY_JOINED,
+        EVENT_FULL,
+        LEFT,
+        NOT_PARTICIPANT
+    }
+}
@@ -0,0 +1,33 @@
+package ru.team.up.core.projections;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Представление мероприятия для ответа REST API.
+ * Заполняется конструктором прямо в JPQL-запросе, поэтому не связано с контекстом персистентности
+ * и при сериализации не вызывает ленивой загрузки участников, интересов и автора.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class EventView {
+
+    private final Long id;
+    private final String eventName;
+    private final String descriptionEvent;
+    private final String placeEvent;
+    private final String city;
+    private final LocalDateTime timeEvent;
+    private final LocalDateTime timeEndEvent;
+    private final Boolean eventPrivacy;
+    private final Byte eventNumberOfParticipant;
+    private final Integer countViewEvent;
+    private final String eventType;
+    private final String status;
+    private final Long authorId;
+    private final String authorUsername;
+}
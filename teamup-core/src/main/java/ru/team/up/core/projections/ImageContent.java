@@ -0,0 +1,29 @@
+package ru.team.up.core.projections;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+
+/**
+ * Содержимое изображения или его варианта, выбранное для отдачи клиенту
+ */
+@Value
+@Builder
+public class ImageContent {
+
+    /**
+     * Ключ содержимого в файловом хранилище
+     */
+    String storageKey;
+
+    /**
+     * Формат содержимого (MIME-тип)
+     */
+    String type;
+
+    /**
+     * Путь к файлу с содержимым
+     */
+    Path path;
+}
@@ -0,0 +1,19 @@
+package ru.team.up.core.projections;
+
+import java.time.LocalDateTime;
+
+/**
+ * Входящее сообщение пользователя: сообщение и время его прочтения этим пользователем
+ */
+public interface InboxMessageView {
+
+    Long getId();
+
+    String getMessage();
+
+    Long getOwnerId();
+
+    LocalDateTime getMessageCreationTime();
+
+    LocalDateTime getReadTime();
+}
@@ -0,0 +1,28 @@
+package ru.team.up.core.projections;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Статистика отправки событий в kafka
+ */
+@Value
+@Builder
+public class KafkaSendStats {
+    /**
+     * Количество событий, подтверждённых брокером
+     */
+    long sent;
+    /**
+     * Количество событий, которые не удалось отправить
+     */
+    long failed;
+    /**
+     * Среднее время от отправки до подтверждения в миллисекундах
+     */
+    long averageLatencyMillis;
+    /**
+     * Наибольшее время от отправки до подтверждения в миллисекундах
+     */
+    long maxLatencyMillis;
+}
@@ -0,0 +1,28 @@
+package ru.team.up.core.projections;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Мероприятие на проверке у модератора: только поля, которые показываются модератору.
+ * Заполняется конструктором в JPQL-запросе и передаётся через Kafka и websocket вместо сущности Event,
+ * поэтому не тянет за собой участников, интересы и автора целиком
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ModeratorEventView {
+
+    private Long id;
+    private String eventName;
+    private String placeEvent;
+    private String city;
+    private LocalDateTime timeEvent;
+    private LocalDateTime timeEndEvent;
+    private String eventType;
+    private Long authorId;
+    private String authorUsername;
+}
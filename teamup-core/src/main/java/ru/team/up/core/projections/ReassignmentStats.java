@@ -0,0 +1,32 @@
+package ru.team.up.core.projections;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Статистика повторного назначения мероприятий, снятых с отключившихся модераторов
+ */
+@Value
+@Builder
+public class ReassignmentStats {
+    /**
+     * Количество снятых мероприятий
+     */
+    long released;
+    /**
+     * Количество снятых мероприятий, назначенных другим модераторам
+     */
+    long reassigned;
+    /**
+     * Количество снятых мероприятий, ожидающих назначения
+     */
+    int pending;
+    /**
+     * Среднее время от снятия до повторного назначения в миллисекундах
+     */
+    long averageLatencyMillis;
+    /**
+     * Наибольшее время от снятия до повторного назначения в миллисекундах
+     */
+    long maxLatencyMillis;
+}
@@ -0,0 +1,22 @@
+package ru.team.up.core.projections;
+
+import lombok.Value;
+
+/**
+ * Доля работы экземпляра приложения: объекты, id которых по модулю count равен index
+ */
+@Value
+public class SchedulerPartition {
+    /**
+     * Номер экземпляра среди живых экземпляров
+     */
+    int index;
+    /**
+     * Количество живых экземпляров
+     */
+    int count;
+
+    public boolean contains(long id) {
+        return Math.floorMod(id, count) == index;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.team.up.core.projections;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Результат записи содержимого в хранилище файлов
+ */
+@Value
+@Builder
+public class StoredBlob {
+
+    /**
+     * Ключ содержимого: SHA-256 в шестнадцатеричном виде
+     */
+    String key;
+
+    /**
+     * Размер содержимого в байтах
+     */
+    long size;
+
+    /**
+     * false, если такое же содержимое уже было в хранилище и новый файл не записывался
+     */
+    boolean created;
+}
@@ -0,0 +1,21 @@
+package ru.team.up.core.projections;
+
+/**
+ * Публичное представление пользователя: без пароля, почты и связанных коллекций
+ */
+public interface UserView {
+
+    Long getId();
+
+    String getUsername();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getMiddleName();
+
+    String getCity();
+
+    String getAboutUser();
+}
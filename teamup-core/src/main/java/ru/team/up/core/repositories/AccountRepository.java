@@ -1,10 +1,14 @@
 package ru.team.up.core.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.team.up.core.entity.Account;
+import ru.team.up.core.entity.Image;
 import ru.team.up.core.entity.Role;
+import ru.team.up.core.projections.AccountView;
 
 import java.util.List;
 
@@ -14,4 +18,15 @@ public interface AccountRepository extends JpaRepository<Account, Long> {
     Account findByEmail(String email);
 
     List<Account> findAllByRole(Role role);
+
+    boolean existsByIdAndRole(Long id, Role role);
+
+    @Query("SELECT a.id AS id, a.username AS username, a.firstName AS firstName, a.lastName AS lastName, " +
+            "a.middleName AS middleName, a.email AS email, a.lastAccountActivity AS lastAccountActivity " +
+            "FROM Account a WHERE a.role = :role")
+    List<AccountView> findAccountViewsByRole(@Param("role") Role role);
+
+    @Modifying
+    @Query("UPDATE Account a SET a.image = :image WHERE a.email = :email")
+    int updateImageByEmail(@Param("email") String email, @Param("image") Image image);
 }
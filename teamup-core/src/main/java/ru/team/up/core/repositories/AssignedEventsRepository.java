@@ -5,11 +5,17 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.team.up.core.entity.AssignedEvents;
 import ru.team.up.core.entity.Event;
+import ru.team.up.core.projections.ModeratorEventView;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface AssignedEventsRepository extends JpaRepository<AssignedEvents, Long> {
 
+    String SELECT_MODERATOR_EVENT_VIEW = "SELECT new ru.team.up.core.projections.ModeratorEventView(e.id, " +
+            "e.eventName, e.placeEvent, e.city, e.timeEvent, e.timeEndEvent, t.type, a.id, a.username) " +
+            "FROM Event e JOIN e.authorId a LEFT JOIN e.eventType t ";
+
     /**
      * Метод меняет статус (STATUS_ID) мероприятия
      */
@@ -40,4 +46,20 @@ public interface AssignedEventsRepository extends JpaRepository<AssignedEvents,
      */
     @Query("FROM Event e, AssignedEvents ae WHERE ae.moderatorId = :moderatorId AND ae.eventId = e.id")
     public List<Event> getAllEventsByModeratorId(@Param("moderatorId") Long id);
+
+    /**
+     * Метод получает краткие представления мероприятий, назначенных на модератора
+     * @param id модератора
+     * @return лист проверяющихся мероприятий конкретного модератора в порядке id
+     */
+    @Query(SELECT_MODERATOR_EVENT_VIEW + "JOIN AssignedEvents ae ON ae.eventId = e.id " +
+            "WHERE ae.moderatorId = :moderatorId ORDER BY e.id")
+    public List<ModeratorEventView> getEventViewsByModeratorId(@Param("moderatorId") Long id);
+
+    /**
+     * Метод получает краткие представления мероприятий для отправки модераторам
+     * @param ids мероприятий
+     */
+    @Query(SELECT_MODERATOR_EVENT_VIEW + "WHERE e.id IN :eventIds")
+    public List<ModeratorEventView> getEventViewsByIds(@Param("eventIds") Collection<Long> ids);
 }
@@ -1,32 +1,60 @@
 package ru.team.up.core.repositories;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.team.up.core.entity.Event;
 import ru.team.up.core.entity.EventType;
+import ru.team.up.core.entity.Image;
+import ru.team.up.core.projections.EventView;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface EventRepository extends JpaRepository<Event, Long> {
 
+    String SELECT_EVENT_VIEW = "SELECT new ru.team.up.core.projections.EventView(e.id, e.eventName, " +
+            "e.descriptionEvent, e.placeEvent, e.city, e.timeEvent, e.timeEndEvent, e.eventPrivacy, " +
+            "e.eventNumberOfParticipant, e.countViewEvent, t.type, s.status, a.id, a.username) " +
+            "FROM Event e JOIN e.authorId a LEFT JOIN e.eventType t LEFT JOIN e.status s ";
+
     @Query("FROM Event e where e.authorId.id = :authorId")
     List<Event> findAllByAuthorId(@Param("authorId") Long authorId);
 
     List<Event> findAllByEventType(EventType eventType);
 
-    List<Event> findByEventNameContaining(String eventName);
+    @Query(SELECT_EVENT_VIEW + "WHERE a.id = :authorId")
+    List<EventView> findViewsByAuthorId(@Param("authorId") Long authorId);
 
-    @Modifying
-    @Query("UPDATE Event SET eventNumberOfParticipant = eventNumberOfParticipant + 1 WHERE id = :id")
-    void updateNumberOfViews(@Param("id") Long id);
+    @Query(SELECT_EVENT_VIEW + "WHERE t.id = :eventTypeId")
+    List<EventView> findViewsByEventTypeId(@Param("eventTypeId") Long eventTypeId);
+
+    @Query(SELECT_EVENT_VIEW + "WHERE e.id = :id")
+    Optional<EventView> findViewById(@Param("id") Long id);
+
+    @Query("SELECT e.countViewEvent FROM Event e WHERE e.id = :id")
+    Integer getPersistedCountViewEvent(@Param("id") Long id);
 
     List<Event> findAllByCity(String city);
 
+    @Query("SELECT e.id, e.city, e.authorId.id, e.timeEvent, i.id FROM Event e " +
+            "LEFT JOIN e.eventInterests i WHERE e.timeEvent > :from ORDER BY e.id")
+    List<Object[]> findUpcomingEventsWithInterests(@Param("from") LocalDateTime from);
+
+    @Query("SELECT e.id FROM User u JOIN u.userEvent e WHERE u.id = :userId")
+    List<Long> findParticipatedEventIds(@Param("userId") Long userId);
+
+    @Query("SELECT u.id, e.id FROM User u JOIN u.userEvent e WHERE u.id IN :userIds")
+    List<Object[]> findParticipatedEventIdsByUserIds(@Param("userIds") Collection<Long> userIds);
+
     @Query("FROM Event e join e.participantsEvent p where p.id = :subscriberId")
     List<Event> getAllEventsBySubscriberId(@Param("subscriberId") Long subscriberId);
 
@@ -35,5 +63,75 @@ public interface EventRepository extends JpaRepository<Event, Long> {
             "where e.id = ?1", nativeQuery = true)
     List<Long> getEventUserIds(Long eventId);
 
+    /**
+     * Полнотекстовый поиск по названию, описанию и интересам мероприятия с учётом русской морфологии.
+     * Использует GIN-индекс по SEARCH_VECTOR (см. EventSearchIndexCreator), результаты упорядочены по релевантности.
+     * Пустой город означает поиск по всем городам.
+     */
+    @Query(value = "SELECT e.* FROM event e " +
+            "WHERE e.search_vector @@ plainto_tsquery('russian', :query) " +
+            "AND (:city = '' OR e.city_event = :city) " +
+            "AND e.time_event BETWEEN :from AND :to " +
+            "ORDER BY ts_rank(e.search_vector, plainto_tsquery('russian', :query)) DESC, e.id",
+            countQuery = "SELECT COUNT(*) FROM event e " +
+                    "WHERE e.search_vector @@ plainto_tsquery('russian', :query) " +
+                    "AND (:city = '' OR e.city_event = :city) " +
+                    "AND e.time_event BETWEEN :from AND :to",
+            nativeQuery = true)
+    Page<Event> searchEvents(@Param("query") String query,
+                             @Param("city") String city,
+                             @Param("from") LocalDateTime from,
+                             @Param("to") LocalDateTime to,
+                             Pageable pageable);
+
     List<Event> findByTimeEventBetween(LocalDateTime startDateTime, LocalDateTime endDateTime);
+
+    /**
+     * Мероприятия интервала, id которых по модулю count равен index
+     */
+    @Query("FROM Event e WHERE e.timeEvent BETWEEN :startDateTime AND :endDateTime AND MOD(e.id, :count) = :index")
+    List<Event> findByTimeEventBetweenInPartition(@Param("startDateTime") LocalDateTime startDateTime,
+                                                  @Param("endDateTime") LocalDateTime endDateTime,
+                                                  @Param("index") long index,
+                                                  @Param("count") long count);
+
+    /**
+     * Блокирует строку мероприятия до конца транзакции и возвращает максимальное число участников
+     */
+    @Query(value = "SELECT CAST(e.event_number_of_participant AS INTEGER) FROM event e " +
+            "WHERE e.id = :eventId FOR UPDATE", nativeQuery = true)
+    Optional<Integer> lockEventCapacity(@Param("eventId") Long eventId);
+
+    @Query(value = "SELECT COUNT(*) FROM user_account_event uae WHERE uae.event_id = :eventId", nativeQuery = true)
+    Long countParticipants(@Param("eventId") Long eventId);
+
+    @Query(value = "SELECT COUNT(*) > 0 FROM user_account_event uae " +
+            "WHERE uae.event_id = :eventId AND uae.user_id = :userId", nativeQuery = true)
+    boolean isParticipant(@Param("eventId") Long eventId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "INSERT INTO user_account_event (user_id, event_id) VALUES (:userId, :eventId)",
+            nativeQuery = true)
+    int insertParticipant(@Param("eventId") Long eventId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM user_account_event uae WHERE uae.event_id = :eventId AND uae.user_id = :userId",
+            nativeQuery = true)
+    int deleteParticipant(@Param("eventId") Long eventId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("UPDATE Event e SET e.image = :image WHERE e.id = :eventId")
+    int updateImageById(@Param("eventId") Long eventId, @Param("image") Image image);
+
+    /**
+     * Отмечает отправку напоминания о мероприятии со временем timeEvent
+     *
+     * @return 1, если напоминание об этом времени мероприятия ещё не отправлялось, иначе 0
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO event_reminder (event_id, time_event) VALUES (:eventId, :timeEvent) " +
+            "ON CONFLICT (event_id) DO UPDATE SET time_event = EXCLUDED.time_event " +
+            "WHERE event_reminder.time_event <> EXCLUDED.time_event", nativeQuery = true)
+    int markReminderSent(@Param("eventId") Long eventId, @Param("timeEvent") LocalDateTime timeEvent);
 }
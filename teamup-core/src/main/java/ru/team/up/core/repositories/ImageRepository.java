@@ -1,10 +1,31 @@
 package ru.team.up.core.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.team.up.core.entity.Image;
 
+import java.util.Optional;
+
 @Repository
 public interface ImageRepository extends JpaRepository<Image, Long> {
 
+    Optional<Image> findByStorageKey(String storageKey);
+
+    boolean existsByStorageKey(String storageKey);
+
+    /**
+     * Сохраняет изображение, если изображения с тем же ключом содержимого ещё нет.
+     * Уникальный индекс по STORAGE_KEY не даёт двум одновременным загрузкам одного файла создать две записи
+     *
+     * @return 1, если запись добавлена, 0, если изображение с таким ключом уже есть
+     */
+    @Modifying
+    @Query(value = "INSERT INTO image (id, storage_key, type, size, width, height) " +
+            "VALUES (nextval('image_id_seq'), :#{#image.storageKey}, :#{#image.type}, :#{#image.size}, " +
+            ":#{#image.width}, :#{#image.height}) " +
+            "ON CONFLICT (storage_key) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("image") Image image);
 }
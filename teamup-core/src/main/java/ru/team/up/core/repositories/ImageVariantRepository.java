@@ -0,0 +1,13 @@
+package ru.team.up.core.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ru.team.up.core.entity.ImageVariant;
+
+import java.util.List;
+
+@Repository
+public interface ImageVariantRepository extends JpaRepository<ImageVariant, Long> {
+
+    List<ImageVariant> findAllByImageId(Long imageId);
+}
@@ -43,7 +43,7 @@ public interface ModeratorSessionRepository extends JpaRepository<ModeratorSessi
      *
      * @param downtime - текущее время - указанное в расписании
      */
-    @Query(value = "SELECT ms.id FROM ModeratorSession ms " +
+    @Query(value = "SELECT ms.moderatorId FROM ModeratorSession ms " +
             "WHERE ms.lastUpdateSessionTime <= :downtime")
     public List<Long> getInactiveModerators(@Param("downtime") LocalDateTime downtime);
 }
@@ -1,17 +1,80 @@
 package ru.team.up.core.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import ru.team.up.core.entity.User;
 import ru.team.up.core.entity.UserMessage;
 import ru.team.up.core.entity.UserMessageType;
+import ru.team.up.core.projections.InboxMessageView;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * @author Alexey Tkachenko
  */
 public interface UserMessageRepository extends JpaRepository<UserMessage, Long> {
+
+    String SELECT_INBOX = "SELECT m.id AS \"id\", m.message AS \"message\", m.message_owner AS \"ownerId\", " +
+            "uam.message_creation_time AS \"messageCreationTime\", uam.read_time AS \"readTime\" " +
+            "FROM user_account_messages uam JOIN user_message m ON m.id = uam.message_id " +
+            "WHERE uam.user_id = :userId ";
+
+    String ORDER_INBOX = "ORDER BY uam.message_creation_time DESC, uam.message_id DESC LIMIT :limit";
+
     UserMessage findAllByMessageOwner(User user);
 
     List<UserMessage> findAllByMessageType(UserMessageType userMessageType);
+
+    /**
+     * Очередная пачка сообщений с владельцами после сообщения с id = afterId, размер пачки задаёт pageable
+     */
+    @Query("SELECT m FROM UserMessage m JOIN FETCH m.messageOwner LEFT JOIN FETCH m.status " +
+            "WHERE m.messageType = :messageType AND m.id > :afterId ORDER BY m.id")
+    List<UserMessage> findChunkWithOwner(@Param("messageType") UserMessageType messageType,
+                                         @Param("afterId") Long afterId, Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE UserMessage m SET m.messageType = :messageType WHERE m.id IN :ids")
+    int updateMessageType(@Param("ids") Collection<Long> ids, @Param("messageType") UserMessageType messageType);
+
+    /**
+     * Первая страница входящих сообщений пользователя, от новых к старым
+     */
+    @Query(value = SELECT_INBOX + ORDER_INBOX, nativeQuery = true)
+    List<InboxMessageView> findInbox(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /**
+     * Страница входящих сообщений, следующая за сообщением с данными временем создания и id
+     */
+    @Query(value = SELECT_INBOX +
+            "AND (uam.message_creation_time, uam.message_id) < (:beforeTime, :beforeId) " + ORDER_INBOX,
+            nativeQuery = true)
+    List<InboxMessageView> findInboxBefore(@Param("userId") Long userId,
+                                           @Param("beforeTime") LocalDateTime beforeTime,
+                                           @Param("beforeId") Long beforeId,
+                                           @Param("limit") int limit);
+
+    @Query(value = "SELECT coalesce((SELECT unread FROM user_message_unread WHERE user_id = :userId), 0)",
+            nativeQuery = true)
+    int countUnread(@Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE user_account_messages SET read_time = :readTime " +
+            "WHERE user_id = :userId AND message_id IN (:messageIds) AND read_time IS NULL", nativeQuery = true)
+    int markAsRead(@Param("userId") Long userId, @Param("messageIds") Collection<Long> messageIds,
+                   @Param("readTime") LocalDateTime readTime);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE user_account_messages SET read_time = :readTime " +
+            "WHERE user_id = :userId AND read_time IS NULL", nativeQuery = true)
+    int markAllAsRead(@Param("userId") Long userId, @Param("readTime") LocalDateTime readTime);
 }
@@ -1,11 +1,15 @@
 package ru.team.up.core.repositories;
 
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.team.up.core.entity.Account;
 import ru.team.up.core.entity.Role;
 import ru.team.up.core.entity.User;
+import ru.team.up.core.projections.UserView;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -20,4 +24,23 @@ public interface UserRepository extends AccountRepository {
     List<User> findAllUsersByRole(Role role);
 
     List<User> findUsersByCity(String city);
+
+    @Query("SELECT u.id AS id, u.username AS username, u.firstName AS firstName, u.lastName AS lastName, " +
+            "u.middleName AS middleName, u.city AS city, u.aboutUser AS aboutUser FROM User u WHERE u.role = :role")
+    List<UserView> findUserViewsByRole(@Param("role") Role role);
+
+    @Query("SELECT i.id FROM User u JOIN u.userInterests i WHERE u.id = :userId")
+    List<Long> findInterestIdsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT u.id FROM User u JOIN u.subscribers s WHERE s.id = :userId")
+    List<Long> findFollowedAuthorIds(@Param("userId") Long userId);
+
+    @Query("SELECT u.id, i.id FROM User u JOIN u.userInterests i WHERE u.id IN :userIds")
+    List<Object[]> findInterestIdsByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    @Query("SELECT s.id, u.id FROM User u JOIN u.subscribers s WHERE s.id IN :userIds")
+    List<Object[]> findFollowedAuthorIdsByUserIds(@Param("userIds") Collection<Long> userIds);
+
+    @Query("SELECT u.id, u.city FROM User u WHERE u.lastAccountActivity > :since")
+    List<Object[]> findActiveUsers(@Param("since") LocalDateTime since);
 }
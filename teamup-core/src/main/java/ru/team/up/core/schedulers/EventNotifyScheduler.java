@@ -3,14 +3,16 @@ package ru.team.up.core.schedulers;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import ru.team.up.core.entity.Event;
 import ru.team.up.core.entity.User;
+import ru.team.up.core.projections.SchedulerPartition;
 import ru.team.up.core.service.EventService;
 import ru.team.up.core.service.NotifyService;
+import ru.team.up.core.service.SchedulerLockService;
 import ru.team.up.dto.NotifyDto;
 import ru.team.up.dto.NotifyStatusDto;
 
@@ -23,13 +25,14 @@ import java.util.stream.Collectors;
 /**
  * @author Naul Faizullin, Dmitry Koryanov
  * <p>
- * Класс планировщика (сервиса) для отправки уведомлений пользователям о предстоящих событиях
+ * Класс планировщика (сервиса) для отправки уведомлений пользователям о предстоящих событиях.
+ * Работает на экземплярах с ролью scheduler, если уведомления включены
  */
 
 @Slf4j
 @Service
 @PropertySource("classpath:notification.properties")
-@ConditionalOnProperty(name = "notifications.enabled", matchIfMissing = false)
+@ConditionalOnExpression("${notifications.enabled:false} and ${teamup.node.role.scheduler:true}")
 public class EventNotifyScheduler {
 
     @Autowired
@@ -38,6 +41,9 @@ public class EventNotifyScheduler {
     @Autowired
     NotifyService notifyService;
 
+    @Autowired
+    SchedulerLockService schedulerLockService;
+
     @Value("${notifications.datetime.pattern}")
     String dateTimeFormatterPattern;
 
@@ -51,14 +57,20 @@ public class EventNotifyScheduler {
 
         DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern(dateTimeFormatterPattern);
 
-        log.debug("Получаем список событий с пользователями");
+        // Каждый экземпляр приложения рассылает уведомления только по своей доле мероприятий.
+        // При смене состава экземпляров доли могут пересечься, поэтому отправка отмечается в БД по мероприятию
+        SchedulerPartition partition = schedulerLockService.getPartition();
+        log.debug("Получаем список событий с пользователями, доля экземпляра {} из {}",
+                partition.getIndex(), partition.getCount());
 
-        Map<Event, List<User>> eventUsersMap = eventService.getEventsUsers(startDate, endDate);
+        Map<Event, List<User>> eventUsersMap = eventService.getEventsUsers(startDate, endDate, partition);
 
         log.debug("Создаём список уведомлений");
 
         eventUsersMap
                 .entrySet()
+                .stream()
+                .filter(entry -> eventService.markReminderSent(entry.getKey()))
                 .forEach(entry -> {
                     notifyService.notify(
                             entry
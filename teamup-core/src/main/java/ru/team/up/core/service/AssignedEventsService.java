@@ -2,7 +2,9 @@ package ru.team.up.core.service;
 
 import ru.team.up.core.entity.AssignedEvents;
 import ru.team.up.core.entity.Event;
+import ru.team.up.core.projections.ModeratorEventView;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface AssignedEventsService {
@@ -16,4 +18,8 @@ public interface AssignedEventsService {
     List<Long> getIdAssignedEventsByModeratorId(Long id);
 
     List<Event> getAllEventsByModeratorId(Long id);
+
+    List<ModeratorEventView> getEventViewsByModeratorId(Long id);
+
+    List<ModeratorEventView> getEventViews(Collection<Long> eventIds);
 }
@@ -5,10 +5,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.team.up.core.config.ReadWriteRoutingDataSource;
 import ru.team.up.core.entity.AssignedEvents;
 import ru.team.up.core.entity.Event;
+import ru.team.up.core.projections.ModeratorEventView;
 import ru.team.up.core.repositories.AssignedEventsRepository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Service
@@ -44,13 +47,14 @@ public class AssignedEventsServiceImpl implements AssignedEventsService {
     @Transactional
     @Override
     public List<Long> getIdNotAssignedEvents() {
-        return assignedEventsRepository.getIdNotAssignedEvents();
+        return ReadWriteRoutingDataSource.readFromPrimary(assignedEventsRepository::getIdNotAssignedEvents);
     }
 
     @Transactional
     @Override
     public List<Long> getIdAssignedEventsByModeratorId(Long id) {
-        return assignedEventsRepository.getIdAssignedEventsByModeratorId(id);
+        return ReadWriteRoutingDataSource.readFromPrimary(
+                () -> assignedEventsRepository.getIdAssignedEventsByModeratorId(id));
     }
 
     /**
@@ -71,4 +75,27 @@ public class AssignedEventsServiceImpl implements AssignedEventsService {
 
         return eventList;
     }
+
+    /**
+     * @param id ID модератора
+     * @return Краткие представления назначенных на модератора мероприятий, без загрузки сущностей.
+     * Читаются из основной БД: снимок для websocket строится сразу после назначения, а реплика может отставать
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<ModeratorEventView> getEventViewsByModeratorId(Long id) {
+        log.debug("Получаем краткий список назначенных событий на модератора {}", id);
+        return ReadWriteRoutingDataSource.readFromPrimary(() -> assignedEventsRepository.getEventViewsByModeratorId(id));
+    }
+
+    /**
+     * @param eventIds ID мероприятий
+     * @return Краткие представления мероприятий для отправки модераторам, одним запросом.
+     * Читаются из основной БД, так как вызываются сразу после фиксации назначений
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<ModeratorEventView> getEventViews(Collection<Long> eventIds) {
+        return ReadWriteRoutingDataSource.readFromPrimary(() -> assignedEventsRepository.getEventViewsByIds(eventIds));
+    }
 }
@@ -0,0 +1,37 @@
+package ru.team.up.core.service;
+
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import ru.team.up.core.projections.StoredBlob;
+
+/**
+ * Хранилище двоичного содержимого (изображений) в файловой системе.
+ * Файлы адресуются хэшем содержимого, поэтому одинаковое содержимое хранится один раз.
+ */
+public interface BlobStorageService {
+
+    /**
+     * @param content Поток с содержимым, читается до конца, но не закрывается
+     * @return Ключ и размер записанного содержимого
+     */
+    StoredBlob store(InputStream content);
+
+    /**
+     * @param key Ключ содержимого
+     * @return Путь к файлу с содержимым
+     */
+    Path getPath(String key);
+
+    /**
+     * @param key Ключ содержимого
+     * @return true, если содержимое с таким ключом есть в хранилище
+     */
+    boolean exists(String key);
+
+    /**
+     * @param key Ключ содержимого
+     *            Метод удаляет содержимое, которое не было сохранено в БД
+     */
+    void delete(String key);
+}
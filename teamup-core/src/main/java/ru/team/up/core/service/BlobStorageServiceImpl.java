@@ -0,0 +1,135 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+import ru.team.up.core.projections.StoredBlob;
+
+/**
+ * Хранилище содержимого в локальной файловой системе.
+ * <p>
+ * Содержимое сначала пишется во временный файл с одновременным подсчётом SHA-256,
+ * затем атомарно переносится в root/ab/cd/abcd..., где abcd... - хэш.
+ * Два уровня подкаталогов по первым байтам хэша не дают разрастись одному каталогу.
+ * Если файл с таким хэшем уже есть, временный файл удаляется и повторная запись не выполняется.
+ */
+@Slf4j
+@Service
+@PropertySource("classpath:storage.properties")
+public class BlobStorageServiceImpl implements BlobStorageService {
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path root;
+    private final Path tmp;
+
+    @Autowired
+    public BlobStorageServiceImpl(@Value("${images.storage.root}") String root) {
+        this.root = Paths.get(root).toAbsolutePath();
+        this.tmp = this.root.resolve("tmp");
+        try {
+            Files.createDirectories(tmp);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать каталог хранилища " + this.root, e);
+        }
+        log.debug("Хранилище изображений в каталоге {}", this.root);
+    }
+
+    @Override
+    public StoredBlob store(InputStream content) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(tmp, "upload", ".tmp");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size;
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                size = new DigestInputStream(content, digest).transferTo(out);
+            }
+
+            String key = toHex(digest.digest());
+            Path target = getPath(key);
+            if (Files.exists(target)) {
+                log.debug("Содержимое с ключом {} уже есть в хранилище", key);
+                return StoredBlob.builder().key(key).size(size).created(false).build();
+            }
+
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                log.debug("Содержимое с ключом {} одновременно записано другим запросом", key);
+                return StoredBlob.builder().key(key).size(size).created(false).build();
+            }
+            log.debug("Записано содержимое с ключом {} размером {} байт", key, size);
+
+            return StoredBlob.builder().key(key).size(size).created(true).build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать содержимое в хранилище", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    @Override
+    public Path getPath(String key) {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Некорректный ключ содержимого " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(getPath(key));
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            if (Files.deleteIfExists(getPath(key))) {
+                log.debug("Удалено содержимое с ключом {}", key);
+            }
+        } catch (IOException e) {
+            log.warn("Не удалось удалить содержимое с ключом {}", key, e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить временный файл {}", file, e);
+        }
+    }
+}
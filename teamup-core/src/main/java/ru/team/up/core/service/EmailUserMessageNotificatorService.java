@@ -1,10 +1,12 @@
 package ru.team.up.core.service;
 
+import ru.team.up.core.projections.EmailDispatchReport;
+
 
 /**
  * @author Stepan Glushchenko
  */
 public interface EmailUserMessageNotificatorService {
 
-    void send();
+    EmailDispatchReport send();
 }
@@ -1,51 +1,175 @@
 package ru.team.up.core.service;
 
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 import ru.team.up.core.entity.UserMessage;
 import ru.team.up.core.entity.UserMessageType;
+import ru.team.up.core.projections.EmailDispatchReport;
 import ru.team.up.core.repositories.UserMessageRepository;
 
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * @author Stepan Glushchenko
  * Почтовый сервис, выполняющий отправку уведомления по электронной почте о новом сообщении пользователя
+ * <p>
+ * Неотправленные сообщения загружаются пачками по id вместе с владельцами. Пачка отправляется одним вызовом
+ * JavaMailSender, то есть через одно SMTP-соединение, после чего статус отправленных сообщений
+ * обновляется одним запросом. Пачки отправляются параллельно ограниченным числом потоков.
  */
 @Slf4j
 @Service
-@AllArgsConstructor(onConstructor = @__(@Autowired))
+@PropertySource("classpath:email-notificator.properties")
 public class EmailUserMessageNotificatorServiceImpl implements EmailUserMessageNotificatorService {
 
-    private UserMessageRepository userMessageRepository;
-    private JavaMailSender emailSender;
+    private final UserMessageRepository userMessageRepository;
+    private final JavaMailSender emailSender;
+    private final int chunkSize;
+    private final int workers;
+    private final ExecutorService executor;
+
+    @Autowired
+    public EmailUserMessageNotificatorServiceImpl(UserMessageRepository userMessageRepository,
+                                                  JavaMailSender emailSender,
+                                                  @Value("${email.notificator.chunk.size}") int chunkSize,
+                                                  @Value("${email.notificator.workers}") int workers) {
+        this.userMessageRepository = userMessageRepository;
+        this.emailSender = emailSender;
+        this.chunkSize = chunkSize;
+        this.workers = workers;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(workers, r -> {
+            Thread thread = new Thread(r, "email-notificator-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
     /**
      * Метод отправляет уведомления по электронной почте о новом сообщении пользователя.
+     * Сообщения, которые не удалось отправить, остаются неотправленными до следующего запуска.
      */
     @Override
-    public void send() {
-        for (UserMessage userMessage : userMessageRepository.findAllByMessageType(UserMessageType.NOT_SENT)) {
-            log.debug("Подготовка сообщения id:{} к отправке для пользователя {}",
-                    userMessage.getId(), userMessage.getMessageOwner().getUsername());
+    public EmailDispatchReport send() {
+        long start = System.currentTimeMillis();
+        CompletionService<int[]> completionService = new ExecutorCompletionService<>(executor);
+        int chunks = 0;
+        int inFlight = 0;
+        int sent = 0;
+        int failed = 0;
+
+        Long afterId = 0L;
+        List<UserMessage> chunk = userMessageRepository.findChunkWithOwner(UserMessageType.NOT_SENT, afterId,
+                PageRequest.of(0, chunkSize));
+        while (!chunk.isEmpty()) {
+            if (inFlight == workers) {
+                int[] result = takeResult(completionService);
+                sent += result[0];
+                failed += result[1];
+                inFlight--;
+            }
+            List<UserMessage> toSend = chunk;
+            completionService.submit(() -> sendChunk(toSend));
+            chunks++;
+            inFlight++;
+
+            afterId = chunk.get(chunk.size() - 1).getId();
+            chunk = chunk.size() < chunkSize ? List.of() : userMessageRepository.findChunkWithOwner(
+                    UserMessageType.NOT_SENT, afterId, PageRequest.of(0, chunkSize));
+        }
+        for (; inFlight > 0; inFlight--) {
+            int[] result = takeResult(completionService);
+            sent += result[0];
+            failed += result[1];
+        }
+
+        EmailDispatchReport report = EmailDispatchReport.builder()
+                .chunks(chunks)
+                .sent(sent)
+                .failed(failed)
+                .durationMillis(System.currentTimeMillis() - start)
+                .build();
+        log.debug("Рассылка уведомлений завершена: пачек {}, отправлено {}, с ошибкой {}, за {} мс ({} сообщений/с)",
+                report.getChunks(), report.getSent(), report.getFailed(), report.getDurationMillis(),
+                String.format("%.1f", report.getMessagesPerSecond()));
+
+        return report;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * @return Количество отправленных сообщений и количество сообщений с ошибкой
+     */
+    private int[] sendChunk(List<UserMessage> chunk) {
+        SimpleMailMessage[] messages = new SimpleMailMessage[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            UserMessage userMessage = chunk.get(i);
             SimpleMailMessage message = new SimpleMailMessage();
             message.setTo(userMessage.getMessageOwner().getEmail());
             message.setSubject("Новое сообщение");
             message.setText(userMessage.toString());
-            try {
-                emailSender.send(message);
-            } catch (MailException e) {
-                log.debug("Ошибка при отправке уведомлений по электронной почте. Сообщение id:{}, пользователь:{}. {}",
-                        userMessage.getId(), userMessage.getMessageOwner().getUsername(), e.toString());
-                continue;
+            messages[i] = message;
+        }
+
+        Set<Object> failedMessages = Set.of();
+        try {
+            emailSender.send(messages);
+        } catch (MailSendException e) {
+            // Сообщения, отправленные до ошибки, считаются отправленными
+            failedMessages = e.getFailedMessages().keySet();
+            log.debug("Ошибка при отправке уведомлений по электронной почте для {} из {} сообщений. {}",
+                    failedMessages.size(), chunk.size(), e.toString());
+        } catch (MailException e) {
+            log.debug("Ошибка при отправке уведомлений по электронной почте для пачки из {} сообщений. {}",
+                    chunk.size(), e.toString());
+            return new int[]{0, chunk.size()};
+        }
+
+        List<Long> sentIds = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (!failedMessages.contains(messages[i])) {
+                sentIds.add(chunk.get(i).getId());
             }
-            userMessage.setMessageType(UserMessageType.SENT);
-            userMessageRepository.save(userMessage);
-            log.debug("Уведомление по электронной почте о сообщении id:{} для пользователя {} отправлены.",
-                    userMessage.getId(), userMessage.getMessageOwner().getUsername());
+        }
+        if (!sentIds.isEmpty()) {
+            userMessageRepository.updateMessageType(sentIds, UserMessageType.SENT);
+        }
+        log.debug("Уведомления по электронной почте отправлены для {} из {} сообщений пачки",
+                sentIds.size(), chunk.size());
+
+        return new int[]{sentIds.size(), chunk.size() - sentIds.size()};
+    }
+
+    private static int[] takeResult(CompletionService<int[]> completionService) {
+        try {
+            return completionService.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Рассылка уведомлений прервана", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка при рассылке уведомлений", e.getCause());
         }
     }
-}
\ No newline at end of file
+}
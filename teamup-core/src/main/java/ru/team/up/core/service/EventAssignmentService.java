@@ -0,0 +1,20 @@
+package ru.team.up.core.service;
+
+import ru.team.up.core.entity.AssignedEvents;
+import ru.team.up.core.projections.ReassignmentStats;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Пакетное распределение новых мероприятий на модераторов
+ */
+public interface EventAssignmentService {
+
+    List<AssignedEvents> assignNewEvents(int eventLimitation, int batchSize);
+
+    List<Long> releaseModerators(Collection<Long> moderatorIds, LocalDateTime inactiveBefore);
+
+    ReassignmentStats getReassignmentStats();
+}
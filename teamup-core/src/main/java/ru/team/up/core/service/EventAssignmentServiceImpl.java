@@ -0,0 +1,288 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.team.up.core.entity.AssignedEvents;
+import ru.team.up.core.projections.ReassignmentStats;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Распределение новых мероприятий на модераторов набором запросов вместо нескольких запросов на мероприятие.
+ * <p>
+ * Сессии модераторов с запасом до лимита и нераспределённые мероприятия блокируются FOR UPDATE SKIP LOCKED,
+ * поэтому несколько экземпляров приложения распределяют мероприятия одновременно, не мешая друг другу.
+ * Мероприятия раздаются в памяти наименее загруженному модератору, назначения вставляются одним запросом,
+ * счётчики модераторов обновляются одним пакетом. Уникальный event_id в ASSIGNED_EVENTS
+ * не даёт назначить мероприятие дважды.
+ * <p>
+ * При отключении модераторов их сессии и назначения удаляются двумя запросами, освобождённые мероприятия
+ * запоминаются, чтобы измерить время до их повторного назначения. Мероприятия, которые уже не ждут
+ * назначения по БД (назначены другим экземпляром, одобрены, отклонены или удалены), из памяти убираются.
+ */
+@Slf4j
+@Service
+public class EventAssignmentServiceImpl implements EventAssignmentService {
+
+    private static final String LOCK_MODERATORS_SQL =
+            "SELECT moderator_id, amount_of_moderators_events FROM moderator_session " +
+            "WHERE amount_of_moderators_events < ? ORDER BY moderator_id FOR UPDATE SKIP LOCKED";
+
+    private static final String LOCK_EVENTS_SQL =
+            "SELECT e.id FROM event e WHERE e.status_id = 2 " +
+            "AND NOT EXISTS (SELECT 1 FROM assigned_events ae WHERE ae.event_id = e.id) " +
+            "ORDER BY e.id LIMIT ? FOR UPDATE OF e SKIP LOCKED";
+
+    private static final String INSERT_ASSIGNMENTS_SQL =
+            "INSERT INTO assigned_events (moderator_id, event_id) " +
+            "SELECT * FROM unnest(?::bigint[], ?::bigint[]) " +
+            "ON CONFLICT (event_id) DO NOTHING RETURNING id, moderator_id, event_id";
+
+    private static final String INCREMENT_COUNTER_SQL =
+            "UPDATE moderator_session SET amount_of_moderators_events = amount_of_moderators_events + ? " +
+            "WHERE moderator_id = ?";
+
+    /**
+     * Присутствие модераторов отслеживается в памяти каждого экземпляра, поэтому модератор, отключившийся
+     * от одного экземпляра, может быть уже подключён к другому. Сессия удаляется, только если время
+     * последней активности в БД, которое записывают все экземпляры, тоже старше порога
+     */
+    private static final String DELETE_INACTIVE_SESSIONS_SQL =
+            "DELETE FROM moderator_session WHERE moderator_id = ANY(?) AND last_updated_session_time <= ? " +
+            "RETURNING moderator_id";
+
+    private static final String RELEASE_ASSIGNMENTS_SQL =
+            "DELETE FROM assigned_events WHERE moderator_id = ANY(?) RETURNING event_id";
+
+    private static final String WAITING_EVENTS_SQL =
+            "SELECT e.id FROM event e WHERE e.id = ANY(?) AND e.status_id = 2 " +
+            "AND NOT EXISTS (SELECT 1 FROM assigned_events ae WHERE ae.event_id = e.id)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Время снятия в миллисекундах по id мероприятия, ожидающего повторного назначения
+     */
+    private final Map<Long, Long> releasedAt = new ConcurrentHashMap<>();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder reassigned = new LongAdder();
+    private final LongAdder reassignmentLatency = new LongAdder();
+    private final AtomicLong maxReassignmentLatency = new AtomicLong();
+
+    @Autowired
+    public EventAssignmentServiceImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param eventLimitation Максимальное количество мероприятий на одном модераторе
+     * @param batchSize       Максимальное количество мероприятий, распределяемых за один вызов
+     * @return Созданные назначения
+     */
+    @Override
+    @Transactional
+    public List<AssignedEvents> assignNewEvents(int eventLimitation, int batchSize) {
+        pruneReleased();
+
+        Map<Long, Long> loads = new LinkedHashMap<>();
+        jdbcTemplate.query(LOCK_MODERATORS_SQL,
+                (RowCallbackHandler) rs -> loads.put(rs.getLong(1), rs.getLong(2)), eventLimitation);
+
+        long capacity = loads.values().stream().mapToLong(load -> eventLimitation - load).sum();
+        if (capacity == 0) {
+            log.debug("Нет свободных модераторов или у них максимальное количество мероприятий");
+            return List.of();
+        }
+
+        List<Long> eventIds = jdbcTemplate.queryForList(LOCK_EVENTS_SQL, Long.class,
+                (int) Math.min(batchSize, capacity));
+        if (eventIds.isEmpty()) {
+            log.debug("Список новых мероприятий пуст");
+            return List.of();
+        }
+
+        List<AssignedEvents> assigned = insert(distribute(eventIds, loads, eventLimitation));
+
+        Map<Long, Integer> increments = new HashMap<>();
+        assigned.forEach(a -> increments.merge(a.getModeratorId(), 1, Integer::sum));
+        jdbcTemplate.batchUpdate(INCREMENT_COUNTER_SQL, new ArrayList<>(increments.entrySet()), increments.size(),
+                (ps, increment) -> {
+                    ps.setInt(1, increment.getValue());
+                    ps.setLong(2, increment.getKey());
+                });
+
+        long now = System.currentTimeMillis();
+        for (AssignedEvents assignedEvent : assigned) {
+            Long releaseTime = releasedAt.remove(assignedEvent.getEventId());
+            if (releaseTime != null) {
+                long latency = now - releaseTime;
+                reassigned.increment();
+                reassignmentLatency.add(latency);
+                maxReassignmentLatency.accumulateAndGet(latency, Math::max);
+            }
+        }
+
+        log.debug("Распределено {} мероприятий на {} модераторов", assigned.size(), increments.size());
+        return assigned;
+    }
+
+    /**
+     * Снятие всех мероприятий с модераторов и удаление их сессий, вместе с которыми сбрасываются счётчики.
+     * Модераторы, активность которых в БД новее порога, не снимаются
+     *
+     * @param moderatorIds   ID модераторов, отключившихся по данным вызывающего
+     * @param inactiveBefore Время, не позже которого должна быть последняя активность модератора в БД
+     * @return ID освобождённых мероприятий
+     */
+    @Override
+    @Transactional
+    public List<Long> releaseModerators(Collection<Long> moderatorIds, LocalDateTime inactiveBefore) {
+        if (moderatorIds.isEmpty()) {
+            return List.of();
+        }
+        Long[] candidates = moderatorIds.toArray(new Long[0]);
+
+        Long[] ids = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(DELETE_INACTIVE_SESSIONS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", candidates));
+            ps.setTimestamp(2, Timestamp.valueOf(inactiveBefore));
+            return ps;
+        }, (rs, rowNum) -> rs.getLong(1)).toArray(new Long[0]);
+        if (ids.length < candidates.length) {
+            log.debug("Модераторы активны на другом экземпляре или уже сняты, снимаются только {}", List.of(ids));
+        }
+        if (ids.length == 0) {
+            return List.of();
+        }
+
+        List<Long> eventIds = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(RELEASE_ASSIGNMENTS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        }, (rs, rowNum) -> rs.getLong(1));
+
+        long now = System.currentTimeMillis();
+        eventIds.forEach(eventId -> releasedAt.put(eventId, now));
+        released.add(eventIds.size());
+        log.debug("С модераторов {} снято {} мероприятий", List.of(ids), eventIds.size());
+        return eventIds;
+    }
+
+    /**
+     * @return Статистика, в которой ожидающими считаются только снятые мероприятия, всё ещё ждущие назначения по БД
+     */
+    @Override
+    public ReassignmentStats getReassignmentStats() {
+        pruneReleased();
+        long count = reassigned.sum();
+        return ReassignmentStats.builder()
+                .released(released.sum())
+                .reassigned(count)
+                .pending(releasedAt.size())
+                .averageLatencyMillis(count == 0 ? 0 : reassignmentLatency.sum() / count)
+                .maxLatencyMillis(maxReassignmentLatency.get())
+                .build();
+    }
+
+    /**
+     * Удаление из памяти снятых мероприятий, которые больше не ждут назначения
+     */
+    private void pruneReleased() {
+        Long[] ids = releasedAt.keySet().toArray(new Long[0]);
+        if (ids.length == 0) {
+            return;
+        }
+
+        Set<Long> waiting = new HashSet<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(WAITING_EVENTS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        }, (RowCallbackHandler) rs -> waiting.add(rs.getLong(1)));
+
+        int pruned = 0;
+        for (Long eventId : ids) {
+            if (!waiting.contains(eventId) && releasedAt.remove(eventId) != null) {
+                pruned++;
+            }
+        }
+        if (pruned > 0) {
+            log.debug("Снятых мероприятий больше не ждут назначения: {}", pruned);
+        }
+    }
+
+    /**
+     * Каждое мероприятие достаётся модератору с наименьшим количеством мероприятий,
+     * при равенстве - модератору с меньшим id
+     *
+     * @param eventIds        Мероприятия в порядке поступления
+     * @param loads           Текущее количество мероприятий по id модератора
+     * @param eventLimitation Максимальное количество мероприятий на одном модераторе
+     * @return Назначения, мероприятия сверх общего лимита не назначаются
+     */
+    static List<AssignedEvents> distribute(List<Long> eventIds, Map<Long, Long> loads, int eventLimitation) {
+        PriorityQueue<long[]> heap = new PriorityQueue<>(Math.max(1, loads.size()),
+                Comparator.<long[]>comparingLong(load -> load[1]).thenComparingLong(load -> load[0]));
+        loads.forEach((moderatorId, load) -> {
+            if (load < eventLimitation) {
+                heap.add(new long[]{moderatorId, load});
+            }
+        });
+
+        List<AssignedEvents> assignments = new ArrayList<>(eventIds.size());
+        for (Long eventId : eventIds) {
+            long[] moderator = heap.poll();
+            if (moderator == null) {
+                break;
+            }
+            assignments.add(AssignedEvents.builder()
+                    .moderatorId(moderator[0])
+                    .eventId(eventId)
+                    .build());
+            if (++moderator[1] < eventLimitation) {
+                heap.add(moderator);
+            }
+        }
+        return assignments;
+    }
+
+    /**
+     * Все назначения вставляются одним запросом
+     *
+     * @return Вставленные назначения с id
+     */
+    private List<AssignedEvents> insert(List<AssignedEvents> assignments) {
+        Long[] moderatorIds = assignments.stream().map(AssignedEvents::getModeratorId).toArray(Long[]::new);
+        Long[] eventIds = assignments.stream().map(AssignedEvents::getEventId).toArray(Long[]::new);
+
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_ASSIGNMENTS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", moderatorIds));
+            ps.setArray(2, con.createArrayOf("bigint", eventIds));
+            return ps;
+        }, (rs, rowNum) -> AssignedEvents.builder()
+                .id(rs.getLong(1))
+                .moderatorId(rs.getLong(2))
+                .eventId(rs.getLong(3))
+                .build());
+    }
+}
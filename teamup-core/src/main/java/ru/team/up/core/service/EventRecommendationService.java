@@ -0,0 +1,23 @@
+package ru.team.up.core.service;
+
+import java.util.List;
+
+/**
+ * Сервис рекомендаций мероприятий пользователю.
+ * Предстоящие мероприятия ранжируются по совпадению интересов, подписке на автора и городу пользователя.
+ */
+public interface EventRecommendationService {
+
+    /**
+     * @param userId Уникальный ключ ID пользователя
+     * @param limit  Максимальное количество мероприятий
+     * @return ID рекомендованных пользователю мероприятий в порядке убывания релевантности
+     */
+    List<Long> getRecommendedEventIds(Long userId, int limit);
+
+    /**
+     * @param userId Уникальный ключ ID пользователя
+     *               Метод сбрасывает заранее рассчитанные рекомендации пользователя
+     */
+    void evictRecommendations(Long userId);
+}
@@ -0,0 +1,306 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.team.up.core.entity.User;
+import ru.team.up.core.exception.UserNotFoundIDException;
+import ru.team.up.core.repositories.EventRepository;
+import ru.team.up.core.repositories.UserRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Рекомендации мероприятий по интересам пользователя.
+ * <p>
+ * Предстоящие мероприятия периодически загружаются из БД в снимок из параллельных массивов.
+ * Интересы - небольшой справочник, поэтому набор интересов мероприятия хранится битовой маской,
+ * а число общих интересов с пользователем считается через AND и bitCount без создания объектов.
+ * Для активных пользователей рекомендации рассчитываются заранее по расписанию: интересы, подписки
+ * и участия загружаются для пачки пользователей тремя запросами, а не отдельными запросами на каждого.
+ * Для остальных пользователей рекомендации рассчитываются при запросе по тому же снимку.
+ */
+@Slf4j
+@Service
+@PropertySource("classpath:recommendations.properties")
+public class EventRecommendationServiceImpl implements EventRecommendationService {
+
+    private final EventRepository eventRepository;
+    private final UserRepository userRepository;
+    private final double interestWeight;
+    private final double authorWeight;
+    private final double cityWeight;
+    private final long activeDays;
+    private final int precomputeSize;
+    private final int maxLimit;
+    private final int precomputeBatch;
+
+    private final Map<Long, List<Long>> precomputed = new ConcurrentHashMap<>();
+    private volatile CandidateSnapshot snapshot;
+
+    @Autowired
+    public EventRecommendationServiceImpl(EventRepository eventRepository,
+                                          UserRepository userRepository,
+                                          @Value("${recommendations.weight.interest}") double interestWeight,
+                                          @Value("${recommendations.weight.author}") double authorWeight,
+                                          @Value("${recommendations.weight.city}") double cityWeight,
+                                          @Value("${recommendations.active.days}") long activeDays,
+                                          @Value("${recommendations.precompute.size}") int precomputeSize,
+                                          @Value("${recommendations.limit.max}") int maxLimit,
+                                          @Value("${recommendations.precompute.batch}") int precomputeBatch) {
+        this.eventRepository = eventRepository;
+        this.userRepository = userRepository;
+        this.interestWeight = interestWeight;
+        this.authorWeight = authorWeight;
+        this.cityWeight = cityWeight;
+        this.activeDays = activeDays;
+        this.precomputeSize = precomputeSize;
+        this.maxLimit = maxLimit;
+        this.precomputeBatch = precomputeBatch;
+    }
+
+    @Override
+    public List<Long> getRecommendedEventIds(Long userId, int limit) {
+        List<Long> cached = precomputed.get(userId);
+        if (cached != null && limit <= precomputeSize) {
+            log.debug("Рекомендации пользователя с ID {} взяты из заранее рассчитанных", userId);
+            return cached.subList(0, Math.min(limit, cached.size()));
+        }
+
+        User user = userRepository.findUserById(userId);
+        if (user == null) {
+            throw new UserNotFoundIDException(userId);
+        }
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        return recommend(userId, user.getCity(),
+                userRepository.findInterestIdsByUserId(userId),
+                new HashSet<>(userRepository.findFollowedAuthorIds(userId)),
+                new HashSet<>(eventRepository.findParticipatedEventIds(userId)),
+                limit);
+    }
+
+    @Override
+    public void evictRecommendations(Long userId) {
+        precomputed.remove(userId);
+    }
+
+    /**
+     * Метод обновляет снимок предстоящих мероприятий и пересчитывает рекомендации активных пользователей
+     */
+    @Scheduled(fixedDelayString = "${recommendations.precompute.delay}")
+    public void precompute() {
+        snapshot = loadSnapshot();
+
+        Map<Long, String> activeUsers = new HashMap<>();
+        userRepository.findActiveUsers(LocalDateTime.now().minusDays(activeDays))
+                .forEach(row -> activeUsers.put((Long) row[0], (String) row[1]));
+        precomputed.keySet().retainAll(activeUsers.keySet());
+
+        List<Long> activeUserIds = new ArrayList<>(activeUsers.keySet());
+        for (int from = 0; from < activeUserIds.size(); from += precomputeBatch) {
+            List<Long> batch = activeUserIds.subList(from, Math.min(from + precomputeBatch, activeUserIds.size()));
+            Map<Long, Set<Long>> interests = groupByUser(userRepository.findInterestIdsByUserIds(batch));
+            Map<Long, Set<Long>> followedAuthors = groupByUser(userRepository.findFollowedAuthorIdsByUserIds(batch));
+            Map<Long, Set<Long>> joinedEvents = groupByUser(eventRepository.findParticipatedEventIdsByUserIds(batch));
+
+            for (Long userId : batch) {
+                precomputed.put(userId, Collections.unmodifiableList(recommend(userId, activeUsers.get(userId),
+                        interests.getOrDefault(userId, Collections.emptySet()),
+                        followedAuthors.getOrDefault(userId, Collections.emptySet()),
+                        joinedEvents.getOrDefault(userId, Collections.emptySet()),
+                        precomputeSize)));
+            }
+        }
+        log.debug("Рекомендации рассчитаны для {} активных пользователей по {} мероприятиям",
+                activeUsers.size(), snapshot.size());
+    }
+
+    /**
+     * Метод группирует строки (ID пользователя, ID связанной записи) по пользователю
+     */
+    private static Map<Long, Set<Long>> groupByUser(List<Object[]> rows) {
+        Map<Long, Set<Long>> grouped = new HashMap<>();
+        for (Object[] row : rows) {
+            grouped.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((Long) row[1]);
+        }
+        return grouped;
+    }
+
+    private List<Long> recommend(Long userId, String city, Collection<Long> interestIds,
+                                 Set<Long> followedAuthors, Set<Long> joinedEvents, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        CandidateSnapshot candidates = snapshot;
+        if (candidates == null) {
+            candidates = loadSnapshot();
+            snapshot = candidates;
+        }
+        // Размер выдачи приходит из запроса, поэтому массивы ограничены настройкой и числом кандидатов
+        int size = Math.min(Math.min(limit, maxLimit), candidates.size());
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+
+        long[] userInterests = candidates.toBits(interestIds);
+        long now = toEpochSecond(LocalDateTime.now());
+
+        // Лучшие кандидаты в порядке убывания рейтинга, size обычно мал, поэтому хватает вставки в массив
+        int[] top = new int[size];
+        double[] topScores = new double[size];
+        int found = 0;
+
+        for (int i = 0; i < candidates.size(); i++) {
+            if (candidates.startTimes[i] <= now
+                    || userId.equals(candidates.authorIds[i])
+                    || joinedEvents.contains(candidates.eventIds[i])) {
+                continue;
+            }
+
+            double score = interestWeight * commonInterests(userInterests, candidates.interests[i]);
+            if (followedAuthors.contains(candidates.authorIds[i])) {
+                score += authorWeight;
+            }
+            if (city != null && city.equals(candidates.cities[i])) {
+                score += cityWeight;
+            }
+            if (score <= 0 || (found == size && !isBetter(candidates, i, score, top[size - 1], topScores[size - 1]))) {
+                continue;
+            }
+
+            int position = found < size ? found++ : size - 1;
+            while (position > 0 && isBetter(candidates, i, score, top[position - 1], topScores[position - 1])) {
+                top[position] = top[position - 1];
+                topScores[position] = topScores[position - 1];
+                position--;
+            }
+            top[position] = i;
+            topScores[position] = score;
+        }
+
+        List<Long> recommended = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            recommended.add(candidates.eventIds[top[i]]);
+        }
+        log.debug("Для пользователя с ID {} подобрано {} мероприятий", userId, found);
+
+        return recommended;
+    }
+
+    /**
+     * При равном рейтинге выше то мероприятие, которое начнётся раньше
+     */
+    private static boolean isBetter(CandidateSnapshot candidates, int index, double score,
+                                    int otherIndex, double otherScore) {
+        return score > otherScore
+                || (score == otherScore && candidates.startTimes[index] < candidates.startTimes[otherIndex]);
+    }
+
+    private static int commonInterests(long[] userInterests, long[] eventInterests) {
+        int common = 0;
+        for (int word = 0; word < userInterests.length; word++) {
+            common += Long.bitCount(userInterests[word] & eventInterests[word]);
+        }
+        return common;
+    }
+
+    private CandidateSnapshot loadSnapshot() {
+        // Строки отсортированы по ID мероприятия: по строке на каждый интерес мероприятия
+        List<Object[]> rows = eventRepository.findUpcomingEventsWithInterests(LocalDateTime.now());
+
+        Map<Long, Integer> interestIndex = new HashMap<>();
+        int eventCount = 0;
+        Object previousEventId = null;
+        for (Object[] row : rows) {
+            if (!row[0].equals(previousEventId)) {
+                eventCount++;
+                previousEventId = row[0];
+            }
+            if (row[4] != null) {
+                interestIndex.putIfAbsent((Long) row[4], interestIndex.size());
+            }
+        }
+
+        int words = (interestIndex.size() + Long.SIZE - 1) / Long.SIZE;
+        CandidateSnapshot loaded = new CandidateSnapshot(interestIndex, words, eventCount);
+        int index = -1;
+        previousEventId = null;
+        for (Object[] row : rows) {
+            if (!row[0].equals(previousEventId)) {
+                index++;
+                previousEventId = row[0];
+                loaded.eventIds[index] = (Long) row[0];
+                loaded.cities[index] = (String) row[1];
+                loaded.authorIds[index] = (Long) row[2];
+                loaded.startTimes[index] = toEpochSecond((LocalDateTime) row[3]);
+            }
+            if (row[4] != null) {
+                int bit = interestIndex.get((Long) row[4]);
+                loaded.interests[index][bit / Long.SIZE] |= 1L << bit;
+            }
+        }
+        log.debug("Загружено {} предстоящих мероприятий с {} интересами", eventCount, interestIndex.size());
+
+        return loaded;
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Снимок предстоящих мероприятий: i-е мероприятие описывается i-ми элементами массивов
+     */
+    private static class CandidateSnapshot {
+        private final Map<Long, Integer> interestIndex;
+        private final int words;
+        private final Long[] eventIds;
+        private final String[] cities;
+        private final Long[] authorIds;
+        private final long[] startTimes;
+        private final long[][] interests;
+
+        private CandidateSnapshot(Map<Long, Integer> interestIndex, int words, int size) {
+            this.interestIndex = interestIndex;
+            this.words = words;
+            this.eventIds = new Long[size];
+            this.cities = new String[size];
+            this.authorIds = new Long[size];
+            this.startTimes = new long[size];
+            this.interests = new long[size][words];
+        }
+
+        private int size() {
+            return eventIds.length;
+        }
+
+        /**
+         * Интересы, которых нет ни у одного предстоящего мероприятия, на рейтинг не влияют и пропускаются
+         */
+        private long[] toBits(Collection<Long> interestIds) {
+            long[] bits = new long[words];
+            for (Long interestId : interestIds) {
+                Integer bit = interestIndex.get(interestId);
+                if (bit != null) {
+                    bits[bit / Long.SIZE] |= 1L << bit;
+                }
+            }
+            return bits;
+        }
+    }
+}
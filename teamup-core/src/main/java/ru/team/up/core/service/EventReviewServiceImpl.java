@@ -26,6 +26,7 @@ public class EventReviewServiceImpl implements EventReviewService {
     private UserMessageRepository userMessageRepository;
     private NotifyService notifyService;
     private StatusRepository statusRepository;
+    private EventTrendingService eventTrendingService;
 
     @Override
     @Transactional
@@ -53,6 +54,8 @@ public class EventReviewServiceImpl implements EventReviewService {
         EventReview eventReviewSave = eventReviewRepository.save(eventReview);
         log.debug("Сохранили отзыв для мероприятия с ID {} в БД ", eventReviewSave.getReviewForEvent().getId());
 
+        eventTrendingService.registerReview(event.getId(), event.getCity(), eventReview.getEventGrade());
+
         return eventReviewSave;
     }
 }
@@ -1,7 +1,11 @@
 package ru.team.up.core.service;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import ru.team.up.core.entity.Event;
 import ru.team.up.core.entity.User;
+import ru.team.up.core.projections.EventJoinResult;
+import ru.team.up.core.projections.SchedulerPartition;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -19,6 +23,16 @@ public interface EventService {
 
     Event getOneEvent(Long id);
 
+    /**
+     * @param query    Поисковый запрос
+     * @param city     Город проведения мероприятий, null - все города
+     * @param from     Начало интервала времени проведения, null - без ограничения
+     * @param to       Конец интервала времени проведения, null - без ограничения
+     * @param pageable Параметры страницы
+     * @return Страница мероприятий, найденных по названию, описанию и интересам, в порядке релевантности
+     */
+    Page<Event> searchEvents(String query, String city, LocalDateTime from, LocalDateTime to, Pageable pageable);
+
     Event saveEvent(Event event);
 
     Event updateEvent(Event event);
@@ -27,6 +41,20 @@ public interface EventService {
 
     void addParticipantEvent(Long Id, User user);
 
+    /**
+     * @param eventId Уникальный ключ ID мероприятия
+     * @param userId  Уникальный ключ ID пользователя
+     *                Метод записывает пользователя на мероприятие, если в нём остались свободные места
+     */
+    EventJoinResult joinEvent(Long eventId, Long userId);
+
+    /**
+     * @param eventId Уникальный ключ ID мероприятия
+     * @param userId  Уникальный ключ ID пользователя
+     *                Метод удаляет пользователя из участников мероприятия
+     */
+    EventJoinResult leaveEvent(Long eventId, Long userId);
+
     /**
      * @param eventId Уникальный ключ ID мероприятия
      *           Метод меняет статус мероприятия на одобренный
@@ -39,10 +67,28 @@ public interface EventService {
      */
     void eventClosedByModerator(Long eventId);
 
-    void updateNumberOfViews(Long id);
+    /**
+     * @param event Мероприятие, уже загруженное вызывающим
+     *              Метод учитывает просмотр мероприятия
+     */
+    void updateNumberOfViews(Event event);
 
     List<Event> getAllEventsBySubscriberId(Long subscriberId);
 
+    /**
+     * @param city  Город проведения мероприятий
+     * @param limit Максимальное количество мероприятий
+     * @return Самые популярные сейчас мероприятия города в порядке убывания популярности
+     */
+    List<Event> getTrendingEvents(String city, int limit);
+
+    /**
+     * @param userId Id пользователя
+     * @param limit  Максимальное количество мероприятий
+     * @return Рекомендованные пользователю предстоящие мероприятия в порядке убывания релевантности
+     */
+    List<Event> getRecommendedEvents(Long userId, int limit);
+
     /**
      * @author Nail Faizullin, Dmitry Koryanov
      * @param startDateTime Время события мероприятия от
@@ -51,4 +97,19 @@ public interface EventService {
      *                    участвуют в этих событиях
      */
     Map<Event, List<User>> getEventsUsers(LocalDateTime startDateTime, LocalDateTime endDateTime);
+
+    /**
+     * @param partition Доля работы экземпляра приложения
+     * @return То же, что getEventsUsers, только для мероприятий из доли экземпляра
+     */
+    Map<Event, List<User>> getEventsUsers(LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                          SchedulerPartition partition);
+
+    /**
+     * Отметка об отправке напоминания о мероприятии. Отметку получает только один вызов на время мероприятия,
+     * поэтому при пересечении долей экземпляров напоминание не отправляется дважды
+     *
+     * @return true, если напоминание нужно отправить
+     */
+    boolean markReminderSent(Event event);
 }
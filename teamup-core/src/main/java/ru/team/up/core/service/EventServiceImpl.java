@@ -3,6 +3,8 @@ package ru.team.up.core.service;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -11,8 +13,12 @@ import ru.team.up.core.entity.Admin;
 import ru.team.up.core.entity.Event;
 import ru.team.up.core.entity.Moderator;
 import ru.team.up.core.entity.User;
+import ru.team.up.core.exception.EventsNotFoundIdException;
 import ru.team.up.core.exception.NoContentException;
 import ru.team.up.core.exception.UserNotFoundIDException;
+import ru.team.up.core.projections.EventJoinResult;
+import ru.team.up.core.projections.EventJoinResult.JoinStatus;
+import ru.team.up.core.projections.SchedulerPartition;
 import ru.team.up.core.repositories.EventRepository;
 import ru.team.up.core.repositories.StatusRepository;
 import ru.team.up.core.repositories.UserRepository;
@@ -35,10 +41,19 @@ import java.util.stream.Collectors;
 @AllArgsConstructor(onConstructor = @__(@Autowired))
 public class EventServiceImpl implements EventService {
 
+    /**
+     * Границы интервала времени для поиска без ограничения по времени
+     */
+    private static final LocalDateTime SEARCH_FROM = LocalDateTime.of(1, 1, 1, 0, 0);
+    private static final LocalDateTime SEARCH_TO = LocalDateTime.of(9999, 12, 31, 23, 59);
+
     private EventRepository eventRepository;
     private UserRepository userRepository;
     private StatusRepository statusRepository;
     private NotifyService notifyService;
+    private EventViewCounterService eventViewCounterService;
+    private EventTrendingService eventTrendingService;
+    private EventRecommendationService eventRecommendationService;
 
     /**
      * @return Возвращает коллекцию Event.
@@ -95,6 +110,25 @@ public class EventServiceImpl implements EventService {
         return event;
     }
 
+    /**
+     * @return Страница мероприятий, найденных полнотекстовым поиском, в порядке релевантности
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Page<Event> searchEvents(String query, String city, LocalDateTime from, LocalDateTime to,
+                                    Pageable pageable) {
+        log.debug("Старт метода поиска мероприятий по запросу {}", query);
+
+        Page<Event> events = eventRepository.searchEvents(query,
+                city == null ? "" : city,
+                from == null ? SEARCH_FROM : from,
+                to == null ? SEARCH_TO : to,
+                pageable);
+        log.debug("Нашли {} мероприятий по запросу {}", events.getTotalElements(), query);
+
+        return events;
+    }
+
     /**
      * @param event Объект класса ru.team.up.core.entity.Event
      * @return Возвращает сохраненный в БД объект event
@@ -154,7 +188,6 @@ public class EventServiceImpl implements EventService {
     public Event updateEvent(Event event) {
         log.debug("Старт метода сохранения ивента");
 
-        Event oldEvent = eventRepository.getOne(event.getId());
         User userCreatedEventDB = (User) userRepository.findById(event.getAuthorId().getId()).get();
 
         if (haveNoRightsToSave(SecurityContextHolder.getContext().getAuthentication(), userCreatedEventDB)) {
@@ -166,7 +199,7 @@ public class EventServiceImpl implements EventService {
 
         event.setEventUpdateDate(LocalDate.now());
         event.setAuthorId(userCreatedEventDB);
-        event.setCountViewEvent(oldEvent.getCountViewEvent());
+        event.setCountViewEvent(eventRepository.getPersistedCountViewEvent(event.getId()));
         event.setStatus(statusRepository.getOne(2L));
 
         log.debug("Старт метода обновления мероприятия {}", event);
@@ -185,6 +218,7 @@ public class EventServiceImpl implements EventService {
         log.debug("Старт метода удаления мероприятия с ID {}", id);
 
         eventRepository.deleteById(id);
+        eventTrendingService.removeEvent(id);
         log.debug("Удалили мероприятие c ID {} из БД ", id);
     }
 
@@ -219,6 +253,80 @@ public class EventServiceImpl implements EventService {
         log.debug("Сохранили мероприятие с ID {} в БД ", save.getId());
     }
 
+    /**
+     * Записывает пользователя на мероприятие одной строкой в USER_ACCOUNT_EVENT без загрузки списка участников.
+     * Строка мероприятия блокируется до конца транзакции, поэтому конкурентные записи на одно мероприятие
+     * выполняются по очереди. Подсчёт участников идёт отдельным запросом уже после получения блокировки,
+     * чтобы учитывать записи, зафиксированные предыдущим владельцем блокировки.
+     */
+    @Override
+    @Transactional
+    public EventJoinResult joinEvent(Long eventId, Long userId) {
+        log.debug("Старт метода записи пользователя с ID {} на мероприятие с ID {}", userId, eventId);
+
+        User user = Optional.ofNullable(userRepository.findUserById(userId))
+                .orElseThrow(() -> new UserNotFoundIDException(userId));
+
+        Integer capacity = eventRepository.lockEventCapacity(eventId)
+                .orElseThrow(() -> new EventsNotFoundIdException(eventId));
+        Long participantsCount = eventRepository.countParticipants(eventId);
+
+        if (eventRepository.isParticipant(eventId, userId)) {
+            log.debug("Пользователь с ID {} уже участвует в мероприятии с ID {}", userId, eventId);
+            return joinResult(eventId, userId, JoinStatus.ALREADY_JOINED, participantsCount, capacity);
+        }
+
+        if (participantsCount >= capacity) {
+            log.debug("В мероприятии с ID {} нет свободных мест ({} из {})", eventId, participantsCount, capacity);
+            return joinResult(eventId, userId, JoinStatus.EVENT_FULL, participantsCount, capacity);
+        }
+
+        eventRepository.insertParticipant(eventId, userId);
+        eventRecommendationService.evictRecommendations(userId);
+        log.debug("Добавили нового участника с ID {} в мероприятие с ID {}", userId, eventId);
+
+        Event event = eventRepository.getOne(eventId);
+        eventTrendingService.registerJoin(eventId, event.getCity());
+        log.debug("Отправка уведомления создателю c ID: {} для мероприятия с ID: {}", event.getAuthorId(), eventId);
+
+        String message = "Пользователь " + user.getUsername()
+                + " стал участником мероприятия " + event.getEventName();
+
+        notifyService.notify(NotifyDto.builder()
+                .email(event.getAuthorId().getEmail())
+                .subject(message)
+                .text(message)
+                .status(NotifyStatusDto.NOT_SENT)
+                .creationTime(LocalDateTime.now())
+                .build());
+
+        return joinResult(eventId, userId, JoinStatus.JOINED, participantsCount + 1, capacity);
+    }
+
+    /**
+     * Удаляет одну строку участия из USER_ACCOUNT_EVENT без загрузки списка участников
+     */
+    @Override
+    @Transactional
+    public EventJoinResult leaveEvent(Long eventId, Long userId) {
+        log.debug("Старт метода удаления пользователя с ID {} из участников мероприятия с ID {}", userId, eventId);
+
+        Integer capacity = eventRepository.lockEventCapacity(eventId)
+                .orElseThrow(() -> new EventsNotFoundIdException(eventId));
+
+        int deleted = eventRepository.deleteParticipant(eventId, userId);
+        Long participantsCount = eventRepository.countParticipants(eventId);
+
+        if (deleted == 0) {
+            log.debug("Пользователь с ID {} не участвует в мероприятии с ID {}", userId, eventId);
+            return joinResult(eventId, userId, JoinStatus.NOT_PARTICIPANT, participantsCount, capacity);
+        }
+
+        eventTrendingService.registerLeave(eventId);
+        log.debug("Удалили участника с ID {} из мероприятия с ID {}", userId, eventId);
+        return joinResult(eventId, userId, JoinStatus.LEFT, participantsCount, capacity);
+    }
+
     @Override
     @Transactional
     public void eventApprovedByModerator(Long eventId) {
@@ -270,13 +378,15 @@ public class EventServiceImpl implements EventService {
         log.debug("Сохраняем мероприятие {} в БД ", event.getId());
     }
 
+    /**
+     * @param event Мероприятие, уже загруженное вызывающим
+     *              Метод учитывает просмотр мероприятия в памяти, в БД просмотры записываются пакетно
+     */
     @Override
-    @Transactional
-    public void updateNumberOfViews(Long id) {
-
-        log.debug("Обновляем количество просмотров мероприятия {} по ID", id);
-        eventRepository.updateNumberOfViews(id);
-        log.debug("Обновили количество просмотров мероприятия {} по ID", id);
+    public void updateNumberOfViews(Event event) {
+        log.debug("Учитываем просмотр мероприятия с ID {}", event.getId());
+        eventViewCounterService.registerView(event.getId());
+        eventTrendingService.registerView(event.getId(), event.getCity());
     }
 
     /**
@@ -290,6 +400,41 @@ public class EventServiceImpl implements EventService {
         return eventRepository.getAllEventsBySubscriberId(subscriberId);
     }
 
+    /**
+     * @param city  Город проведения мероприятий
+     * @param limit Максимальное количество мероприятий
+     * @return Самые популярные сейчас мероприятия города. Рейтинг берётся из памяти,
+     * из БД по первичному ключу загружаются только попавшие в выдачу мероприятия
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Event> getTrendingEvents(String city, int limit) {
+        log.debug("Старт метода получения популярных мероприятий в городе {}", city);
+
+        List<Event> trendingEvents = findAllByIdInOrder(eventTrendingService.getTrendingEventIds(city, limit));
+        log.debug("Получили {} популярных мероприятий в городе {}", trendingEvents.size(), city);
+
+        return trendingEvents;
+    }
+
+    /**
+     * @param userId Id пользователя
+     * @param limit  Максимальное количество мероприятий
+     * @return Предстоящие мероприятия, рекомендованные пользователю по интересам, подпискам и городу.
+     * Рейтинг считается в памяти, из БД по первичному ключу загружаются только попавшие в выдачу мероприятия
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<Event> getRecommendedEvents(Long userId, int limit) {
+        log.debug("Старт метода получения рекомендованных мероприятий для пользователя с ID {}", userId);
+
+        List<Event> recommendedEvents =
+                findAllByIdInOrder(eventRecommendationService.getRecommendedEventIds(userId, limit));
+        log.debug("Получили {} рекомендованных мероприятий для пользователя с ID {}", recommendedEvents.size(), userId);
+
+        return recommendedEvents;
+    }
+
     /**
      * @author Nail Faizullin, Dmitry Koryanov
      * @param startDateTime Время события мероприятия от
@@ -303,8 +448,29 @@ public class EventServiceImpl implements EventService {
         log.debug("Ищем мероприятия с участвующими в них пользователями. Время события мероприятия от: "+startDateTime);
         log.debug("Ищем мероприятия с участвующими в них пользователями. Время события мероприятия до: "+endDateTime);
 
-        return eventRepository
-                .findByTimeEventBetween(startDateTime, endDateTime)
+        return getEventsUsers(eventRepository.findByTimeEventBetween(startDateTime, endDateTime));
+    }
+
+    @Override
+    public Map<Event, List<User>> getEventsUsers(LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                                 SchedulerPartition partition) {
+        log.debug("Ищем мероприятия с участвующими в них пользователями с {} по {}, доля {} из {}",
+                startDateTime, endDateTime, partition.getIndex(), partition.getCount());
+        return getEventsUsers(eventRepository.findByTimeEventBetweenInPartition(startDateTime, endDateTime,
+                partition.getIndex(), partition.getCount()));
+    }
+
+    @Override
+    public boolean markReminderSent(Event event) {
+        boolean marked = eventRepository.markReminderSent(event.getId(), event.getTimeEvent()) > 0;
+        if (!marked) {
+            log.debug("Напоминание о мероприятии с ID {} уже отправлено", event.getId());
+        }
+        return marked;
+    }
+
+    private Map<Event, List<User>> getEventsUsers(List<Event> events) {
+        return events
                 .stream()
                 .collect(Collectors.toMap(e -> e, e -> {
                     return eventRepository
@@ -315,6 +481,29 @@ public class EventServiceImpl implements EventService {
                 }));
     }
 
+    private List<Event> findAllByIdInOrder(List<Long> ids) {
+        Map<Long, Event> events = eventRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Event::getId, e -> e));
+
+        List<Event> ordered = ids.stream()
+                .map(events::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        return ordered;
+    }
+
+    private EventJoinResult joinResult(Long eventId, Long userId, JoinStatus status,
+                                       Long participantsCount, Integer capacity) {
+        return EventJoinResult.builder()
+                .eventId(eventId)
+                .userId(userId)
+                .status(status)
+                .participantsCount(participantsCount)
+                .capacity(capacity)
+                .build();
+    }
+
     /**
      *
      * @param authentication параметр из SecurityContext текущей сессии
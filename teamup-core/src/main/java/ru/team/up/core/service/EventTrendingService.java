@@ -0,0 +1,51 @@
+package ru.team.up.core.service;
+
+import java.util.List;
+
+/**
+ * Сервис рейтинга популярных мероприятий.
+ * Рейтинг считается по просмотрам, записям и отзывам с затуханием во времени и хранится в памяти по городам.
+ */
+public interface EventTrendingService {
+
+    /**
+     * @param eventId Уникальный ключ ID мероприятия
+     * @param city    Город проведения мероприятия
+     *                Метод учитывает просмотр мероприятия в рейтинге
+     */
+    void registerView(Long eventId, String city);
+
+    /**
+     * @param eventId Уникальный ключ ID мероприятия
+     * @param city    Город проведения мероприятия
+     *                Метод учитывает запись пользователя на мероприятие в рейтинге после фиксации транзакции
+     */
+    void registerJoin(Long eventId, String city);
+
+    /**
+     * @param eventId Уникальный ключ ID мероприятия
+     *                Метод учитывает отказ пользователя от участия в мероприятии в рейтинге после фиксации транзакции
+     */
+    void registerLeave(Long eventId);
+
+    /**
+     * @param eventId    Уникальный ключ ID мероприятия
+     * @param city       Город проведения мероприятия
+     * @param eventGrade Оценка мероприятия в отзыве
+     *                   Метод учитывает отзыв о мероприятии в рейтинге после фиксации транзакции
+     */
+    void registerReview(Long eventId, String city, Integer eventGrade);
+
+    /**
+     * @param eventId Уникальный ключ ID мероприятия
+     *                Метод удаляет мероприятие из рейтинга после фиксации транзакции
+     */
+    void removeEvent(Long eventId);
+
+    /**
+     * @param city  Город проведения мероприятий
+     * @param limit Максимальное количество мероприятий
+     * @return ID самых популярных мероприятий города в порядке убывания популярности
+     */
+    List<Long> getTrendingEventIds(String city, int limit);
+}
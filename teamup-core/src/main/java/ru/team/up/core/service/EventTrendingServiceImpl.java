@@ -0,0 +1,241 @@
+package ru.team.up.core.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Рейтинг популярных мероприятий в памяти.
+ * <p>
+ * Каждая активность добавляет к рейтингу мероприятия вес, умноженный на 2^((t - t0) / halfLife),
+ * где t0 - общая для всех мероприятий база времени. Так старые активности затухают относительно новых
+ * без пересчёта всех мероприятий на каждое событие. Чтобы числа не переполнялись, база времени
+ * периодически сдвигается к текущему моменту, а остывшие мероприятия удаляются из рейтинга.
+ * <p>
+ * При сдвиге базы времени в рейтинге города остаются только top-k мероприятий, между сдвигами
+ * рейтинг города ограничен trending.city.capacity, поэтому память не растёт с числом просмотренных мероприятий.
+ * <p>
+ * Мероприятия каждого города хранятся в отсортированном по рейтингу множестве,
+ * поэтому выдача топа города - это чтение первых элементов без обращения к БД.
+ * Город передаёт вызывающий, у которого мероприятие уже загружено, поэтому учёт активности тоже не обращается к БД.
+ * <p>
+ * Активность, учтённая внутри транзакции, попадает в рейтинг только после её фиксации.
+ */
+@Slf4j
+@Service
+@PropertySource("classpath:trending.properties")
+public class EventTrendingServiceImpl implements EventTrendingService {
+
+    /**
+     * Рейтинг, ниже которого мероприятие считается остывшим и удаляется при сдвиге базы времени
+     */
+    private static final double MIN_SCORE = 0.01;
+
+    private static final Comparator<TrendingEntry> BY_SCORE_DESC = Comparator
+            .comparingDouble(TrendingEntry::getScore).reversed()
+            .thenComparing(TrendingEntry::getEventId);
+
+    private final double halfLifeMillis;
+    private final double viewWeight;
+    private final double joinWeight;
+    private final double reviewWeight;
+    private final int topK;
+    private final int cityCapacity;
+
+    private final Map<Long, TrendingEntry> entries = new ConcurrentHashMap<>();
+    private final Map<String, NavigableSet<TrendingEntry>> cityRankings = new ConcurrentHashMap<>();
+
+    /**
+     * Обновления рейтинга берут блокировку на чтение, сдвиг базы времени - на запись
+     */
+    private final ReadWriteLock rebaseLock = new ReentrantReadWriteLock();
+    private volatile long baseTimeMillis = System.currentTimeMillis();
+
+    @Autowired
+    public EventTrendingServiceImpl(@Value("${trending.half-life.minutes}") long halfLifeMinutes,
+                                    @Value("${trending.weight.view}") double viewWeight,
+                                    @Value("${trending.weight.join}") double joinWeight,
+                                    @Value("${trending.weight.review}") double reviewWeight,
+                                    @Value("${trending.top-k}") int topK,
+                                    @Value("${trending.city.capacity}") int cityCapacity) {
+        this.halfLifeMillis = halfLifeMinutes * 60_000d;
+        this.viewWeight = viewWeight;
+        this.joinWeight = joinWeight;
+        this.reviewWeight = reviewWeight;
+        this.topK = topK;
+        this.cityCapacity = Math.max(cityCapacity, topK);
+    }
+
+    @Override
+    public void registerView(Long eventId, String city) {
+        afterCommit(() -> addScore(eventId, city, viewWeight));
+    }
+
+    @Override
+    public void registerJoin(Long eventId, String city) {
+        afterCommit(() -> addScore(eventId, city, joinWeight));
+    }
+
+    @Override
+    public void registerLeave(Long eventId) {
+        // Отказ только уменьшает рейтинг, мероприятия вне рейтинга он не касается
+        afterCommit(() -> {
+            TrendingEntry entry = entries.get(eventId);
+            if (entry != null) {
+                addScore(eventId, entry.getCity(), -joinWeight);
+            }
+        });
+    }
+
+    @Override
+    public void registerReview(Long eventId, String city, Integer eventGrade) {
+        if (eventGrade != null) {
+            afterCommit(() -> addScore(eventId, city, reviewWeight * eventGrade));
+        }
+    }
+
+    @Override
+    public void removeEvent(Long eventId) {
+        afterCommit(() -> remove(eventId));
+    }
+
+    private void remove(Long eventId) {
+        rebaseLock.readLock().lock();
+        try {
+            entries.computeIfPresent(eventId, (id, entry) -> {
+                cityRankings.get(entry.getCity()).remove(entry);
+                log.debug("Мероприятие с ID {} удалено из рейтинга", id);
+                return null;
+            });
+        } finally {
+            rebaseLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Long> getTrendingEventIds(String city, int limit) {
+        NavigableSet<TrendingEntry> ranking = cityRankings.get(city);
+        if (ranking == null) {
+            return Collections.emptyList();
+        }
+        return ranking.stream()
+                .limit(Math.min(limit, topK))
+                .map(TrendingEntry::getEventId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Метод сдвигает базу времени к текущему моменту и удаляет остывшие мероприятия
+     */
+    @Scheduled(fixedDelayString = "${trending.rebase.delay}")
+    public void rebase() {
+        rebaseLock.writeLock().lock();
+        try {
+            long now = System.currentTimeMillis();
+            double factor = Math.pow(2, -(now - baseTimeMillis) / halfLifeMillis);
+
+            entries.values().forEach(entry -> {
+                NavigableSet<TrendingEntry> ranking = cityRankings.get(entry.getCity());
+                ranking.remove(entry);
+                double score = entry.getScore() * factor;
+                if (score < MIN_SCORE) {
+                    entries.remove(entry.getEventId());
+                } else {
+                    TrendingEntry rebased = new TrendingEntry(entry.getEventId(), entry.getCity(), score);
+                    entries.put(entry.getEventId(), rebased);
+                    ranking.add(rebased);
+                }
+            });
+            cityRankings.values().forEach(ranking -> evictBelow(ranking, topK));
+            baseTimeMillis = now;
+            log.debug("Рейтинг мероприятий приведён к текущему времени, в рейтинге {} мероприятий", entries.size());
+        } finally {
+            rebaseLock.writeLock().unlock();
+        }
+    }
+
+    private void addScore(Long eventId, String city, double weight) {
+        if (city == null) {
+            return;
+        }
+
+        rebaseLock.readLock().lock();
+        try {
+            double boost = weight * Math.pow(2, (System.currentTimeMillis() - baseTimeMillis) / halfLifeMillis);
+            NavigableSet<TrendingEntry> ranking =
+                    cityRankings.computeIfAbsent(city, c -> new ConcurrentSkipListSet<>(BY_SCORE_DESC));
+
+            // compute блокирует запись мероприятия, поэтому удаление и вставка в рейтинг города не перемешиваются
+            entries.compute(eventId, (id, entry) -> {
+                double score = boost;
+                if (entry != null) {
+                    ranking.remove(entry);
+                    score += entry.getScore();
+                }
+                TrendingEntry updated = new TrendingEntry(id, city, Math.max(score, 0));
+                ranking.add(updated);
+                return updated;
+            });
+            evictBelow(ranking, cityCapacity);
+        } finally {
+            rebaseLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Метод удаляет из рейтинга города мероприятия с рейтингом ниже size-го
+     */
+    private void evictBelow(NavigableSet<TrendingEntry> ranking, int size) {
+        while (ranking.size() > size) {
+            TrendingEntry last = ranking.pollLast();
+            if (last == null) {
+                return;
+            }
+            // Удаляем только ту запись, которую вытеснили: если мероприятие успело обновиться, оно остаётся
+            entries.remove(last.getEventId(), last);
+        }
+    }
+
+    /**
+     * Метод выполняет изменение рейтинга после фиксации текущей транзакции, а вне транзакции - сразу.
+     * Так откаченная запись на мероприятие не поднимает его рейтинг
+     */
+    private void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class TrendingEntry {
+        private final Long eventId;
+        private final String city;
+        private final double score;
+    }
+}
@@ -0,0 +1,24 @@
+package ru.team.up.core.service;
+
+/**
+ * Сервис подсчёта просмотров мероприятий
+ */
+public interface EventViewCounterService {
+
+    /**
+     * @param eventId Уникальный ключ ID мероприятия
+     *                Метод учитывает один просмотр мероприятия в памяти
+     */
+    void registerView(Long eventId);
+
+    /**
+     * @param eventId Уникальный ключ ID мероприятия
+     * @return Количество просмотров мероприятия, ещё не записанных в БД
+     */
+    long getPendingViews(Long eventId);
+
+    /**
+     * Метод записывает накопленные просмотры в БД одним пакетным запросом
+     */
+    void flush();
+}
@@ -0,0 +1,105 @@
+package ru.team.up.core.service;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчик просмотров мероприятий. Просмотры накапливаются в памяти в LongAdder на каждое мероприятие
+ * и периодически записываются в COUNT_VIEW_EVENT одним пакетным UPDATE.
+ * Просмотр не блокирует ключ карты: счётчик создаётся один раз, дальше только увеличивается.
+ * При записи счётчик забирается через sumThenReset, при ошибке записи забранное возвращается.
+ * Счётчики без просмотров с прошлой записи удаляются из памяти.
+ */
+@Slf4j
+@Service
+@PropertySource("classpath:views.properties")
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class EventViewCounterServiceImpl implements EventViewCounterService {
+
+    private static final String UPDATE_VIEWS_SQL =
+            "UPDATE event SET count_view_event = COALESCE(count_view_event, 0) + ? WHERE id = ?";
+
+    private final Map<Long, LongAdder> pendingViews = new ConcurrentHashMap<>();
+
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void registerView(Long eventId) {
+        pendingViews.computeIfAbsent(eventId, id -> new LongAdder()).increment();
+    }
+
+    @Override
+    public long getPendingViews(Long eventId) {
+        LongAdder views = pendingViews.get(eventId);
+        return views == null ? 0 : views.sum();
+    }
+
+    @Override
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${events.views.flush.delay}")
+    public synchronized void flush() {
+        List<Long> eventIds = new ArrayList<>();
+        List<Object[]> batchArgs = new ArrayList<>();
+
+        pendingViews.forEach((eventId, views) -> {
+            long sum = views.sumThenReset();
+            if (sum > 0) {
+                eventIds.add(eventId);
+                batchArgs.add(new Object[]{sum, eventId});
+            } else {
+                removeIdle(eventId, views);
+            }
+        });
+
+        if (batchArgs.isEmpty()) {
+            return;
+        }
+
+        log.debug("Записываем просмотры {} мероприятий в БД", batchArgs.size());
+        int[] updated;
+        try {
+            updated = jdbcTemplate.batchUpdate(UPDATE_VIEWS_SQL, batchArgs);
+        } catch (RuntimeException e) {
+            log.error("Не удалось записать просмотры мероприятий в БД, повторим при следующем запуске", e);
+            batchArgs.forEach(args -> addViews((Long) args[1], (long) args[0]));
+            return;
+        }
+
+        for (int i = 0; i < eventIds.size(); i++) {
+            if (updated[i] == 0) {
+                log.debug("Мероприятие с ID {} не найдено, просмотры отброшены", eventIds.get(i));
+                pendingViews.remove(eventIds.get(i));
+            }
+        }
+        log.debug("Записали просмотры {} мероприятий в БД", eventIds.size());
+    }
+
+    /**
+     * Метод удаляет счётчик без просмотров. Просмотр, учтённый в удалённом счётчике
+     * между проверкой и удалением, переносится в новый счётчик
+     */
+    private void removeIdle(Long eventId, LongAdder views) {
+        if (pendingViews.remove(eventId, views)) {
+            long late = views.sumThenReset();
+            if (late > 0) {
+                addViews(eventId, late);
+            }
+        }
+    }
+
+    private void addViews(Long eventId, long views) {
+        pendingViews.computeIfAbsent(eventId, id -> new LongAdder()).add(views);
+    }
+}
@@ -1,16 +1,19 @@
 package ru.team.up.core.service;
 
 import ru.team.up.core.entity.Image;
+import ru.team.up.core.projections.ImageContent;
 
-public interface ImageService {
+import java.io.InputStream;
 
-    void saveImageForAccount(Image image, String email);
+public interface ImageService {
 
-    void updateImageForAccount(Image image, String email);
+    Image saveImageForAccount(InputStream content, String email);
 
-    void saveImageForEvent(Image image, Long eventId);
+    Image saveImageForEvent(InputStream content, Long eventId);
 
-    void updateImageForEvent(Image image, Long eventId);
+    Image getImage(Long id);
 
+    ImageContent getImageContent(Image image, Integer width);
 
+    long getDeduplicatedBytes();
 }
@@ -1,80 +1,243 @@
 package ru.team.up.core.service;
 
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
 import org.springframework.stereotype.Service;
-import ru.team.up.core.entity.Account;
-import ru.team.up.core.entity.Event;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.team.up.core.entity.Image;
+import ru.team.up.core.exception.EventsNotFoundIdException;
+import ru.team.up.core.exception.ImageNotFoundException;
+import ru.team.up.core.exception.UserNotFoundEmailException;
+import ru.team.up.core.projections.ImageContent;
+import ru.team.up.core.projections.StoredBlob;
 import ru.team.up.core.repositories.AccountRepository;
 import ru.team.up.core.repositories.EventRepository;
 import ru.team.up.core.repositories.ImageRepository;
 
-import javax.transaction.Transactional;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
 
+/**
+ * Содержимое изображения пишется в хранилище вне транзакции, чтобы загрузка файла не держала соединение с БД.
+ * В одной транзакции выполняются только сохранение метаданных и обновление ссылки на изображение
+ */
 @Slf4j
 @Service
-@Transactional
-@AllArgsConstructor(onConstructor = @__(@Autowired))
+@PropertySource("classpath:storage.properties")
 public class ImageServiceImpl implements ImageService{
-    private ImageRepository imageRepository;
-    private AccountRepository accountRepository;
-    private EventRepository eventRepository;
+    private final ImageRepository imageRepository;
+    private final AccountRepository accountRepository;
+    private final EventRepository eventRepository;
+    private final BlobStorageService blobStorageService;
+    private final ImageVariantService imageVariantService;
+    private final TransactionTemplate transactionTemplate;
+    private final long maxPixels;
+
+    private final AtomicLong deduplicatedBytes = new AtomicLong();
+
+    @Autowired
+    public ImageServiceImpl(ImageRepository imageRepository,
+                            AccountRepository accountRepository,
+                            EventRepository eventRepository,
+                            BlobStorageService blobStorageService,
+                            ImageVariantService imageVariantService,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${images.max.pixels}") long maxPixels) {
+        this.imageRepository = imageRepository;
+        this.accountRepository = accountRepository;
+        this.eventRepository = eventRepository;
+        this.blobStorageService = blobStorageService;
+        this.imageVariantService = imageVariantService;
+        this.transactionTemplate = transactionTemplate;
+        this.maxPixels = maxPixels;
+    }
 
     /**
-     * @param image изоброжение которое добавляет пльзователь
+     * Добавляет или заменяет изображение аккаунта
+     *
+     * @param content содержимое изображения, которое добавляет пользователь
+     * @param email   почта аккаунта
+     * @return метаданные сохранённого изображения
      */
-
     @Override
-    public void saveImageForAccount(Image image, String email) {
-        log.debug("Сохранение изображения аккаунта {} в БД", image);
-        imageRepository.save(image);
-        Image newImage = imageRepository.save(image);
-        Account newAccount = accountRepository.findByEmail(email);
-        newAccount.setImage(newImage);
-        accountRepository.save(newAccount);
+    public Image saveImageForAccount(InputStream content, String email) {
+        log.debug("Сохранение изображения аккаунта {}", email);
+        return storeImage(content, image -> setAccountImage(image, email));
     }
 
     /**
-     * @param image изоброжение которое добавляет пльзователь
+     * Добавляет или заменяет изображение мероприятия
+     *
+     * @param content содержимое изображения, которое добавляет пользователь
+     * @param eventId идентификатор мероприятия
+     * @return метаданные сохранённого изображения
      */
+    @Override
+    public Image saveImageForEvent(InputStream content, Long eventId) {
+        log.debug("Сохранение изображения мероприятия {}", eventId);
+        return storeImage(content, image -> setEventImage(image, eventId));
+    }
 
+    /**
+     * @param id идентификатор изображения
+     * @return метаданные изображения
+     */
     @Override
-    public void updateImageForAccount(Image image, String email) {
-        log.debug("Обновление изображения аккаунта {} в БД", image);
-        imageRepository.save(image);
-        Image newImage = imageRepository.save(image);
-        Account newAccount = accountRepository.findByEmail(email);
-        newAccount.setImage(newImage);
-        accountRepository.save(newAccount);
+    public Image getImage(Long id) {
+        return imageRepository.findById(id).orElseThrow(() -> new ImageNotFoundException(id));
     }
 
     /**
-     * @param image изоброжение которое добавляет пльзователь
+     * @param image метаданные изображения
+     * @param width требуемая ширина, null - исходное изображение
+     * @return наименьший готовый вариант изображения не уже требуемой ширины либо исходное изображение
      */
+    @Override
+    public ImageContent getImageContent(Image image, Integer width) {
+        return imageVariantService.getContent(image, width);
+    }
 
+    /**
+     * @return сколько байт не было записано повторно благодаря повторному использованию загруженного ранее содержимого
+     */
     @Override
-    public void saveImageForEvent(Image image, Long eventId) {
-        log.debug("Сохранение изображения мероприятия {} в БД", image);
-        imageRepository.save(image);
-        Image newImage = imageRepository.save(image);
-        Event event = eventRepository.getOne(eventId);
-        event.setImage(newImage);
-        eventRepository.save(event);
+    public long getDeduplicatedBytes() {
+        return deduplicatedBytes.get();
     }
 
     /**
-     * @param image изоброжение которое добавляет пльзователь
+     * Ссылка на изображение обновляется одним запросом, без загрузки аккаунта
      */
+    private Image setAccountImage(Image image, String email) {
+        if (accountRepository.updateImageByEmail(email, image) == 0) {
+            throw new UserNotFoundEmailException(email);
+        }
+        return image;
+    }
 
-    @Override
-    public void updateImageForEvent(Image image, Long eventId) {
-        log.debug("Обновление изображения мероприятия {} в БД", image);
-        imageRepository.save(image);
-        Image newImage = imageRepository.save(image);
-        Event event = eventRepository.getOne(eventId);
-        event.setImage(newImage);
-        eventRepository.save(event);
+    /**
+     * Ссылка на изображение обновляется одним запросом, без загрузки мероприятия
+     */
+    private Image setEventImage(Image image, Long eventId) {
+        if (eventRepository.updateImageById(eventId, image) == 0) {
+            throw new EventsNotFoundIdException(eventId);
+        }
+        return image;
+    }
+
+    /**
+     * Содержимое пишется в файловое хранилище, в БД сохраняются только метаданные и ключ.
+     * Ключ - хэш содержимого, поэтому повторная загрузка того же файла (например, той же аватарки)
+     * не создаёт ни нового файла, ни новой записи: возвращается уже сохранённое изображение.
+     * Размеры и формат читаются из заголовка файла без декодирования изображения. Заголовок Content-Type
+     * клиента не используется: тип изображения отдаётся обратно в ответе, поэтому определяется только по содержимому.
+     * Слишком большие изображения, содержимое, не являющееся изображением, и ссылка на несуществующий
+     * аккаунт или мероприятие отклоняются, а только что записанный файл удаляется.
+     * Уменьшенные варианты строятся в фоне после фиксации транзакции.
+     * Файл и его заголовок читаются до начала транзакции, link выполняется в одной транзакции с сохранением
+     */
+    private Image storeImage(InputStream content, UnaryOperator<Image> link) {
+        StoredBlob blob = blobStorageService.store(content);
+        log.debug("Содержимое изображения записано в хранилище с ключом {}", blob.getKey());
+
+        Image.ImageBuilder<?, ?> builder = Image.builder()
+                .storageKey(blob.getKey())
+                .size(blob.getSize());
+        try {
+            readDimensions(blobStorageService.getPath(blob.getKey()), builder);
+            return transactionTemplate.execute(status -> link.apply(saveImage(blob, builder)));
+        } catch (RuntimeException e) {
+            // Файл мог успеть сохранить одновременный запрос с тем же содержимым, тогда он остаётся
+            if (blob.isCreated() && !imageRepository.existsByStorageKey(blob.getKey())) {
+                log.debug("Изображение с ключом {} не сохранено, файл удаляется из хранилища", blob.getKey());
+                blobStorageService.delete(blob.getKey());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Запись добавляется одним запросом INSERT ... ON CONFLICT по уникальному ключу содержимого,
+     * поэтому одновременные загрузки одного файла не создают дублей и не падают на нарушении уникальности
+     */
+    private Image saveImage(StoredBlob blob, Image.ImageBuilder<?, ?> builder) {
+        boolean inserted = imageRepository.insertIfAbsent(builder.build()) == 1;
+        Image image = imageRepository.findByStorageKey(blob.getKey())
+                .orElseThrow(() -> new IllegalStateException("Изображение с ключом " + blob.getKey() + " не найдено"));
+        if (inserted) {
+            generateVariantsAfterCommit(image);
+        } else {
+            long total = deduplicatedBytes.addAndGet(blob.getSize());
+            log.info("Изображение с ключом {} уже загружено, сэкономлено {} байт, всего {} байт",
+                    blob.getKey(), blob.getSize(), total);
+        }
+        return image;
+    }
+
+    /**
+     * Фоновый поток сохраняет варианты со ссылкой на изображение, поэтому запускается только после фиксации
+     * транзакции: до неё запись изображения не видна, а при откате вариантов быть не должно
+     */
+    private void generateVariantsAfterCommit(Image image) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            imageVariantService.generateVariants(image);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                imageVariantService.generateVariants(image);
+            }
+        });
+    }
+
+    private void readDimensions(Path path, Image.ImageBuilder<?, ?> builder) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Содержимое не является изображением поддерживаемого формата");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                // Декодированное изображение занимает 4 байта на пиксель, поэтому размер проверяется до ImageIO.read
+                if ((long) width * height > maxPixels) {
+                    throw new IllegalArgumentException("Изображение " + width + "x" + height
+                            + " больше допустимых " + maxPixels + " пикселей");
+                }
+                builder.width(width).height(height).type(mimeType(reader));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать размеры изображения", e);
+        }
+    }
+
+    /**
+     * Тип изображения берётся у ImageIO, который распознал формат по сигнатуре файла
+     */
+    private static String mimeType(ImageReader reader) throws IOException {
+        String[] mimeTypes = reader.getOriginatingProvider() == null
+                ? null : reader.getOriginatingProvider().getMIMETypes();
+        if (mimeTypes != null && mimeTypes.length > 0) {
+            return mimeTypes[0];
+        }
+        return "image/" + reader.getFormatName().toLowerCase(Locale.ROOT);
     }
 }
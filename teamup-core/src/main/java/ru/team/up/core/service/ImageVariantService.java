@@ -0,0 +1,23 @@
+package ru.team.up.core.service;
+
+import ru.team.up.core.entity.Image;
+import ru.team.up.core.projections.ImageContent;
+
+/**
+ * Сервис уменьшенных вариантов изображений (миниатюра, для списков, полный размер)
+ */
+public interface ImageVariantService {
+
+    /**
+     * @param image Сохранённое исходное изображение
+     *              Метод ставит построение вариантов изображения в очередь фоновой обработки
+     */
+    void generateVariants(Image image);
+
+    /**
+     * @param image Исходное изображение
+     * @param width Ширина, в которой клиент покажет изображение, null - исходный размер
+     * @return Наименьший построенный вариант не меньше запрошенной ширины или исходное изображение
+     */
+    ImageContent getContent(Image image, Integer width);
+}
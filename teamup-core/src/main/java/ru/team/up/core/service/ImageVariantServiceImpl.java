@@ -0,0 +1,252 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.stereotype.Service;
+import ru.team.up.core.entity.Image;
+import ru.team.up.core.entity.ImageVariant;
+import ru.team.up.core.projections.ImageContent;
+import ru.team.up.core.projections.StoredBlob;
+import ru.team.up.core.repositories.ImageVariantRepository;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Построение и выдача уменьшенных вариантов изображений.
+ * <p>
+ * Исходное изображение декодируется один раз в фоновом потоке, варианты строятся от большего к меньшему,
+ * каждый из предыдущего, и записываются в то же файловое хранилище. Очередь и число потоков ограничены:
+ * при переполнении варианты не строятся и клиенту отдаётся исходное изображение.
+ * Сведения о вариантах изображения кэшируются в памяти по id изображения, поэтому выбор варианта
+ * при отдаче не обращается к БД.
+ */
+@Slf4j
+@Service
+@PropertySource("classpath:image-variants.properties")
+public class ImageVariantServiceImpl implements ImageVariantService {
+
+    private final BlobStorageService blobStorageService;
+    private final ImageVariantRepository imageVariantRepository;
+
+    /**
+     * Варианты в порядке возрастания размера
+     */
+    private final List<VariantSize> variants;
+    private final Executor executor;
+    private final Map<Long, Map<String, ImageVariant>> cache;
+
+    @Autowired
+    public ImageVariantServiceImpl(BlobStorageService blobStorageService,
+                                   ImageVariantRepository imageVariantRepository,
+                                   @Value("${images.variants}") String variants,
+                                   @Value("${images.variants.pool.size}") int poolSize,
+                                   @Value("${images.variants.queue.capacity}") int queueCapacity,
+                                   @Value("${images.variants.cache.size}") int cacheSize) {
+        this(blobStorageService, imageVariantRepository, variants, newExecutor(poolSize, queueCapacity), cacheSize);
+    }
+
+    ImageVariantServiceImpl(BlobStorageService blobStorageService,
+                            ImageVariantRepository imageVariantRepository,
+                            String variants,
+                            Executor executor,
+                            int cacheSize) {
+        this.blobStorageService = blobStorageService;
+        this.imageVariantRepository = imageVariantRepository;
+        this.variants = Arrays.stream(variants.split(","))
+                .map(String::trim)
+                .map(v -> v.split(":"))
+                .map(v -> new VariantSize(v[0].trim(), Integer.parseInt(v[1].trim())))
+                .sorted(Comparator.comparingInt(VariantSize::getMaxSide))
+                .collect(Collectors.toList());
+        this.executor = executor;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Map<String, ImageVariant>> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    @Override
+    public void generateVariants(Image image) {
+        Long imageId = image.getId();
+        String storageKey = image.getStorageKey();
+        String type = image.getType();
+        try {
+            executor.execute(() -> createVariants(imageId, storageKey, type));
+        } catch (RejectedExecutionException e) {
+            log.warn("Очередь построения вариантов заполнена, варианты изображения {} не построены", imageId);
+        }
+    }
+
+    @Override
+    public ImageContent getContent(Image image, Integer width) {
+        if (width != null && width < Math.max(image.getWidth(), image.getHeight())) {
+            Map<String, ImageVariant> built = getVariants(image.getId());
+            for (VariantSize size : variants) {
+                ImageVariant variant = built.get(size.getName());
+                if (size.getMaxSide() >= width && variant != null) {
+                    return ImageContent.builder()
+                            .storageKey(variant.getStorageKey())
+                            .type(variant.getType())
+                            .path(blobStorageService.getPath(variant.getStorageKey()))
+                            .build();
+                }
+            }
+        }
+        return ImageContent.builder()
+                .storageKey(image.getStorageKey())
+                .type(image.getType())
+                .path(blobStorageService.getPath(image.getStorageKey()))
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    private static ThreadPoolExecutor newExecutor(int poolSize, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread thread = new Thread(r, "image-variants-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param source  Исходное изображение
+     * @param maxSide Размер большей стороны результата
+     * @param alpha   Сохранять ли прозрачность
+     * @return Уменьшенное изображение с сохранением пропорций. Большое уменьшение выполняется
+     * последовательными шагами в 2 раза, чтобы билинейная интерполяция не теряла детали
+     */
+    static BufferedImage scale(BufferedImage source, int maxSide, boolean alpha) {
+        double ratio = (double) maxSide / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+
+            BufferedImage step = new BufferedImage(width, height,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    private void createVariants(Long imageId, String storageKey, String type) {
+        try {
+            BufferedImage source = ImageIO.read(blobStorageService.getPath(storageKey).toFile());
+            if (source == null) {
+                log.warn("Изображение {} не удалось декодировать, варианты не построены", imageId);
+                return;
+            }
+
+            boolean png = type != null && (type.contains("png") || type.contains("gif"));
+            String format = png ? "png" : "jpg";
+            String variantType = png ? "image/png" : "image/jpeg";
+            int sourceMaxSide = Math.max(source.getWidth(), source.getHeight());
+
+            BufferedImage current = source;
+            for (int i = variants.size() - 1; i >= 0; i--) {
+                VariantSize size = variants.get(i);
+                if (size.getMaxSide() >= sourceMaxSide) {
+                    // Увеличивать не нужно: для этого размера подходит исходное изображение
+                    continue;
+                }
+                current = scale(current, size.getMaxSide(), png);
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ImageIO.write(current, format, out);
+                StoredBlob blob = blobStorageService.store(new ByteArrayInputStream(out.toByteArray()));
+
+                ImageVariant variant = imageVariantRepository.save(ImageVariant.builder()
+                        .imageId(imageId)
+                        .variant(size.getName())
+                        .storageKey(blob.getKey())
+                        .type(variantType)
+                        .size(blob.getSize())
+                        .width(current.getWidth())
+                        .height(current.getHeight())
+                        .build());
+                cache.computeIfAbsent(imageId, id -> new ConcurrentHashMap<>()).put(size.getName(), variant);
+            }
+            log.debug("Построены варианты изображения {}", imageId);
+        } catch (IOException | RuntimeException e) {
+            log.error("Ошибка построения вариантов изображения {}", imageId, e);
+        }
+    }
+
+    private Map<String, ImageVariant> getVariants(Long imageId) {
+        Map<String, ImageVariant> built = cache.get(imageId);
+        if (built == null) {
+            Map<String, ImageVariant> loaded = new ConcurrentHashMap<>();
+            imageVariantRepository.findAllByImageId(imageId).forEach(v -> loaded.put(v.getVariant(), v));
+            built = cache.putIfAbsent(imageId, loaded);
+            if (built == null) {
+                built = loaded;
+            }
+        }
+        return built;
+    }
+
+    private static class VariantSize {
+        private final String name;
+        private final int maxSide;
+
+        private VariantSize(String name, int maxSide) {
+            this.name = name;
+            this.maxSide = maxSide;
+        }
+
+        private String getName() {
+            return name;
+        }
+
+        private int getMaxSide() {
+            return maxSide;
+        }
+    }
+}
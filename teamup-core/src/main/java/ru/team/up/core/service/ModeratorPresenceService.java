@@ -0,0 +1,20 @@
+package ru.team.up.core.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Отслеживание присутствия модераторов по сигналам от их websocket-сессий
+ */
+public interface ModeratorPresenceService {
+
+    boolean heartbeat(Long moderatorId);
+
+    boolean isOnline(Long moderatorId);
+
+    List<Long> expire();
+
+    LocalDateTime getInactiveBefore();
+
+    void flush();
+}
@@ -0,0 +1,204 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.team.up.core.config.ReadWriteRoutingDataSource;
+import ru.team.up.core.entity.Role;
+import ru.team.up.core.repositories.ModeratorRepository;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Присутствие модераторов в памяти.
+ * <p>
+ * Сигнал от модератора только записывает время в ConcurrentHashMap и ставит модератора в ячейку колеса таймеров,
+ * соответствующую моменту истечения. Проверка на каждом шаге колеса просматривает одну ячейку, а не всех
+ * модераторов, поэтому отключение определяется за секунды. Время последней активности записывается
+ * в MODERATOR_SESSION периодически одним пакетом, без записи в БД на каждый сигнал.
+ */
+@Slf4j
+@Service
+@PropertySource("classpath:moderator-presence.properties")
+public class ModeratorPresenceServiceImpl implements ModeratorPresenceService {
+
+    /**
+     * Сессия модератора создаётся или обновляется одной командой по уникальному индексу на MODERATOR_ID,
+     * поэтому одновременная запись с нескольких экземпляров не создаёт вторую строку
+     */
+    private static final String UPSERT_SESSION_SQL =
+            "INSERT INTO moderator_session (moderator_id, created_session_time, last_updated_session_time, " +
+            "amount_of_moderators_events) VALUES (?, ?, ?, 0) " +
+            "ON CONFLICT (moderator_id) DO UPDATE " +
+            "SET last_updated_session_time = EXCLUDED.last_updated_session_time";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ModeratorRepository moderatorRepository;
+    private final Clock clock;
+    private final long timeoutMillis;
+    private final long tickMillis;
+
+    /**
+     * Время последнего сигнала в миллисекундах по id модератора
+     */
+    private final Map<Long, Long> lastSeen = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private final List<Set<Long>> wheel;
+    private long processedTick;
+
+    @Autowired
+    public ModeratorPresenceServiceImpl(JdbcTemplate jdbcTemplate, ModeratorRepository moderatorRepository,
+                                        @Value("${moderator.presence.timeout}") long timeoutMillis,
+                                        @Value("${moderator.presence.tick}") long tickMillis) {
+        this(jdbcTemplate, moderatorRepository, Clock.systemUTC(), timeoutMillis, tickMillis);
+    }
+
+    ModeratorPresenceServiceImpl(JdbcTemplate jdbcTemplate, ModeratorRepository moderatorRepository, Clock clock,
+                                 long timeoutMillis, long tickMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.moderatorRepository = moderatorRepository;
+        this.clock = clock;
+        this.timeoutMillis = timeoutMillis;
+        this.tickMillis = tickMillis;
+
+        // Момент истечения всегда не дальше полного оборота колеса
+        int size = (int) ((timeoutMillis + tickMillis - 1) / tickMillis) + 2;
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(ConcurrentHashMap.newKeySet());
+        }
+        this.processedTick = tickOf(clock.millis());
+    }
+
+    /**
+     * Запись сигнала присутствия модератора.
+     * Id приходит от клиента, поэтому модератор, которого сейчас нет в сети, сначала проверяется по основной БД,
+     * чтобы новый модератор не отклонялся из-за отставания реплики
+     *
+     * @param moderatorId ID модератора
+     * @return false, если модератора с таким ID нет и сигнал не записан
+     */
+    @Override
+    public boolean heartbeat(Long moderatorId) {
+        if (!lastSeen.containsKey(moderatorId)
+                && !ReadWriteRoutingDataSource.readFromPrimary(
+                        () -> moderatorRepository.existsByIdAndRole(moderatorId, Role.ROLE_MODERATOR))) {
+            log.debug("Сигнал присутствия от несуществующего модератора с ID {} отклонён", moderatorId);
+            return false;
+        }
+        long now = clock.millis();
+        if (lastSeen.put(moderatorId, now) == null) {
+            log.debug("Модератор с ID {} в сети", moderatorId);
+        }
+        dirty.add(moderatorId);
+        schedule(moderatorId, now);
+        return true;
+    }
+
+    @Override
+    public boolean isOnline(Long moderatorId) {
+        Long seen = lastSeen.get(moderatorId);
+        return seen != null && clock.millis() - seen < timeoutMillis;
+    }
+
+    /**
+     * Проверка ячеек колеса, время которых прошло с предыдущей проверки
+     *
+     * @return ID модераторов, от которых не было сигналов дольше таймаута
+     */
+    @Override
+    public synchronized List<Long> expire() {
+        long now = clock.millis();
+        long currentTick = tickOf(now);
+        List<Long> expired = new ArrayList<>();
+
+        for (; processedTick < currentTick; processedTick++) {
+            Set<Long> slot = wheel.get((int) ((processedTick + 1) % wheel.size()));
+            for (Long moderatorId : new ArrayList<>(slot)) {
+                slot.remove(moderatorId);
+                Long seen = lastSeen.get(moderatorId);
+                if (seen == null) {
+                    continue;
+                }
+                if (now - seen >= timeoutMillis) {
+                    if (lastSeen.remove(moderatorId, seen)) {
+                        expired.add(moderatorId);
+                    }
+                } else {
+                    // Сигнал пришёл после постановки в эту ячейку
+                    schedule(moderatorId, seen);
+                }
+            }
+        }
+
+        if (!expired.isEmpty()) {
+            log.debug("Модераторы с ID {} не в сети", expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Модератор, отключившийся от этого экземпляра, мог подключиться к другому. Другой экземпляр записывает
+     * его активность в БД чаще, чем истекает таймаут, поэтому снимать модератора можно, только если
+     * и в БД его активность не новее этого времени
+     *
+     * @return Время, не позже которого была последняя активность отключившегося модератора
+     */
+    @Override
+    public LocalDateTime getInactiveBefore() {
+        return new Timestamp(clock.millis() - timeoutMillis).toLocalDateTime();
+    }
+
+    /**
+     * Запись времени последней активности модераторов, от которых были сигналы с прошлой записи.
+     * Если сессии модератора в БД нет, она создаётся
+     */
+    @Override
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${moderator.presence.flush.delay}")
+    public synchronized void flush() {
+        List<Long> moderatorIds = new ArrayList<>();
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (Long moderatorId : dirty) {
+            dirty.remove(moderatorId);
+            Long seen = lastSeen.get(moderatorId);
+            if (seen != null) {
+                Timestamp seenTime = new Timestamp(seen);
+                moderatorIds.add(moderatorId);
+                batchArgs.add(new Object[]{moderatorId, seenTime, seenTime});
+            }
+        }
+        if (batchArgs.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SESSION_SQL, batchArgs);
+            log.debug("Время активности {} модераторов записано в БД", batchArgs.size());
+        } catch (RuntimeException e) {
+            dirty.addAll(moderatorIds);
+            log.error("Не удалось записать время активности модераторов в БД, повторим при следующем запуске", e);
+        }
+    }
+
+    private void schedule(Long moderatorId, long seen) {
+        long expiryTick = tickOf(seen + timeoutMillis + tickMillis - 1);
+        wheel.get((int) (expiryTick % wheel.size())).add(moderatorId);
+    }
+
+    private long tickOf(long millis) {
+        return millis / tickMillis;
+    }
+}
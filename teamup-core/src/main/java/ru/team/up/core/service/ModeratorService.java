@@ -2,6 +2,7 @@ package ru.team.up.core.service;
 
 import ru.team.up.core.entity.Account;
 import ru.team.up.core.entity.Moderator;
+import ru.team.up.core.projections.AccountView;
 
 import java.util.List;
 
@@ -9,7 +10,7 @@ import java.util.List;
  * @author Alexey Tkachenko
  */
 public interface ModeratorService {
-    List<Account> getAllModerators();
+    List<AccountView> getAllModerators();
 
     Account getOneModerator(Long id);
 
@@ -11,6 +11,7 @@ import ru.team.up.core.entity.Moderator;
 import ru.team.up.core.entity.Role;
 import ru.team.up.core.exception.NoContentException;
 import ru.team.up.core.exception.UserNotFoundIDException;
+import ru.team.up.core.projections.AccountView;
 import ru.team.up.core.repositories.AccountRepository;
 
 import java.time.LocalDate;
@@ -32,15 +33,15 @@ public class ModeratorServiceImpl implements ModeratorService {
     private PasswordEncoder encoder;
 
     /**
-     * @return Возвращает коллекцию Moderator.
+     * @return Возвращает коллекцию представлений модераторов без паролей и связанных сущностей.
      * Если коллекция пуста, генерирует исключение со статусом HttpStatus.NO_CONTENT
      */
     @Override
     @Transactional(readOnly = true)
-    public List<Account> getAllModerators() {
-        log.debug("Старт метода List<Moderator> getAllModerators()");
+    public List<AccountView> getAllModerators() {
+        log.debug("Старт метода List<AccountView> getAllModerators()");
 
-        List<Account> moderators = Optional.of(accountRepository.findAllByRole(Role.ROLE_MODERATOR))
+        List<AccountView> moderators = Optional.of(accountRepository.findAccountViewsByRole(Role.ROLE_MODERATOR))
                 .orElseThrow(NoContentException::new);
         log.debug("Получили список всех модераторов из БД {}", moderators);
 
@@ -5,17 +5,18 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.team.up.core.config.ReadWriteRoutingDataSource;
 import ru.team.up.core.entity.ModeratorSession;
-import ru.team.up.core.exception.UserNotFoundIDException;
 import ru.team.up.core.repositories.ModeratorSessionRepository;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * Author Mirseit Ibraimov
  * класс управления сессиями модераторов
+ * Сессии читаются из основной БД: они обновляются каждые несколько секунд,
+ * и на отстающей реплике свободный модератор или неактивная сессия определялись бы неверно
  */
 
 @Slf4j
@@ -40,23 +41,16 @@ public class ModeratorsSessionsServiceImpl implements ModeratorsSessionsService
     }
 
     /**
-     * Метод получения всех сессий модератора
+     * Метод получения сессии модератора по ID модератора
      *
      * @param id
-     * @return moderatorsSessions
+     * @return moderatorsSession
      */
     @Override
     public ModeratorSession getModeratorsSessionByModerator(Long id) {
-        ModeratorSession moderatorsSessions = null;
-        log.debug("Получение всех сессий");
-        for (var moderatorSession : moderatorSessionRepository.findAll()) {
-            log.debug("Сравнение ID модератора");
-            if (id == moderatorSession.getModeratorId()) {
-                moderatorsSessions = Optional.of(moderatorSession).orElseThrow(() -> new UserNotFoundIDException(id));
-            }
-        }
-        log.debug("Получили сессию по ID модератора");
-        return moderatorsSessions;
+        log.debug("Получение сессии по ID модератора {}", id);
+        return ReadWriteRoutingDataSource.readFromPrimary(
+                () -> moderatorSessionRepository.findModeratorSessionByModeratorId(id));
     }
 
     /**
@@ -90,28 +84,31 @@ public class ModeratorsSessionsServiceImpl implements ModeratorsSessionsService
     @Override
     public Long getFreeModerator() {
         log.debug("Получение свободного модератора");
-        return moderatorSessionRepository.getFreeModerator();
+        return ReadWriteRoutingDataSource.readFromPrimary(moderatorSessionRepository::getFreeModerator);
     }
 
     @Transactional
     @Override
     public Long getFreeModeratorWithLimitedEvents(int eventLimitation) {
         log.debug("Получение свободного модератора c максимальным количеством мероприятий = {}", eventLimitation);
-        return moderatorSessionRepository.getFreeModeratorWithLimitedEvents(eventLimitation);
+        return ReadWriteRoutingDataSource.readFromPrimary(
+                () -> moderatorSessionRepository.getFreeModeratorWithLimitedEvents(eventLimitation));
     }
 
     @Transactional
     @Override
     public List<Long> getInactiveModerators(LocalDateTime downtime) {
         log.debug("Получение неактивных модераторов");
-        return moderatorSessionRepository.getInactiveModerators(downtime);
+        return ReadWriteRoutingDataSource.readFromPrimary(
+                () -> moderatorSessionRepository.getInactiveModerators(downtime));
     }
 
     @Transactional
     @Override
     public ModeratorSession findModeratorSessionByModeratorId(Long id) {
         log.debug("Получение сессии модератора по id модератора {}", id);
-        return moderatorSessionRepository.findModeratorSessionByModeratorId(id);
+        return ReadWriteRoutingDataSource.readFromPrimary(
+                () -> moderatorSessionRepository.findModeratorSessionByModeratorId(id));
     }
 
     /**
@@ -0,0 +1,36 @@
+package ru.team.up.core.service;
+
+
+import java.util.OptionalLong;
+import ru.team.up.core.projections.SchedulerPartition;
+
+public interface SchedulerLockService {
+
+    /**
+     * Токен отличает аренды одной задачи друг от друга, но записи задач его не проверяют
+     *
+     * @return Токен аренды, если задача свободна или уже арендована этим экземпляром
+     */
+    OptionalLong tryLock(String name);
+
+    void unlock(String name, long token);
+
+    /**
+     * @return Держит ли этот экземпляр аренду с токеном token
+     */
+    boolean isLockHeld(String name, long token);
+
+    /**
+     * Выполнение задачи, если её аренду удалось получить
+     *
+     * @return false, если задачу выполняет другой экземпляр или у экземпляра нет роли scheduler
+     */
+    boolean runLocked(String name, Runnable task);
+
+    /**
+     * @return Доля работы этого экземпляра среди живых экземпляров
+     */
+    SchedulerPartition getPartition();
+
+    String getNodeId();
+}
@@ -0,0 +1,224 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import ru.team.up.core.projections.SchedulerPartition;
+
+/**
+ * Аренда задач планировщиков и деление работы между экземплярами приложения через БД.
+ * <p>
+ * Аренда - строка SCHEDULER_LOCK с владельцем, временем окончания и токеном. Захват и продление выполняются
+ * одним INSERT ... ON CONFLICT DO UPDATE по времени БД, поэтому расхождение часов экземпляров не влияет.
+ * Токен растёт при каждой смене владельца и нужен только, чтобы снять и проверить свою аренду. Это аренда,
+ * а не fencing: записи задач токен не проверяют, поэтому пока задача выполняется, аренда продлевается
+ * каждую треть своего срока.
+ * Истечь во время работы она может, только если экземпляр завис или потерял БД дольше срока аренды;
+ * на этот случай задачи под арендой сами защищены от повторного выполнения (SKIP LOCKED, уникальные ключи).
+ * <p>
+ * Живые экземпляры периодически отмечаются в SCHEDULER_NODE. Экземпляр получает номер в упорядоченном
+ * списке id живых экземпляров и обрабатывает объекты, id которых по модулю их количества равен номеру.
+ * При изменении состава экземпляров доли на один запуск могут пересекаться или пропускать объекты,
+ * поэтому обработка объекта по доле должна быть идемпотентной, а пропущенный объект берётся следующим запуском.
+ * <p>
+ * Экземпляр без роли scheduler не отмечается в SCHEDULER_NODE и не выполняет арендуемые задачи,
+ * поэтому доли работы делятся только между экземплярами с планировщиками.
+ */
+@Slf4j
+@Service
+@PropertySource("classpath:scheduler-lock.properties")
+public class SchedulerLockServiceImpl implements SchedulerLockService {
+
+    private static final String LOCK_SQL =
+            "INSERT INTO scheduler_lock (name, owner, token, lease_until) " +
+            "VALUES (?, ?, 1, now() + ? * interval '1 millisecond') " +
+            "ON CONFLICT (name) DO UPDATE SET owner = EXCLUDED.owner, lease_until = EXCLUDED.lease_until, " +
+            "token = CASE WHEN scheduler_lock.owner = EXCLUDED.owner AND scheduler_lock.lease_until > now() " +
+            "THEN scheduler_lock.token ELSE scheduler_lock.token + 1 END " +
+            "WHERE scheduler_lock.owner = EXCLUDED.owner OR scheduler_lock.lease_until <= now() " +
+            "RETURNING token";
+
+    private static final String UNLOCK_SQL =
+            "UPDATE scheduler_lock SET lease_until = now() WHERE name = ? AND owner = ? AND token = ?";
+
+    private static final String LOCK_HELD_SQL =
+            "SELECT count(*) FROM scheduler_lock WHERE name = ? AND owner = ? AND token = ? AND lease_until > now()";
+
+    private static final String HEARTBEAT_SQL =
+            "INSERT INTO scheduler_node (node_id, heartbeat_time) VALUES (?, now()) " +
+            "ON CONFLICT (node_id) DO UPDATE SET heartbeat_time = EXCLUDED.heartbeat_time";
+
+    private static final String LIVE_NODES_SQL =
+            "SELECT node_id FROM scheduler_node WHERE heartbeat_time > now() - ? * interval '1 millisecond'";
+
+    private static final String LEAVE_SQL = "DELETE FROM scheduler_node WHERE node_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId;
+    private final long leaseMillis;
+    private final long nodeTimeoutMillis;
+    private final boolean schedulerNode;
+    private final ScheduledExecutorService leaseRenewal;
+
+    @Autowired
+    public SchedulerLockServiceImpl(JdbcTemplate jdbcTemplate,
+                                    @Value("${scheduler.node.id}") String nodeId,
+                                    @Value("${scheduler.lock.lease}") long leaseMillis,
+                                    @Value("${scheduler.node.timeout}") long nodeTimeoutMillis,
+                                    @Value("${teamup.node.role.scheduler:true}") boolean schedulerNode) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? generateNodeId() : nodeId;
+        this.leaseMillis = leaseMillis;
+        this.nodeTimeoutMillis = nodeTimeoutMillis;
+        this.schedulerNode = schedulerNode;
+        this.leaseRenewal = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "scheduler-lease-renewal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (schedulerNode) {
+            log.info("Идентификатор экземпляра для планировщиков: {}", this.nodeId);
+        } else {
+            log.info("Экземпляр {} без роли scheduler, задачи планировщиков не выполняются", this.nodeId);
+        }
+    }
+
+    @Override
+    public OptionalLong tryLock(String name) {
+        List<Long> tokens = jdbcTemplate.queryForList(LOCK_SQL, Long.class, name, nodeId, leaseMillis);
+        return tokens.isEmpty() ? OptionalLong.empty() : OptionalLong.of(tokens.get(0));
+    }
+
+    @Override
+    public void unlock(String name, long token) {
+        jdbcTemplate.update(UNLOCK_SQL, name, nodeId, token);
+    }
+
+    @Override
+    public boolean isLockHeld(String name, long token) {
+        Integer held = jdbcTemplate.queryForObject(LOCK_HELD_SQL, Integer.class, name, nodeId, token);
+        return held != null && held > 0;
+    }
+
+    @Override
+    public boolean runLocked(String name, Runnable task) {
+        if (!schedulerNode) {
+            return false;
+        }
+        OptionalLong token = tryLock(name);
+        if (token.isEmpty()) {
+            log.debug("Задача {} выполняется другим экземпляром", name);
+            return false;
+        }
+        LeaseRenewal renewal = new LeaseRenewal(name, token.getAsLong());
+        long period = Math.max(1, leaseMillis / 3);
+        ScheduledFuture<?> renewing = leaseRenewal.scheduleAtFixedRate(renewal, period, period, TimeUnit.MILLISECONDS);
+        try {
+            task.run();
+        } finally {
+            renewing.cancel(false);
+            renewal.finish();
+            if (!isLockHeld(name, token.getAsLong())) {
+                log.warn("Аренда задачи {} с токеном {} истекла во время выполнения", name, token.getAsLong());
+            }
+            unlock(name, token.getAsLong());
+        }
+        return true;
+    }
+
+    @Override
+    public SchedulerPartition getPartition() {
+        heartbeat();
+        List<String> nodes = new ArrayList<>(jdbcTemplate.queryForList(LIVE_NODES_SQL, String.class, nodeTimeoutMillis));
+        if (!nodes.contains(nodeId)) {
+            // Сигнал только что записан, поэтому экземпляр может не попасть в список лишь при расхождении реплик
+            nodes.add(nodeId);
+        }
+        // Порядок задаётся в приложении, а не сортировкой БД, чтобы не зависеть от правил сравнения строк
+        Collections.sort(nodes);
+        return new SchedulerPartition(nodes.indexOf(nodeId), nodes.size());
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Scheduled(fixedDelayString = "${scheduler.node.heartbeat}")
+    public void heartbeat() {
+        if (!schedulerNode) {
+            return;
+        }
+        jdbcTemplate.update(HEARTBEAT_SQL, nodeId);
+    }
+
+    @PreDestroy
+    public void leave() {
+        leaseRenewal.shutdownNow();
+        if (!schedulerNode) {
+            return;
+        }
+        jdbcTemplate.update(LEAVE_SQL, nodeId);
+    }
+
+    /**
+     * Продление аренды выполняемой задачи. После завершения задачи продление не выполняется,
+     * чтобы не захватить заново уже снятую аренду
+     */
+    private class LeaseRenewal implements Runnable {
+        private final String name;
+        private final long token;
+        private boolean finished;
+
+        private LeaseRenewal(String name, long token) {
+            this.name = name;
+            this.token = token;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (finished) {
+                return;
+            }
+            try {
+                OptionalLong renewed = tryLock(name);
+                if (renewed.isEmpty() || renewed.getAsLong() != token) {
+                    log.warn("Аренда задачи {} с токеном {} потеряна во время выполнения", name, token);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Не удалось продлить аренду задачи {}: {}", name, e.toString());
+            }
+        }
+
+        private synchronized void finish() {
+            finished = true;
+        }
+    }
+
+    private static String generateNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -15,4 +15,6 @@ public interface SendMessageService {
     void sendMessage(User user, UserMessage message);
 
     void sendMessage(Set<User> users, UserMessage message);
+
+    int sendMessageToSubscribers(User user, UserMessage message);
 }
@@ -1,32 +1,78 @@
 package ru.team.up.core.service;
 
 
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.team.up.core.entity.User;
 import ru.team.up.core.entity.UserMessage;
+import ru.team.up.core.repositories.UserMessageRepository;
 import ru.team.up.core.repositories.UserRepository;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
-
+/**
+ * Отправка сообщений пользователям.
+ * <p>
+ * При рассылке нескольким пользователям сообщение сохраняется один раз, а связи с получателями
+ * вставляются в USER_ACCOUNT_MESSAGES пакетными INSERT без загрузки пользователей и их сообщений.
+ */
 @Slf4j
 @Service
-@AllArgsConstructor(onConstructor = @__(@Autowired))
+@PropertySource("classpath:messages.properties")
 public class SendMessageServiceImpl implements SendMessageService {
-    private UserRepository userRepository;
+
+    private static final String INSERT_RECIPIENT_SQL =
+            "INSERT INTO user_account_messages (user_id, message_id) VALUES (?, ?) ON CONFLICT DO NOTHING";
+
+    private static final String INSERT_SUBSCRIBERS_SQL =
+            "INSERT INTO user_account_messages (user_id, message_id) " +
+            "SELECT s.subscriber_id, ? FROM user_account_subscribers s WHERE s.user_id = ? " +
+            "ON CONFLICT DO NOTHING";
+
+    private final UserRepository userRepository;
+    private final UserMessageRepository userMessageRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public SendMessageServiceImpl(UserRepository userRepository,
+                                  UserMessageRepository userMessageRepository,
+                                  JdbcTemplate jdbcTemplate,
+                                  @Value("${messages.broadcast.batch.size}") int batchSize) {
+        this.userRepository = userRepository;
+        this.userMessageRepository = userMessageRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
 
     @Override
     @Transactional
     public void sendMessage(Set<User> users, UserMessage message) {
-        if (users != null) {
-            for (User user : users) {
-                user.addUserMessage(message);
-                userRepository.save(user);
-            }
+        if (users == null || users.isEmpty()) {
+            return;
+        }
+        Long messageId = saveMessage(message);
+
+        List<Long> userIds = new ArrayList<>(users.size());
+        for (User user : users) {
+            userIds.add(user.getId());
+        }
+
+        for (int from = 0; from < userIds.size(); from += batchSize) {
+            List<Long> batch = userIds.subList(from, Math.min(from + batchSize, userIds.size()));
+            jdbcTemplate.batchUpdate(INSERT_RECIPIENT_SQL, batch, batch.size(), (ps, userId) -> {
+                ps.setLong(1, userId);
+                ps.setLong(2, messageId);
+            });
+            log.debug("Сообщение id:{} добавлено {} из {} получателей",
+                    messageId, from + batch.size(), userIds.size());
         }
     }
 
@@ -38,4 +84,31 @@ public class SendMessageServiceImpl implements SendMessageService {
             userRepository.save(user);
         }
     }
+
+    /**
+     * Рассылка сообщения всем подписчикам пользователя одним запросом INSERT ... SELECT,
+     * без передачи списка получателей в приложение
+     *
+     * @return Количество получателей
+     */
+    @Override
+    @Transactional
+    public int sendMessageToSubscribers(User user, UserMessage message) {
+        Long messageId = saveMessage(message);
+        int recipients = jdbcTemplate.update(INSERT_SUBSCRIBERS_SQL, messageId, user.getId());
+        log.debug("Сообщение id:{} разослано {} подписчикам пользователя с ID {}", messageId, recipients, user.getId());
+        return recipients;
+    }
+
+    /**
+     * Сообщение сохраняется до вставки связей, чтобы у него был идентификатор.
+     * Связи вставляются через JdbcTemplate мимо Hibernate, поэтому строка сообщения записывается в БД сразу,
+     * независимо от того, откладывает ли стратегия генерации идентификаторов INSERT до конца транзакции
+     */
+    private Long saveMessage(UserMessage message) {
+        if (message.getId() == null) {
+            message.setId(userMessageRepository.saveAndFlush(message).getId());
+        }
+        return message.getId();
+    }
 }
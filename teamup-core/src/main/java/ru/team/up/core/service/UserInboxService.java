@@ -0,0 +1,19 @@
+package ru.team.up.core.service;
+
+import ru.team.up.core.projections.InboxMessageView;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Входящие сообщения пользователя
+ */
+public interface UserInboxService {
+
+    List<InboxMessageView> getInbox(Long userId, LocalDateTime beforeTime, Long beforeId, int limit);
+
+    int countUnread(Long userId);
+
+    int markAsRead(Long userId, Collection<Long> messageIds);
+}
@@ -0,0 +1,69 @@
+package ru.team.up.core.service;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import ru.team.up.core.projections.InboxMessageView;
+import ru.team.up.core.repositories.UserMessageRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Входящие сообщения пользователя читаются постранично по ключу (время создания, id):
+ * следующая страница начинается после последнего сообщения предыдущей,
+ * поэтому стоимость запроса зависит от размера страницы, а не от числа всех сообщений.
+ * Счётчик непрочитанных поддерживается в БД триггерами и читается одной строкой.
+ */
+@Slf4j
+@Service
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class UserInboxServiceImpl implements UserInboxService {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private UserMessageRepository userMessageRepository;
+
+    /**
+     * @param userId     Идентификатор пользователя
+     * @param beforeTime Время создания последнего сообщения предыдущей страницы, null - первая страница
+     * @param beforeId   Идентификатор последнего сообщения предыдущей страницы
+     * @param limit      Размер страницы, не больше 100
+     * @return Сообщения от новых к старым
+     */
+    @Override
+    public List<InboxMessageView> getInbox(Long userId, LocalDateTime beforeTime, Long beforeId, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        List<InboxMessageView> page = beforeTime == null || beforeId == null
+                ? userMessageRepository.findInbox(userId, pageSize)
+                : userMessageRepository.findInboxBefore(userId, beforeTime, beforeId, pageSize);
+        log.debug("Получено {} входящих сообщений пользователя с ID {}", page.size(), userId);
+        return page;
+    }
+
+    @Override
+    public int countUnread(Long userId) {
+        return userMessageRepository.countUnread(userId);
+    }
+
+    /**
+     * @param userId     Идентификатор пользователя
+     * @param messageIds Идентификаторы прочитанных сообщений, null или пустой список - все сообщения
+     * @return Количество сообщений, отмеченных прочитанными
+     */
+    @Override
+    public int markAsRead(Long userId, Collection<Long> messageIds) {
+        LocalDateTime now = LocalDateTime.now();
+        int marked = messageIds == null || messageIds.isEmpty()
+                ? userMessageRepository.markAllAsRead(userId, now)
+                : userMessageRepository.markAsRead(userId, messageIds, now);
+        log.debug("Отмечено прочитанными {} сообщений пользователя с ID {}", marked, userId);
+        return marked;
+    }
+}
@@ -2,6 +2,7 @@ package ru.team.up.core.service;
 
 import ru.team.up.core.entity.Account;
 import ru.team.up.core.entity.User;
+import ru.team.up.core.projections.UserView;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,6 +13,8 @@ import java.util.Optional;
 public interface UserService {
     List<User> getAllUsers();
 
+    List<UserView> getAllUserViews();
+
     Optional<User> getOneUser(Long id);
 
     User saveUser(User user);
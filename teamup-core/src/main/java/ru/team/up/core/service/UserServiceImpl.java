@@ -10,6 +10,7 @@ import ru.team.up.core.entity.Role;
 import ru.team.up.core.entity.User;
 import ru.team.up.core.exception.NoContentException;
 import ru.team.up.core.exception.UserNotFoundIDException;
+import ru.team.up.core.projections.UserView;
 import ru.team.up.core.repositories.UserRepository;
 import ru.team.up.dto.NotifyDto;
 import ru.team.up.dto.NotifyStatusDto;
@@ -51,6 +52,21 @@ public class UserServiceImpl implements UserService {
         return users;
     }
 
+    /**
+     * @return Возвращает коллекцию публичных представлений пользователей,
+     * выбранных одним запросом только по нужным колонкам
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserView> getAllUserViews() {
+        log.debug("Старт метода List<UserView> getAllUserViews()");
+
+        List<UserView> users = userRepository.findUserViewsByRole(Role.ROLE_USER);
+        log.debug("Получили список из {} пользователей из БД", users.size());
+
+        return users;
+    }
+
     /**
      * @param id Уникальный ключ ID пользователя
      * @return Находит в БД пользователя по ID и возвращает его.
@@ -0,0 +1,157 @@
+package ru.team.up.core.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import ru.team.up.core.projections.DataSourceRoutingStats;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+class ReadWriteRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica;
+
+    @Mock
+    private JdbcTemplate replicaJdbcTemplate;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replicaConnection;
+
+    private ReadWriteRoutingDataSource routingDataSource;
+    private LazyConnectionDataSourceProxy dataSource;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    private void setUpEntity() throws SQLException {
+        MockitoAnnotations.openMocks(this);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        when(replicaJdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+        routingDataSource = new ReadWriteRoutingDataSource(primary, replica, replicaJdbcTemplate, 5_000);
+
+        // Транзакции, как в приложении, открываются на ленивом источнике поверх маршрутизации
+        dataSource = new LazyConnectionDataSourceProxy();
+        dataSource.setTargetDataSource(routingDataSource);
+        dataSource.setDefaultAutoCommit(true);
+        dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        dataSource.afterPropertiesSet();
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplica() throws SQLException {
+        readOnlyTransaction.executeWithoutResult(status -> query());
+        transaction.executeWithoutResult(status -> query());
+
+        verify(replicaConnection).createStatement();
+        verify(primaryConnection).createStatement();
+        DataSourceRoutingStats stats = routingDataSource.getStats();
+        assertEquals(1, stats.getReplica().getRoutedConnections());
+        assertEquals(1, stats.getPrimary().getRoutedConnections());
+        assertEquals(0, stats.getFallbackConnections());
+    }
+
+    @Test
+    void primaryReadInsideReadOnlyTransaction() throws SQLException {
+        readOnlyTransaction.executeWithoutResult(status -> ReadWriteRoutingDataSource.readFromPrimary(() -> {
+            query();
+            return null;
+        }));
+        readOnlyTransaction.executeWithoutResult(status -> query());
+
+        verify(primaryConnection).createStatement();
+        verify(replicaConnection).createStatement();
+        assertEquals(0, routingDataSource.getStats().getFallbackConnections());
+    }
+
+    @Test
+    void laggingReplicaIsSkipped() throws SQLException {
+        when(replicaJdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(12_000L).thenReturn(100L);
+
+        routingDataSource.checkReplica();
+        readOnlyTransaction.executeWithoutResult(status -> query());
+        assertFalse(routingDataSource.getStats().isReplicaAvailable());
+        assertEquals(12_000, routingDataSource.getStats().getReplicaLagMillis());
+
+        routingDataSource.checkReplica();
+        readOnlyTransaction.executeWithoutResult(status -> query());
+
+        verify(primaryConnection).createStatement();
+        verify(replicaConnection).createStatement();
+        assertEquals(1, routingDataSource.getStats().getFallbackConnections());
+    }
+
+    @Test
+    void unavailableReplicaFallsBackToPrimary() throws SQLException {
+        when(replica.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        readOnlyTransaction.executeWithoutResult(status -> query());
+        readOnlyTransaction.executeWithoutResult(status -> query());
+
+        // После ошибки реплика не используется до следующей проверки
+        verify(replica, times(1)).getConnection();
+        verify(primaryConnection, times(2)).createStatement();
+        assertEquals(2, routingDataSource.getStats().getFallbackConnections());
+
+        when(replicaJdbcTemplate.queryForObject(anyString(), eq(Long.class)))
+                .thenThrow(new CannotGetJdbcConnectionException("Connection refused"));
+        routingDataSource.checkReplica();
+        assertFalse(routingDataSource.getStats().isReplicaAvailable());
+        assertEquals(-1, routingDataSource.getStats().getReplicaLagMillis());
+    }
+
+    @Test
+    void connectionWithCredentialsGoesToPrimary() throws SQLException {
+        when(primary.getConnection("user", "password")).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, routingDataSource.getConnection("user", "password"));
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try {
+                assertSame(primaryConnection, routingDataSource.getConnection("user", "password"));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        verify(replica, never()).getConnection(anyString(), anyString());
+        assertEquals(2, routingDataSource.getStats().getPrimary().getRoutedConnections());
+    }
+
+    private void query() {
+        try {
+            DataSourceUtils.getConnection(dataSource).createStatement();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ru.team.up.core.repositories;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.team.up.core.entity.*;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер скорости массовой вставки мероприятий, сообщений и назначений мероприятий модераторам:
+ * по одной строке за обращение к БД, как при IDENTITY, и пакетами JDBC с идентификаторами из последовательностей.
+ * Требует PostgreSQL, выполняется в профиле benchmark: mvn test -Pbenchmark.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+class BulkInsertBenchmarkTests {
+
+    private static final int ROWS = 5000;
+    private static final int FLUSH_SIZE = 500;
+    private static final long ASSIGNED_EVENT_ID_BASE = 1_000_000_000L;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private EventTypeRepository eventTypeRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserMessageRepository userMessageRepository;
+
+    @Autowired
+    private AssignedEventsRepository assignedEventsRepository;
+
+    private User authorTest;
+    private Status statusTest;
+    private EventType eventTypeTest;
+    private int run;
+
+    @BeforeEach
+    public void setUpEntity() {
+        authorTest = userRepository.save(User.builder()
+                .firstName("testBulkUser")
+                .lastName("testBulkUserLastName")
+                .username("testBulkUserLogin")
+                .email("testBulkUser@mail.ru")
+                .password("user")
+                .accountCreatedTime(LocalDate.now())
+                .lastAccountActivity(LocalDateTime.now())
+                .city("Moscow")
+                .birthday(LocalDate.of(1992, 1, 20))
+                .build());
+        statusTest = statusRepository.save(Status.builder().status("Bulk").build());
+        eventTypeTest = eventTypeRepository.save(EventType.builder().type("Bulk").build());
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        assignedEventsRepository.deleteAllInBatch();
+        userMessageRepository.deleteAllInBatch();
+        eventRepository.deleteAllInBatch();
+        userRepository.delete(authorTest);
+        statusRepository.delete(statusTest);
+        eventTypeRepository.delete(eventTypeTest);
+    }
+
+    @Test
+    void bulkInserts() {
+        measure("Event", i -> Event.builder()
+                .eventName("Массовое мероприятие " + i)
+                .descriptionEvent("Вставка пакетами")
+                .city("Moscow")
+                .placeEvent("Stadium")
+                .eventNumberOfParticipant((byte) 20)
+                .timeEvent(LocalDateTime.now().plusDays(1))
+                .timeEndEvent(LocalDateTime.now().plusDays(2))
+                .status(statusTest)
+                .eventType(eventTypeTest)
+                .authorId(authorTest)
+                .build());
+
+        measure("UserMessage", i -> UserMessage.builder()
+                .messageOwner(authorTest)
+                .message("Сообщение " + i)
+                .status(statusTest)
+                .messageType(UserMessageType.NOT_SENT)
+                .messageCreationTime(LocalDateTime.now())
+                .build());
+
+        measure("AssignedEvents", i -> AssignedEvents.builder()
+                .moderatorId(authorTest.getId())
+                .eventId(ASSIGNED_EVENT_ID_BASE + run * ROWS + i)
+                .build());
+    }
+
+    private void measure(String entityName, IntFunction<Object> entity) {
+        double rowByRow = insert(entity, 1);
+        double batched = insert(entity, null);
+        log.info("{}: по одной строке {} строк/с, пакетами {} строк/с", entityName,
+                String.format("%.0f", rowByRow), String.format("%.0f", batched));
+    }
+
+    /**
+     * @param batchSize Размер пакета JDBC для сессии, null - размер из настроек
+     * @return Строк в секунду
+     */
+    private double insert(IntFunction<Object> entity, Integer batchSize) {
+        run++;
+        List<Object> entities = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            entities.add(entity.apply(i));
+        }
+
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            for (int i = 0; i < entities.size(); i++) {
+                entityManager.persist(entities.get(i));
+                if ((i + 1) % FLUSH_SIZE == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long ids = entities.stream().map(this::getId).distinct().count();
+        assertEquals(ROWS, ids);
+        return ROWS / seconds;
+    }
+
+    private Object getId(Object entity) {
+        return entityManager.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity);
+    }
+}
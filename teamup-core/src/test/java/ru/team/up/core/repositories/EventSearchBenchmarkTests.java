@@ -0,0 +1,128 @@
+package ru.team.up.core.repositories;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.team.up.core.entity.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сравнение полнотекстового поиска мероприятий с прежним поиском LIKE '%x%' по названию.
+ * Требует PostgreSQL, выполняется в профиле benchmark
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+class EventSearchBenchmarkTests {
+
+    private static final int EVENTS = 2000;
+    private static final int RUNS = 50;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private EventTypeRepository eventTypeRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User authorTest;
+
+    private List<Event> eventsTest;
+
+    @BeforeEach
+    public void setUpEntity() {
+        authorTest = userRepository.save(User.builder()
+                .firstName("testSearchUser")
+                .lastName("testSearchUserLastName")
+                .username("testSearchUserLogin")
+                .email("testSearchUser@mail.ru")
+                .password("user")
+                .accountCreatedTime(LocalDate.now())
+                .lastAccountActivity(LocalDateTime.now())
+                .city("Moscow")
+                .birthday(LocalDate.of(1992, 1, 20))
+                .build());
+        Status status = statusRepository.save(Status.builder().status("New").build());
+        EventType eventType = eventTypeRepository.save(EventType.builder().type("Game").build());
+
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < EVENTS; i++) {
+            boolean football = i % 100 == 0;
+            events.add(Event.builder()
+                    .eventName(football ? "Игра выходного дня " + i : "Встреча " + i)
+                    .descriptionEvent(football ? "Собираемся поиграть в футбол на стадионе" : "Обычная встреча")
+                    .city(i % 2 == 0 ? "Moscow" : "Krasnodar")
+                    .placeEvent("Stadium")
+                    .eventNumberOfParticipant((byte) 20)
+                    .timeEvent(LocalDateTime.now().plusDays(i % 30))
+                    .timeEndEvent(LocalDateTime.now().plusDays(i % 30 + 1))
+                    .status(status)
+                    .eventType(eventType)
+                    .authorId(authorTest)
+                    .build());
+        }
+        eventsTest = eventRepository.saveAll(events);
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        eventRepository.deleteAll(eventsTest);
+        userRepository.delete(authorTest);
+    }
+
+    @Test
+    void searchComparedToLike() {
+        long likeStart = System.nanoTime();
+        int likeFound = 0;
+        for (int i = 0; i < RUNS; i++) {
+            likeFound = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM event WHERE event_name LIKE '%футбол%'", Integer.class);
+        }
+        long likeNanos = (System.nanoTime() - likeStart) / RUNS;
+
+        long searchStart = System.nanoTime();
+        Page<Event> found = Page.empty();
+        for (int i = 0; i < RUNS; i++) {
+            found = eventRepository.searchEvents("футбольный", "",
+                    LocalDateTime.of(1, 1, 1, 0, 0), LocalDateTime.of(9999, 12, 31, 23, 59),
+                    PageRequest.of(0, 10));
+        }
+        long searchNanos = (System.nanoTime() - searchStart) / RUNS;
+
+        log.info("LIKE по названию: {} мкс, найдено {}; полнотекстовый поиск: {} мкс, найдено {}",
+                likeNanos / 1000, likeFound, searchNanos / 1000, found.getTotalElements());
+
+        // LIKE не находит слово в описании и в другой словоформе, полнотекстовый поиск находит
+        assertEquals(0, likeFound);
+        assertEquals(EVENTS / 100, found.getTotalElements());
+        assertTrue(found.getContent().size() <= 10);
+
+        // Фильтр по городу
+        Page<Event> moscow = eventRepository.searchEvents("футбол", "Moscow",
+                LocalDateTime.of(1, 1, 1, 0, 0), LocalDateTime.of(9999, 12, 31, 23, 59),
+                PageRequest.of(0, 100));
+        assertTrue(moscow.getContent().stream().allMatch(e -> "Moscow".equals(e.getCity())));
+    }
+}
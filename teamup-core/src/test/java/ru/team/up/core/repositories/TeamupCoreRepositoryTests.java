@@ -6,8 +6,10 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import ru.team.up.core.entity.*;
 import ru.team.up.core.repositories.*;
+import ru.team.up.core.service.SendMessageService;
 
 import javax.transaction.Transactional;
 import java.time.LocalDate;
@@ -53,6 +55,12 @@ class TeamupCoreRepositoryTests extends Assertions {
     @Autowired
     private ModeratorSessionRepository moderatorSessionRepository;
 
+    @Autowired
+    private SendMessageService sendMessageService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private Admin adminTest;
 
     private Moderator moderatorTest;
@@ -571,6 +579,38 @@ class TeamupCoreRepositoryTests extends Assertions {
         assertEquals(userRepository.findById(subscriberId2), Optional.empty());
     }
 
+    @Test
+    @Transactional
+    void sendMessageWithSequenceIdTest() {
+        // Сохранили подписчиков и пользователя с двумя подписчиками
+        userRepository.save(subscriberTest1);
+        userRepository.save(subscriberTest2);
+        Set<User> setTwoSubscribers = new HashSet<>();
+        setTwoSubscribers.add(subscriberTest1);
+        setTwoSubscribers.add(subscriberTest2);
+        userTest.setSubscribers(setTwoSubscribers);
+        userRepository.save(userTest);
+
+        // Идентификатор сообщения берётся из последовательности, INSERT сообщения откладывается Hibernate,
+        // а связи с получателями вставляются через JdbcTemplate в той же транзакции
+        userMessageTest.setMessageOwner(userTest);
+        sendMessageService.sendMessage(setTwoSubscribers, userMessageTest);
+        assertNotNull(userMessageTest.getId());
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM user_account_messages WHERE message_id = ?",
+                Integer.class, userMessageTest.getId()));
+
+        // Рассылка подписчикам одним INSERT ... SELECT
+        UserMessage subscribersMessage = UserMessage.builder()
+                .message("Новое мероприятие")
+                .status(statusTest)
+                .messageCreationTime(LocalDateTime.now())
+                .messageOwner(userTest)
+                .build();
+        assertEquals(2, sendMessageService.sendMessageToSubscribers(userTest, subscribersMessage));
+        assertTrue(userMessageRepository.findById(subscribersMessage.getId()).isPresent());
+    }
+
     // TODO не проходит, скорее всего надо исправить
     @Test
     void userMessageTestNull(){
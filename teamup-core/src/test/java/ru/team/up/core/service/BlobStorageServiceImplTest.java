@@ -0,0 +1,58 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import ru.team.up.core.projections.StoredBlob;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Slf4j
+class BlobStorageServiceImplTest {
+
+    @TempDir
+    Path root;
+
+    private BlobStorageService blobStorageService;
+
+    @BeforeEach
+    private void setUpEntity() {
+        blobStorageService = new BlobStorageServiceImpl(root.toString());
+    }
+
+    @Test
+    void store() throws Exception {
+        byte[] content = "image".getBytes(StandardCharsets.UTF_8);
+
+        StoredBlob stored = blobStorageService.store(new ByteArrayInputStream(content));
+        // Ключ - SHA-256 содержимого, файл лежит в подкаталогах по первым байтам ключа
+        assertEquals("6105d6cc76af400325e94d588ce511be5bfdbb73b437dc51eca43917d7a43e3d", stored.getKey());
+        assertEquals(5, stored.getSize());
+        assertTrue(stored.isCreated());
+        Path path = blobStorageService.getPath(stored.getKey());
+        assertEquals(root.resolve("61").resolve("05").resolve(stored.getKey()), path);
+        assertArrayEquals(content, Files.readAllBytes(path));
+
+        // Повторная запись того же содержимого не создаёт новый файл
+        StoredBlob duplicate = blobStorageService.store(new ByteArrayInputStream(content));
+        assertEquals(stored.getKey(), duplicate.getKey());
+        assertFalse(duplicate.isCreated());
+        // Временные файлы удаляются
+        assertEquals(0, Files.list(root.resolve("tmp")).count());
+
+        blobStorageService.delete(stored.getKey());
+        assertFalse(blobStorageService.exists(stored.getKey()));
+    }
+
+    @Test
+    void getPath() {
+        assertFalse(blobStorageService.exists("0".repeat(64)));
+        assertThrows(IllegalArgumentException.class, () -> blobStorageService.getPath("../../etc/passwd"));
+    }
+}
@@ -4,22 +4,40 @@ import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
 import ru.team.up.core.entity.Status;
 import ru.team.up.core.entity.User;
 import ru.team.up.core.entity.UserMessage;
 import ru.team.up.core.entity.UserMessageType;
+import ru.team.up.core.projections.EmailDispatchReport;
 import ru.team.up.core.repositories.UserMessageRepository;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @Slf4j
@@ -32,31 +50,178 @@ class EmailUserMessageNotificatorServiceImplTest {
     @Mock
     private JavaMailSender emailSender;
 
-    @InjectMocks
-    private EmailUserMessageNotificatorService emailUserMessageNotificatorService =
-            new EmailUserMessageNotificatorServiceImpl(userMessageRepository, emailSender);
+    private EmailUserMessageNotificatorService emailUserMessageNotificatorService;
 
-    private UserMessage userMessage;
+    private List<UserMessage> userMessages;
+    private List<Long> sentIds;
 
     @BeforeEach
     private void setUpEntity() {
         MockitoAnnotations.openMocks(this);
+        // Пачки по 2 сообщения, 2 потока отправки
+        emailUserMessageNotificatorService = new EmailUserMessageNotificatorServiceImpl(userMessageRepository,
+                emailSender, 2, 2);
 
-        userMessage = UserMessage.builder()
-                .message("Hi")
-                .status(new Status())
-                .messageCreationTime(LocalDateTime.now())
-                .messageType(UserMessageType.NOT_SENT)
-                .messageOwner(new User())
-                .build();
+        userMessages = LongStream.rangeClosed(1, 5)
+                .mapToObj(id -> UserMessage.builder()
+                        .id(id)
+                        .message("Hi")
+                        .status(new Status())
+                        .messageCreationTime(LocalDateTime.now())
+                        .messageType(UserMessageType.NOT_SENT)
+                        .messageOwner(User.builder().email("user" + id + "@mail.ru").build())
+                        .build())
+                .collect(Collectors.toList());
+
+        // Пачка - сообщения с id больше переданного, не больше размера страницы
+        when(userMessageRepository.findChunkWithOwner(eq(UserMessageType.NOT_SENT), any(), any()))
+                .thenAnswer(invocation -> {
+                    Long afterId = invocation.getArgument(1);
+                    Pageable pageable = invocation.getArgument(2);
+                    return userMessages.stream()
+                            .filter(m -> m.getId() > afterId)
+                            .limit(pageable.getPageSize())
+                            .collect(Collectors.toList());
+                });
+
+        sentIds = new ArrayList<>();
+        when(userMessageRepository.updateMessageType(any(), eq(UserMessageType.SENT))).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            synchronized (sentIds) {
+                sentIds.addAll(ids);
+            }
+            return ids.size();
+        });
     }
 
     @Test
     void send() {
-        List<UserMessage> userMessageList = new LinkedList<>();
-        userMessageList.add(userMessage);
-        when(userMessageRepository.findAllByMessageType(UserMessageType.NOT_SENT)).thenReturn(userMessageList);
-        emailUserMessageNotificatorService.send();
-        assertEquals(UserMessageType.SENT , userMessage.getMessageType());
+        EmailDispatchReport report = emailUserMessageNotificatorService.send();
+
+        // Каждая пачка отправляется одним вызовом, статус обновляется одним запросом на пачку
+        assertEquals(3, report.getChunks());
+        assertEquals(5, report.getSent());
+        assertEquals(0, report.getFailed());
+        assertEquals(3, mockingDetails(emailSender).getInvocations().size());
+        verify(userMessageRepository, times(3)).updateMessageType(any(), eq(UserMessageType.SENT));
+        verify(userMessageRepository, never()).save(any());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), sentIds.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    void sendWithFailedMessage() {
+        JavaMailSender failingSender = mock(JavaMailSender.class, invocation -> {
+            // Mockito раскрывает массив аргументов переменной длины в отдельные аргументы
+            for (Object message : invocation.getArguments()) {
+                if ("user3@mail.ru".equals(((SimpleMailMessage) message).getTo()[0])) {
+                    throw new MailSendException(Map.of(message, new Exception("Mailbox unavailable")));
+                }
+            }
+            return null;
+        });
+
+        EmailDispatchReport report = new EmailUserMessageNotificatorServiceImpl(userMessageRepository,
+                failingSender, 2, 2).send();
+
+        // Сообщение с ошибкой остаётся неотправленным, остальные сообщения его пачки отмечаются отправленными
+        assertEquals(4, report.getSent());
+        assertEquals(1, report.getFailed());
+        assertEquals(List.of(1L, 2L, 4L, 5L), sentIds.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    void sendThroughSmtpServer() throws Exception {
+        try (FakeSmtpServer smtpServer = new FakeSmtpServer()) {
+            JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+            mailSender.setHost("localhost");
+            mailSender.setPort(smtpServer.getPort());
+            mailSender.getJavaMailProperties().put("mail.smtp.from", "noreply@teamup.ru");
+
+            EmailDispatchReport report = new EmailUserMessageNotificatorServiceImpl(userMessageRepository,
+                    mailSender, 2, 2).send();
+
+            // Одно SMTP-соединение на пачку, а не на сообщение
+            assertEquals(5, report.getSent());
+            assertEquals(3, smtpServer.getConnections());
+            assertEquals(5, smtpServer.getMessages());
+        }
+    }
+
+    /**
+     * Простейший SMTP-сервер: принимает любые письма и считает соединения и письма
+     */
+    private static class FakeSmtpServer implements AutoCloseable {
+        private final ServerSocket serverSocket;
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicInteger messages = new AtomicInteger();
+
+        private FakeSmtpServer() throws IOException {
+            serverSocket = new ServerSocket(0);
+            Thread acceptor = new Thread(() -> {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        connections.incrementAndGet();
+                        Thread session = new Thread(() -> serve(socket));
+                        session.setDaemon(true);
+                        session.start();
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        private int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        private int getConnections() {
+            return connections.get();
+        }
+
+        private int getMessages() {
+            return messages.get();
+        }
+
+        private void serve(Socket socket) {
+            try (socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                         StandardCharsets.US_ASCII));
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+                reply(out, "220 localhost");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.toUpperCase();
+                    if (command.startsWith("DATA")) {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // Тело письма не проверяется
+                        }
+                        messages.incrementAndGet();
+                        reply(out, "250 OK");
+                    } else if (command.startsWith("QUIT")) {
+                        reply(out, "221 Bye");
+                        return;
+                    } else {
+                        reply(out, "250 OK");
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("Соединение с тестовым SMTP-сервером закрыто: {}", e.toString());
+            }
+        }
+
+        private static void reply(PrintWriter out, String reply) {
+            out.print(reply + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,168 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.team.up.core.entity.AssignedEvents;
+import ru.team.up.core.projections.ReassignmentStats;
+
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+class EventAssignmentServiceImplTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private EventAssignmentService eventAssignmentService;
+
+    @BeforeEach
+    private void setUpEntity() {
+        MockitoAnnotations.openMocks(this);
+        eventAssignmentService = new EventAssignmentServiceImpl(jdbcTemplate);
+    }
+
+    @Test
+    void distribute() {
+        Map<Long, Long> loads = new LinkedHashMap<>();
+        loads.put(1L, 2L);
+        loads.put(2L, 0L);
+        loads.put(3L, 1L);
+
+        // Мероприятия достаются наименее загруженным модераторам, пока у всех не будет по 3
+        List<AssignedEvents> assignments = EventAssignmentServiceImpl.distribute(
+                List.of(10L, 11L, 12L, 13L, 14L, 15L, 16L), loads, 3);
+
+        assertEquals(List.of(2L, 2L, 3L, 1L, 2L, 3L), assignments.stream()
+                .map(AssignedEvents::getModeratorId)
+                .collect(Collectors.toList()));
+        assertEquals(List.of(10L, 11L, 12L, 13L, 14L, 15L), assignments.stream()
+                .map(AssignedEvents::getEventId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void distributeWithoutFreeModerators() {
+        assertTrue(EventAssignmentServiceImpl.distribute(List.of(10L), Map.of(1L, 3L), 3).isEmpty());
+    }
+
+    @Test
+    void assignNewEvents() throws Exception {
+        mockAssignment();
+
+        List<AssignedEvents> assigned = eventAssignmentService.assignNewEvents(3, 100);
+
+        assertEquals(2, assigned.size());
+        // Счётчик модератора увеличивается один раз на количество назначенных мероприятий
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat(increments -> increments.size() == 1), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    void releaseModerators() throws Exception {
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+                .thenReturn(List.of(1L, 3L), List.of(10L, 11L, 12L));
+        mockWaitingEvents(10L, 11L, 12L);
+
+        assertEquals(List.of(10L, 11L, 12L),
+                eventAssignmentService.releaseModerators(List.of(1L, 3L), LocalDateTime.now()));
+        // Сессии и назначения удаляются по одному запросу на всех модераторов
+        verify(jdbcTemplate, times(2)).query(any(PreparedStatementCreator.class), any(RowMapper.class));
+        assertEquals(3, eventAssignmentService.getReassignmentStats().getPending());
+
+        mockAssignment();
+        eventAssignmentService.assignNewEvents(3, 100);
+
+        ReassignmentStats stats = eventAssignmentService.getReassignmentStats();
+        assertEquals(3, stats.getReleased());
+        assertEquals(2, stats.getReassigned());
+        assertEquals(1, stats.getPending());
+    }
+
+    @Test
+    void moderatorActiveOnAnotherNodeIsNotReleased() {
+        // Сессия модератора обновлена другим экземпляром позже порога и не удаляется
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenReturn(List.of());
+
+        assertTrue(eventAssignmentService.releaseModerators(List.of(1L), LocalDateTime.now()).isEmpty());
+        // Назначения модератора не трогаются
+        verify(jdbcTemplate, times(1)).query(any(PreparedStatementCreator.class), any(RowMapper.class));
+        assertEquals(0, eventAssignmentService.getReassignmentStats().getReleased());
+    }
+
+    @Test
+    void releasedEventsNoLongerWaitingArePruned() throws Exception {
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+                .thenReturn(List.of(1L), List.of(10L, 11L, 12L));
+        eventAssignmentService.releaseModerators(List.of(1L), LocalDateTime.now());
+
+        // Мероприятие 10 назначено другим экземпляром, 12 одобрено, ждёт только 11
+        mockWaitingEvents(11L);
+        assertEquals(1, eventAssignmentService.getReassignmentStats().getPending());
+        assertEquals(1, ((Map<?, ?>) ReflectionTestUtils.getField(eventAssignmentService, "releasedAt")).size());
+
+        mockWaitingEvents();
+        assertEquals(0, eventAssignmentService.getReassignmentStats().getPending());
+        assertEquals(3, eventAssignmentService.getReassignmentStats().getReleased());
+    }
+
+    private void mockWaitingEvents(Long... eventIds) throws Exception {
+        ResultSet waiting = mock(ResultSet.class);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Long eventId : eventIds) {
+                when(waiting.getLong(1)).thenReturn(eventId);
+                handler.processRow(waiting);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    private void mockAssignment() throws Exception {
+        ResultSet moderators = mock(ResultSet.class);
+        when(moderators.getLong(1)).thenReturn(1L, 2L);
+        when(moderators.getLong(2)).thenReturn(2L, 0L);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(moderators);
+            handler.processRow(moderators);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), eq(3));
+        // Свободно 4 места, поэтому запрашивается не больше 4 мероприятий
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(4))).thenReturn(List.of(10L, 11L));
+        when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class))).thenReturn(List.of(
+                AssignedEvents.builder().id(1L).moderatorId(2L).eventId(10L).build(),
+                AssignedEvents.builder().id(2L).moderatorId(2L).eventId(11L).build()));
+    }
+
+    @Test
+    void assignNewEventsWithoutFreeModerators() {
+        List<AssignedEvents> assigned = eventAssignmentService.assignNewEvents(3, 100);
+
+        assertTrue(assigned.isEmpty());
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(Long.class), anyInt());
+    }
+}
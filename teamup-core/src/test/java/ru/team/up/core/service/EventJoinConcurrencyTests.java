@@ -0,0 +1,119 @@
+package ru.team.up.core.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.team.up.core.entity.*;
+import ru.team.up.core.projections.EventJoinResult;
+import ru.team.up.core.repositories.EventRepository;
+import ru.team.up.core.repositories.EventTypeRepository;
+import ru.team.up.core.repositories.StatusRepository;
+import ru.team.up.core.repositories.UserRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Нагрузочная проверка записи на мероприятие: конкурентные записи не должны превышать число мест
+ */
+@SpringBootTest
+class EventJoinConcurrencyTests {
+
+    private static final int CAPACITY = 5;
+    private static final int USERS = 40;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private EventTypeRepository eventTypeRepository;
+
+    private Event eventTest;
+
+    private final List<User> usersTest = new ArrayList<>();
+
+    @BeforeEach
+    public void setUpEntity() {
+        for (int i = 0; i < USERS; i++) {
+            usersTest.add(userRepository.save(User.builder()
+                    .firstName("testJoinUser" + i)
+                    .lastName("testJoinUserLastName")
+                    .username("testJoinUserLogin" + i)
+                    .email("testJoinUser" + i + "@mail.ru")
+                    .password("user")
+                    .accountCreatedTime(LocalDate.now())
+                    .lastAccountActivity(LocalDateTime.now())
+                    .city("Moscow")
+                    .birthday(LocalDate.of(1992, 1, 20))
+                    .build()));
+        }
+
+        eventTest = eventRepository.save(Event.builder()
+                .eventName("Football game")
+                .descriptionEvent("Join people to play football math")
+                .city("Moscow")
+                .placeEvent("Stadium")
+                .eventNumberOfParticipant((byte) CAPACITY)
+                .timeEvent(LocalDateTime.now())
+                .timeEndEvent(LocalDateTime.now().plusDays(1L))
+                .status(statusRepository.save(Status.builder().status("New").build()))
+                .eventType(eventTypeRepository.save(EventType.builder().type("Game").build()))
+                .authorId(usersTest.get(0))
+                .build());
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        usersTest.forEach(u -> eventService.leaveEvent(eventTest.getId(), u.getId()));
+        eventRepository.deleteById(eventTest.getId());
+        usersTest.forEach(userRepository::delete);
+    }
+
+    @Test
+    void concurrentJoinDoesNotOverbook() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(USERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<EventJoinResult>> results = new ArrayList<>();
+
+        for (User user : usersTest) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return eventService.joinEvent(eventTest.getId(), user.getId());
+            }));
+        }
+        start.countDown();
+
+        int joined = 0;
+        int full = 0;
+        for (Future<EventJoinResult> result : results) {
+            EventJoinResult.JoinStatus status = result.get(30, TimeUnit.SECONDS).getStatus();
+            if (status == EventJoinResult.JoinStatus.JOINED) {
+                joined++;
+            } else if (status == EventJoinResult.JoinStatus.EVENT_FULL) {
+                full++;
+            }
+        }
+        executor.shutdown();
+
+        // Записались ровно столько пользователей, сколько мест, остальные получили отказ
+        assertEquals(CAPACITY, joined);
+        assertEquals(USERS - CAPACITY, full);
+        assertEquals((long) CAPACITY, eventRepository.countParticipants(eventTest.getId()));
+    }
+}
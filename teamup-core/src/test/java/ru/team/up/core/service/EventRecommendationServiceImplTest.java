@@ -0,0 +1,116 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import ru.team.up.core.entity.User;
+import ru.team.up.core.exception.UserNotFoundIDException;
+import ru.team.up.core.repositories.EventRepository;
+import ru.team.up.core.repositories.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+class EventRecommendationServiceImplTest {
+
+    @Mock
+    private EventRepository eventRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private EventRecommendationServiceImpl eventRecommendationService;
+
+    private User userTest;
+
+    @BeforeEach
+    private void setUpEntity() {
+        MockitoAnnotations.openMocks(this);
+        eventRecommendationService = new EventRecommendationServiceImpl(eventRepository, userRepository,
+                3, 5, 1, 7, 2, 10, 1);
+
+        userTest = User.builder()
+                .id(1L)
+                .city("Moscow")
+                .build();
+
+        LocalDateTime tomorrow = LocalDateTime.now().plusDays(1);
+        LocalDateTime yesterday = LocalDateTime.now().minusDays(1);
+        when(eventRepository.findUpcomingEventsWithInterests(any(LocalDateTime.class))).thenReturn(List.of(
+                // Два общих интереса
+                new Object[]{10L, "Krasnodar", 2L, tomorrow, 100L},
+                new Object[]{10L, "Krasnodar", 2L, tomorrow, 101L},
+                // Автор, на которого подписан пользователь
+                new Object[]{11L, "Krasnodar", 3L, tomorrow, null},
+                // Только город пользователя
+                new Object[]{12L, "Moscow", 2L, tomorrow, 102L},
+                // Ничего общего
+                new Object[]{13L, "Krasnodar", 2L, tomorrow, 102L},
+                // Своё мероприятие, мероприятие с участием и уже прошедшее не рекомендуются
+                new Object[]{14L, "Moscow", 1L, tomorrow, 100L},
+                new Object[]{15L, "Moscow", 2L, tomorrow, 100L},
+                new Object[]{16L, "Moscow", 2L, yesterday, 100L}));
+        when(userRepository.findUserById(1L)).thenReturn(userTest);
+        when(userRepository.findInterestIdsByUserId(1L)).thenReturn(List.of(100L, 101L, 999L));
+        when(userRepository.findFollowedAuthorIds(1L)).thenReturn(List.of(3L));
+        when(eventRepository.findParticipatedEventIds(1L)).thenReturn(List.of(15L));
+    }
+
+    @Test
+    void getRecommendedEventIds() {
+        assertEquals(List.of(10L, 11L, 12L), eventRecommendationService.getRecommendedEventIds(1L, 10));
+        assertEquals(List.of(10L), eventRecommendationService.getRecommendedEventIds(1L, 1));
+        assertEquals(Collections.emptyList(), eventRecommendationService.getRecommendedEventIds(1L, 0));
+        // Размер выдачи ограничен числом кандидатов и настройкой, а не запрошенным limit
+        assertEquals(List.of(10L, 11L, 12L), eventRecommendationService.getRecommendedEventIds(1L, Integer.MAX_VALUE));
+
+        when(userRepository.findUserById(2L)).thenReturn(null);
+        assertThrows(UserNotFoundIDException.class, () -> eventRecommendationService.getRecommendedEventIds(2L, 10));
+    }
+
+    @Test
+    void precompute() {
+        when(userRepository.findActiveUsers(any(LocalDateTime.class))).thenReturn(List.of(
+                new Object[]{1L, "Moscow"}, new Object[]{2L, "Minsk"}));
+        when(userRepository.findInterestIdsByUserIds(List.of(1L))).thenReturn(List.of(
+                new Object[]{1L, 100L}, new Object[]{1L, 101L}, new Object[]{1L, 999L}));
+        when(userRepository.findFollowedAuthorIdsByUserIds(List.of(1L)))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 3L}));
+        when(eventRepository.findParticipatedEventIdsByUserIds(List.of(1L)))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 15L}));
+        eventRecommendationService.precompute();
+
+        // Связи активных пользователей загружаются пачками, без запросов на каждого пользователя
+        verify(userRepository, times(2)).findInterestIdsByUserIds(anyList());
+        verify(userRepository, never()).findUserById(anyLong());
+        verify(userRepository, never()).findInterestIdsByUserId(anyLong());
+
+        // Рекомендации активного пользователя берутся из заранее рассчитанных
+        assertEquals(List.of(10L, 11L), eventRecommendationService.getRecommendedEventIds(1L, 2));
+        // Пользователю без интересов, подписок и мероприятий в его городе рекомендовать нечего
+        assertEquals(Collections.emptyList(), eventRecommendationService.getRecommendedEventIds(2L, 2));
+        verify(userRepository, never()).findInterestIdsByUserId(anyLong());
+
+        // После сброса рекомендации считаются заново
+        eventRecommendationService.evictRecommendations(1L);
+        assertEquals(List.of(10L), eventRecommendationService.getRecommendedEventIds(1L, 1));
+        verify(userRepository, times(1)).findInterestIdsByUserId(1L);
+    }
+}
@@ -35,9 +35,12 @@ class EventReviewServiceImplTest {
     @Mock
     private StatusRepository statusRepository;
 
+    @Mock
+    private EventTrendingService eventTrendingService;
+
     @InjectMocks
     private EventReviewService eventReviewService = new EventReviewServiceImpl(eventReviewRepository,
-            userMessageRepository, notifyService, statusRepository);
+            userMessageRepository, notifyService, statusRepository, eventTrendingService);
 
     private EventReview eventReviewTest;
     private User userTest;
@@ -8,7 +8,13 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import ru.team.up.core.entity.*;
+import ru.team.up.core.exception.EventsNotFoundIdException;
+import ru.team.up.core.projections.EventJoinResult;
 import ru.team.up.core.repositories.EventRepository;
 import ru.team.up.core.repositories.StatusRepository;
 import ru.team.up.core.repositories.UserRepository;
@@ -18,6 +24,11 @@ import java.time.LocalDateTime;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -39,9 +50,18 @@ class EventServiceImplTest {
     @Mock
     private NotifyService notifyService;
 
+    @Mock
+    private EventViewCounterService eventViewCounterService;
+
+    @Mock
+    private EventTrendingService eventTrendingService;
+
+    @Mock
+    private EventRecommendationService eventRecommendationService;
+
     @InjectMocks
     private EventService eventService = new EventServiceImpl(eventRepository, userRepository, statusRepository,
-            notifyService);
+            notifyService, eventViewCounterService, eventTrendingService, eventRecommendationService);
 
     private User userTest, userTest1;
     private Event eventTest;
@@ -160,4 +180,74 @@ class EventServiceImplTest {
         // Статус ивента после
         assertEquals("Закрыто", eventService.getOneEvent(1L).getStatus().getStatus());
     }
-}
\ No newline at end of file
+
+    @Test
+    void joinEvent() {
+        when(userRepository.findUserById(1L)).thenReturn(userTest);
+        when(eventRepository.getOne(1L)).thenReturn(eventTest);
+        when(eventRepository.lockEventCapacity(1L)).thenReturn(Optional.of(2));
+        when(eventRepository.countParticipants(1L)).thenReturn(1L);
+        // Есть свободное место
+        EventJoinResult joined = eventService.joinEvent(1L, 1L);
+        assertEquals(EventJoinResult.JoinStatus.JOINED, joined.getStatus());
+        assertEquals(2L, joined.getParticipantsCount());
+        verify(eventRepository).insertParticipant(1L, 1L);
+        verify(eventRecommendationService).evictRecommendations(1L);
+        verify(eventTrendingService).registerJoin(1L, eventTest.getCity());
+        // Пользователь уже участвует
+        when(eventRepository.isParticipant(1L, 1L)).thenReturn(true);
+        assertEquals(EventJoinResult.JoinStatus.ALREADY_JOINED, eventService.joinEvent(1L, 1L).getStatus());
+        // Мест нет
+        when(eventRepository.isParticipant(1L, 1L)).thenReturn(false);
+        when(eventRepository.countParticipants(1L)).thenReturn(2L);
+        assertEquals(EventJoinResult.JoinStatus.EVENT_FULL, eventService.joinEvent(1L, 1L).getStatus());
+        verify(eventRepository, times(1)).insertParticipant(1L, 1L);
+        // Мероприятие не найдено
+        assertThrows(EventsNotFoundIdException.class, () -> eventService.joinEvent(2L, 1L));
+    }
+
+    @Test
+    void leaveEvent() {
+        when(eventRepository.lockEventCapacity(1L)).thenReturn(Optional.of(2));
+        when(eventRepository.deleteParticipant(1L, 1L)).thenReturn(1);
+        assertEquals(EventJoinResult.JoinStatus.LEFT, eventService.leaveEvent(1L, 1L).getStatus());
+        when(eventRepository.deleteParticipant(1L, 1L)).thenReturn(0);
+        assertEquals(EventJoinResult.JoinStatus.NOT_PARTICIPANT, eventService.leaveEvent(1L, 1L).getStatus());
+    }
+
+    @Test
+    void updateNumberOfViews() {
+        when(eventRepository.getOne(1L)).thenReturn(eventTest);
+        eventTest.setCountViewEvent(10);
+        // Просмотр учитывается в памяти, а не отдельным UPDATE
+        eventService.updateNumberOfViews(eventTest);
+        verify(eventViewCounterService).registerView(1L);
+        verify(eventTrendingService).registerView(1L, eventTest.getCity());
+        verify(eventRepository, never()).save(eventTest);
+        // Сущность хранит только записанные в БД просмотры
+        when(eventViewCounterService.getPendingViews(1L)).thenReturn(3L);
+        assertEquals(10, eventService.getOneEvent(1L).getCountViewEvent());
+    }
+
+    @Test
+    void searchEvents() {
+        Pageable pageable = PageRequest.of(0, 20);
+        when(eventRepository.searchEvents(eq("футбол"), eq(""), any(LocalDateTime.class), any(LocalDateTime.class),
+                eq(pageable))).thenReturn(new PageImpl<>(List.of(eventTest)));
+        when(eventRepository.searchEvents(eq("футбол"), eq("Moscow"), any(LocalDateTime.class),
+                any(LocalDateTime.class), eq(pageable))).thenReturn(Page.empty());
+        // Без фильтров город и интервал времени подставляются по умолчанию
+        assertEquals(1, eventService.searchEvents("футбол", null, null, null, pageable).getTotalElements());
+        // Фильтр по городу передаётся в запрос
+        assertEquals(0, eventService.searchEvents("футбол", "Moscow", null, null, pageable).getTotalElements());
+    }
+
+    @Test
+    void markReminderSent() {
+        when(eventRepository.markReminderSent(eventTest.getId(), eventTest.getTimeEvent())).thenReturn(1, 0);
+
+        assertTrue(eventService.markReminderSent(eventTest));
+        // Повторно о том же времени мероприятия напоминание не отправляется
+        assertFalse(eventService.markReminderSent(eventTest));
+    }
+}
@@ -0,0 +1,140 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+class EventTrendingServiceImplTest {
+
+    private static final String MOSCOW = "Moscow";
+    private static final String KRASNODAR = "Krasnodar";
+
+    private EventTrendingServiceImpl eventTrendingService;
+
+    @BeforeEach
+    private void setUpEntity() {
+        eventTrendingService = new EventTrendingServiceImpl(360, 1, 5, 0.5, 3, 4);
+    }
+
+    @Test
+    void getTrendingEventIds() {
+        // 3 просмотра
+        eventTrendingService.registerView(1L, MOSCOW);
+        eventTrendingService.registerView(1L, MOSCOW);
+        eventTrendingService.registerView(1L, MOSCOW);
+        // Запись весит больше просмотров
+        eventTrendingService.registerJoin(2L, MOSCOW);
+        // Отзыв с оценкой 10 весит как запись, но добавляется к просмотру
+        eventTrendingService.registerView(3L, MOSCOW);
+        eventTrendingService.registerReview(3L, MOSCOW, 10);
+        eventTrendingService.registerView(5L, KRASNODAR);
+
+        assertEquals(List.of(3L, 2L, 1L), eventTrendingService.getTrendingEventIds(MOSCOW, 10));
+        assertEquals(List.of(3L), eventTrendingService.getTrendingEventIds(MOSCOW, 1));
+        assertEquals(List.of(5L), eventTrendingService.getTrendingEventIds(KRASNODAR, 10));
+        assertTrue(eventTrendingService.getTrendingEventIds("Minsk", 10).isEmpty());
+    }
+
+    @Test
+    void topKLimit() {
+        eventTrendingService.registerView(1L, MOSCOW);
+        eventTrendingService.registerView(2L, MOSCOW);
+        eventTrendingService.registerView(3L, MOSCOW);
+        eventTrendingService.registerView(4L, MOSCOW);
+
+        assertEquals(3, eventTrendingService.getTrendingEventIds(MOSCOW, 100).size());
+    }
+
+    @Test
+    void registerLeaveAndRemoveEvent() {
+        eventTrendingService.registerJoin(1L, MOSCOW);
+        eventTrendingService.registerJoin(2L, MOSCOW);
+        eventTrendingService.registerJoin(2L, MOSCOW);
+        assertEquals(List.of(2L, 1L), eventTrendingService.getTrendingEventIds(MOSCOW, 10));
+
+        eventTrendingService.registerLeave(2L);
+        eventTrendingService.registerLeave(2L);
+        eventTrendingService.registerView(2L, MOSCOW);
+        assertEquals(List.of(1L, 2L), eventTrendingService.getTrendingEventIds(MOSCOW, 10));
+
+        eventTrendingService.removeEvent(1L);
+        assertEquals(List.of(2L), eventTrendingService.getTrendingEventIds(MOSCOW, 10));
+
+        // Отказ от мероприятия вне рейтинга его не добавляет
+        eventTrendingService.registerLeave(3L);
+        assertFalse(entries().containsKey(3L));
+    }
+
+    @Test
+    void joinIsRankedAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            eventTrendingService.registerJoin(1L, MOSCOW);
+            assertTrue(eventTrendingService.getTrendingEventIds(MOSCOW, 10).isEmpty());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertEquals(List.of(1L), eventTrendingService.getTrendingEventIds(MOSCOW, 10));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // При откате afterCommit не вызывается, запись не попадает в рейтинг
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            eventTrendingService.registerJoin(2L, MOSCOW);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(List.of(1L), eventTrendingService.getTrendingEventIds(MOSCOW, 10));
+    }
+
+    @Test
+    void rebaseKeepsOrder() {
+        eventTrendingService.registerView(1L, MOSCOW);
+        eventTrendingService.registerJoin(2L, MOSCOW);
+
+        eventTrendingService.rebase();
+
+        assertEquals(List.of(2L, 1L), eventTrendingService.getTrendingEventIds(MOSCOW, 10));
+        eventTrendingService.registerJoin(1L, MOSCOW);
+        assertEquals(List.of(1L, 2L), eventTrendingService.getTrendingEventIds(MOSCOW, 10));
+    }
+
+    @Test
+    void evictBelowTopK() {
+        eventTrendingService.registerJoin(1L, MOSCOW);
+        eventTrendingService.registerJoin(2L, MOSCOW);
+        eventTrendingService.registerJoin(3L, MOSCOW);
+        eventTrendingService.registerView(4L, MOSCOW);
+        eventTrendingService.registerView(6L, MOSCOW);
+
+        // Между сдвигами базы времени рейтинг города ограничен trending.city.capacity
+        assertEquals(4, entries().size());
+
+        // При сдвиге остаются только top-k мероприятий города
+        eventTrendingService.rebase();
+        assertEquals(3, entries().size());
+        assertFalse(entries().containsKey(4L));
+        assertFalse(entries().containsKey(6L));
+        assertEquals(Set.of(1L, 2L, 3L), Set.copyOf(eventTrendingService.getTrendingEventIds(MOSCOW, 10)));
+    }
+
+    private Map<?, ?> entries() {
+        return (Map<?, ?>) ReflectionTestUtils.getField(eventTrendingService, "entries");
+    }
+}
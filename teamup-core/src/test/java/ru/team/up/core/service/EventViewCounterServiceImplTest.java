@@ -0,0 +1,110 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.team.up.core.entity.Event;
+import ru.team.up.core.mappers.EventMapper;
+import ru.team.up.dto.EventDto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+class EventViewCounterServiceImplTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private EventViewCounterService eventViewCounterService = new EventViewCounterServiceImpl(jdbcTemplate);
+
+    @BeforeEach
+    private void setUpEntity() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void registerViewConcurrently() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 10_000; i++) {
+            executor.submit(() -> eventViewCounterService.registerView(1L));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(10_000, eventViewCounterService.getPendingViews(1L));
+        assertEquals(0, eventViewCounterService.getPendingViews(2L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush() {
+        eventViewCounterService.registerView(1L);
+        eventViewCounterService.registerView(1L);
+        eventViewCounterService.registerView(2L);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1});
+
+        eventViewCounterService.flush();
+
+        // Все мероприятия записаны одним пакетом
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batch.capture());
+        assertEquals(2, batch.getValue().size());
+        assertEquals(0, eventViewCounterService.getPendingViews(1L));
+        assertEquals(0, eventViewCounterService.getPendingViews(2L));
+
+        // Нечего записывать - запроса нет, счётчики без новых просмотров не остаются в памяти
+        eventViewCounterService.flush();
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(eventViewCounterService, "pendingViews")).isEmpty());
+    }
+
+    @Test
+    void flushFailureKeepsPendingViews() {
+        eventViewCounterService.registerView(1L);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("db is down"));
+
+        eventViewCounterService.flush();
+
+        assertEquals(1, eventViewCounterService.getPendingViews(1L));
+    }
+
+    @Test
+    void mapperAddsPendingViews() {
+        eventViewCounterService.registerView(1L);
+        eventViewCounterService.registerView(1L);
+        eventViewCounterService.registerView(2L);
+        Event persisted = Event.builder().id(1L).countViewEvent(10).build();
+        Event neverPersisted = Event.builder().id(2L).build();
+        Event withoutViews = Event.builder().id(3L).build();
+
+        List<EventDto> eventDtoList = EventMapper.INSTANCE.mapDtoEventToEvent(
+                List.of(persisted, neverPersisted, withoutViews), eventViewCounterService);
+
+        assertEquals(12, eventDtoList.get(0).getCountViewEvent());
+        assertEquals(1, eventDtoList.get(1).getCountViewEvent());
+        assertNull(eventDtoList.get(2).getCountViewEvent());
+        // Сущность не меняется, к ней просмотры не добавляются
+        assertEquals(10, persisted.getCountViewEvent());
+    }
+}
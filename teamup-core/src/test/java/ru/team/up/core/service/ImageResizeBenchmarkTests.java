@@ -0,0 +1,65 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер пропускной способности построения вариантов: изображение 2000x1500
+ * последовательно уменьшается до 1280, 320 и 96 точек по большей стороне и кодируется в JPEG.
+ * Помечен тегом benchmark и выполняется только в профиле benchmark: mvn test -Pbenchmark.
+ */
+@Slf4j
+@Tag("benchmark")
+class ImageResizeBenchmarkTests {
+
+    private static final int WARM_UP = 5;
+    private static final int ITERATIONS = 30;
+    private static final int[] VARIANTS = {1280, 320, 96};
+
+    @Test
+    void resizeThroughput() throws Exception {
+        BufferedImage source = new BufferedImage(2000, 1500, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = source.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.RED, 2000, 1500, Color.BLUE));
+        graphics.fillRect(0, 0, 2000, 1500);
+        graphics.dispose();
+
+        for (int i = 0; i < WARM_UP; i++) {
+            createVariants(source);
+        }
+
+        long start = System.nanoTime();
+        long bytes = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            bytes += createVariants(source);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        log.info("Построены варианты {} изображений за {} с: {} изображений/с, в среднем {} байт вариантов",
+                ITERATIONS, String.format("%.2f", seconds), String.format("%.1f", ITERATIONS / seconds),
+                bytes / ITERATIONS);
+    }
+
+    private static long createVariants(BufferedImage source) throws Exception {
+        long bytes = 0;
+        BufferedImage current = source;
+        for (int maxSide : VARIANTS) {
+            current = ImageVariantServiceImpl.scale(current, maxSide, false);
+            assertEquals(maxSide, current.getWidth());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(current, "jpg", out);
+            bytes += out.size();
+        }
+        return bytes;
+    }
+}
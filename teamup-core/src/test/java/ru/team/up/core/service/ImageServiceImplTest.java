@@ -1,25 +1,206 @@
 package ru.team.up.core.service;
 
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.team.up.core.entity.Image;
+import ru.team.up.core.exception.EventsNotFoundIdException;
+import ru.team.up.core.exception.ImageNotFoundException;
+import ru.team.up.core.exception.UserNotFoundEmailException;
+import ru.team.up.core.projections.ImageContent;
+import ru.team.up.core.projections.StoredBlob;
+import ru.team.up.core.repositories.AccountRepository;
+import ru.team.up.core.repositories.EventRepository;
+import ru.team.up.core.repositories.ImageRepository;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
 class ImageServiceImplTest {
 
+    @Mock
+    private ImageRepository imageRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private EventRepository eventRepository;
+
+    @Mock
+    private BlobStorageService blobStorageService;
+
+    @Mock
+    private ImageVariantService imageVariantService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private ImageService imageService;
+
+    @TempDir
+    Path root;
+
+    private InputStream content;
+
+    private Image inserted;
+
+    @BeforeEach
+    private void setUpEntity() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        imageService = new ImageServiceImpl(imageRepository, accountRepository, eventRepository,
+                blobStorageService, imageVariantService, transactionTemplate, 10_000);
+
+        // Содержимое в хранилище - настоящее изображение 40x30, размеры читаются из его заголовка
+        Path stored = root.resolve("stored.png");
+        ImageIO.write(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), "png", stored.toFile());
+
+        content = new ByteArrayInputStream(new byte[]{1, 2, 3});
+
+        when(blobStorageService.store(content)).thenReturn(StoredBlob.builder()
+                .key("a".repeat(64))
+                .size(3)
+                .created(true)
+                .build());
+        when(blobStorageService.getPath("a".repeat(64))).thenReturn(stored);
+        inserted = null;
+        when(imageRepository.insertIfAbsent(any(Image.class))).thenAnswer(invocation -> {
+            inserted = invocation.getArgument(0);
+            return 1;
+        });
+        when(imageRepository.findByStorageKey("a".repeat(64))).thenAnswer(invocation -> Optional.ofNullable(inserted));
+        when(accountRepository.updateImageByEmail(eq("user@mail.ru"), any(Image.class))).thenReturn(1);
+        when(eventRepository.updateImageById(eq(1L), any(Image.class))).thenReturn(1);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
     @Test
     void saveImageForAccount() {
+        Image image = imageService.saveImageForAccount(content, "user@mail.ru");
+        // В БД только метаданные и ключ содержимого в хранилище
+        assertEquals("a".repeat(64), image.getStorageKey());
+        assertEquals(3, image.getSize());
+        assertEquals("image/png", image.getType());
+        assertEquals(40, image.getWidth());
+        assertEquals(30, image.getHeight());
+        // Одна вставка изображения и одно обновление ссылки без загрузки аккаунта
+        verify(imageRepository, times(1)).insertIfAbsent(any(Image.class));
+        verify(accountRepository).updateImageByEmail("user@mail.ru", image);
+        verify(accountRepository, never()).findByEmail(any());
+        // Уменьшенные варианты строятся после сохранения
+        verify(imageVariantService).generateVariants(image);
+    }
 
+    @Test
+    void saveNotImage() throws Exception {
+        Files.write(blobStorageService.getPath("a".repeat(64)), new byte[]{1, 2, 3});
+        assertThrows(IllegalArgumentException.class,
+                () -> imageService.saveImageForAccount(content, "user@mail.ru"));
+        // Транзакция не открывается, пока содержимое пишется и проверяется
+        verify(transactionTemplate, never()).execute(any());
+        // Записанный файл, который не является изображением, не остаётся в хранилище
+        verify(blobStorageService).delete("a".repeat(64));
     }
 
     @Test
-    void updateImageForAccount() {
+    void saveTooLargeImage() {
+        ImageService limited = new ImageServiceImpl(imageRepository, accountRepository, eventRepository,
+                blobStorageService, imageVariantService, transactionTemplate, 40 * 30 - 1);
+        // Размеры берутся из заголовка, изображение не декодируется
+        assertThrows(IllegalArgumentException.class,
+                () -> limited.saveImageForAccount(content, "user@mail.ru"));
+        verify(blobStorageService).delete("a".repeat(64));
+        verify(imageRepository, never()).insertIfAbsent(any(Image.class));
+        verify(imageVariantService, never()).generateVariants(any());
+    }
+
+    @Test
+    void saveImageForUnknownAccount() {
+        assertThrows(UserNotFoundEmailException.class,
+                () -> imageService.saveImageForAccount(content, "other@mail.ru"));
+        // Файл, на который не удалось сослаться, не остаётся в хранилище
+        verify(blobStorageService).delete("a".repeat(64));
+    }
+
+    @Test
+    void saveDuplicateImage() {
+        Image existing = Image.builder().id(5L).storageKey("a".repeat(64)).size(3).build();
+        when(blobStorageService.store(content)).thenReturn(StoredBlob.builder()
+                .key("a".repeat(64))
+                .size(3)
+                .created(false)
+                .build());
+        when(imageRepository.insertIfAbsent(any(Image.class))).thenReturn(0);
+        when(imageRepository.findByStorageKey("a".repeat(64))).thenReturn(Optional.of(existing));
+
+        Image image = imageService.saveImageForAccount(content, "user@mail.ru");
+        // Повторно загруженное содержимое не сохраняется, аккаунт ссылается на уже сохранённое изображение
+        assertSame(existing, image);
+        verify(imageVariantService, never()).generateVariants(any());
+        verify(accountRepository).updateImageByEmail("user@mail.ru", existing);
+        assertEquals(3, imageService.getDeduplicatedBytes());
+    }
+
+    @Test
+    void keepBlobOfConcurrentUpload() {
+        // Одновременная загрузка того же содержимого уже сохранила изображение, файл нужен её записи
+        when(imageRepository.insertIfAbsent(any(Image.class))).thenReturn(0);
+        when(imageRepository.findByStorageKey("a".repeat(64)))
+                .thenReturn(Optional.of(Image.builder().id(5L).storageKey("a".repeat(64)).build()));
+        when(imageRepository.existsByStorageKey("a".repeat(64))).thenReturn(true);
+
+        assertThrows(UserNotFoundEmailException.class,
+                () -> imageService.saveImageForAccount(content, "other@mail.ru"));
+        verify(blobStorageService, never()).delete(any());
     }
 
     @Test
     void saveImageForEvent() {
+        Image image = imageService.saveImageForEvent(content, 1L);
+        // Тип определяется по сигнатуре файла, а не по заголовку запроса
+        assertEquals("image/png", image.getType());
+        verify(eventRepository).updateImageById(1L, image);
+        verify(eventRepository, never()).getOne(any());
+    }
+
+    @Test
+    void saveImageForUnknownEvent() {
+        assertThrows(EventsNotFoundIdException.class, () -> imageService.saveImageForEvent(content, 2L));
+        verify(blobStorageService).delete("a".repeat(64));
+    }
+
+    @Test
+    void getImage() {
+        when(imageRepository.findById(1L)).thenReturn(Optional.of(Image.builder().id(1L).build()));
+        assertEquals(1L, imageService.getImage(1L).getId());
+        assertThrows(ImageNotFoundException.class, () -> imageService.getImage(2L));
     }
 
     @Test
-    void updateImageForEvent() {
+    void getImageContent() {
+        Image image = Image.builder().id(1L).build();
+        ImageContent imageContent = ImageContent.builder().storageKey("b".repeat(64)).type("image/jpeg").build();
+        when(imageVariantService.getContent(image, 96)).thenReturn(imageContent);
+        assertSame(imageContent, imageService.getImageContent(image, 96));
     }
-}
\ No newline at end of file
+}
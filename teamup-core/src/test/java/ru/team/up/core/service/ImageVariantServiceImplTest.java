@@ -0,0 +1,128 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import ru.team.up.core.entity.Image;
+import ru.team.up.core.entity.ImageVariant;
+import ru.team.up.core.projections.ImageContent;
+import ru.team.up.core.projections.StoredBlob;
+import ru.team.up.core.repositories.ImageVariantRepository;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+class ImageVariantServiceImplTest {
+
+    @TempDir
+    Path root;
+
+    @Mock
+    private ImageVariantRepository imageVariantRepository;
+
+    private BlobStorageService blobStorageService;
+    private ImageVariantServiceImpl imageVariantService;
+    private List<ImageVariant> saved;
+
+    @BeforeEach
+    private void setUpEntity() {
+        MockitoAnnotations.openMocks(this);
+
+        blobStorageService = new BlobStorageServiceImpl(root.toString());
+        // Варианты строятся в вызывающем потоке, поэтому ждать фоновый поток в тестах не нужно
+        imageVariantService = new ImageVariantServiceImpl(blobStorageService, imageVariantRepository,
+                "full:1280, thumbnail:96, list:320", Runnable::run, 100);
+
+        saved = new ArrayList<>();
+        when(imageVariantRepository.save(any(ImageVariant.class))).thenAnswer(invocation -> {
+            ImageVariant variant = invocation.getArgument(0);
+            saved.add(variant);
+            return variant;
+        });
+    }
+
+    @AfterEach
+    private void tearDown() {
+        imageVariantService.shutdown();
+    }
+
+    @Test
+    void generateVariants() throws Exception {
+        Image image = storeImage(800, 600, "image/jpeg");
+
+        imageVariantService.generateVariants(image);
+        verify(imageVariantRepository, times(2)).save(any(ImageVariant.class));
+
+        // Вариант full больше исходного изображения и не строится, остальные уменьшаются с сохранением пропорций
+        assertEquals(2, saved.size());
+        ImageVariant list = saved.get(0);
+        assertEquals("list", list.getVariant());
+        assertEquals(320, list.getWidth());
+        assertEquals(240, list.getHeight());
+        ImageVariant thumbnail = saved.get(1);
+        assertEquals("thumbnail", thumbnail.getVariant());
+        assertEquals(96, thumbnail.getWidth());
+        assertEquals(72, thumbnail.getHeight());
+        assertTrue(blobStorageService.exists(thumbnail.getStorageKey()));
+        assertEquals("image/jpeg", thumbnail.getType());
+
+        // Выбирается наименьший вариант не уже требуемой ширины
+        assertEquals(thumbnail.getStorageKey(), imageVariantService.getContent(image, 50).getStorageKey());
+        assertEquals(list.getStorageKey(), imageVariantService.getContent(image, 200).getStorageKey());
+        // Для большей ширины отдаётся исходное изображение
+        assertEquals(image.getStorageKey(), imageVariantService.getContent(image, 500).getStorageKey());
+        assertEquals(image.getStorageKey(), imageVariantService.getContent(image, null).getStorageKey());
+        // Готовые варианты берутся из кэша без обращения к БД
+        verify(imageVariantRepository, never()).findAllByImageId(any());
+    }
+
+    @Test
+    void getContentFromRepository() {
+        Image image = Image.builder().id(2L).storageKey("a".repeat(64)).type("image/png")
+                .width(1000).height(500).build();
+        when(imageVariantRepository.findAllByImageId(2L)).thenReturn(List.of(ImageVariant.builder()
+                .imageId(2L).variant("list").storageKey("b".repeat(64)).type("image/png").build()));
+
+        ImageContent content = imageVariantService.getContent(image, 96);
+        // Миниатюры нет, подходит следующий по размеру вариант
+        assertEquals("b".repeat(64), content.getStorageKey());
+        assertEquals(blobStorageService.getPath("b".repeat(64)), content.getPath());
+
+        imageVariantService.getContent(image, 96);
+        verify(imageVariantRepository, times(1)).findAllByImageId(2L);
+    }
+
+    @Test
+    void scale() {
+        BufferedImage scaled = ImageVariantServiceImpl.scale(
+                new BufferedImage(2000, 1000, BufferedImage.TYPE_INT_ARGB), 96, true);
+        assertEquals(96, scaled.getWidth());
+        assertEquals(48, scaled.getHeight());
+        assertTrue(scaled.getColorModel().hasAlpha());
+    }
+
+    private Image storeImage(int width, int height, String type) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpg", out);
+        StoredBlob blob = blobStorageService.store(new ByteArrayInputStream(out.toByteArray()));
+        return Image.builder().id(1L).storageKey(blob.getKey()).type(type).size(blob.getSize())
+                .width(width).height(height).build();
+    }
+}
@@ -0,0 +1,161 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.team.up.core.entity.Role;
+import ru.team.up.core.repositories.ModeratorRepository;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+class ModeratorPresenceServiceImplTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ModeratorRepository moderatorRepository;
+
+    private TestClock clock;
+    private ModeratorPresenceService moderatorPresenceService;
+
+    @BeforeEach
+    private void setUpEntity() {
+        MockitoAnnotations.openMocks(this);
+        clock = new TestClock(1_000_000L);
+        when(moderatorRepository.existsByIdAndRole(anyLong(), eq(Role.ROLE_MODERATOR))).thenReturn(true);
+        // Таймаут 30 секунд, шаг колеса 1 секунда
+        moderatorPresenceService = new ModeratorPresenceServiceImpl(jdbcTemplate, moderatorRepository, clock,
+                30_000, 1_000);
+    }
+
+    @Test
+    void expire() {
+        moderatorPresenceService.heartbeat(1L);
+        moderatorPresenceService.heartbeat(2L);
+        assertTrue(moderatorPresenceService.isOnline(1L));
+
+        // Модератор 1 продолжает присылать сигналы, модератор 2 пропал
+        clock.advance(20_000);
+        moderatorPresenceService.heartbeat(1L);
+        assertTrue(moderatorPresenceService.expire().isEmpty());
+
+        clock.advance(10_500);
+        assertEquals(List.of(2L), moderatorPresenceService.expire());
+        assertFalse(moderatorPresenceService.isOnline(2L));
+        assertTrue(moderatorPresenceService.isOnline(1L));
+
+        clock.advance(20_000);
+        assertEquals(List.of(1L), moderatorPresenceService.expire());
+        // Повторно отключение не сообщается
+        clock.advance(60_000);
+        assertTrue(moderatorPresenceService.expire().isEmpty());
+    }
+
+    @Test
+    void inactiveBefore() {
+        moderatorPresenceService.heartbeat(1L);
+        LocalDateTime seen = new Timestamp(clock.millis()).toLocalDateTime();
+
+        clock.advance(30_500);
+        assertEquals(List.of(1L), moderatorPresenceService.expire());
+        // Активность, записанная этим экземпляром, не новее порога,
+        // а записанная другим экземпляром после переподключения модератора - новее
+        assertFalse(seen.isAfter(moderatorPresenceService.getInactiveBefore()));
+        assertTrue(seen.plusSeconds(1).isAfter(moderatorPresenceService.getInactiveBefore()));
+    }
+
+    @Test
+    void expireAfterLongPause() {
+        moderatorPresenceService.heartbeat(1L);
+
+        // Проверка не запускалась дольше полного оборота колеса
+        clock.advance(95_000);
+        assertEquals(List.of(1L), moderatorPresenceService.expire());
+    }
+
+    @Test
+    void heartbeatUnknownModerator() {
+        when(moderatorRepository.existsByIdAndRole(3L, Role.ROLE_MODERATOR)).thenReturn(false);
+
+        assertFalse(moderatorPresenceService.heartbeat(3L));
+        assertFalse(moderatorPresenceService.isOnline(3L));
+
+        // Модератор в сети повторно по БД не проверяется
+        assertTrue(moderatorPresenceService.heartbeat(1L));
+        assertTrue(moderatorPresenceService.heartbeat(1L));
+        verify(moderatorRepository, times(1)).existsByIdAndRole(1L, Role.ROLE_MODERATOR);
+
+        moderatorPresenceService.flush();
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> args) -> args.size() == 1));
+    }
+
+    @Test
+    void flush() {
+        moderatorPresenceService.heartbeat(1L);
+        moderatorPresenceService.heartbeat(2L);
+        moderatorPresenceService.heartbeat(1L);
+
+        moderatorPresenceService.flush();
+
+        // Одна запись на модератора независимо от числа сигналов, сессия создаётся или обновляется одной командой
+        verify(jdbcTemplate).batchUpdate(contains("ON CONFLICT (moderator_id) DO UPDATE"),
+                argThat((List<Object[]> args) -> args.size() == 2));
+
+        // Без новых сигналов в БД ничего не пишется
+        moderatorPresenceService.flush();
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    private static class TestClock extends Clock {
+        private long millis;
+
+        private TestClock(long millis) {
+            this.millis = millis;
+        }
+
+        private void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -8,9 +8,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import ru.team.up.core.entity.Account;
 import ru.team.up.core.entity.Role;
+import ru.team.up.core.projections.AccountView;
 import ru.team.up.core.repositories.AccountRepository;
 
 import java.time.LocalDate;
@@ -62,8 +64,9 @@ class ModeratorServiceImplTest {
 
     @Test
     void getAllModerators() {
-        when(accountRepository.findAllByRole(Role.ROLE_MODERATOR)).thenReturn(accountListTest);
-        assertEquals(moderatorTest, moderatorService.getAllModerators().get(0));
+        AccountView moderatorView = new SpelAwareProxyProjectionFactory().createProjection(AccountView.class, moderatorTest);
+        when(accountRepository.findAccountViewsByRole(Role.ROLE_MODERATOR)).thenReturn(List.of(moderatorView));
+        assertEquals(moderatorView, moderatorService.getAllModerators().get(0));
     }
 
     @Test
@@ -0,0 +1,108 @@
+package ru.team.up.core.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.*;
+import ru.team.up.core.projections.SchedulerPartition;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка аренды задач планировщиков на БД: несколько экземпляров приложения в одном процессе
+ * одновременно пытаются получить одну задачу и делят мероприятия по долям
+ */
+@SpringBootTest
+class SchedulerLockConcurrencyTests {
+
+    private static final int NODES = 8;
+    private static final String TASK = "schedulerLockConcurrencyTest";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<SchedulerLockService> nodes = new ArrayList<>();
+
+    @BeforeEach
+    public void setUpEntity() {
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(new SchedulerLockServiceImpl(jdbcTemplate, "test-node-" + i, 60_000, 30_000, true));
+        }
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM scheduler_lock WHERE name = ?", TASK);
+        jdbcTemplate.update("DELETE FROM scheduler_node WHERE node_id LIKE 'test-node-%'");
+    }
+
+    @Test
+    void onlyOneNodeGetsTheLease() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(NODES);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<OptionalLong>> results = new ArrayList<>();
+
+        for (SchedulerLockService node : nodes) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return node.tryLock(TASK);
+            }));
+        }
+        start.countDown();
+
+        int owner = -1;
+        long token = 0;
+        for (int i = 0; i < NODES; i++) {
+            OptionalLong result = results.get(i).get(30, TimeUnit.SECONDS);
+            if (result.isPresent()) {
+                assertEquals(-1, owner, "Аренду получили несколько экземпляров");
+                owner = i;
+                token = result.getAsLong();
+            }
+        }
+        executor.shutdown();
+        assertNotEquals(-1, owner);
+
+        // Владелец продлевает аренду с тем же токеном, после освобождения токен нового владельца больше
+        assertEquals(token, nodes.get(owner).tryLock(TASK).getAsLong());
+        nodes.get(owner).unlock(TASK, token);
+        assertFalse(nodes.get(owner).isLockHeld(TASK, token));
+
+        SchedulerLockService next = nodes.get((owner + 1) % NODES);
+        long nextToken = next.tryLock(TASK).getAsLong();
+        assertTrue(nextToken > token);
+        assertTrue(next.isLockHeld(TASK, nextToken));
+    }
+
+    @Test
+    void partitionsCoverEveryEventOnce() {
+        nodes.forEach(SchedulerLockService::getPartition);
+
+        Set<Integer> indexes = new HashSet<>();
+        int[] owners = new int[1000];
+        for (SchedulerLockService node : nodes) {
+            SchedulerPartition partition = node.getPartition();
+            indexes.add(partition.getIndex());
+            for (int id = 0; id < owners.length; id++) {
+                if (partition.contains(id)) {
+                    owners[id]++;
+                }
+            }
+        }
+
+        // В списке живых могут быть и другие экземпляры, поэтому проверяется, что мероприятие не попадает в две доли
+        assertEquals(NODES, indexes.size());
+        for (int owner : owners) {
+            assertTrue(owner <= 1);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import ru.team.up.core.projections.SchedulerPartition;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+class SchedulerLockServiceImplTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<SchedulerLockService> nodes = new ArrayList<>();
+
+    @BeforeEach
+    private void setUpEntity() {
+        MockitoAnnotations.openMocks(this);
+        // Три экземпляра приложения в одном процессе с общей БД
+        for (String nodeId : List.of("node-b", "node-c", "node-a")) {
+            nodes.add(new SchedulerLockServiceImpl(jdbcTemplate, nodeId, 60_000, 30_000, true));
+        }
+        // БД возвращает живые экземпляры в произвольном порядке
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), any()))
+                .thenReturn(List.of("node-c", "node-a", "node-b"));
+    }
+
+    @Test
+    void partitionsCoverEveryEventOnce() {
+        Set<Integer> indexes = new HashSet<>();
+        int[] owners = new int[1000];
+        for (SchedulerLockService node : nodes) {
+            SchedulerPartition partition = node.getPartition();
+            assertEquals(3, partition.getCount());
+            indexes.add(partition.getIndex());
+            for (int id = 0; id < owners.length; id++) {
+                if (partition.contains(id)) {
+                    owners[id]++;
+                }
+            }
+        }
+
+        assertEquals(Set.of(0, 1, 2), indexes);
+        for (int owner : owners) {
+            assertEquals(1, owner);
+        }
+        verify(jdbcTemplate, times(3)).update(anyString(), any(Object.class));
+    }
+
+    @Test
+    void nodeMissingFromLiveListStillGetsPartition() {
+        SchedulerLockService newNode = new SchedulerLockServiceImpl(jdbcTemplate, "node-0", 60_000, 30_000, true);
+
+        SchedulerPartition partition = newNode.getPartition();
+
+        assertEquals(new SchedulerPartition(0, 4), partition);
+    }
+
+    @Test
+    void runLocked() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(), any(), any()))
+                .thenReturn(List.of(7L))
+                .thenReturn(List.of());
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any(), any(), any())).thenReturn(1);
+        AtomicInteger runs = new AtomicInteger();
+
+        assertTrue(nodes.get(0).runLocked("assignEvents", runs::incrementAndGet));
+        assertFalse(nodes.get(1).runLocked("assignEvents", runs::incrementAndGet));
+
+        assertEquals(1, runs.get());
+        verify(jdbcTemplate).update(anyString(), eq("assignEvents"), eq("node-b"), eq(7L));
+    }
+
+    @Test
+    void lockIsReleasedWhenTaskFails() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(), any(), any())).thenReturn(List.of(3L));
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any(), any(), any())).thenReturn(1);
+
+        assertThrows(IllegalStateException.class, () -> nodes.get(0).runLocked("assignEvents", () -> {
+            throw new IllegalStateException("Ошибка задачи");
+        }));
+
+        verify(jdbcTemplate).update(anyString(), eq("assignEvents"), eq("node-b"), eq(3L));
+    }
+
+    @Test
+    void leaseIsRenewedWhileTaskRuns() {
+        // Аренда 30 мс продлевается каждые 10 мс
+        SchedulerLockServiceImpl node = new SchedulerLockServiceImpl(jdbcTemplate, "node-d", 30, 30_000, true);
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(), any(), any())).thenReturn(List.of(5L));
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any(), any(), any())).thenReturn(1);
+
+        assertTrue(node.runLocked("scanSessions", () -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        node.leave();
+
+        // Захват и хотя бы одно продление с тем же владельцем
+        verify(jdbcTemplate, atLeast(2)).queryForList(anyString(), eq(Long.class), eq("scanSessions"), eq("node-d"),
+                eq(30L));
+        verify(jdbcTemplate).update(anyString(), eq("scanSessions"), eq("node-d"), eq(5L));
+    }
+
+    @Test
+    void nodeWithoutSchedulerRoleDoesNotTakeWork() {
+        SchedulerLockServiceImpl apiNode = new SchedulerLockServiceImpl(jdbcTemplate, "api-node", 60_000, 30_000, false);
+        AtomicInteger runs = new AtomicInteger();
+
+        apiNode.heartbeat();
+        assertFalse(apiNode.runLocked("assignEvents", runs::incrementAndGet));
+        apiNode.leave();
+
+        assertEquals(0, runs.get());
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
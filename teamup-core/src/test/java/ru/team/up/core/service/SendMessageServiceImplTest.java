@@ -4,16 +4,28 @@ import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
 import ru.team.up.core.entity.*;
+import ru.team.up.core.repositories.UserMessageRepository;
 import ru.team.up.core.repositories.UserRepository;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -25,8 +37,13 @@ class SendMessageServiceImplTest {
     @Mock
     private UserRepository userRepository;
 
-    @InjectMocks
-    private SendMessageService sendMessageService = new SendMessageServiceImpl(userRepository);
+    @Mock
+    private UserMessageRepository userMessageRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SendMessageService sendMessageService;
 
     private UserMessage userMessageTest;
     private User userTest;
@@ -34,6 +51,8 @@ class SendMessageServiceImplTest {
     @BeforeEach
     private void setUpEntity() {
         MockitoAnnotations.openMocks(this);
+        // Пакеты по 2 получателя
+        sendMessageService = new SendMessageServiceImpl(userRepository, userMessageRepository, jdbcTemplate, 2);
 
         userMessageTest = UserMessage.builder()
                 .id(1L)
@@ -66,4 +85,42 @@ class SendMessageServiceImplTest {
         // Проверяем был ли вызван метод save() у репозитория
         verify(userRepository, atLeastOnce()).save(any(User.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void sendMessageToUsers() {
+        Set<User> users = LongStream.rangeClosed(1, 5)
+                .mapToObj(id -> User.builder().id(id).build())
+                .collect(Collectors.toSet());
+        userMessageTest.setId(null);
+        when(userMessageRepository.saveAndFlush(userMessageTest)).thenReturn(UserMessage.builder().id(7L).build());
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenReturn(new int[0][]);
+
+        sendMessageService.sendMessage(users, userMessageTest);
+
+        // Сообщение сохраняется один раз и записывается в БД до вставки связей,
+        // получатели добавляются пакетами без загрузки и сохранения пользователей
+        InOrder inOrder = inOrder(userMessageRepository, jdbcTemplate);
+        inOrder.verify(userMessageRepository, times(1)).saveAndFlush(userMessageTest);
+        inOrder.verify(jdbcTemplate, times(3)).batchUpdate(anyString(), any(Collection.class), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(7L, userMessageTest.getId());
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void sendMessageToSubscribers() {
+        when(jdbcTemplate.update(anyString(), eq(1L), eq(1L))).thenReturn(3);
+        // Сообщение уже сохранено, добавляются только связи с подписчиками
+        assertEquals(3, sendMessageService.sendMessageToSubscribers(userTest, userMessageTest));
+        verify(userMessageRepository, never()).saveAndFlush(any());
+
+        // Новое сообщение записывается в БД до INSERT ... SELECT по подписчикам
+        userMessageTest.setId(null);
+        when(userMessageRepository.saveAndFlush(userMessageTest)).thenReturn(UserMessage.builder().id(1L).build());
+        assertEquals(3, sendMessageService.sendMessageToSubscribers(userTest, userMessageTest));
+        InOrder inOrder = inOrder(userMessageRepository, jdbcTemplate);
+        inOrder.verify(userMessageRepository).saveAndFlush(userMessageTest);
+        inOrder.verify(jdbcTemplate).update(anyString(), eq(1L), eq(1L));
+    }
+}
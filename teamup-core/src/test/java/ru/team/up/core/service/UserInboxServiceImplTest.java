@@ -0,0 +1,74 @@
+package ru.team.up.core.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import ru.team.up.core.projections.InboxMessageView;
+import ru.team.up.core.repositories.UserMessageRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+class UserInboxServiceImplTest {
+
+    @Mock
+    private UserMessageRepository userMessageRepository;
+
+    @InjectMocks
+    private UserInboxService userInboxService = new UserInboxServiceImpl(userMessageRepository);
+
+    private InboxMessageView message;
+
+    @BeforeEach
+    private void setUpEntity() {
+        MockitoAnnotations.openMocks(this);
+        message = mock(InboxMessageView.class);
+    }
+
+    @Test
+    void getInbox() {
+        LocalDateTime beforeTime = LocalDateTime.of(2022, 1, 1, 12, 0);
+        when(userMessageRepository.findInbox(1L, 20)).thenReturn(List.of(message));
+        when(userMessageRepository.findInboxBefore(1L, beforeTime, 5L, 100)).thenReturn(List.of(message));
+
+        // Первая страница
+        assertEquals(List.of(message), userInboxService.getInbox(1L, null, null, 20));
+        // Следующая страница читается после последнего сообщения предыдущей, размер страницы ограничен
+        assertEquals(List.of(message), userInboxService.getInbox(1L, beforeTime, 5L, 1000));
+        // Пустая страница не запрашивается
+        assertTrue(userInboxService.getInbox(1L, null, null, 0).isEmpty());
+        verify(userMessageRepository, times(1)).findInbox(anyLong(), anyInt());
+    }
+
+    @Test
+    void countUnread() {
+        when(userMessageRepository.countUnread(1L)).thenReturn(3);
+        assertEquals(3, userInboxService.countUnread(1L));
+    }
+
+    @Test
+    void markAsRead() {
+        when(userMessageRepository.markAsRead(eq(1L), eq(List.of(5L, 6L)), any())).thenReturn(2);
+        when(userMessageRepository.markAllAsRead(eq(1L), any())).thenReturn(7);
+
+        // Указанные сообщения отмечаются одним запросом
+        assertEquals(2, userInboxService.markAsRead(1L, List.of(5L, 6L)));
+        // Без списка отмечаются все сообщения пользователя
+        assertEquals(7, userInboxService.markAsRead(1L, List.of()));
+        assertEquals(7, userInboxService.markAsRead(1L, null));
+    }
+}
@@ -12,10 +12,14 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.team.up.core.monitoring.service.MonitorProducerService;
 import ru.team.up.core.monitoring.service.MonitorProducerServiceImpl;
+import ru.team.up.core.projections.EmailDispatchReport;
 import ru.team.up.core.service.EmailUserMessageNotificatorService;
 import ru.team.up.dto.ControlDto;
+import ru.team.up.dto.ParametersDto;
+
 import javax.security.sasl.SaslClient;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import ru.team.up.sup.service.ParameterService;
 
 
@@ -39,14 +43,27 @@ public class EmailUserMessageNotificatorController {
             log.debug("Метод sendEmailUserMessage выключен параметром sendEmailUserMessageEnabled = false");
             throw new RuntimeException("Method sendEmailUserMessage is disabled by parameter sendEmailUserMessageEnabled");
         }
-        emailUserMessageNotificatorService.send();
+        EmailDispatchReport report = emailUserMessageNotificatorService.send();
         log.debug("Рассылка уведомлений о новых сообщениях пользователей по электронной почте завершена.");
 
+        Map<String, ParametersDto> monitoringParameters = new LinkedHashMap<>();
+        monitoringParameters.put("Отправлено уведомлений", ParametersDto.builder()
+                .description("Отправлено уведомлений")
+                .value(report.getSent())
+                .build());
+        monitoringParameters.put("Уведомлений с ошибкой", ParametersDto.builder()
+                .description("Уведомлений с ошибкой")
+                .value(report.getFailed())
+                .build());
+        monitoringParameters.put("Уведомлений в секунду", ParametersDto.builder()
+                .description("Уведомлений в секунду")
+                .value(Math.round(report.getMessagesPerSecond()))
+                .build());
         monitorProducerService.send(
                 monitorProducerService.constructReportDto(SecurityContextHolder.getContext().getAuthentication().getPrincipal(),
                         ControlDto.MANUAL,
                         this.getClass(),
-                        new HashMap<>())
+                        monitoringParameters)
         );
         return new ResponseEntity<>(HttpStatus.OK);
     }
@@ -16,6 +16,7 @@ import ru.team.up.core.entity.Event;
 import ru.team.up.core.mappers.EventMapper;
 import ru.team.up.core.monitoring.service.MonitorProducerService;
 import ru.team.up.core.service.EventService;
+import ru.team.up.core.service.EventViewCounterService;
 import ru.team.up.dto.*;
 import ru.team.up.sup.service.ParameterService;
 
@@ -41,6 +42,7 @@ import java.util.Map;
 public class EventController {
     private EventService eventService;
     private MonitorProducerService monitoringProducerService;
+    private EventViewCounterService eventViewCounterService;
 
     /**
      * @return Результат работы метода eventService.getAllEvents()) в виде коллекции EventDto
@@ -60,8 +62,8 @@ public class EventController {
             throw new RuntimeException("Method getAllEvents is disabled by parameter getAllEventsPrivateEnabled");
         }
         List<Event> events = eventService.getAllEvents();
-        ResponseEntity<List<EventDto>> responseEntity = ResponseEntity.ok(
-                EventMapper.INSTANCE.mapDtoEventToEvent(events));
+        List<EventDto> eventDtoList = EventMapper.INSTANCE.mapDtoEventToEvent(events, eventViewCounterService);
+        ResponseEntity<List<EventDto>> responseEntity = ResponseEntity.ok(eventDtoList);
         log.debug("Сформирован ответ {}", responseEntity);
 
         Map<String, ParametersDto> monitoringParameters = new HashMap<>();
@@ -99,9 +101,8 @@ public class EventController {
             throw new RuntimeException("Method getOneEvent is disabled by parameter getOneEventEnabled");
         }
         Event event = eventService.getOneEvent(id);
-        ResponseEntity<EventDto> responseEntity = ResponseEntity.ok(
-                EventMapper.INSTANCE.mapEventToDto(event)
-        );
+        EventDto eventDto = EventMapper.INSTANCE.mapEventToDto(event, eventViewCounterService);
+        ResponseEntity<EventDto> responseEntity = ResponseEntity.ok(eventDto);
         log.debug("Сформирован ответ {}", responseEntity);
 
         Map<String, ParametersDto> monitoringParameters = new LinkedHashMap<>();
@@ -127,13 +128,13 @@ public class EventController {
 
     /**
      * @param id Значение ID мероприятия
-     * @return Результат работы метода eventService.updateNumberOfViews(id)
+     * @return Результат работы метода eventService.updateNumberOfViews(event)
      * в виде объекта ResponseEntity со статусом OK
      */
     @Operation(
-            summary = "Увеличение числа участников мероприятия на 1"
+            summary = "Увеличение числа просмотров мероприятия на 1"
     )
-    @ApiResponse(responseCode = "202", description = "Число участников увеличено", content = {
+    @ApiResponse(responseCode = "202", description = "Просмотр мероприятия учтён", content = {
             @Content(mediaType = "application/json", schema = @Schema(implementation = EventDto.class))
     })
     @GetMapping("viewEvent/{id}")
@@ -143,10 +144,11 @@ public class EventController {
             log.debug("Метод updateNumberOfParticipants выключен параметром updateNumberOfParticipantsEnabled = false");
             throw new RuntimeException("Method updateNumberOfParticipants is disabled by parameter updateNumberOfParticipantsEnabled");
         }
+        // Мероприятие загружается до учёта просмотра, чтобы не считать просмотры несуществующих ID
         Event event = eventService.getOneEvent(id);
-        eventService.updateNumberOfViews(id);
-        ResponseEntity<EventDto> responseEntity = new ResponseEntity<>(
-                EventMapper.INSTANCE.mapEventToDto(eventService.getOneEvent(id)), HttpStatus.ACCEPTED);
+        eventService.updateNumberOfViews(event);
+        EventDto eventDto = EventMapper.INSTANCE.mapEventToDto(event, eventViewCounterService);
+        ResponseEntity<EventDto> responseEntity = new ResponseEntity<>(eventDto, HttpStatus.ACCEPTED);
         log.debug("Сформирован ответ {}", responseEntity);
 
         Map<String, ParametersDto> monitoringParameters = new LinkedHashMap<>();
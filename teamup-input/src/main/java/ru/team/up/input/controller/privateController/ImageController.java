@@ -6,14 +6,32 @@ import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import ru.team.up.core.entity.Image;
+import ru.team.up.core.monitoring.service.MonitorProducerService;
+import ru.team.up.core.projections.ImageContent;
 import ru.team.up.core.service.ImageService;
+import ru.team.up.dto.ControlDto;
+import ru.team.up.dto.ParametersDto;
 
 import javax.persistence.PersistenceException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Slf4j
 @RestController
@@ -22,87 +40,171 @@ import javax.validation.constraints.NotNull;
 @Tag(name = "Image Private Controller", description = "Image API")
 @RequestMapping(value = "/private/image")
 public class ImageController {
+
+    /**
+     * Поддерживается один диапазон байт: "bytes=start-end", "bytes=start-" или "bytes=-suffix"
+     */
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
     private ImageService imageService;
+    private MonitorProducerService monitorProducerService;
 
 
     /**
-     * @param image Изображение добавляемое в аккаунт
-     * @return Результат работы метода imageService.saveImageForAccount(image) в теле ResponseEntity
+     * @param email   Почта аккаунта
+     * @param request Запрос, тело которого - содержимое изображения
+     * @return Метаданные сохранённого изображения в теле ResponseEntity
      */
     @PostMapping("/{email}")
     @Operation(summary = "Добавление изображения аккаунта")
-    public ResponseEntity<Image> createImageForAccount(@PathVariable @NotNull String email, @RequestBody Image image) {
+    public ResponseEntity<Image> createImageForAccount(@PathVariable @NotNull String email, HttpServletRequest request) {
         log.debug("Старт метода saveImageForAccount");
-        ResponseEntity<Image>responseEntity;
-        try{
-            imageService.saveImageForAccount(image,email);
-            responseEntity = new ResponseEntity<>(HttpStatus.CREATED);
-        } catch (PersistenceException e){
-            log.debug(e.getMessage());
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-
-        }
-        log.debug("Сформирован ответ {}", responseEntity);
-        return responseEntity;
+        return upload(() -> imageService.saveImageForAccount(request.getInputStream(), email));
     }
 
     /**
-     * @param image Изображение добавляемое в аккаунт
-     * @return Результат работы метода imageService.updateImageForAccount(image) в теле ResponseEntity
+     * @param email   Почта аккаунта
+     * @param request Запрос, тело которого - содержимое изображения
+     * @return Метаданные сохранённого изображения в теле ResponseEntity
      */
     @PutMapping("/{email}")
     @Operation(summary = "Обновление изображения аккаунта")
-    public ResponseEntity<Image> updateImageForAccount(@PathVariable @NotNull String email, @RequestBody Image image) {
+    public ResponseEntity<Image> updateImageForAccount(@PathVariable @NotNull String email, HttpServletRequest request) {
         log.debug("Старт метода updateImageForAccount");
-        ResponseEntity<Image>responseEntity;
-        try{
-            imageService.updateImageForAccount(image,email);
-            responseEntity = new ResponseEntity<>(HttpStatus.CREATED);
-        } catch (PersistenceException e){
-            log.debug(e.getMessage());
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-
-        }
-        log.debug("Сформирован ответ {}", responseEntity);
-        return responseEntity;
+        return upload(() -> imageService.saveImageForAccount(request.getInputStream(), email));
     }
 
     /**
-     * @param image Изображение добавляемое в аккаунт
-     * @return Результат работы метода imageService.saveImageForEvent(image) в теле ResponseEntity
+     * @param eventId Идентификатор мероприятия
+     * @param request Запрос, тело которого - содержимое изображения
+     * @return Метаданные сохранённого изображения в теле ResponseEntity
      */
-    @PostMapping("/{eventId}")
+    @PostMapping("/event/{eventId}")
     @Operation(summary = "Добавление изображения мероприятия")
-    public ResponseEntity<Image> saveImageForEvent(@PathVariable Long eventId , @RequestBody @NotNull Image image) {
+    public ResponseEntity<Image> saveImageForEvent(@PathVariable Long eventId, HttpServletRequest request) {
         log.debug("Старт метода добавления изображения для мероприятия");
-        ResponseEntity<Image>responseEntity;
-        try{
-            imageService.saveImageForEvent(image,eventId);
-            responseEntity = new ResponseEntity<>(HttpStatus.CREATED);
-        } catch (PersistenceException e){
-            log.debug(e.getMessage());
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
-        }
-        log.debug("Сформирован ответ {}", responseEntity);
-        return responseEntity;
+        return upload(() -> imageService.saveImageForEvent(request.getInputStream(), eventId));
     }
+
     /**
-     * @param image Изображение добавляемое в аккаунт
-     * @return Результат работы метода imageService.saveImageForAccount(image) в теле ResponseEntity
+     * @param eventId Идентификатор мероприятия
+     * @param request Запрос, тело которого - содержимое изображения
+     * @return Метаданные сохранённого изображения в теле ResponseEntity
      */
-    @PutMapping("/{eventId}")
+    @PutMapping("/event/{eventId}")
     @Operation(summary = "Обновление изображения мероприятия")
-    public ResponseEntity<Image> updateImageForEvent(@PathVariable Long eventId , @RequestBody @NotNull Image image) {
+    public ResponseEntity<Image> updateImageForEvent(@PathVariable Long eventId, HttpServletRequest request) {
         log.debug("Старт метода обновления изображения для мероприятия");
-        ResponseEntity<Image>responseEntity;
-        try{
-            imageService.updateImageForEvent(image,eventId);
-            responseEntity = new ResponseEntity<>(HttpStatus.CREATED);
-        } catch (PersistenceException e){
+        return upload(() -> imageService.saveImageForEvent(request.getInputStream(), eventId));
+    }
+
+    /**
+     * Отдаёт содержимое изображения из файлового хранилища через FileChannel.transferTo.
+     * Содержимое изображения с данным id не меняется, поэтому ключ хранилища служит ETag,
+     * а ответ можно кэшировать без срока. Поддерживается докачка одного диапазона через Range.
+     * Если передана ширина, отдаётся наименьший готовый уменьшенный вариант не уже неё.
+     *
+     * @param id    Идентификатор изображения
+     * @param width Требуемая ширина изображения, по умолчанию исходное изображение
+     */
+    @GetMapping("/{id}/content")
+    @Operation(summary = "Получение содержимого изображения")
+    public void getImageContent(@PathVariable Long id, @RequestParam(required = false) Integer width,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.debug("Старт метода получения содержимого изображения {} шириной {}", id, width);
+        ImageContent content = imageService.getImageContent(imageService.getImage(id), width);
+
+        String etag = "\"" + content.getStorageKey() + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.trim().equals("*"))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(content.getPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            long start = 0;
+            long end = length - 1;
+
+            String range = request.getHeader(HttpHeaders.RANGE);
+            String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+            Matcher matcher = range == null ? null : RANGE_PATTERN.matcher(range.trim());
+            if (matcher != null && matcher.matches() && (ifRange == null || ifRange.equals(etag))) {
+                String from = matcher.group(1);
+                String to = matcher.group(2);
+                try {
+                    if (from.isEmpty()) {
+                        start = to.isEmpty() ? length : Math.max(0, length - Long.parseLong(to));
+                    } else {
+                        start = Long.parseLong(from);
+                        end = to.isEmpty() ? end : Math.min(end, Long.parseLong(to));
+                    }
+                } catch (NumberFormatException e) {
+                    // Граница диапазона не помещается в long, такой диапазон не может быть удовлетворён
+                    start = length;
+                }
+                if (start >= length || start > end) {
+                    log.debug("Запрошен недопустимый диапазон {} изображения {}", range, id);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+
+            // Тип определён по содержимому при загрузке, браузер не должен угадывать его заново
+            response.setContentType(content.getType());
+            response.setHeader("X-Content-Type-Options", "nosniff");
+            response.setContentLengthLong(end - start + 1);
+
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = end - start + 1;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                position += sent;
+                remaining -= sent;
+            }
+            response.flushBuffer();
+        }
+        log.debug("Отдано содержимое изображения {}", id);
+    }
+
+    /**
+     * Добавление и обновление изображения сохраняют его одинаково. В мониторинг отправляется,
+     * сколько байт не было записано повторно благодаря повторному использованию уже загруженного содержимого
+     */
+    private ResponseEntity<Image> upload(ImageUpload upload) {
+        ResponseEntity<Image> responseEntity;
+        try {
+            responseEntity = new ResponseEntity<>(upload.store(), HttpStatus.CREATED);
+        } catch (PersistenceException | IOException | UncheckedIOException | IllegalArgumentException e) {
             log.debug(e.getMessage());
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
+
+        Map<String, ParametersDto> monitoringParameters = new LinkedHashMap<>();
+        monitoringParameters.put("Сэкономлено байт", ParametersDto.builder()
+                .description("Байт не записано повторно благодаря повторному использованию содержимого")
+                .value(imageService.getDeduplicatedBytes())
+                .build());
+        monitorProducerService.send(
+                monitorProducerService.constructReportDto(SecurityContextHolder.getContext().getAuthentication().getPrincipal(),
+                        ControlDto.MANUAL,
+                        this.getClass(),
+                        monitoringParameters)
+        );
         log.debug("Сформирован ответ {}", responseEntity);
         return responseEntity;
     }
+
+    @FunctionalInterface
+    private interface ImageUpload {
+        Image store() throws IOException;
+    }
 }
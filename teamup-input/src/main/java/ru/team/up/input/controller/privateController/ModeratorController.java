@@ -13,6 +13,7 @@ import ru.team.up.core.entity.Account;
 import ru.team.up.core.entity.Event;
 import ru.team.up.core.entity.Moderator;
 import ru.team.up.core.monitoring.service.MonitorProducerService;
+import ru.team.up.core.projections.AccountView;
 import ru.team.up.core.service.AssignedEventsService;
 import ru.team.up.core.service.ModeratorService;
 import ru.team.up.dto.ControlDto;
@@ -48,16 +49,16 @@ public class ModeratorController {
      */
     @Operation(summary = "Получение списка всех модераторов")
     @GetMapping
-    public ResponseEntity<List<Account>> getAllModerators() {
-        log.debug("Старт метода ResponseEntity<List<Moderator>> getAllModerators()");
+    public ResponseEntity<List<AccountView>> getAllModerators() {
+        log.debug("Старт метода ResponseEntity<List<AccountView>> getAllModerators()");
         if (!ParameterService.getAllModeratorsEnabled.getValue()) {
             log.debug("Метод getAllModerators выключен параметром getAllModeratorsEnabled = false");
             throw new RuntimeException("Method getAllModerators is disabled by parameter getAllModeratorsEnabled");
         }
 
-        List<Account> allModerators = moderatorService.getAllModerators();
+        List<AccountView> allModerators = moderatorService.getAllModerators();
 
-        ResponseEntity<List<Account>> responseEntity = ResponseEntity.ok(allModerators);
+        ResponseEntity<List<AccountView>> responseEntity = ResponseEntity.ok(allModerators);
         log.debug("Получили ответ {}", responseEntity);
 
         Map<String, ParametersDto> monitoringParameters = new HashMap<>();
@@ -5,17 +5,20 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import ru.team.up.core.entity.Event;
 import ru.team.up.core.entity.EventType;
-import ru.team.up.core.entity.User;
 import ru.team.up.core.mappers.EventMapper;
 import ru.team.up.core.monitoring.service.MonitorProducerService;
-import ru.team.up.core.service.UserService;
+import ru.team.up.core.projections.EventJoinResult;
+import ru.team.up.core.projections.EventView;
+import ru.team.up.core.service.EventViewCounterService;
 import ru.team.up.dto.ControlDto;
+import ru.team.up.dto.EventDto;
 import ru.team.up.dto.ParametersDto;
 import ru.team.up.input.exception.EventCheckException;
 import ru.team.up.input.exception.EventCreateRequestException;
@@ -50,8 +53,8 @@ import java.util.Map;
 public class EventRestControllerPublic {
     private EventServiceRest eventServiceRest;
     private WordMatcher wordMatcher;
-    private UserService userService;
     private MonitorProducerService monitoringProducerService;
+    private EventViewCounterService eventViewCounterService;
 
 
     /**
@@ -67,8 +70,9 @@ public class EventRestControllerPublic {
             log.debug("Метод getAllEvents выключен параметром getAllEventsEnabled = false");
             throw new RuntimeException("Method getAllEvents is disabled by parameter getAllEventsEnabled");
         }
-        EventDtoListResponse eventDtoListResponse = EventDtoListResponse.builder().eventDtoList(
-                        EventMapper.INSTANCE.mapDtoEventToEvent(eventServiceRest.getAllEvents()))
+        List<EventDto> eventDtoList = EventMapper.INSTANCE
+                .mapDtoEventToEvent(eventServiceRest.getAllEvents(), eventViewCounterService);
+        EventDtoListResponse eventDtoListResponse = EventDtoListResponse.builder().eventDtoList(eventDtoList)
                 .build();
         Map<String, ParametersDto> monitoringParameters = new HashMap<>();
 
@@ -99,9 +103,9 @@ public class EventRestControllerPublic {
             log.debug("Метод findEventById выключен параметром getEventByIdEnabled = false");
             throw new RuntimeException("Method findEventById is disabled by parameter getEventByIdEnabled");
         }
-        EventDtoResponse eventDtoResponse = EventDtoResponse.builder().eventDto(
-                EventMapper.INSTANCE.mapEventToDto(
-                        eventServiceRest.getEventById(eventId))).build();
+        EventDto eventDto = EventMapper.INSTANCE
+                .mapEventToDto(eventServiceRest.getEventById(eventId), eventViewCounterService);
+        EventDtoResponse eventDtoResponse = EventDtoResponse.builder().eventDto(eventDto).build();
 
         Map<String, ParametersDto> monitoringParameters = new LinkedHashMap<>();
 
@@ -139,7 +143,8 @@ public class EventRestControllerPublic {
             throw new RuntimeException("Method getAllEventByCity is disabled by parameter getAllEventByCityEnabled");
         }
         EventDtoListResponse eventDtoListResponse = EventDtoListResponse.builder().eventDtoList(
-                        EventMapper.INSTANCE.mapDtoEventToEvent(eventServiceRest.getAllEventsByCity(city)))
+                        EventMapper.INSTANCE.mapDtoEventToEvent(eventServiceRest.getAllEventsByCity(city),
+                                eventViewCounterService))
                 .build();
 
         Map<String, ParametersDto> monitoringParameters = new HashMap<>();
@@ -159,14 +164,55 @@ public class EventRestControllerPublic {
     }
 
     /**
-     * Метод получения мероприятий по названию
+     * Метод получения популярных мероприятий в городе
+     *
+     * @param city  название города
+     * @param limit максимальное количество мероприятий
+     * @return список популярных мероприятий в городе в порядке убывания популярности
+     */
+    @Operation(summary = "Получение популярных мероприятий в городе")
+    @GetMapping(value = "/trending/{city}")
+    public EventDtoListResponse getTrendingEventsByCity(@PathVariable String city,
+                                                        @RequestParam(defaultValue = "10") int limit) {
+        log.debug("Запрос на поиск популярных мероприятий по городу city: {}", city);
+        if (!ParameterService.getTrendingEventsByCityEnabled.getValue()) {
+            log.debug("Метод getTrendingEventsByCity выключен параметром getTrendingEventsByCityEnabled = false");
+            throw new RuntimeException("Method getTrendingEventsByCity is disabled by parameter getTrendingEventsByCityEnabled");
+        }
+        List<EventDto> eventDtoList = EventMapper.INSTANCE
+                .mapDtoEventToEvent(eventServiceRest.getTrendingEventsByCity(city, limit), eventViewCounterService);
+        EventDtoListResponse eventDtoListResponse = EventDtoListResponse.builder().eventDtoList(eventDtoList)
+                .build();
+
+        Map<String, ParametersDto> monitoringParameters = new HashMap<>();
+
+        ParametersDto eventList = ParametersDto.builder()
+                .description("Количество популярных мероприятий по городу: " + city)
+                .value(eventDtoListResponse.getEventDtoList().size())
+                .build();
+
+        monitoringParameters.put("Количество популярных мероприятий по городу: " + city, eventList);
+        monitoringProducerService.send(
+                monitoringProducerService.constructReportDto(
+                        SecurityContextHolder.getContext().getAuthentication().getPrincipal(), ControlDto.MANUAL,
+                        this.getClass(), monitoringParameters));
+        return eventDtoListResponse;
+    }
+
+    /**
+     * Метод получения мероприятий по названию. Выдача постраничная, без параметров страницы
+     * возвращаются первые 100 мероприятий в порядке релевантности
      *
      * @param eventName Название мероприятия
+     * @param page      Номер страницы
+     * @param size      Размер страницы
      * @return Ответ запроса и статус проверки
      */
     @Operation(summary = "Получение мероприятий по названию")
     @GetMapping(value = "/name/{eventName}")
-    public EventDtoListResponse findEventsByName(@PathVariable("eventName") String eventName) {
+    public EventDtoListResponse findEventsByName(@PathVariable("eventName") String eventName,
+                                                 @RequestParam(defaultValue = "0") int page,
+                                                 @RequestParam(defaultValue = "100") int size) {
         log.debug("Получен запрос на поиск мероприятий по названию {}", eventName);
         if (!ParameterService.getFindEventsByNameEnabled.getValue()) {
             log.debug("Метод findEventsByName выключен параметром getfindEventsByNameEnabled = false");
@@ -174,7 +220,8 @@ public class EventRestControllerPublic {
         }
 
         EventDtoListResponse eventDtoListResponse = EventDtoListResponse.builder().eventDtoList(
-                        EventMapper.INSTANCE.mapDtoEventToEvent(eventServiceRest.getEventByName(eventName)))
+                        EventMapper.INSTANCE.mapDtoEventToEvent(eventServiceRest.getEventByName(eventName, page, size),
+                                eventViewCounterService))
                 .build();
         Map<String, ParametersDto> monitoringParameters = new HashMap<>();
 
@@ -191,6 +238,51 @@ public class EventRestControllerPublic {
         return eventDtoListResponse;
     }
 
+    /**
+     * Метод полнотекстового поиска мероприятий по названию, описанию и интересам
+     *
+     * @param query Поисковый запрос
+     * @param city  Город проведения мероприятий
+     * @param from  Начало интервала времени проведения
+     * @param to    Конец интервала времени проведения
+     * @param page  Номер страницы
+     * @param size  Размер страницы
+     * @return Страница найденных мероприятий в порядке релевантности
+     */
+    @Operation(summary = "Полнотекстовый поиск мероприятий")
+    @GetMapping(value = "/search")
+    public EventDtoListResponse searchEvents(@RequestParam String query,
+                                             @RequestParam(required = false) String city,
+                                             @RequestParam(required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                             @RequestParam(required = false)
+                                             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                             @RequestParam(defaultValue = "0") int page,
+                                             @RequestParam(defaultValue = "20") int size) {
+        log.debug("Получен запрос на поиск мероприятий: {}", query);
+        if (!ParameterService.getSearchEventsEnabled.getValue()) {
+            log.debug("Метод searchEvents выключен параметром getSearchEventsEnabled = false");
+            throw new RuntimeException("Method searchEvents is disabled by parameter getSearchEventsEnabled");
+        }
+
+        List<EventDto> eventDtoList = EventMapper.INSTANCE.mapDtoEventToEvent(
+                eventServiceRest.searchEvents(query, city, from, to, page, size), eventViewCounterService);
+        EventDtoListResponse eventDtoListResponse = EventDtoListResponse.builder().eventDtoList(eventDtoList)
+                .build();
+        Map<String, ParametersDto> monitoringParameters = new HashMap<>();
+
+        ParametersDto eventListByQuery = ParametersDto.builder()
+                .description("Количество найденных мероприятий по запросу: " + query)
+                .value(eventDtoListResponse.getEventDtoList().size())
+                .build();
+        monitoringParameters.put("Количество найденных мероприятий по запросу: " + query, eventListByQuery);
+        monitoringProducerService.send(
+                monitoringProducerService.constructReportDto(
+                        SecurityContextHolder.getContext().getAuthentication().getPrincipal(), ControlDto.MANUAL,
+                        this.getClass(), monitoringParameters));
+        return eventDtoListResponse;
+    }
+
     /**
      * Метод получения мероприятий по автору
      *
@@ -199,13 +291,13 @@ public class EventRestControllerPublic {
      */
     @Operation(summary = "Получение мероприятий по автору")
     @GetMapping(value = "/author")
-    public ResponseEntity<List<Event>> findEventsByAuthor(@RequestBody UserRequest author) {
+    public ResponseEntity<List<EventView>> findEventsByAuthor(@RequestBody UserRequest author) {
         log.debug("Получен запрос на поиск мероприятий по автору {}", author);
         if (!ParameterService.getFindEventsByAuthorEnabled.getValue()) {
             log.debug("Метод findEventsByAuthor выключен параметром getFindEventsByAuthorEnabled = false");
             throw new RuntimeException("Method findEventsByAuthor is disabled by parameter getFindEventsByAuthorEnabled");
         }
-        List<Event> events = eventServiceRest.getAllEventsByAuthor(author.getUser().getId());
+        List<EventView> events = eventServiceRest.getAllEventsByAuthor(author.getUser().getId());
         Map<String, ParametersDto> monitoringParameters = new HashMap<>();
 
         ParametersDto eventListByAuthor = ParametersDto.builder()
@@ -233,13 +325,13 @@ public class EventRestControllerPublic {
      */
     @Operation(summary = "Получение мероприятий по типу")
     @GetMapping(value = "/type")
-    public ResponseEntity<List<Event>> findEventsByType(@RequestBody EventType eventType) {
+    public ResponseEntity<List<EventView>> findEventsByType(@RequestBody EventType eventType) {
         log.debug("Получен запрос на поиск мероприятий по типу: {}", eventType);
         if (!ParameterService.getFindEventsByTypeEnabled.getValue()) {
             log.debug("Метод findEventsByType выключен параметром getFindEventsByTypeEnabled = false");
             throw new RuntimeException("Method findEventsByType is disabled by parameter getFindEventsByTypeEnabled");
         }
-        List<Event> events = eventServiceRest.getAllEventsByEventType(eventType);
+        List<EventView> events = eventServiceRest.getAllEventsByEventType(eventType);
         Map<String, ParametersDto> monitoringParameters = new HashMap<>();
 
         ParametersDto eventListByType = ParametersDto.builder()
@@ -268,7 +360,7 @@ public class EventRestControllerPublic {
      */
     @Operation(summary = "Создание нового мероприятия")
     @PostMapping(value = "/")
-    public ResponseEntity<Event> createEvent(@RequestBody EventRequest event) {
+    public ResponseEntity<EventView> createEvent(@RequestBody EventRequest event) {
         log.debug("Получен запрос на создание мероприятия:\n {}", event);
         if (!ParameterService.getCreateEventEnabled.getValue()) {
             log.debug("Метод createEvent выключен параметром getCreateEventEnabled = false");
@@ -277,7 +369,7 @@ public class EventRestControllerPublic {
 
         checkEvent(event);
 
-        Event upcomingEvent = eventServiceRest.saveEvent(event.getEvent());
+        EventView upcomingEvent = eventServiceRest.saveEvent(event.getEvent());
         log.debug("Мероприятие создано");
 
         Map<String, ParametersDto> monitoringParameters = new LinkedHashMap<>();
@@ -312,7 +404,7 @@ public class EventRestControllerPublic {
      */
     @Operation(summary = "Обновление мероприятия")
     @PutMapping(value = "/{id}")
-    public ResponseEntity<Event> updateEvent(@RequestBody EventRequest event, @PathVariable("id") Long eventId) {
+    public ResponseEntity<EventView> updateEvent(@RequestBody EventRequest event, @PathVariable("id") Long eventId) {
         log.debug("Получен запрос на обновление мероприятия {}", event);
         if (!ParameterService.getUpdateEventEnabled.getValue()) {
             log.debug("Метод updateEvent выключен параметром getUpdateEventEnabled = false");
@@ -321,7 +413,7 @@ public class EventRestControllerPublic {
 
         checkEvent(event);
 
-        Event newEvent = eventServiceRest.updateEvent(eventId, event.getEvent());
+        EventView newEvent = eventServiceRest.updateEvent(eventId, event.getEvent());
         log.debug("Мероприятие {} обновлено", event);
 
         Map<String, ParametersDto> monitoringParameters = new LinkedHashMap<>();
@@ -398,129 +490,91 @@ public class EventRestControllerPublic {
      * Метод добавления участника мероприятия
      *
      * @param joinRequest Данные запроса для добавление участника
-     * @return Ответ запроса и статус проверки
+     * @return Результат записи на мероприятие и статус ответа
      */
     @Operation(summary = "Добавление участника мероприятия")
     @PostMapping(value = "/join")
-    public ResponseEntity<Event> addEventParticipant(@RequestBody JoinRequest joinRequest) {
+    public ResponseEntity<EventJoinResult> addEventParticipant(@RequestBody JoinRequest joinRequest) {
         log.debug("Получен запрос на добавление участника мероприятия");
         if (!ParameterService.getAddEventParticipantEnabled.getValue()) {
             log.debug("Метод addEventParticipant выключен параметром getAddEventParticipantEnabled = false");
             throw new RuntimeException("Method addEventParticipant is disabled by parameter getAddEventParticipantEnabled");
         }
 
-        Event event = eventServiceRest.addParticipant(joinRequest.getEventId(), joinRequest.getUserId());
-        Long userId = joinRequest.getUserId();
-        User user = userService.getOneUser(userId).orElse(null);
-        log.debug("Участник успешно добавлен");
-
-        Map<String, ParametersDto> monitoringParameters = new LinkedHashMap<>();
-
-        ParametersDto eventIdAdd = ParametersDto.builder()
-                .description("ID мероприятия ")
-                .value(event.getId())
-                .build();
-
-        ParametersDto eventNameAdd = ParametersDto.builder()
-                .description("Название мероприятия ")
-                .value(event.getEventName())
-                .build();
-
-        ParametersDto userIdAdd = ParametersDto.builder()
-                .description("ID участника ")
-                .value(user.getId())
-                .build();
-
-        ParametersDto userEmailAdd = ParametersDto.builder()
-                .description("Email участника ")
-                .value(user.getEmail())
-                .build();
-
-        ParametersDto userNameAdd = ParametersDto.builder()
-                .description("Имя участника ")
-                .value(user.getUsername())
-                .build();
+        EventJoinResult joinResult = eventServiceRest.addParticipant(joinRequest.getEventId(), joinRequest.getUserId());
+        log.debug("Результат добавления участника: {}", joinResult.getStatus());
 
-        monitoringParameters.put("ID мероприятия ", eventIdAdd);
-        monitoringParameters.put("Название мероприятия ", eventNameAdd);
-        monitoringParameters.put("ID участника ", userIdAdd);
-        monitoringParameters.put("Email участника ", userEmailAdd);
-        monitoringParameters.put("Имя участника ", userNameAdd);
+        sendJoinReport(joinResult);
 
-        monitoringProducerService.send(
-                monitoringProducerService.constructReportDto(
-                        SecurityContextHolder.getContext().getAuthentication().getPrincipal(), ControlDto.MANUAL,
-                        this.getClass(), monitoringParameters));
+        if (joinResult.getStatus() == EventJoinResult.JoinStatus.EVENT_FULL) {
+            log.debug("В мероприятии с id = {} нет свободных мест", joinResult.getEventId());
+            return new ResponseEntity<>(joinResult, HttpStatus.CONFLICT);
+        }
 
-        return new ResponseEntity<>(event, HttpStatus.OK);
+        return new ResponseEntity<>(joinResult, HttpStatus.OK);
     }
 
     /**
      * Метод удаления участника мероприятия
      *
      * @param joinRequest Данные запроса для удаления участника
-     * @return Ответ запроса и статус проверки
+     * @return Результат удаления из участников и статус ответа
      */
     @Operation(summary = "Удаление участника мероприятия")
     @PostMapping("/unjoin")
-    public ResponseEntity<Event> deleteEventParticipant(@RequestBody JoinRequest joinRequest) {
+    public ResponseEntity<EventJoinResult> deleteEventParticipant(@RequestBody JoinRequest joinRequest) {
         log.debug("Получен запрос на удаление участника мероприятия");
         if (!ParameterService.getDeleteEventParticipantEnabled.getValue()) {
             log.debug("Метод deleteEventParticipant выключен параметром getDeleteEventParticipantEnabled = false");
             throw new RuntimeException("Method deleteEventParticipant is disabled by parameter getDeleteEventParticipantEnabled");
         }
 
-        Long userId = joinRequest.getUserId();
-        User user = userService.getOneUser(userId).orElse(null);
-        if (user == null) {
-            log.debug("Участника с id = {} не существует", userId);
-            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-        }
+        // Повторный выход не ошибка: статус NOT_PARTICIPANT возвращается в теле ответа
+        EventJoinResult joinResult = eventServiceRest.deleteParticipant(joinRequest.getEventId(), joinRequest.getUserId());
+        log.debug("Результат удаления участника с id = {}: {}", joinResult.getUserId(), joinResult.getStatus());
 
-        Event event = eventServiceRest.deleteParticipant(joinRequest.getEventId(), joinRequest.getUserId());
-        log.debug("Участник успешно удален");
+        sendJoinReport(joinResult);
+
+        return new ResponseEntity<>(joinResult, HttpStatus.OK);
+    }
 
+    /**
+     * Метод отправки отчёта о записи на мероприятие в мониторинг
+     *
+     * @param joinResult Результат записи на мероприятие
+     */
+    private void sendJoinReport(EventJoinResult joinResult) {
         Map<String, ParametersDto> monitoringParameters = new LinkedHashMap<>();
 
-        ParametersDto eventIdDel = ParametersDto.builder()
+        ParametersDto eventId = ParametersDto.builder()
                 .description("ID мероприятия ")
-                .value(event.getId())
+                .value(joinResult.getEventId())
                 .build();
 
-        ParametersDto eventNameDel = ParametersDto.builder()
-                .description("Название мероприятия ")
-                .value(event.getEventName())
-                .build();
-
-        ParametersDto userIdDel = ParametersDto.builder()
+        ParametersDto userId = ParametersDto.builder()
                 .description("ID участника ")
-                .value(user.getId())
+                .value(joinResult.getUserId())
                 .build();
 
-        ParametersDto userEmailDel = ParametersDto.builder()
-                .description("Email участника ")
-                .value(user.getEmail())
+        ParametersDto status = ParametersDto.builder()
+                .description("Результат операции ")
+                .value(joinResult.getStatus())
                 .build();
 
-        ParametersDto userNameDel = ParametersDto.builder()
-                .description("Имя участника ")
-                .value(user.getUsername())
+        ParametersDto participantsCount = ParametersDto.builder()
+                .description("Количество участников ")
+                .value(joinResult.getParticipantsCount())
                 .build();
 
-        monitoringParameters.put("ID мероприятия ", eventIdDel);
-        monitoringParameters.put("Название мероприятия ", eventNameDel);
-        monitoringParameters.put("ID участника ", userIdDel);
-        monitoringParameters.put("Email участника ", userEmailDel);
-        monitoringParameters.put("Имя участника ", userNameDel);
-
-
+        monitoringParameters.put("ID мероприятия ", eventId);
+        monitoringParameters.put("ID участника ", userId);
+        monitoringParameters.put("Результат операции ", status);
+        monitoringParameters.put("Количество участников ", participantsCount);
 
         monitoringProducerService.send(
                 monitoringProducerService.constructReportDto(
                         SecurityContextHolder.getContext().getAuthentication().getPrincipal(), ControlDto.MANUAL,
                         this.getClass(), monitoringParameters));
-
-        return new ResponseEntity<>(event, HttpStatus.OK);
     }
 
     /**
@@ -5,6 +5,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -12,10 +13,12 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.tags.Param;
 import ru.team.up.core.entity.Account;
-import ru.team.up.core.entity.User;
 import ru.team.up.core.mappers.EventMapper;
 import ru.team.up.core.mappers.UserMapper;
 import ru.team.up.core.monitoring.service.MonitorProducerService;
+import ru.team.up.core.projections.InboxMessageView;
+import ru.team.up.core.projections.UserView;
+import ru.team.up.core.service.EventViewCounterService;
 import ru.team.up.dto.ControlDto;
 import ru.team.up.dto.EventDto;
 import ru.team.up.dto.ParametersDto;
@@ -27,6 +30,7 @@ import ru.team.up.input.response.UserDtoResponse;
 import ru.team.up.input.service.UserServiceRest;
 import ru.team.up.sup.service.ParameterService;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +49,7 @@ import java.util.Map;
 public class UserRestControllerPublic {
     private UserServiceRest userServiceRest;
     private MonitorProducerService monitoringProducerService;
+    private EventViewCounterService eventViewCounterService;
 
     /**
      * Метод для поиска пользователя по id
@@ -189,13 +194,13 @@ public class UserRestControllerPublic {
      */
     @Operation(summary = "Получение списка всех пользователей")
     @GetMapping("/")
-    public List<User> getUsersList() {
+    public List<UserView> getUsersList() {
         log.debug("Получен запрос на список всех пользоватей");
         if (!ParameterService.getUsersListEnabled.getValue()) {
             log.debug("Метод getUsersList выключен параметром getUsersListEnabled = false");
             throw new RuntimeException("Method getUsersList is disabled by parameter getUsersListEnabled");
         }
-        List<User> users = userServiceRest.getAllUsers();
+        List<UserView> users = userServiceRest.getAllUsers();
 
         Map<String, ParametersDto> monitoringParameters = new HashMap<>();
 
@@ -234,7 +239,7 @@ public class UserRestControllerPublic {
         Map<String, ParametersDto> monitoringParameters = new HashMap<>();
 
         List<EventDto> eventList = EventMapper.INSTANCE
-                .mapDtoEventToEvent(userServiceRest.getEventsByOwnerId(id));
+                .mapDtoEventToEvent(userServiceRest.getEventsByOwnerId(id), eventViewCounterService);
 
         ParametersDto eventListParam = ParametersDto.builder()
                 .description("Количество всех мероприятий по id пользователя " + id)
@@ -266,7 +271,7 @@ public class UserRestControllerPublic {
         }
         Map<String, ParametersDto> monitoringParameters = new HashMap<>();
         List<EventDto> eventList = EventMapper.INSTANCE
-                .mapDtoEventToEvent(userServiceRest.getEventsBySubscriberId(id));
+                .mapDtoEventToEvent(userServiceRest.getEventsBySubscriberId(id), eventViewCounterService);
 
         ParametersDto eventListParam = ParametersDto.builder()
                 .description("Количество мероприятий, на которые подписан пользователь id " + id)
@@ -282,6 +287,114 @@ public class UserRestControllerPublic {
                 .build();
     }
 
+    /**
+     * Метод получения рекомендованных пользователю мероприятий
+     *
+     * @param id    id пользователя
+     * @param limit максимальное количество мероприятий, не меньше 1
+     * @return Ответ поиска и статус проверки
+     */
+    @Operation(summary = "Получение рекомендованных пользователю мероприятий")
+    @GetMapping(value = "/event/{id}/recommended", produces = MediaType.APPLICATION_JSON_VALUE)
+    public EventDtoListResponse getRecommendedEvents(@PathVariable Long id,
+                                                     @RequestParam(defaultValue = "10") int limit) {
+        log.debug("Запрос на получение рекомендованных мероприятий для пользователя с id: {}", id);
+        if (!ParameterService.getRecommendedEventsEnabled.getValue()) {
+            log.debug("Метод getRecommendedEvents выключен параметром getRecommendedEventsEnabled = false");
+            throw new RuntimeException("Method getRecommendedEvents is disabled by parameter getRecommendedEventsEnabled");
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Количество рекомендованных мероприятий должно быть больше 0");
+        }
+        Map<String, ParametersDto> monitoringParameters = new HashMap<>();
+        List<EventDto> eventList = EventMapper.INSTANCE
+                .mapDtoEventToEvent(userServiceRest.getRecommendedEvents(id, limit), eventViewCounterService);
+
+        ParametersDto eventListParam = ParametersDto.builder()
+                .description("Количество рекомендованных мероприятий для пользователя id " + id)
+                .value(eventList.size())
+                .build();
+
+        monitoringParameters.put("Количество рекомендованных мероприятий для пользователя id " + id, eventListParam);
+        monitoringProducerService.send(
+                monitoringProducerService.constructReportDto(
+                        SecurityContextHolder.getContext().getAuthentication().getPrincipal(), ControlDto.MANUAL,
+                        this.getClass(), monitoringParameters));
+        return EventDtoListResponse.builder().eventDtoList(eventList)
+                .build();
+    }
+
+    /**
+     * Метод получения страницы входящих сообщений пользователя
+     *
+     * @param id         id пользователя
+     * @param beforeTime время создания последнего сообщения предыдущей страницы, не передаётся для первой страницы
+     * @param beforeId   id последнего сообщения предыдущей страницы
+     * @param limit      размер страницы
+     * @return Сообщения от новых к старым
+     */
+    @Operation(summary = "Получение входящих сообщений пользователя")
+    @GetMapping(value = "/{id}/messages", produces = MediaType.APPLICATION_JSON_VALUE)
+    public List<InboxMessageView> getInbox(@PathVariable Long id,
+                                           @RequestParam(required = false)
+                                           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeTime,
+                                           @RequestParam(required = false) Long beforeId,
+                                           @RequestParam(defaultValue = "20") int limit) {
+        log.debug("Запрос на получение входящих сообщений пользователя с id: {}", id);
+        if (!ParameterService.getUserInboxEnabled.getValue()) {
+            log.debug("Метод getInbox выключен параметром getUserInboxEnabled = false");
+            throw new RuntimeException("Method getInbox is disabled by parameter getUserInboxEnabled");
+        }
+        List<InboxMessageView> messages = userServiceRest.getInbox(id, beforeTime, beforeId, limit);
+
+        Map<String, ParametersDto> monitoringParameters = new HashMap<>();
+        monitoringParameters.put("Количество входящих сообщений на странице для пользователя id " + id,
+                ParametersDto.builder()
+                        .description("Количество входящих сообщений на странице для пользователя id " + id)
+                        .value(messages.size())
+                        .build());
+        monitoringProducerService.send(
+                monitoringProducerService.constructReportDto(
+                        SecurityContextHolder.getContext().getAuthentication().getPrincipal(), ControlDto.MANUAL,
+                        this.getClass(), monitoringParameters));
+        return messages;
+    }
+
+    /**
+     * Метод получения количества непрочитанных сообщений пользователя
+     *
+     * @param id id пользователя
+     * @return Количество непрочитанных сообщений
+     */
+    @Operation(summary = "Получение количества непрочитанных сообщений пользователя")
+    @GetMapping(value = "/{id}/messages/unread", produces = MediaType.APPLICATION_JSON_VALUE)
+    public int countUnreadMessages(@PathVariable Long id) {
+        log.debug("Запрос на получение количества непрочитанных сообщений пользователя с id: {}", id);
+        if (!ParameterService.getUserInboxEnabled.getValue()) {
+            log.debug("Метод countUnreadMessages выключен параметром getUserInboxEnabled = false");
+            throw new RuntimeException("Method countUnreadMessages is disabled by parameter getUserInboxEnabled");
+        }
+        return userServiceRest.countUnreadMessages(id);
+    }
+
+    /**
+     * Метод отметки сообщений пользователя прочитанными
+     *
+     * @param id         id пользователя
+     * @param messageIds id прочитанных сообщений, пустой список - все сообщения пользователя
+     * @return Количество отмеченных сообщений
+     */
+    @Operation(summary = "Отметка сообщений пользователя прочитанными")
+    @PutMapping(value = "/{id}/messages/read", produces = MediaType.APPLICATION_JSON_VALUE)
+    public int markMessagesAsRead(@PathVariable Long id, @RequestBody(required = false) List<Long> messageIds) {
+        log.debug("Запрос на отметку прочитанными сообщений {} пользователя с id: {}", messageIds, id);
+        if (!ParameterService.getUserInboxEnabled.getValue()) {
+            log.debug("Метод markMessagesAsRead выключен параметром getUserInboxEnabled = false");
+            throw new RuntimeException("Method markMessagesAsRead is disabled by parameter getUserInboxEnabled");
+        }
+        return userServiceRest.markMessagesAsRead(id, messageIds);
+    }
+
     /**
      * Метод обновления пользователя
      *
@@ -2,7 +2,10 @@ package ru.team.up.input.service;
 
 import ru.team.up.core.entity.Event;
 import ru.team.up.core.entity.EventType;
+import ru.team.up.core.projections.EventJoinResult;
+import ru.team.up.core.projections.EventView;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -24,9 +27,24 @@ public interface EventServiceRest {
      * Метод для получния мероприятия по названию
      *
      * @param eventName Название мероприятия
-     * @return Мероприятие по заданному названию
+     * @param page      Номер страницы
+     * @param size      Размер страницы
+     * @return Страница мероприятий по заданному названию в порядке релевантности
      */
-    List<Event> getEventByName(String eventName);
+    List<Event> getEventByName(String eventName, int page, int size);
+
+    /**
+     * Метод полнотекстового поиска мероприятий по названию, описанию и интересам
+     *
+     * @param query Поисковый запрос
+     * @param city  Город проведения мероприятий, null - все города
+     * @param from  Начало интервала времени проведения, null - без ограничения
+     * @param to    Конец интервала времени проведения, null - без ограничения
+     * @param page  Номер страницы
+     * @param size  Размер страницы
+     * @return Страница найденных мероприятий в порядке релевантности
+     */
+    List<Event> searchEvents(String query, String city, LocalDateTime from, LocalDateTime to, int page, int size);
 
     /**
      * Метод для получения списка мероприятий
@@ -39,34 +57,34 @@ public interface EventServiceRest {
      * Метод получения мероприятий по автору
      *
      * @param authorId ID Автора(создателя) мероприятия
-     * @return Список мероприятий по автору
+     * @return Список представлений мероприятий по автору
      */
-    List<Event> getAllEventsByAuthor(Long authorId);
+    List<EventView> getAllEventsByAuthor(Long authorId);
 
     /**
      * Метод получения мероприятий по типу
      *
      * @param eventType тип мероприятия
-     * @return Список мероприятий
+     * @return Список представлений мероприятий
      */
-    List<Event> getAllEventsByEventType(EventType eventType);
+    List<EventView> getAllEventsByEventType(EventType eventType);
 
     /**
      * Метод сохранения\создания мероприятия
      *
      * @param event Мероприятие
-     * @return Сохранненное мероприятие
+     * @return Представление сохранённого мероприятия
      */
-    Event saveEvent(Event event);
+    EventView saveEvent(Event event);
 
     /**
      * Метод обновления мероприятия
      *
      * @param id    Идентификатор мероприятия
      * @param event Мероприятие для изменений
-     * @return Обновленное мероприятие
+     * @return Представление обновлённого мероприятия
      */
-    Event updateEvent(Long id, Event event);
+    EventView updateEvent(Long id, Event event);
 
     /**
      * Метод для удаления мероприятия по идентификатору
@@ -80,22 +98,29 @@ public interface EventServiceRest {
      *
      * @param eventId Идентификатор мероприятия
      * @param userId  Идентификатор участника
-     * @return Обновленное мероприятие
+     * @return Результат записи на мероприятие
      */
-    Event addParticipant(Long eventId, Long userId);
+    EventJoinResult addParticipant(Long eventId, Long userId);
 
     /**
      * Метод удаления участника мероприятия
      *
      * @param eventId Идентификатор мероприятия
      * @param userId  Идентификатор участника
-     * @return Обновленное мероприятие
+     * @return Результат удаления из участников мероприятия
      */
-    Event deleteParticipant(Long eventId, Long userId);
+    EventJoinResult deleteParticipant(Long eventId, Long userId);
 
     /**
      * @param city город проведения мероприятий
      * @return Получение всех мероприятий в городе
      */
     List<Event> getAllEventsByCity(String city);
+
+    /**
+     * @param city  город проведения мероприятий
+     * @param limit максимальное количество мероприятий
+     * @return Самые популярные сейчас мероприятия в городе
+     */
+    List<Event> getTrendingEventsByCity(String city, int limit);
 }
@@ -4,8 +4,11 @@ import ru.team.up.core.entity.Account;
 import ru.team.up.core.entity.Event;
 import ru.team.up.core.entity.Role;
 import ru.team.up.core.entity.User;
+import ru.team.up.core.projections.InboxMessageView;
+import ru.team.up.core.projections.UserView;
 import ru.team.up.input.payload.request.UserRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -45,7 +48,7 @@ public interface UserServiceRest {
      *
      * @return Список пользователей
      */
-    List<User> getAllUsers();
+    List<UserView> getAllUsers();
 
     /**
      * Метод сохранения пользователя
@@ -89,4 +92,41 @@ public interface UserServiceRest {
      * @return Список "Топ популярных пользователей в городе"
      */
     List<User> getTopUsersInCity(String city);
+
+    /**
+     * Метод получения рекомендованных пользователю мероприятий
+     *
+     * @param id    идентификатор пользователя
+     * @param limit максимальное количество мероприятий
+     * @return Список мероприятий в порядке убывания релевантности
+     */
+    List<Event> getRecommendedEvents(Long id, int limit);
+
+    /**
+     * Метод получения страницы входящих сообщений пользователя
+     *
+     * @param id         идентификатор пользователя
+     * @param beforeTime время создания последнего сообщения предыдущей страницы
+     * @param beforeId   идентификатор последнего сообщения предыдущей страницы
+     * @param limit      размер страницы
+     * @return Список сообщений от новых к старым
+     */
+    List<InboxMessageView> getInbox(Long id, LocalDateTime beforeTime, Long beforeId, int limit);
+
+    /**
+     * Метод получения количества непрочитанных сообщений пользователя
+     *
+     * @param id идентификатор пользователя
+     * @return Количество непрочитанных сообщений
+     */
+    int countUnreadMessages(Long id);
+
+    /**
+     * Метод отметки сообщений пользователя прочитанными
+     *
+     * @param id         идентификатор пользователя
+     * @param messageIds идентификаторы сообщений, пустой список - все сообщения
+     * @return Количество отмеченных сообщений
+     */
+    int markMessagesAsRead(Long id, List<Long> messageIds);
 }
@@ -3,22 +3,20 @@ package ru.team.up.input.service.impl;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.team.up.core.entity.Account;
 import ru.team.up.core.entity.Event;
 import ru.team.up.core.entity.EventType;
-import ru.team.up.core.entity.User;
+import ru.team.up.core.exception.EventsNotFoundIdException;
+import ru.team.up.core.projections.EventJoinResult;
+import ru.team.up.core.projections.EventView;
 import ru.team.up.core.repositories.EventRepository;
-import ru.team.up.core.repositories.UserRepository;
-import ru.team.up.core.service.NotifyService;
-import ru.team.up.dto.NotifyDto;
-import ru.team.up.dto.NotifyStatusDto;
+import ru.team.up.core.service.EventService;
 import ru.team.up.input.service.EventServiceRest;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Set;
 
 /**
  * @author Pavel Kondrashov
@@ -29,9 +27,9 @@ import java.util.Set;
 @Transactional
 @AllArgsConstructor(onConstructor = @__(@Autowired))
 public class EventServiceRestImpl implements EventServiceRest {
+
     private final EventRepository eventRepository;
-    private final UserRepository userRepository;
-    private NotifyService notifyService;
+    private final EventService eventService;
 
 
     @Override
@@ -40,8 +38,14 @@ public class EventServiceRestImpl implements EventServiceRest {
     }
 
     @Override
-    public List<Event> getEventByName(String eventName) {
-        return eventRepository.findByEventNameContaining(eventName);
+    public List<Event> getEventByName(String eventName, int page, int size) {
+        return searchEvents(eventName, null, null, null, page, size);
+    }
+
+    @Override
+    public List<Event> searchEvents(String query, String city, LocalDateTime from, LocalDateTime to,
+                                    int page, int size) {
+        return eventService.searchEvents(query, city, from, to, PageRequest.of(page, size)).getContent();
     }
 
     @Override
@@ -50,23 +54,23 @@ public class EventServiceRestImpl implements EventServiceRest {
     }
 
     @Override
-    public List<Event> getAllEventsByAuthor(Long authorId) {
-        return eventRepository.findAllByAuthorId(authorId);
+    public List<EventView> getAllEventsByAuthor(Long authorId) {
+        return eventRepository.findViewsByAuthorId(authorId);
     }
 
     @Override
-    public List<Event> getAllEventsByEventType(EventType eventType) {
-        return eventRepository.findAllByEventType(eventType);
+    public List<EventView> getAllEventsByEventType(EventType eventType) {
+        return eventRepository.findViewsByEventTypeId(eventType.getId());
     }
 
     @Override
-    public Event saveEvent(Event event) {
-        return eventRepository.save(event);
+    public EventView saveEvent(Event event) {
+        return getEventView(eventRepository.save(event).getId());
     }
 
     @Override
-    public Event updateEvent(Long id, Event event) {
-        return eventRepository.saveAndFlush(event);
+    public EventView updateEvent(Long id, Event event) {
+        return getEventView(eventRepository.saveAndFlush(event).getId());
     }
 
     @Override
@@ -75,42 +79,30 @@ public class EventServiceRestImpl implements EventServiceRest {
     }
 
     @Override
-    public Event addParticipant(Long eventId, Long userId) {
-
-        Event event = getEventById(eventId);
-        Account participant = userRepository.getOne(userId);
-        Set<User> participants = event.getParticipantsEvent();
-        participants.add((User) participant);
-        event.setParticipantsEvent(participants);
-
-        log.debug("Отправка уведомления создателю c ID: {} для мероприятия с ID: {}", event.getAuthorId(), eventId);
-
-        String message = "Пользователь " + participant.getUsername()
-                + " стал участником мероприятия " + event.getEventName();
-
-        notifyService.notify(NotifyDto.builder()
-                .email(event.getAuthorId().getEmail())
-                .subject(message)
-                .text(message)
-                .status(NotifyStatusDto.NOT_SENT)
-                .creationTime(LocalDateTime.now())
-                .build());
-
-        return updateEvent(eventId, event);
+    public EventJoinResult addParticipant(Long eventId, Long userId) {
+        return eventService.joinEvent(eventId, userId);
     }
 
     @Override
-    public Event deleteParticipant(Long eventId, Long userId) {
-        Event event = getEventById(eventId);
-        Account participant = userRepository.getOne(userId);
-        Set<User> participants = event.getParticipantsEvent();
-        participants.remove((User) participant);
-        event.setParticipantsEvent(participants);
-        return updateEvent(eventId, event);
+    public EventJoinResult deleteParticipant(Long eventId, Long userId) {
+        return eventService.leaveEvent(eventId, userId);
     }
 
     @Override
     public List<Event> getAllEventsByCity(String city) {
         return eventRepository.findAllByCity(city);
     }
+
+    @Override
+    public List<Event> getTrendingEventsByCity(String city, int limit) {
+        return eventService.getTrendingEvents(city, limit);
+    }
+
+    /**
+     * Ответ на создание и изменение строится отдельным запросом по нужным колонкам,
+     * а не сериализацией сохранённой сущности с её ленивыми связями
+     */
+    private EventView getEventView(Long id) {
+        return eventRepository.findViewById(id).orElseThrow(() -> new EventsNotFoundIdException(id));
+    }
 }
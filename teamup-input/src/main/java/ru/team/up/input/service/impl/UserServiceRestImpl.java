@@ -8,11 +8,15 @@ import ru.team.up.core.entity.User;
 import ru.team.up.core.exception.UserNotFoundEmailException;
 import ru.team.up.core.exception.UserNotFoundIDException;
 import ru.team.up.core.exception.UserNotFoundUsernameException;
+import ru.team.up.core.projections.InboxMessageView;
+import ru.team.up.core.projections.UserView;
 import ru.team.up.core.service.EventService;
+import ru.team.up.core.service.UserInboxService;
 import ru.team.up.core.service.UserService;
 import ru.team.up.input.payload.request.UserRequest;
 import ru.team.up.input.service.UserServiceRest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -27,6 +31,7 @@ public class UserServiceRestImpl implements UserServiceRest {
 
     private UserService userService;
     private EventService eventService;
+    private UserInboxService userInboxService;
 
     @Override
     public User getUserById(Long id) {
@@ -44,8 +49,8 @@ public class UserServiceRestImpl implements UserServiceRest {
     }
 
     @Override
-    public List<User> getAllUsers() {
-        return userService.getAllUsers();
+    public List<UserView> getAllUsers() {
+        return userService.getAllUserViews();
     }
 
     @Override
@@ -80,4 +85,24 @@ public class UserServiceRestImpl implements UserServiceRest {
     public List<User> getTopUsersInCity(String city) {
         return userService.getTopUsersInCity(city);
     }
+
+    @Override
+    public List<Event> getRecommendedEvents(Long id, int limit) {
+        return eventService.getRecommendedEvents(id, limit);
+    }
+
+    @Override
+    public List<InboxMessageView> getInbox(Long id, LocalDateTime beforeTime, Long beforeId, int limit) {
+        return userInboxService.getInbox(id, beforeTime, beforeId, limit);
+    }
+
+    @Override
+    public int countUnreadMessages(Long id) {
+        return userInboxService.countUnread(id);
+    }
+
+    @Override
+    public int markMessagesAsRead(Long id, List<Long> messageIds) {
+        return userInboxService.markAsRead(id, messageIds);
+    }
 }
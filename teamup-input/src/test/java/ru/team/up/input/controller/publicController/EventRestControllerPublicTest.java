@@ -9,12 +9,15 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import ru.team.up.core.entity.*;
 import ru.team.up.core.monitoring.service.MonitorProducerService;
-import ru.team.up.core.service.UserService;
+import ru.team.up.core.projections.EventJoinResult;
+import ru.team.up.core.projections.EventView;
+import ru.team.up.core.service.EventViewCounterService;
 import ru.team.up.dto.ControlDto;
 import ru.team.up.dto.ReportDto;
 import ru.team.up.input.exception.EventCheckException;
@@ -47,12 +50,13 @@ class EventRestControllerPublicTest {
     private MonitorProducerService monitoringProducerService;
 
     @Mock
-    private UserService userService;
+    private EventViewCounterService eventViewCounterService;
 
     @Spy
     @InjectMocks
     private EventRestControllerPublic eventRestControllerPublic =
-            new EventRestControllerPublic(eventServiceRest, wordMatcher, userService, monitoringProducerService);
+            new EventRestControllerPublic(eventServiceRest, wordMatcher, monitoringProducerService,
+                    eventViewCounterService);
 
     private List<Event> events;
     private JoinRequest joinRequest;
@@ -198,22 +202,42 @@ class EventRestControllerPublicTest {
         assertNotEquals(2, eventRestControllerPublic.getAllEventByCity("Футбол").getEventDtoList().size());
     }
 
+    @Test
+    void getTrendingEventsByCity() {
+        when(eventServiceRest.getTrendingEventsByCity("Moscow", 10)).thenReturn(events);
+        // OK
+        assertEquals(2, eventRestControllerPublic.getTrendingEventsByCity("Moscow", 10).getEventDtoList().size());
+        // В городе нет популярных мероприятий
+        assertEquals(0, eventRestControllerPublic.getTrendingEventsByCity("Краснодар", 10).getEventDtoList().size());
+    }
+
     @Test
     void findEventsByName() {
-        when(eventServiceRest.getEventByName("Event")).thenReturn(events);
+        when(eventServiceRest.getEventByName("Event", 0, 100)).thenReturn(events);
         // OK
-        assertEquals(2, eventRestControllerPublic.findEventsByName("Event").getEventDtoList().size());
+        assertEquals(2, eventRestControllerPublic.findEventsByName("Event", 0, 100).getEventDtoList().size());
         // Not OK
         assertNotEquals(4,
-                eventRestControllerPublic.findEventsByName("Event").getEventDtoList().size());
+                eventRestControllerPublic.findEventsByName("Event", 0, 100).getEventDtoList().size());
         // Неверный запрос
         assertNotEquals(2,
-                eventRestControllerPublic.findEventsByName("WrongEventName").getEventDtoList().size());
+                eventRestControllerPublic.findEventsByName("WrongEventName", 0, 100).getEventDtoList().size());
+    }
+
+    @Test
+    void searchEvents() {
+        when(eventServiceRest.searchEvents("футбол", "Moscow", null, null, 0, 20)).thenReturn(events);
+        // OK
+        assertEquals(2, eventRestControllerPublic.searchEvents("футбол", "Moscow", null, null, 0, 20)
+                .getEventDtoList().size());
+        // Ничего не найдено
+        assertEquals(0, eventRestControllerPublic.searchEvents("шахматы", null, null, null, 0, 20)
+                .getEventDtoList().size());
     }
 
     @Test
     void findEventsByAuthor() {
-        when(eventServiceRest.getAllEventsByAuthor(1L)).thenReturn(events);
+        when(eventServiceRest.getAllEventsByAuthor(1L)).thenReturn(List.of(eventView(event), eventView(event2)));
         // OK
         assertEquals(200, eventRestControllerPublic.findEventsByAuthor(userRequest).getStatusCodeValue());
         // Not OK
@@ -226,7 +250,7 @@ class EventRestControllerPublicTest {
 
     @Test
     void findEventsByType() {
-        when(eventServiceRest.getAllEventsByEventType(eventType)).thenReturn(events);
+        when(eventServiceRest.getAllEventsByEventType(eventType)).thenReturn(List.of(eventView(event)));
         // OK
         assertEquals(200, eventRestControllerPublic.findEventsByType(eventType).getStatusCodeValue());
         // Неверный запрос
@@ -235,9 +259,11 @@ class EventRestControllerPublicTest {
 
     @Test
     void createEvent() {
-        when(eventServiceRest.saveEvent(event2)).thenReturn(event2);
+        when(eventServiceRest.saveEvent(event2)).thenReturn(eventView(event2));
         // OK
         assertEquals(201, eventRestControllerPublic.createEvent(eventRequest2).getStatusCodeValue());
+        // В ответе представление мероприятия, а не сущность
+        assertEquals("alextk", eventRestControllerPublic.createEvent(eventRequest2).getBody().getAuthorUsername());
         // Неверный запрос
         assertThrows(NullPointerException.class, ()-> eventRestControllerPublic.createEvent(new EventRequest()));
         // Нет плохих слов
@@ -281,7 +307,7 @@ class EventRestControllerPublicTest {
 
     @Test
     void updateEvent() {
-        when(eventServiceRest.updateEvent(event.getId(), event)).thenReturn(event);
+        when(eventServiceRest.updateEvent(event.getId(), event)).thenReturn(eventView(event));
         assertEquals(200, eventRestControllerPublic.updateEvent(eventRequest2, 1L).getStatusCodeValue());
         assertThrows(NullPointerException.class, ()-> eventRestControllerPublic.updateEvent(new EventRequest(), 1L));
     }
@@ -297,18 +323,44 @@ class EventRestControllerPublicTest {
 
     @Test
     void addEventParticipant() {
-        when(eventServiceRest.addParticipant(1L, 1L)).thenReturn(event);
+        when(eventServiceRest.addParticipant(1L, 1L)).thenReturn(joinResult(EventJoinResult.JoinStatus.JOINED));
         // OK
         assertEquals(200, eventRestControllerPublic.addEventParticipant(joinRequest).getStatusCodeValue());
+        // Нет свободных мест
+        when(eventServiceRest.addParticipant(1L, 1L)).thenReturn(joinResult(EventJoinResult.JoinStatus.EVENT_FULL));
+        assertEquals(409, eventRestControllerPublic.addEventParticipant(joinRequest).getStatusCodeValue());
         // Неверный запрос
         assertThrows(NullPointerException.class, ()-> eventRestControllerPublic.addEventParticipant(emptyJoinRequest));
     }
 
     @Test
     void deleteEventParticipant() {
-        when(eventServiceRest.deleteParticipant(1L, 1L)).thenReturn(event);
+        when(eventServiceRest.deleteParticipant(1L, 1L)).thenReturn(joinResult(EventJoinResult.JoinStatus.LEFT));
         assertEquals(200, eventRestControllerPublic.deleteEventParticipant(joinRequest).getStatusCodeValue());
+        // Пользователь не участвует в мероприятии
+        when(eventServiceRest.deleteParticipant(1L, 1L))
+                .thenReturn(joinResult(EventJoinResult.JoinStatus.NOT_PARTICIPANT));
+        ResponseEntity<EventJoinResult> notParticipant = eventRestControllerPublic.deleteEventParticipant(joinRequest);
+        assertEquals(200, notParticipant.getStatusCodeValue());
+        assertEquals(EventJoinResult.JoinStatus.NOT_PARTICIPANT, notParticipant.getBody().getStatus());
         assertThrows(NullPointerException.class,
                 ()-> eventRestControllerPublic.deleteEventParticipant(emptyJoinRequest));
     }
-}
\ No newline at end of file
+
+    private EventJoinResult joinResult(EventJoinResult.JoinStatus status) {
+        return EventJoinResult.builder()
+                .eventId(1L)
+                .userId(1L)
+                .status(status)
+                .participantsCount(1L)
+                .capacity(10)
+                .build();
+    }
+
+    private EventView eventView(Event event) {
+        return new EventView(event.getId(), event.getEventName(), event.getDescriptionEvent(), event.getPlaceEvent(),
+                event.getCity(), event.getTimeEvent(), event.getTimeEndEvent(), event.getEventPrivacy(),
+                event.getEventNumberOfParticipant(), event.getCountViewEvent(), event.getEventType().getType(),
+                event.getStatus().getStatus(), event.getAuthorId().getId(), event.getAuthorId().getUsername());
+    }
+}
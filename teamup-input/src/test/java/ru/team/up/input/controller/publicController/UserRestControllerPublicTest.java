@@ -8,11 +8,15 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import ru.team.up.core.entity.*;
 import ru.team.up.core.monitoring.service.MonitorProducerService;
+import ru.team.up.core.projections.InboxMessageView;
+import ru.team.up.core.projections.UserView;
+import ru.team.up.core.service.EventViewCounterService;
 import ru.team.up.input.payload.request.UserRequest;
 import ru.team.up.input.service.UserServiceRest;
 
@@ -36,9 +40,12 @@ class UserRestControllerPublicTest {
     @Mock
     private MonitorProducerService monitoringProducerService;
 
+    @Mock
+    private EventViewCounterService eventViewCounterService;
+
     @InjectMocks
     private UserRestControllerPublic userRestControllerPublic =
-            new UserRestControllerPublic(userServiceRest, monitoringProducerService);
+            new UserRestControllerPublic(userServiceRest, monitoringProducerService, eventViewCounterService);
 
     private User testUser;
     private List<User> userList;
@@ -135,10 +142,11 @@ class UserRestControllerPublicTest {
 
     @Test
     void getUsersList() {
-        when(userServiceRest.getAllUsers()).thenReturn(userList);
+        List<UserView> userViews = new ArrayList<>();
+        when(userServiceRest.getAllUsers()).thenReturn(userViews);
         // С пустым списком
         assertThrows(RuntimeException.class, ()-> userRestControllerPublic.getUsersList());
-        userList.add(testUser);
+        userViews.add(new SpelAwareProxyProjectionFactory().createProjection(UserView.class, testUser));
         // ОК
         assertEquals(1, userRestControllerPublic.getUsersList().size());
         // Not OK
@@ -169,6 +177,31 @@ class UserRestControllerPublicTest {
         assertNotEquals(2, userRestControllerPublic.getEventsBySubscriberId(2L).getEventDtoList().size());
     }
 
+    @Test
+    void getRecommendedEvents() {
+        when(userServiceRest.getRecommendedEvents(1L, 10)).thenReturn(eventList);
+        // Нет рекомендаций
+        assertEquals(0, userRestControllerPublic.getRecommendedEvents(1L, 10).getEventDtoList().size());
+        eventList.add(event);
+        // ОК
+        assertEquals(1, userRestControllerPublic.getRecommendedEvents(1L, 10).getEventDtoList().size());
+        // Некорректный размер выдачи
+        assertThrows(IllegalArgumentException.class, () -> userRestControllerPublic.getRecommendedEvents(1L, 0));
+    }
+
+    @Test
+    void getInbox() {
+        LocalDateTime beforeTime = LocalDateTime.of(2022, 1, 1, 12, 0);
+        InboxMessageView message = mock(InboxMessageView.class);
+        when(userServiceRest.getInbox(1L, beforeTime, 5L, 20)).thenReturn(List.of(message));
+        // Следующая страница после сообщения с id 5
+        assertEquals(List.of(message), userRestControllerPublic.getInbox(1L, beforeTime, 5L, 20));
+        when(userServiceRest.countUnreadMessages(1L)).thenReturn(3);
+        assertEquals(3, userRestControllerPublic.countUnreadMessages(1L));
+        when(userServiceRest.markMessagesAsRead(1L, List.of(5L))).thenReturn(1);
+        assertEquals(1, userRestControllerPublic.markMessagesAsRead(1L, List.of(5L)));
+    }
+
     @Test
     void updateUser() {
         when(userServiceRest.updateUser(userRequest, testUser.getId())).thenReturn(testUser);
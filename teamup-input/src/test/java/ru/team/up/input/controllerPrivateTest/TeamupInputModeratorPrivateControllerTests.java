@@ -12,8 +12,10 @@ import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import ru.team.up.core.entity.Account;
 import ru.team.up.core.entity.Moderator;
+import ru.team.up.core.projections.AccountView;
 import ru.team.up.core.service.ModeratorService;
 import ru.team.up.input.controller.privateController.ModeratorController;
 
@@ -54,7 +56,7 @@ public class TeamupInputModeratorPrivateControllerTests {
             .amountOfClosedRequests(12L)
             .build();
 
-    ArrayList<Account> listModerator = new ArrayList<>();
+    ArrayList<AccountView> listModerator = new ArrayList<>();
 
     @Test
     public void testCreateModerator() {
@@ -70,7 +72,7 @@ public class TeamupInputModeratorPrivateControllerTests {
 
     @Test
     public void testGetAllModerator() {
-        listModerator.add(moderator);
+        listModerator.add(new SpelAwareProxyProjectionFactory().createProjection(AccountView.class, moderator));
         when(moderatorService.getAllModerators()).thenReturn(listModerator);
         Assert.assertEquals(200, moderatorController.getAllModerators().getStatusCodeValue());
     }
@@ -8,8 +8,10 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import ru.team.up.core.entity.Interests;
 import ru.team.up.core.entity.User;
+import ru.team.up.core.projections.UserView;
 import ru.team.up.input.controller.privateController.UserController;
 import ru.team.up.input.service.UserServiceRest;
 
@@ -18,6 +20,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
@@ -98,7 +101,8 @@ public class TeamupInputUserPrivateControllerTest {
     @Test
     public void testGetAllUser() {
         listUser.add(testUser);
-        when(userService.getAllUsers()).thenReturn(listUser);
+        when(userService.getAllUsers()).thenReturn(List.of(
+                new SpelAwareProxyProjectionFactory().createProjection(UserView.class, testUser)));
         Assert.assertEquals(200, userController.getAllUsers().getStatusCodeValue());
     }
 
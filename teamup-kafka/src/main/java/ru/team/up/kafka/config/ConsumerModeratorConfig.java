@@ -8,7 +8,10 @@ import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
 import com.fasterxml.jackson.databind.module.SimpleAbstractTypeResolver;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -16,19 +19,33 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.RecoveringBatchErrorHandler;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.util.backoff.FixedBackOff;
 import ru.team.up.core.entity.Account;
 import ru.team.up.dto.KafkaEventDto;
+import ru.team.up.kafka.serialization.KafkaEventDeserializer;
 import ru.team.up.moderator.payload.AssignedEventPayload;
 import ru.team.up.payload.Payload;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 /**
- * Конфигурация consumer kafka для модераторов
+ * Конфигурация consumer kafka для модераторов.
+ * Основной топик читается пачками несколькими консьюмерами, топик повторной обработки - по одному событию
+ * с ручным подтверждением, чтобы откладывать события без остановки основного топика.
+ * События для websocket-сессий читаются консьюмером в собственной группе экземпляра, поэтому доходят до каждого
+ * экземпляра с ролью websocket, и повторяются на нём же
  */
 
 @Configuration
@@ -48,8 +65,40 @@ public class ConsumerModeratorConfig {
     @Value(value = "${kafka.server.address}")
     private String kafkaServer;
 
+    @Value("${kafka.topic.retry.name}")
+    private String retryTopic;
+
+    @Value("${kafka.topic.dlt.name}")
+    private String deadLetterTopic;
+
+    @Value("${kafka.listener.concurrency}")
+    private int concurrency;
+
+    @Value("${kafka.listener.max.poll.records}")
+    private int maxPollRecords;
+
+    @Value("${kafka.retry.backoff}")
+    private long retryBackoff;
+
+    @Value("${kafka.retry.attempts}")
+    private long retryAttempts;
+
     @Bean
     public ConsumerFactory<String, KafkaEventDto> consumerFactory() {
+        return createConsumerFactory(kafkaGroupId, Map.of());
+    }
+
+    /**
+     * Группа консьюмеров уникальна для экземпляра приложения, поэтому каждый экземпляр получает все события.
+     * Новая группа читает топик с конца: назначения, отправленные до запуска экземпляра, модератор получит из БД
+     */
+    @Bean
+    public ConsumerFactory<String, KafkaEventDto> pushConsumerFactory() {
+        return createConsumerFactory(kafkaGroupId + "-push-" + UUID.randomUUID(),
+                Map.of(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest"));
+    }
+
+    private ConsumerFactory<String, KafkaEventDto> createConsumerFactory(String groupId, Map<String, Object> overrides) {
 
         ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
@@ -66,17 +115,22 @@ public class ConsumerModeratorConfig {
 
         mapper.registerModule(module);
 
-        JsonDeserializer<KafkaEventDto> deserializer = new JsonDeserializer<>(mapper);
-        deserializer.addTrustedPackages("*");
-        deserializer.setRemoveTypeHeaders(false);
-        deserializer.setUseTypeMapperForKey(false);
+        JsonDeserializer<KafkaEventDto> jsonDeserializer = new JsonDeserializer<>(mapper);
+        jsonDeserializer.addTrustedPackages("*");
+        jsonDeserializer.setRemoveTypeHeaders(false);
+        jsonDeserializer.setUseTypeMapperForKey(false);
+        // Событие, которое не удалось десериализовать, приходит со значением null и отправляется в DLT,
+        // а не читается повторно бесконечно. Читаются события и в JSON, и в двоичном формате
+        ErrorHandlingDeserializer<KafkaEventDto> deserializer =
+                new ErrorHandlingDeserializer<>(new KafkaEventDeserializer(jsonDeserializer));
 
         Map<String, Object> config = new HashMap<>();
         config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, mapper);
         config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, deserializer);
-        config.put(ConsumerConfig.GROUP_ID_CONFIG, kafkaGroupId);
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaServer);
-
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        config.putAll(overrides);
 
         return new DefaultKafkaConsumerFactory<>(config, new StringDeserializer(), deserializer);
     }
@@ -86,9 +140,57 @@ public class ConsumerModeratorConfig {
         ConcurrentKafkaListenerContainerFactory<String, KafkaEventDto> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
+        // Ошибка отправки в топик повторной обработки: события пачки до ошибочного подтверждаются,
+        // ошибочное читается заново ограниченное число раз
+        factory.setBatchErrorHandler(new RecoveringBatchErrorHandler(new FixedBackOff(retryBackoff, retryAttempts)));
+        return factory;
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, KafkaEventDto> retryKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, KafkaEventDto> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        return factory;
+    }
+
+    /**
+     * Сессии модератора открыты только на этом экземпляре, поэтому событие, которое не удалось отправить в них,
+     * повторяется здесь же, а не через общий топик повторной обработки. После исчерпания попыток событие
+     * отправляется в DLT
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, KafkaEventDto> pushKafkaListenerContainerFactory(
+            KafkaTemplate<String, KafkaEventDto> kafkaTemplate) {
+        ConcurrentKafkaListenerContainerFactory<String, KafkaEventDto> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(pushConsumerFactory());
+        factory.setBatchListener(true);
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, e) -> new TopicPartition(deadLetterTopic, -1));
+        factory.setBatchErrorHandler(new RecoveringBatchErrorHandler(recoverer,
+                new FixedBackOff(retryBackoff, retryAttempts)));
         return factory;
     }
 
+    @Bean
+    public KafkaAdmin kafkaAdmin() {
+        return new KafkaAdmin(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaServer));
+    }
+
+    @Bean
+    public NewTopic retryTopic() {
+        return TopicBuilder.name(retryTopic).build();
+    }
+
+    @Bean
+    public NewTopic deadLetterTopic() {
+        return TopicBuilder.name(deadLetterTopic).build();
+    }
+
     // Игнор свойств суперкласса(в данном случае игнор свойств Account, которые есть у Moderator)
     public static class IgnoreInheritedIntrospector extends JacksonAnnotationIntrospector {
         @Override
@@ -10,14 +10,18 @@ import org.springframework.context.annotation.PropertySource;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.JsonSerializer;
 import ru.team.up.dto.KafkaEventDto;
+import ru.team.up.kafka.serialization.KafkaEventSerializer;
 
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Конфигурация producer kafka для модераторов
+ * Конфигурация producer kafka для модераторов.
+ * События небольшие и отправляются пачками при распределении мероприятий, поэтому producer
+ * немного ждёт перед отправкой, собирает события в пакеты и сжимает их. Идемпотентность исключает
+ * дубли при повторных отправках и сохраняет порядок событий одного ключа.
+ * Формат событий (JSON или двоичный) задаётся в kafka.properties
  */
 
 @Configuration
@@ -29,12 +33,40 @@ public class ProducerModeratorConfig {
     @Value(value = "${kafka.server.address}")
     private String kafkaServer;
 
+    @Value("${kafka.producer.acks}")
+    private String acks;
+
+    @Value("${kafka.producer.idempotence}")
+    private boolean idempotence;
+
+    @Value("${kafka.producer.linger.ms}")
+    private int lingerMs;
+
+    @Value("${kafka.producer.batch.size}")
+    private int batchSize;
+
+    @Value("${kafka.producer.compression.type}")
+    private String compressionType;
+
+    @Value("${kafka.producer.max.in.flight}")
+    private int maxInFlight;
+
+    @Value("${kafka.producer.event.format}")
+    private String eventFormat;
+
     @Bean
     public Map<String, Object> producerConfigs() {
         Map<String, Object> props = new HashMap<>();
         props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaServer);
         props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, KafkaEventSerializer.class);
+        props.put(KafkaEventSerializer.FORMAT_CONFIG, eventFormat);
+        props.put(ProducerConfig.ACKS_CONFIG, acks);
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, idempotence);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        props.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, maxInFlight);
         return props;
     }
 
@@ -6,4 +6,8 @@ public class IncorrectKafkaEventTypeException extends IllegalArgumentException {
         super();
     }
 
+    public IncorrectKafkaEventTypeException(String message) {
+        super(message);
+    }
+
 }
@@ -1,6 +1,7 @@
 package ru.team.up.kafka.processors;
 
 import ru.team.up.dto.KafkaEventDto;
+import ru.team.up.dto.KafkaEventTypeDto;
 
 /**
  * Интерфейс для процессоров обработки событий KafkaEventDto
@@ -8,6 +9,11 @@ import ru.team.up.dto.KafkaEventDto;
 
 public interface KafkaEventProcessor {
 
+    /**
+     * Тип событий, которые обрабатывает процессор
+     */
+    KafkaEventTypeDto getEventType();
+
     /**
      * Метод обработки события
      */
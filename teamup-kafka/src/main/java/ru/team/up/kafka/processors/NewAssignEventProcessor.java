@@ -1,29 +1,39 @@
 package ru.team.up.kafka.processors;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.team.up.dto.KafkaEventDto;
 import ru.team.up.dto.KafkaEventTypeDto;
-import ru.team.up.websocket.endpoint.ModeratorAssignEndpoint;
+import ru.team.up.moderator.payload.AssignedEventPayload;
+import ru.team.up.websocket.payload.ModeratorMessage;
+import ru.team.up.websocket.service.ModeratorSessionRegistry;
 
-import javax.websocket.DeploymentException;
-import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.List;
 
 /**
- * Процессор для обработки события "Назначение нового мероприятия на модератора"
+ * Процессор для обработки события "Назначение нового мероприятия на модератора".
+ * Модератору отправляется только новое мероприятие в уже открытые websocket-сессии через реестр сессий.
+ * Сессии есть только на экземплярах с ролью websocket, событие получает каждый из них через ModeratorPushListener.
  */
 
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "teamup.node.role.websocket", matchIfMissing = true)
 public class NewAssignEventProcessor implements KafkaEventProcessor {
 
-    @Value("${websocket.moderator.connect.uri}")
-    private String moderatorConnectUri;
+    private final ModeratorSessionRegistry moderatorSessionRegistry;
+
+    @Autowired
+    public NewAssignEventProcessor(ModeratorSessionRegistry moderatorSessionRegistry) {
+        this.moderatorSessionRegistry = moderatorSessionRegistry;
+    }
+
+    @Override
+    public KafkaEventTypeDto getEventType() {
+        return KafkaEventTypeDto.NEW_ASSIGN_EVENT;
+    }
 
     /**
      * Метод обработки события "Назначение нового мероприятия на модератора"
@@ -31,32 +41,21 @@ public class NewAssignEventProcessor implements KafkaEventProcessor {
     @Override
     public void perform(KafkaEventDto kafkaEventDto) {
         log.debug("Старт обработки события назначения модератора на проверку ивента");
-        ObjectMapper mapper = new ObjectMapper();
-        String kafkaEventString = null;
-        try {
-            log.debug("Перевод KafkaEventDto в методе NewAssignEventProcessor.perform в строку");
-            kafkaEventString = mapper.writeValueAsString(kafkaEventDto);
-        } catch (JsonProcessingException e) {
-            e.printStackTrace();
+        if (!(kafkaEventDto.getPayload() instanceof AssignedEventPayload)) {
+            log.error("Событие назначения модератора без данных о назначении: {}", kafkaEventDto);
+            return;
         }
-
-        log.debug("Создание эндпоинта и подключение к вебсокету...");
-        try {
-            URI uri = new URI(moderatorConnectUri);
-            ModeratorAssignEndpoint endpoint = new ModeratorAssignEndpoint(uri);
-
-            log.debug("Отправка kafkaEventDto на вебсокет...");
-            endpoint.sendMessage(kafkaEventString);
-        } catch (URISyntaxException e) {
-            log.error("Ошибка в URI в методе perform NewAssignEventProcessor");
-            e.printStackTrace();
-        } catch (DeploymentException e) {
-            log.error("DeploymentException: " + e.getMessage());
-            e.printStackTrace();
-        } catch (IOException e) {
-            log.error("Ошибка при подключении к websocket в методе perform NewAssignEventProcessor");
-            log.debug(e.getMessage());
-            e.printStackTrace();
+        AssignedEventPayload payload = (AssignedEventPayload) kafkaEventDto.getPayload();
+        if (payload.getVersion() > AssignedEventPayload.CURRENT_VERSION) {
+            log.error("Неподдерживаемая версия {} события назначения модератора: {}", payload.getVersion(),
+                    kafkaEventDto);
+            return;
         }
+        Long moderatorId = payload.getModeratorId();
+
+        // Если модератор не подключён, он получит назначение из БД при следующем запросе списка
+        int delivered = moderatorSessionRegistry.push(moderatorId,
+                ModeratorMessage.assigned(List.of(payload.getEvent())));
+        log.debug("Назначение отправлено модератору с ID {} в {} сессий", moderatorId, delivered);
     }
 }
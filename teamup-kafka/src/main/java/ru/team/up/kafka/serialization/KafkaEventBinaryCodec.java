@@ -0,0 +1,263 @@
+package ru.team.up.kafka.serialization;
+
+import org.apache.kafka.common.errors.SerializationException;
+import ru.team.up.core.projections.ModeratorEventView;
+import ru.team.up.dto.KafkaEventDto;
+import ru.team.up.dto.KafkaEventTypeDto;
+import ru.team.up.moderator.payload.AssignedEventPayload;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Компактный двоичный формат событий kafka для модераторов.
+ * <p>
+ * Сообщение начинается с байта {@link #MAGIC}, которым не может начинаться JSON, и версии схемы.
+ * Далее тип события, тип полезной нагрузки и сама нагрузка. Каждый объект начинается с битовой маски
+ * заполненных полей, пустые поля не записываются. Числа записываются в формате varint (zigzag),
+ * строки - длиной и байтами UTF-8, дата и время - секундами от эпохи UTC и наносекундами.
+ * Новые поля добавляются в конец объекта с новым битом маски, старые поля не удаляются и не переставляются
+ */
+final class KafkaEventBinaryCodec {
+
+    static final byte MAGIC = 0;
+    static final byte VERSION = 1;
+
+    private static final byte NO_PAYLOAD = 0;
+    private static final byte ASSIGNED_EVENT_PAYLOAD = 1;
+
+    private KafkaEventBinaryCodec() {
+    }
+
+    static boolean isBinary(byte[] data) {
+        return data != null && data.length > 1 && data[0] == MAGIC;
+    }
+
+    /**
+     * @return Поддерживает ли формат нагрузку события
+     */
+    static boolean supports(KafkaEventDto event) {
+        return event.getPayload() == null || event.getPayload() instanceof AssignedEventPayload;
+    }
+
+    static byte[] encode(KafkaEventDto event) {
+        Writer out = new Writer();
+        out.write(MAGIC);
+        out.write(VERSION);
+
+        KafkaEventTypeDto type = event.getKafkaEventTypeDto();
+        out.writeMask(type != null);
+        if (type != null) {
+            out.writeString(type.name());
+        }
+
+        if (event.getPayload() == null) {
+            out.write(NO_PAYLOAD);
+        } else {
+            out.write(ASSIGNED_EVENT_PAYLOAD);
+            writeAssignedEventPayload(out, (AssignedEventPayload) event.getPayload());
+        }
+        return out.toByteArray();
+    }
+
+    static KafkaEventDto decode(byte[] data) {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(data);
+            in.get();
+            byte version = in.get();
+            if (version > VERSION) {
+                throw new SerializationException("Неподдерживаемая версия двоичного формата события: " + version);
+            }
+
+            KafkaEventDto event = new KafkaEventDto();
+            long mask = readVarLong(in);
+            if (has(mask, 0)) {
+                event.setKafkaEventTypeDto(KafkaEventTypeDto.valueOf(readString(in)));
+            }
+
+            byte payloadType = in.get();
+            if (payloadType == ASSIGNED_EVENT_PAYLOAD) {
+                event.setPayload(readAssignedEventPayload(in));
+            } else if (payloadType != NO_PAYLOAD) {
+                throw new SerializationException("Неизвестный тип нагрузки события: " + payloadType);
+            }
+            return event;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new SerializationException("Повреждённое событие в двоичном формате", e);
+        }
+    }
+
+    private static void writeAssignedEventPayload(Writer out, AssignedEventPayload payload) {
+        ModeratorEventView event = payload.getEvent();
+        out.writeMask(true, payload.getModeratorId() != null, event != null);
+        out.writeLong(payload.getVersion());
+        if (payload.getModeratorId() != null) {
+            out.writeLong(payload.getModeratorId());
+        }
+        if (event != null) {
+            writeModeratorEventView(out, event);
+        }
+    }
+
+    private static AssignedEventPayload readAssignedEventPayload(ByteBuffer in) {
+        AssignedEventPayload payload = new AssignedEventPayload();
+        long mask = readVarLong(in);
+        if (has(mask, 0)) {
+            payload.setVersion((int) readLong(in));
+        }
+        if (has(mask, 1)) {
+            payload.setModeratorId(readLong(in));
+        }
+        if (has(mask, 2)) {
+            payload.setEvent(readModeratorEventView(in));
+        }
+        return payload;
+    }
+
+    private static void writeModeratorEventView(Writer out, ModeratorEventView event) {
+        out.writeMask(event.getId() != null, event.getEventName() != null, event.getPlaceEvent() != null,
+                event.getCity() != null, event.getTimeEvent() != null, event.getTimeEndEvent() != null,
+                event.getEventType() != null, event.getAuthorId() != null, event.getAuthorUsername() != null);
+        if (event.getId() != null) {
+            out.writeLong(event.getId());
+        }
+        if (event.getEventName() != null) {
+            out.writeString(event.getEventName());
+        }
+        if (event.getPlaceEvent() != null) {
+            out.writeString(event.getPlaceEvent());
+        }
+        if (event.getCity() != null) {
+            out.writeString(event.getCity());
+        }
+        if (event.getTimeEvent() != null) {
+            out.writeDateTime(event.getTimeEvent());
+        }
+        if (event.getTimeEndEvent() != null) {
+            out.writeDateTime(event.getTimeEndEvent());
+        }
+        if (event.getEventType() != null) {
+            out.writeString(event.getEventType());
+        }
+        if (event.getAuthorId() != null) {
+            out.writeLong(event.getAuthorId());
+        }
+        if (event.getAuthorUsername() != null) {
+            out.writeString(event.getAuthorUsername());
+        }
+    }
+
+    private static ModeratorEventView readModeratorEventView(ByteBuffer in) {
+        ModeratorEventView event = new ModeratorEventView();
+        long mask = readVarLong(in);
+        if (has(mask, 0)) {
+            event.setId(readLong(in));
+        }
+        if (has(mask, 1)) {
+            event.setEventName(readString(in));
+        }
+        if (has(mask, 2)) {
+            event.setPlaceEvent(readString(in));
+        }
+        if (has(mask, 3)) {
+            event.setCity(readString(in));
+        }
+        if (has(mask, 4)) {
+            event.setTimeEvent(readDateTime(in));
+        }
+        if (has(mask, 5)) {
+            event.setTimeEndEvent(readDateTime(in));
+        }
+        if (has(mask, 6)) {
+            event.setEventType(readString(in));
+        }
+        if (has(mask, 7)) {
+            event.setAuthorId(readLong(in));
+        }
+        if (has(mask, 8)) {
+            event.setAuthorUsername(readString(in));
+        }
+        return event;
+    }
+
+    private static boolean has(long mask, int field) {
+        return (mask & (1L << field)) != 0;
+    }
+
+    private static long readLong(ByteBuffer in) {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Слишком длинное число в двоичном формате события");
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new SerializationException("Некорректная длина строки в двоичном формате события: " + length);
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static LocalDateTime readDateTime(ByteBuffer in) {
+        long epochSecond = readLong(in);
+        int nano = (int) readVarLong(in);
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    private static class Writer extends ByteArrayOutputStream {
+
+        private Writer() {
+            super(128);
+        }
+
+        private void writeMask(boolean... fields) {
+            long mask = 0;
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i]) {
+                    mask |= 1L << i;
+                }
+            }
+            writeVarLong(mask);
+        }
+
+        private void writeLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        private void writeDateTime(LocalDateTime value) {
+            writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            writeVarLong(value.getNano());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package ru.team.up.kafka.serialization;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import ru.team.up.dto.KafkaEventDto;
+
+import java.util.Map;
+
+/**
+ * Десериализатор событий kafka для модераторов. Двоичные события разбираются {@link KafkaEventBinaryCodec},
+ * остальные передаются JSON-десериализатору, поэтому во время перехода читаются события обоих форматов
+ */
+public class KafkaEventDeserializer implements Deserializer<KafkaEventDto> {
+
+    private final Deserializer<KafkaEventDto> jsonDeserializer;
+
+    public KafkaEventDeserializer(Deserializer<KafkaEventDto> jsonDeserializer) {
+        this.jsonDeserializer = jsonDeserializer;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        jsonDeserializer.configure(configs, isKey);
+    }
+
+    @Override
+    public KafkaEventDto deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public KafkaEventDto deserialize(String topic, Headers headers, byte[] data) {
+        if (KafkaEventBinaryCodec.isBinary(data)) {
+            return KafkaEventBinaryCodec.decode(data);
+        }
+        return headers == null ? jsonDeserializer.deserialize(topic, data)
+                : jsonDeserializer.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
@@ -0,0 +1,16 @@
+package ru.team.up.kafka.serialization;
+
+/**
+ * Формат, в котором producer записывает события в kafka.
+ * Консьюмер определяет формат по первому байту сообщения и читает оба
+ */
+public enum KafkaEventFormat {
+    /**
+     * JSON с заголовками типа, как раньше
+     */
+    JSON,
+    /**
+     * Компактный двоичный формат с версией схемы
+     */
+    BINARY
+}
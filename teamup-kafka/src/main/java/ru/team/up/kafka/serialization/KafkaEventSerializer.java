@@ -0,0 +1,54 @@
+package ru.team.up.kafka.serialization;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import ru.team.up.dto.KafkaEventDto;
+
+import java.util.Map;
+
+/**
+ * Сериализатор событий kafka для модераторов. Формат задаётся свойством {@link #FORMAT_CONFIG} конфигурации producer.
+ * Событие, которое двоичный формат не поддерживает, записывается в JSON
+ */
+public class KafkaEventSerializer implements Serializer<KafkaEventDto> {
+
+    public static final String FORMAT_CONFIG = "teamup.kafka.event.format";
+
+    private final JsonSerializer<KafkaEventDto> jsonSerializer = new JsonSerializer<>();
+    private KafkaEventFormat format = KafkaEventFormat.JSON;
+
+    public KafkaEventSerializer() {
+    }
+
+    public KafkaEventSerializer(KafkaEventFormat format) {
+        this.format = format;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Object configured = configs.get(FORMAT_CONFIG);
+        if (configured != null) {
+            format = KafkaEventFormat.valueOf(configured.toString().trim().toUpperCase());
+        }
+        jsonSerializer.configure(configs, isKey);
+    }
+
+    @Override
+    public byte[] serialize(String topic, KafkaEventDto data) {
+        return serialize(topic, null, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, KafkaEventDto data) {
+        if (data != null && format == KafkaEventFormat.BINARY && KafkaEventBinaryCodec.supports(data)) {
+            return KafkaEventBinaryCodec.encode(data);
+        }
+        return headers == null ? jsonSerializer.serialize(topic, data) : jsonSerializer.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        jsonSerializer.close();
+    }
+}
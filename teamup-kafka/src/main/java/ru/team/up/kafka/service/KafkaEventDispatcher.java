@@ -1,11 +1,17 @@
 package ru.team.up.kafka.service;
 
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.support.Acknowledgment;
 import ru.team.up.dto.KafkaEventDto;
 
+import java.util.List;
+
 /**
  * Интерфейс для диспетчера событий KafkaEventDto
  */
 
 public interface KafkaEventDispatcher {
-    void listen(KafkaEventDto kafkaEvent);
+    void listen(List<ConsumerRecord<String, KafkaEventDto>> records);
+
+    void retry(ConsumerRecord<String, KafkaEventDto> record, Acknowledgment acknowledgment);
 }
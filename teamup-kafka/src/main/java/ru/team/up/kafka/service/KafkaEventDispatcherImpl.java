@@ -1,48 +1,201 @@
 package ru.team.up.kafka.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.PropertySource;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 import ru.team.up.dto.KafkaEventDto;
 import ru.team.up.dto.KafkaEventTypeDto;
 import ru.team.up.kafka.exception.IncorrectKafkaEventTypeException;
 import ru.team.up.kafka.processors.KafkaEventProcessor;
-import ru.team.up.kafka.processors.NewAssignEventProcessor;
 
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
- * Класс-диспетчер, который получает события их Kafka и распределяет их по процессорам
+ * Класс-диспетчер, который получает события их Kafka и распределяет их по процессорам.
+ * <p>
+ * Основной топик читается пачками. Событие, обработка которого завершилась ошибкой, не останавливает
+ * раздел, а отправляется в топик повторной обработки. Там оно обрабатывается отдельным консьюмером
+ * после задержки, растущей с номером попытки, и после исчерпания попыток попадает в DLT.
+ * События неизвестного типа и события, которые не удалось десериализовать, сразу отправляются в DLT.
+ * Процессоры берутся из контекста Spring по типу события, которое они обрабатывают.
+ * Отставание консьюмеров публикуется самим клиентом Kafka в JMX (метрика records-lag-max).
+ * Консьюмеры запускаются только на экземплярах с ролью kafka-worker.
+ * События из kafka.push.event.types пропускаются: их на каждом экземпляре с ролью websocket
+ * обрабатывает {@link ModeratorPushListener}, с повторами на том же экземпляре и отправкой в тот же DLT.
  */
 
 @Slf4j
 @Component
-public class KafkaEventDispatcherImpl implements KafkaEventDispatcher{
+@ConditionalOnProperty(name = "teamup.node.role.kafka-worker", matchIfMissing = true)
+@PropertySource("classpath:kafka.properties")
+public class KafkaEventDispatcherImpl implements KafkaEventDispatcher {
 
-    private KafkaTemplate kafkaTemplate;
-    private Map<KafkaEventTypeDto, KafkaEventProcessor> kafkaEventProcessorMap;
+    static final String ATTEMPT_HEADER = "teamup-retry-attempt";
+    static final String ERROR_HEADER = "teamup-error";
+
+    private static final long SEND_TIMEOUT_SECONDS = 10;
+
+    private final KafkaTemplate<String, KafkaEventDto> kafkaTemplate;
+    private final Map<KafkaEventTypeDto, KafkaEventProcessor> kafkaEventProcessorMap =
+            new EnumMap<>(KafkaEventTypeDto.class);
+    private final Set<KafkaEventTypeDto> pushEventTypes = EnumSet.noneOf(KafkaEventTypeDto.class);
+    private final String retryTopic;
+    private final String deadLetterTopic;
+    private final int retryAttempts;
+    private final long retryBackoff;
 
     @Autowired
-    public KafkaEventDispatcherImpl(KafkaTemplate kafkaTemplate) {
+    public KafkaEventDispatcherImpl(KafkaTemplate<String, KafkaEventDto> kafkaTemplate,
+                                    List<KafkaEventProcessor> kafkaEventProcessors,
+                                    @Value("${kafka.topic.retry.name}") String retryTopic,
+                                    @Value("${kafka.topic.dlt.name}") String deadLetterTopic,
+                                    @Value("${kafka.retry.attempts}") int retryAttempts,
+                                    @Value("${kafka.retry.backoff}") long retryBackoff,
+                                    @Value("${kafka.push.event.types}") String[] pushEventTypes) {
         this.kafkaTemplate = kafkaTemplate;
-        kafkaEventProcessorMap = new ConcurrentHashMap<>();
-        // добавление процессора для обработки события назначения модератору ивента на проверку
-        kafkaEventProcessorMap.put(KafkaEventTypeDto.NEW_ASSIGN_EVENT, new NewAssignEventProcessor());
+        this.retryTopic = retryTopic;
+        this.deadLetterTopic = deadLetterTopic;
+        this.retryAttempts = retryAttempts;
+        this.retryBackoff = retryBackoff;
+
+        for (String pushEventType : pushEventTypes) {
+            this.pushEventTypes.add(KafkaEventTypeDto.valueOf(pushEventType.trim()));
+        }
+        for (KafkaEventProcessor processor : kafkaEventProcessors) {
+            if (this.pushEventTypes.contains(processor.getEventType())) {
+                continue;
+            }
+            KafkaEventProcessor previous = kafkaEventProcessorMap.put(processor.getEventType(), processor);
+            if (previous != null) {
+                throw new IllegalStateException("Несколько процессоров для события " + processor.getEventType());
+            }
+        }
+        log.debug("Зарегистрированы процессоры событий {}", kafkaEventProcessorMap.keySet());
     }
 
     @Override
     @KafkaListener(topics = "${kafka.topic.name}", containerFactory = "kafkaListenerContainerFactory")
-    public void listen(KafkaEventDto kafkaEvent) {
-        log.debug("New kafka message: {}", kafkaEvent.toString());
+    public void listen(List<ConsumerRecord<String, KafkaEventDto>> records) {
+        log.debug("Получено {} сообщений из kafka", records.size());
+
+        for (ConsumerRecord<String, KafkaEventDto> record : records) {
+            try {
+                process(record);
+            } catch (IncorrectKafkaEventTypeException e) {
+                forward(record, deadLetterTopic, 0, e, records);
+            } catch (RuntimeException e) {
+                log.debug("Ошибка обработки события {}, отправляем на повторную обработку", record.value(), e);
+                forward(record, retryTopic, 1, e, records);
+            }
+        }
+    }
+
+    /**
+     * Повторная обработка события. Если задержка ещё не прошла, событие возвращается в топик повторной
+     * обработки через nack: останавливается только этот консьюмер, основной топик продолжает читаться
+     */
+    @Override
+    @KafkaListener(topics = "${kafka.topic.retry.name}", containerFactory = "retryKafkaListenerContainerFactory")
+    public void retry(ConsumerRecord<String, KafkaEventDto> record, Acknowledgment acknowledgment) {
+        int attempt = getAttempt(record);
+        long wait = record.timestamp() + retryBackoff * attempt - System.currentTimeMillis();
+        if (wait > 0) {
+            acknowledgment.nack(wait);
+            return;
+        }
+
+        try {
+            process(record);
+        } catch (IncorrectKafkaEventTypeException e) {
+            forward(record, deadLetterTopic, attempt, e, null);
+        } catch (RuntimeException e) {
+            if (attempt < retryAttempts) {
+                log.debug("Ошибка повторной обработки события {}, попытка {}", record.value(), attempt, e);
+                forward(record, retryTopic, attempt + 1, e, null);
+            } else {
+                log.error("Событие {} не обработано за {} попыток, отправляем в DLT", record.value(), attempt, e);
+                forward(record, deadLetterTopic, attempt, e, null);
+            }
+        }
+        acknowledgment.acknowledge();
+    }
 
-        if (kafkaEventProcessorMap.containsKey(kafkaEvent.getKafkaEventTypeDto())) {
-            kafkaEventProcessorMap.get(kafkaEvent.getKafkaEventTypeDto()).perform(kafkaEvent);
-        } else {
-            throw new IncorrectKafkaEventTypeException();
+    private void process(ConsumerRecord<String, KafkaEventDto> record) {
+        KafkaEventDto kafkaEvent = record.value();
+        if (kafkaEvent == null) {
+            throw new IncorrectKafkaEventTypeException("Не удалось десериализовать событие, offset " + record.offset());
         }
+        log.debug("New kafka message: {}", kafkaEvent);
+        if (pushEventTypes.contains(kafkaEvent.getKafkaEventTypeDto())) {
+            return;
+        }
+
+        KafkaEventProcessor processor = kafkaEventProcessorMap.get(kafkaEvent.getKafkaEventTypeDto());
+        if (processor == null) {
+            throw new IncorrectKafkaEventTypeException("Нет процессора для события " +
+                    kafkaEvent.getKafkaEventTypeDto());
+        }
+        processor.perform(kafkaEvent);
+    }
+
+    /**
+     * Отправка события в топик повторной обработки или DLT.
+     * Если отправить не удалось, исключение останавливает обработку на этом событии,
+     * и оно будет прочитано заново
+     */
+    private void forward(ConsumerRecord<String, KafkaEventDto> record, String topic, int attempt,
+                         RuntimeException error, List<ConsumerRecord<String, KafkaEventDto>> batch) {
+        ProducerRecord<String, KafkaEventDto> forwarded =
+                new ProducerRecord<>(topic, null, record.key(), record.value());
+        for (Header header : record.headers()) {
+            if (!ATTEMPT_HEADER.equals(header.key()) && !ERROR_HEADER.equals(header.key())) {
+                forwarded.headers().add(header);
+            }
+        }
+        forwarded.headers().add(ATTEMPT_HEADER, String.valueOf(attempt).getBytes(StandardCharsets.UTF_8));
+        forwarded.headers().add(ERROR_HEADER, String.valueOf(error.getMessage()).getBytes(StandardCharsets.UTF_8));
+
+        try {
+            kafkaTemplate.send(forwarded).get(SEND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failed(record, topic, e, batch);
+        } catch (ExecutionException | TimeoutException e) {
+            throw failed(record, topic, e, batch);
+        }
+        log.debug("Событие с offset {} отправлено в топик {}", record.offset(), topic);
+    }
+
+    private static RuntimeException failed(ConsumerRecord<String, KafkaEventDto> record, String topic,
+                                           Exception cause, List<ConsumerRecord<String, KafkaEventDto>> batch) {
+        String message = "Не удалось отправить событие в топик " + topic;
+        if (batch == null) {
+            return new IllegalStateException(message, cause);
+        }
+        // События пачки до этого уже обработаны и не будут прочитаны повторно
+        return new BatchListenerFailedException(message, cause, record);
+    }
+
+    private static int getAttempt(ConsumerRecord<String, KafkaEventDto> record) {
+        Header header = record.headers().lastHeader(ATTEMPT_HEADER);
+        return header == null ? 1 : Integer.parseInt(new String(header.value(), StandardCharsets.UTF_8));
     }
 }
@@ -0,0 +1,14 @@
+package ru.team.up.kafka.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import ru.team.up.dto.KafkaEventDto;
+
+import java.util.List;
+
+/**
+ * Интерфейс для консьюмера событий, которые отправляются в websocket-сессии модераторов этого экземпляра
+ */
+
+public interface ModeratorPushListener {
+    void listen(List<ConsumerRecord<String, KafkaEventDto>> records);
+}
@@ -0,0 +1,70 @@
+package ru.team.up.kafka.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+import ru.team.up.dto.KafkaEventDto;
+import ru.team.up.dto.KafkaEventTypeDto;
+import ru.team.up.kafka.processors.KafkaEventProcessor;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Консьюмер событий для websocket-сессий модераторов.
+ * <p>
+ * Сессии модератора открыты на одном из экземпляров с ролью websocket, а событие в общей группе консьюмеров
+ * получает один экземпляр kafka-worker. Поэтому события из kafka.push.event.types читаются консьюмером
+ * в собственной группе каждого экземпляра с ролью websocket, и каждый отправляет событие в свои сессии.
+ * Ошибка отправки останавливает пачку на этом событии: оно повторяется на этом же экземпляре, где открыты
+ * сессии, а после исчерпания попыток отправляется в DLT (см. pushKafkaListenerContainerFactory).
+ */
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "teamup.node.role.websocket", matchIfMissing = true)
+@PropertySource("classpath:kafka.properties")
+public class ModeratorPushListenerImpl implements ModeratorPushListener {
+
+    private final Map<KafkaEventTypeDto, KafkaEventProcessor> pushProcessorMap = new EnumMap<>(KafkaEventTypeDto.class);
+
+    @Autowired
+    public ModeratorPushListenerImpl(List<KafkaEventProcessor> kafkaEventProcessors,
+                                     @Value("${kafka.push.event.types}") String[] pushEventTypes) {
+        for (String pushEventType : pushEventTypes) {
+            KafkaEventTypeDto eventType = KafkaEventTypeDto.valueOf(pushEventType.trim());
+            kafkaEventProcessors.stream()
+                    .filter(processor -> processor.getEventType() == eventType)
+                    .findFirst()
+                    .ifPresent(processor -> pushProcessorMap.put(eventType, processor));
+        }
+        log.debug("Зарегистрированы процессоры событий для websocket-сессий {}", pushProcessorMap.keySet());
+    }
+
+    @Override
+    @KafkaListener(topics = "${kafka.topic.name}", containerFactory = "pushKafkaListenerContainerFactory")
+    public void listen(List<ConsumerRecord<String, KafkaEventDto>> records) {
+        for (ConsumerRecord<String, KafkaEventDto> record : records) {
+            KafkaEventDto kafkaEvent = record.value();
+            KafkaEventProcessor processor = kafkaEvent == null ? null
+                    : pushProcessorMap.get(kafkaEvent.getKafkaEventTypeDto());
+            if (processor == null) {
+                continue;
+            }
+            try {
+                processor.perform(kafkaEvent);
+            } catch (RuntimeException e) {
+                log.debug("Не удалось отправить событие {} в websocket-сессии", kafkaEvent, e);
+                // События пачки до этого уже отправлены и повторно не читаются
+                throw new BatchListenerFailedException("Не удалось отправить событие в websocket-сессии", e, record);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.team.up.kafka.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import ru.team.up.core.projections.ModeratorEventView;
+import ru.team.up.dto.KafkaEventDto;
+import ru.team.up.dto.KafkaEventTypeDto;
+import ru.team.up.moderator.payload.AssignedEventPayload;
+import ru.team.up.payload.Payload;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Замер размера события о назначении мероприятия и скорости сериализации и десериализации
+ * в JSON и в двоичном формате. Выполняется в профиле benchmark: mvn test -Pbenchmark.
+ */
+@Slf4j
+@Tag("benchmark")
+class KafkaEventSerializationBenchmarkTests {
+
+    private static final int WARM_UP = 50_000;
+    private static final int ITERATIONS = 200_000;
+
+    @Test
+    void serializationThroughput() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.registerModule(new SimpleModule().addAbstractTypeMapping(Payload.class, AssignedEventPayload.class));
+        JsonDeserializer<KafkaEventDto> jsonDeserializer = new JsonDeserializer<>(mapper);
+        jsonDeserializer.addTrustedPackages("*");
+        jsonDeserializer.setRemoveTypeHeaders(false);
+        KafkaEventDeserializer deserializer = new KafkaEventDeserializer(jsonDeserializer);
+
+        KafkaEventDto event = new KafkaEventDto();
+        event.setKafkaEventTypeDto(KafkaEventTypeDto.NEW_ASSIGN_EVENT);
+        event.setPayload(new AssignedEventPayload(7L, new ModeratorEventView(42L, "Турнир по шахматам",
+                "Парк Горького", "Москва", LocalDateTime.now(), LocalDateTime.now().plusHours(3),
+                "Спорт", 3L, "organizer")));
+
+        for (KafkaEventFormat format : KafkaEventFormat.values()) {
+            KafkaEventSerializer serializer = new KafkaEventSerializer(format);
+            measure(format, serializer, deserializer, event, WARM_UP);
+            measure(format, serializer, deserializer, event, ITERATIONS);
+        }
+    }
+
+    private static void measure(KafkaEventFormat format, KafkaEventSerializer serializer,
+                                KafkaEventDeserializer deserializer, KafkaEventDto event, int iterations) {
+        // Заголовки типа JSON тоже передаются по сети, поэтому учитываются в размере
+        RecordHeaders headers = new RecordHeaders();
+        byte[] data = serializer.serialize("topic", headers, event);
+        int headerBytes = 0;
+        for (Header header : headers) {
+            headerBytes += header.key().length() + header.value().length;
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            data = serializer.serialize("topic", new RecordHeaders(), event);
+        }
+        double serializeSeconds = (System.nanoTime() - start) / 1e9;
+
+        KafkaEventDto result = null;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            result = deserializer.deserialize("topic", headers, data);
+        }
+        double deserializeSeconds = (System.nanoTime() - start) / 1e9;
+        assertEquals(event, result);
+
+        log.info("{}: {} байт на событие и {} байт заголовков, сериализация {} событий/с, десериализация {} событий/с",
+                format, data.length, headerBytes, String.format("%.0f", iterations / serializeSeconds),
+                String.format("%.0f", iterations / deserializeSeconds));
+    }
+}
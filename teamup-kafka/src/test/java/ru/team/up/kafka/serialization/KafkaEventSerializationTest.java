@@ -0,0 +1,93 @@
+package ru.team.up.kafka.serialization;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import ru.team.up.core.projections.ModeratorEventView;
+import ru.team.up.dto.KafkaEventDto;
+import ru.team.up.dto.KafkaEventTypeDto;
+import ru.team.up.moderator.payload.AssignedEventPayload;
+import ru.team.up.payload.Payload;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaEventSerializationTest {
+
+    private KafkaEventDeserializer deserializer;
+
+    private KafkaEventDto assignEvent;
+
+    @BeforeEach
+    private void setUpEntity() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.registerModule(new SimpleModule().addAbstractTypeMapping(Payload.class, AssignedEventPayload.class));
+        JsonDeserializer<KafkaEventDto> jsonDeserializer = new JsonDeserializer<>(KafkaEventDto.class, mapper);
+        jsonDeserializer.addTrustedPackages("*");
+        deserializer = new KafkaEventDeserializer(jsonDeserializer);
+
+        assignEvent = new KafkaEventDto();
+        assignEvent.setKafkaEventTypeDto(KafkaEventTypeDto.NEW_ASSIGN_EVENT);
+        assignEvent.setPayload(new AssignedEventPayload(7L, new ModeratorEventView(42L, "Турнир по шахматам",
+                "Парк Горького", "Москва", LocalDateTime.of(2021, 12, 1, 18, 30, 0, 123_000_000),
+                LocalDateTime.of(2021, 12, 1, 21, 0), "Спорт", 3L, "organizer")));
+    }
+
+    @Test
+    void binaryRoundTrip() {
+        byte[] binary = new KafkaEventSerializer(KafkaEventFormat.BINARY).serialize("topic", new RecordHeaders(), assignEvent);
+
+        assertEquals(KafkaEventBinaryCodec.MAGIC, binary[0]);
+        assertEquals(assignEvent, deserializer.deserialize("topic", new RecordHeaders(), binary));
+    }
+
+    @Test
+    void emptyFieldsAreNotWritten() {
+        AssignedEventPayload payload = new AssignedEventPayload(7L, new ModeratorEventView());
+        KafkaEventDto event = new KafkaEventDto();
+        event.setPayload(payload);
+
+        byte[] binary = new KafkaEventSerializer(KafkaEventFormat.BINARY).serialize("topic", event);
+
+        assertTrue(binary.length < 10);
+        assertEquals(event, deserializer.deserialize("topic", binary));
+    }
+
+    @Test
+    void jsonIsStillReadable() {
+        // Событие, записанное producer до перехода на двоичный формат
+        byte[] json = new KafkaEventSerializer(KafkaEventFormat.JSON).serialize("topic", new RecordHeaders(), assignEvent);
+
+        assertEquals('{', json[0]);
+        assertEquals(assignEvent, deserializer.deserialize("topic", new RecordHeaders(), json));
+    }
+
+    @Test
+    void formatIsConfigured() {
+        KafkaEventSerializer serializer = new KafkaEventSerializer();
+        serializer.configure(Map.of(KafkaEventSerializer.FORMAT_CONFIG, "binary"), false);
+
+        byte[] binary = serializer.serialize("topic", assignEvent);
+        byte[] json = new KafkaEventSerializer().serialize("topic", assignEvent);
+
+        assertTrue(KafkaEventBinaryCodec.isBinary(binary));
+        assertTrue(binary.length * 2 < json.length);
+    }
+
+    @Test
+    void corruptedBinaryIsRejected() {
+        byte[] binary = new KafkaEventSerializer(KafkaEventFormat.BINARY).serialize("topic", assignEvent);
+
+        assertThrows(SerializationException.class,
+                () -> deserializer.deserialize("topic", Arrays.copyOf(binary, binary.length / 2)));
+    }
+}
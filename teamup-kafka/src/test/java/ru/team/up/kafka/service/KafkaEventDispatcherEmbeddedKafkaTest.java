@@ -0,0 +1,111 @@
+package ru.team.up.kafka.service;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import ru.team.up.dto.KafkaEventDto;
+import ru.team.up.dto.KafkaEventTypeDto;
+import ru.team.up.kafka.config.ConsumerModeratorConfig;
+import ru.team.up.kafka.config.ProducerModeratorConfig;
+import ru.team.up.kafka.processors.KafkaEventProcessor;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Проверка повторной обработки и DLT на встроенном брокере Kafka
+ */
+@SpringJUnitConfig
+@EmbeddedKafka(partitions = 1, bootstrapServersProperty = "kafka.server.address",
+        topics = {"dispatcher-test", "dispatcher-test-retry", "dispatcher-test-dlt"})
+@TestPropertySource(properties = {
+        "kafka.topic.name=dispatcher-test",
+        "kafka.topic.retry.name=dispatcher-test-retry",
+        "kafka.topic.dlt.name=dispatcher-test-dlt",
+        "kafka.group.id=dispatcher-test",
+        "kafka.push.event.types=",
+        "kafka.retry.backoff=100"})
+class KafkaEventDispatcherEmbeddedKafkaTest {
+
+    private static final CountDownLatch PROCESSED = new CountDownLatch(1);
+    private static final AtomicInteger ATTEMPTS = new AtomicInteger();
+
+    @Autowired
+    private KafkaTemplate<String, KafkaEventDto> kafkaTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafkaBroker;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @Test
+    void retryAndDeadLetter() throws Exception {
+        // Консьюмеры читают с конца топика, поэтому события отправляются после назначения им разделов
+        for (MessageListenerContainer container : kafkaListenerEndpointRegistry.getListenerContainers()) {
+            ContainerTestUtils.waitForAssignment(container, embeddedKafkaBroker.getPartitionsPerTopic());
+        }
+
+        KafkaEventDto assignEvent = new KafkaEventDto();
+        assignEvent.setKafkaEventTypeDto(KafkaEventTypeDto.NEW_ASSIGN_EVENT);
+        kafkaTemplate.send("dispatcher-test", assignEvent);
+        kafkaTemplate.send("dispatcher-test", new KafkaEventDto());
+
+        // Процессор падает на первой попытке и обрабатывает событие из топика повторной обработки
+        assertTrue(PROCESSED.await(30, TimeUnit.SECONDS));
+        assertEquals(2, ATTEMPTS.get());
+
+        // Событие без типа сразу попадает в DLT
+        Map<String, Object> props = KafkaTestUtils.consumerProps("dlt-reader", "false", embeddedKafkaBroker);
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            embeddedKafkaBroker.consumeFromAnEmbeddedTopic(consumer, "dispatcher-test-dlt");
+            ConsumerRecord<String, String> deadLetter = KafkaTestUtils.getSingleRecord(consumer,
+                    "dispatcher-test-dlt", Duration.ofSeconds(30).toMillis());
+            assertNotNull(deadLetter.headers().lastHeader(KafkaEventDispatcherImpl.ERROR_HEADER));
+        }
+    }
+
+    @Configuration
+    @Import({ConsumerModeratorConfig.class, ProducerModeratorConfig.class, KafkaEventDispatcherImpl.class})
+    static class TestConfig {
+
+        @Bean
+        public KafkaEventProcessor failingOnceProcessor() {
+            return new KafkaEventProcessor() {
+                @Override
+                public KafkaEventTypeDto getEventType() {
+                    return KafkaEventTypeDto.NEW_ASSIGN_EVENT;
+                }
+
+                @Override
+                public void perform(KafkaEventDto kafkaEventDto) {
+                    if (ATTEMPTS.incrementAndGet() == 1) {
+                        throw new IllegalStateException("Первая попытка завершается ошибкой");
+                    }
+                    PROCESSED.countDown();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package ru.team.up.kafka.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.util.concurrent.SettableListenableFuture;
+import ru.team.up.dto.KafkaEventDto;
+import ru.team.up.dto.KafkaEventTypeDto;
+import ru.team.up.kafka.processors.KafkaEventProcessor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+class KafkaEventDispatcherImplTest {
+
+    @Mock
+    private KafkaTemplate<String, KafkaEventDto> kafkaTemplate;
+
+    @Mock
+    private KafkaEventProcessor processor;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    private KafkaEventDispatcher kafkaEventDispatcher;
+
+    private KafkaEventDto assignEvent;
+
+    @BeforeEach
+    private void setUpEntity() {
+        MockitoAnnotations.openMocks(this);
+        when(processor.getEventType()).thenReturn(KafkaEventTypeDto.NEW_ASSIGN_EVENT);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            SettableListenableFuture<Object> future = new SettableListenableFuture<>();
+            future.set(null);
+            return future;
+        });
+        // 3 попытки с задержкой 0 мс
+        kafkaEventDispatcher = new KafkaEventDispatcherImpl(kafkaTemplate, List.of(processor),
+                "retry", "dlt", 3, 0, new String[0]);
+
+        assignEvent = new KafkaEventDto();
+        assignEvent.setKafkaEventTypeDto(KafkaEventTypeDto.NEW_ASSIGN_EVENT);
+    }
+
+    @Test
+    void listen() {
+        KafkaEventDto unknownEvent = new KafkaEventDto();
+        doThrow(new IllegalStateException("processor failed")).doNothing().when(processor).perform(assignEvent);
+
+        kafkaEventDispatcher.listen(List.of(record(0, assignEvent), record(1, unknownEvent), record(2, null),
+                record(3, assignEvent)));
+
+        // Ошибка обработки не останавливает пачку: событие уходит на повторную обработку,
+        // неизвестное и нераспознанное события - в DLT
+        verify(processor, times(2)).perform(assignEvent);
+        List<ProducerRecord<String, KafkaEventDto>> forwarded = forwarded(3);
+        assertEquals("retry", forwarded.get(0).topic());
+        assertEquals("1", attempt(forwarded.get(0)));
+        assertEquals("dlt", forwarded.get(1).topic());
+        assertEquals("dlt", forwarded.get(2).topic());
+    }
+
+    @Test
+    void retry() {
+        doThrow(new IllegalStateException("processor failed")).when(processor).perform(assignEvent);
+
+        ConsumerRecord<String, KafkaEventDto> record = record(0, assignEvent);
+        record.headers().add(KafkaEventDispatcherImpl.ATTEMPT_HEADER, "2".getBytes(StandardCharsets.UTF_8));
+        kafkaEventDispatcher.retry(record, acknowledgment);
+
+        ConsumerRecord<String, KafkaEventDto> lastRecord = record(1, assignEvent);
+        lastRecord.headers().add(KafkaEventDispatcherImpl.ATTEMPT_HEADER, "3".getBytes(StandardCharsets.UTF_8));
+        kafkaEventDispatcher.retry(lastRecord, acknowledgment);
+
+        // Пока попытки не исчерпаны, событие возвращается в топик повторной обработки, затем уходит в DLT
+        List<ProducerRecord<String, KafkaEventDto>> forwarded = forwarded(2);
+        assertEquals("retry", forwarded.get(0).topic());
+        assertEquals("3", attempt(forwarded.get(0)));
+        assertEquals("dlt", forwarded.get(1).topic());
+        verify(acknowledgment, times(2)).acknowledge();
+    }
+
+    @Test
+    void retryBeforeBackoff() {
+        kafkaEventDispatcher = new KafkaEventDispatcherImpl(kafkaTemplate, List.of(processor),
+                "retry", "dlt", 3, 60_000, new String[0]);
+
+        kafkaEventDispatcher.retry(record(0, assignEvent), acknowledgment);
+
+        // Событие откладывается без обработки и без подтверждения
+        verify(acknowledgment).nack(anyLong());
+        verify(acknowledgment, never()).acknowledge();
+        verify(processor, never()).perform(any());
+    }
+
+    @Test
+    void pushEventsAreSkipped() {
+        kafkaEventDispatcher = new KafkaEventDispatcherImpl(kafkaTemplate, List.of(processor),
+                "retry", "dlt", 3, 0, new String[]{"NEW_ASSIGN_EVENT"});
+
+        kafkaEventDispatcher.listen(List.of(record(0, assignEvent)));
+
+        // Событие обрабатывают консьюмеры экземпляров с ролью websocket, в DLT оно не уходит
+        verify(processor, never()).perform(any());
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+    }
+
+    @Test
+    void duplicateProcessors() {
+        assertThrows(IllegalStateException.class, () -> new KafkaEventDispatcherImpl(kafkaTemplate,
+                List.of(processor, processor), "retry", "dlt", 3, 0, new String[0]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ProducerRecord<String, KafkaEventDto>> forwarded(int count) {
+        ArgumentCaptor<ProducerRecord<String, KafkaEventDto>> captor = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(count)).send(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static String attempt(ProducerRecord<String, KafkaEventDto> record) {
+        return new String(record.headers().lastHeader(KafkaEventDispatcherImpl.ATTEMPT_HEADER).value(),
+                StandardCharsets.UTF_8);
+    }
+
+    private static ConsumerRecord<String, KafkaEventDto> record(long offset, KafkaEventDto event) {
+        return new ConsumerRecord<>("topic", 0, offset, System.currentTimeMillis(),
+                TimestampType.CREATE_TIME, 0L, 0, 0, null, event);
+    }
+}
@@ -0,0 +1,135 @@
+package ru.team.up.kafka.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import ru.team.up.core.projections.ModeratorEventView;
+import ru.team.up.dto.KafkaEventDto;
+import ru.team.up.dto.KafkaEventTypeDto;
+import ru.team.up.kafka.config.ProducerModeratorConfig;
+import ru.team.up.moderator.payload.AssignedEventPayload;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Замер отправки событий о назначении мероприятий на встроенном брокере Kafka: producer с настройками
+ * по умолчанию сравнивается с настроенным producer (пакеты, сжатие, идемпотентность).
+ * Для настроенного producer проверяется, что события одного модератора читаются в порядке отправки.
+ * Входит только в профиль benchmark.
+ */
+@Slf4j
+@Tag("benchmark")
+@SpringJUnitConfig
+@EmbeddedKafka(partitions = 6, bootstrapServersProperty = "kafka.server.address",
+        topics = {"producer-default", "producer-tuned"})
+class KafkaProducerBenchmarkTests {
+
+    private static final int EVENTS = 50_000;
+    private static final int MODERATORS = 100;
+    private static final String SEQUENCE_HEADER = "sequence";
+
+    @Autowired
+    private ProducerModeratorConfig producerModeratorConfig;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafkaBroker;
+
+    @Test
+    void producerThroughput() throws Exception {
+        Map<String, Object> tuned = producerModeratorConfig.producerConfigs();
+        Map<String, Object> defaults = new HashMap<>(tuned);
+        defaults.remove(ProducerConfig.LINGER_MS_CONFIG);
+        defaults.remove(ProducerConfig.BATCH_SIZE_CONFIG);
+        defaults.remove(ProducerConfig.COMPRESSION_TYPE_CONFIG);
+
+        send("producer-default", defaults);
+        send("producer-tuned", tuned);
+
+        assertOrderedByModerator("producer-tuned");
+    }
+
+    private void send(String topic, Map<String, Object> config) throws Exception {
+        DefaultKafkaProducerFactory<String, KafkaEventDto> producerFactory = new DefaultKafkaProducerFactory<>(config);
+        try {
+            KafkaTemplate<String, KafkaEventDto> kafkaTemplate = new KafkaTemplate<>(producerFactory);
+            KafkaEventDto event = new KafkaEventDto();
+            event.setKafkaEventTypeDto(KafkaEventTypeDto.NEW_ASSIGN_EVENT);
+            event.setPayload(new AssignedEventPayload(1L, new ModeratorEventView(1L, "Мероприятие",
+                    "Место проведения мероприятия", "Москва", LocalDateTime.now(), LocalDateTime.now().plusHours(2),
+                    "Спорт", 1L, "author")));
+
+            long start = System.nanoTime();
+            CompletableFuture<?>[] futures = new CompletableFuture[EVENTS];
+            for (int i = 0; i < EVENTS; i++) {
+                ProducerRecord<String, KafkaEventDto> record =
+                        new ProducerRecord<>(topic, String.valueOf(i % MODERATORS), event);
+                record.headers().add(SEQUENCE_HEADER, ByteBuffer.allocate(Integer.BYTES).putInt(i).array());
+                futures[i] = kafkaTemplate.send(record).completable();
+            }
+            CompletableFuture.allOf(futures).get();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Map<String, Object> metrics = new HashMap<>();
+            kafkaTemplate.metrics().forEach((name, metric) -> {
+                if ("producer-metrics".equals(name.group())) {
+                    metrics.put(name.name(), metric.metricValue());
+                }
+            });
+            log.info("Топик {}: {} событий за {} с, {} событий/с, средний размер запроса {} байт, " +
+                            "событий в запросе {}, степень сжатия {}", topic, EVENTS, String.format("%.2f", seconds),
+                    String.format("%.0f", EVENTS / seconds), metrics.get("request-size-avg"),
+                    metrics.get("records-per-request-avg"), metrics.get("compression-rate-avg"));
+        } finally {
+            producerFactory.destroy();
+        }
+    }
+
+    private void assertOrderedByModerator(String topic) {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("benchmark-reader", "false", embeddedKafkaBroker);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000);
+        Map<String, Integer> lastSequence = new HashMap<>();
+        int received = 0;
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            embeddedKafkaBroker.consumeFromAnEmbeddedTopic(consumer, topic);
+            while (received < EVENTS) {
+                for (ConsumerRecord<String, String> record : KafkaTestUtils.getRecords(consumer, 10_000)) {
+                    int sequence = ByteBuffer.wrap(record.headers().lastHeader(SEQUENCE_HEADER).value()).getInt();
+                    Integer previous = lastSequence.put(record.key(), sequence);
+                    assertTrue(previous == null || previous < sequence,
+                            "События модератора " + record.key() + " прочитаны не в порядке отправки");
+                    received++;
+                }
+            }
+        }
+        assertEquals(MODERATORS, lastSequence.size());
+    }
+
+    @Configuration
+    @Import(ProducerModeratorConfig.class)
+    static class TestConfig {
+    }
+}
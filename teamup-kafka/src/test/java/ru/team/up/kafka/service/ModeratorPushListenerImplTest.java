@@ -0,0 +1,74 @@
+package ru.team.up.kafka.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import ru.team.up.dto.KafkaEventDto;
+import ru.team.up.dto.KafkaEventTypeDto;
+import ru.team.up.kafka.processors.KafkaEventProcessor;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+@RunWith(MockitoJUnitRunner.class)
+class ModeratorPushListenerImplTest {
+
+    @Mock
+    private KafkaEventProcessor processor;
+
+    private KafkaEventDto assignEvent;
+
+    @BeforeEach
+    private void setUpEntity() {
+        MockitoAnnotations.openMocks(this);
+        when(processor.getEventType()).thenReturn(KafkaEventTypeDto.NEW_ASSIGN_EVENT);
+
+        assignEvent = new KafkaEventDto();
+        assignEvent.setKafkaEventTypeDto(KafkaEventTypeDto.NEW_ASSIGN_EVENT);
+    }
+
+    @Test
+    void listen() {
+        ModeratorPushListener moderatorPushListener =
+                new ModeratorPushListenerImpl(List.of(processor), new String[]{"NEW_ASSIGN_EVENT"});
+        doThrow(new IllegalStateException("session failed")).doNothing().when(processor).perform(assignEvent);
+
+        List<ConsumerRecord<String, KafkaEventDto>> records = List.of(record(0, assignEvent),
+                record(1, new KafkaEventDto()), record(2, null), record(3, assignEvent));
+
+        // Ошибка отправки передаётся обработчику ошибок контейнера с указанием события для повтора
+        BatchListenerFailedException failed = assertThrows(BatchListenerFailedException.class,
+                () -> moderatorPushListener.listen(records));
+        assertEquals(0, failed.getRecord().offset());
+
+        // При повторе события без типа и нераспознанные пропускаются
+        moderatorPushListener.listen(records);
+        verify(processor, times(3)).perform(assignEvent);
+    }
+
+    @Test
+    void onlyPushEventsAreProcessed() {
+        ModeratorPushListener moderatorPushListener = new ModeratorPushListenerImpl(List.of(processor), new String[0]);
+
+        moderatorPushListener.listen(List.of(record(0, assignEvent)));
+
+        verify(processor, never()).perform(any());
+    }
+
+    private static ConsumerRecord<String, KafkaEventDto> record(long offset, KafkaEventDto event) {
+        return new ConsumerRecord<>("topic", 0, offset, System.currentTimeMillis(),
+                TimestampType.CREATE_TIME, 0L, 0, 0, null, event);
+    }
+}
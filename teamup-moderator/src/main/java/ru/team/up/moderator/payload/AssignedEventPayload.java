@@ -3,15 +3,28 @@ package ru.team.up.moderator.payload;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import ru.team.up.core.entity.Event;
-import ru.team.up.core.entity.Moderator;
+import ru.team.up.core.projections.ModeratorEventView;
 import ru.team.up.payload.Payload;
 
+/**
+ * Назначение мероприятия на модератора.
+ * Передаётся id модератора и краткое представление мероприятия вместо сущностей Moderator и Event.
+ * Версия формата позволяет получателю отбросить сообщение, которое он не умеет разбирать
+ */
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
 public class AssignedEventPayload implements Payload {
-    private Moderator moderator;
 
-    private Event event;
+    public static final int CURRENT_VERSION = 1;
+
+    private int version = CURRENT_VERSION;
+
+    private Long moderatorId;
+
+    private ModeratorEventView event;
+
+    public AssignedEventPayload(Long moderatorId, ModeratorEventView event) {
+        this(CURRENT_VERSION, moderatorId, event);
+    }
 }
@@ -5,32 +5,37 @@ import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
 import ru.team.up.core.entity.AssignedEvents;
-import ru.team.up.core.entity.Event;
-import ru.team.up.core.entity.Moderator;
+import ru.team.up.core.projections.KafkaSendStats;
+import ru.team.up.core.projections.ModeratorEventView;
 import ru.team.up.core.service.*;
 import ru.team.up.dto.KafkaEventDto;
 import ru.team.up.dto.KafkaEventTypeDto;
 import ru.team.up.moderator.payload.AssignedEventPayload;
 import java.util.HashMap;
 import ru.team.up.core.service.AssignedEventsServiceImpl;
-import ru.team.up.core.service.ModeratorsSessionsServiceImpl;
 import ru.team.up.sup.service.ParameterService;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
+/**
+ * Распределение новых мероприятий на модераторов. Загружается только на экземплярах с ролью scheduler
+ */
 @Component
 @PropertySource("classpath:app.properties")
 @Slf4j
+@ConditionalOnProperty(name = "teamup.node.role.scheduler", matchIfMissing = true)
 public class AssignEventsScheduler {
 
     @Value(value = "${kafka.server.address}")
@@ -39,74 +44,93 @@ public class AssignEventsScheduler {
     @Value("${spring.kafka.template.moderator.topic.name}")
     private String topic;
 
+    @Value("${eventsAssign.batch.size}")
+    private int batchSize;
+
     private final AssignedEventsServiceImpl assignedEventsServiceImpl;
-    private final ModeratorsSessionsServiceImpl moderatorSessionsServiceImpl;
-    private final ModeratorService moderatorService;
-    private final EventService eventService;
+    private final EventAssignmentService eventAssignmentService;
     private final KafkaTemplate<String, KafkaEventDto> kafkaTemplate;
+    private final SchedulerLockService schedulerLockService;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
 
     @Autowired
     public AssignEventsScheduler(AssignedEventsServiceImpl assignedEventsServiceImpl,
-                                 ModeratorsSessionsServiceImpl moderatorSessionsServiceImpl,
-                                 ModeratorService moderatorService, EventService eventService,
-                                 KafkaTemplate kafkaTemplate) {
+                                 EventAssignmentService eventAssignmentService,
+                                 KafkaTemplate kafkaTemplate,
+                                 SchedulerLockService schedulerLockService) {
         this.assignedEventsServiceImpl = assignedEventsServiceImpl;
-        this.moderatorSessionsServiceImpl = moderatorSessionsServiceImpl;
-        this.moderatorService = moderatorService;
-        this.eventService = eventService;
+        this.eventAssignmentService = eventAssignmentService;
         this.kafkaTemplate = kafkaTemplate;
+        this.schedulerLockService = schedulerLockService;
     }
 
     /**
-     * Метод проверяет по расписанию наличие новых мероприятий в статусе "на проверке"
-     * и назначает их на модераторов
+     * Распределение по расписанию выполняет один экземпляр приложения, получивший аренду задачи
      */
-//    @Scheduled(fixedRate = 5000)
     @Scheduled(fixedDelayString = "${eventsScan.delay}")
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
-    public void assignEvents() {
-        log.debug("Получение списка новых мероприятий");
-
-        List<Long> newEventsIdList = assignedEventsServiceImpl.getIdNotAssignedEvents();
-
-        if (!newEventsIdList.isEmpty()) {
+    public void assignEventsLocked() {
+        schedulerLockService.runLocked("assignEvents", this::assignEvents);
+    }
 
-            log.debug("Получение id свободного модератора");
-            Long moderatorId = moderatorSessionsServiceImpl.getFreeModeratorWithLimitedEvents(ParameterService
-                    .getModeratorEventLimitation.getValue());
-            if (moderatorId != null) {
+    /**
+     * Метод проверяет по расписанию наличие новых мероприятий в статусе "на проверке"
+     * и назначает их на модераторов.
+     * Назначения сохраняются в отдельной транзакции, сообщения в кафку отправляются после её завершения.
+     * Одновременный запуск на нескольких экземплярах безопасен: мероприятия и модераторы захватываются
+     * с SKIP LOCKED, а мероприятие назначается не более одного раза
+     */
+    public void assignEvents() {
+        log.debug("Распределение новых мероприятий на модераторов");
+        List<AssignedEvents> assigned = eventAssignmentService.assignNewEvents(
+                ParameterService.getModeratorEventLimitation.getValue(), batchSize);
+        if (assigned.isEmpty()) {
+            return;
+        }
 
-                newEventsIdList.forEach(eventId -> {
-                    Long freeModeratorId = moderatorSessionsServiceImpl.getFreeModerator();
-                    assignedEventsServiceImpl.saveAssignedEvent(AssignedEvents.builder()
-                            .eventId(eventId)
-                            .moderatorId(freeModeratorId)
-                            .build());
-                    log.debug("Мероприятию с ID = {} назначен модератор {}", eventId, freeModeratorId);
+        Map<Long, ModeratorEventView> events = new HashMap<>();
+        assignedEventsServiceImpl.getEventViews(assigned.stream()
+                        .map(AssignedEvents::getEventId)
+                        .collect(Collectors.toList()))
+                .forEach(event -> events.put(event.getId(), event));
+
+        assigned.forEach(assignedEvent -> {
+            log.debug("Мероприятию с ID = {} назначен модератор {}", assignedEvent.getEventId(),
+                    assignedEvent.getModeratorId());
+            sendToKafka(assignedEvent.getModeratorId(),
+                    createKafkaEvent(assignedEvent.getModeratorId(), events.get(assignedEvent.getEventId())));
+        });
+        KafkaSendStats stats = getSendStats();
+        log.debug("Новые мероприятия получены и распределены на модераторов. Отправлено в кафку {}, с ошибкой {}, " +
+                        "среднее время подтверждения {} мс, наибольшее {} мс", stats.getSent(), stats.getFailed(),
+                stats.getAverageLatencyMillis(), stats.getMaxLatencyMillis());
+    }
 
-                    KafkaEventDto kafkaEventDto = createKafkaEvent(freeModeratorId, eventId);
-                    sendToKafka(kafkaEventDto);
-                });
-                log.debug("Новые мероприятия получены и распределены на модераторов");
-            } else {
-                log.debug("Нет активных модераторов или у них максимальное количество мероприятий");
-            }
-        } else {
-            log.debug("Список новых мероприятий пуст");
-        }
+    /**
+     * @return Статистика отправки событий о назначении мероприятий в кафку
+     */
+    public KafkaSendStats getSendStats() {
+        long acknowledged = sent.get();
+        return KafkaSendStats.builder()
+                .sent(acknowledged)
+                .failed(failed.get())
+                .averageLatencyMillis(acknowledged == 0 ? 0
+                        : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get() / acknowledged))
+                .maxLatencyMillis(TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get()))
+                .build();
     }
 
     /**
      * Метод для создания сообщения для кафки
-     * @param moderatorId ID модератора для поиска в БД
-     * @param eventId ID ивента для поиска в БД
+     * @param moderatorId ID модератора
+     * @param event назначенное мероприятие
      * @return KafkaEventDto - сообщение для кафки
      */
-    private KafkaEventDto createKafkaEvent(Long moderatorId, Long eventId) {
-        log.debug("Старт поиска в БД назначенного модератора и ивента");
-        Moderator moderator = (Moderator) moderatorService.getOneModerator(moderatorId);
-        Event event = eventService.getOneEvent(eventId);
-        AssignedEventPayload payload = new AssignedEventPayload(moderator, event);
+    private KafkaEventDto createKafkaEvent(Long moderatorId, ModeratorEventView event) {
+        AssignedEventPayload payload = new AssignedEventPayload(moderatorId, event);
 
         KafkaEventDto kafkaEventDto = new KafkaEventDto();
         kafkaEventDto.setKafkaEventTypeDto(KafkaEventTypeDto.NEW_ASSIGN_EVENT);
@@ -116,13 +140,28 @@ public class AssignEventsScheduler {
     }
 
     /**
-     * Метод послания сообщения в кафку
+     * Метод послания сообщения в кафку. Ключ сообщения - ID модератора, поэтому события одного модератора
+     * попадают в один раздел и читаются в порядке отправки. Отправка не блокирует распределение,
+     * результат учитывается в статистике по подтверждению брокера
+     * @param moderatorId ID модератора
      * @param kafkaEventDto сообщение для кафки
      */
-    private void sendToKafka(KafkaEventDto kafkaEventDto) {
-        log.debug("Посылка сообщения в кафку, топик: {}, сообщение: {}",
-                topic, kafkaEventDto);
-        kafkaTemplate.send(topic, kafkaEventDto);
-        log.debug("Сообщение отправлено в кафку");
+    private void sendToKafka(Long moderatorId, KafkaEventDto kafkaEventDto) {
+        log.debug("Посылка сообщения в кафку, топик: {}, ключ: {}, сообщение: {}",
+                topic, moderatorId, kafkaEventDto);
+        long start = System.nanoTime();
+        kafkaTemplate.send(topic, String.valueOf(moderatorId), kafkaEventDto).addCallback(
+                result -> {
+                    long latency = System.nanoTime() - start;
+                    sent.incrementAndGet();
+                    totalLatencyNanos.addAndGet(latency);
+                    maxLatencyNanos.accumulateAndGet(latency, Math::max);
+                    log.debug("Сообщение для модератора {} записано в раздел {} со смещением {}", moderatorId,
+                            result.getRecordMetadata().partition(), result.getRecordMetadata().offset());
+                },
+                e -> {
+                    failed.incrementAndGet();
+                    log.error("Ошибка отправки сообщения для модератора {} в кафку", moderatorId, e);
+                });
     }
 }
@@ -2,61 +2,93 @@ package ru.team.up.moderator.schedules;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
-import ru.team.up.core.service.AssignedEventsServiceImpl;
+import ru.team.up.core.projections.ReassignmentStats;
+import ru.team.up.core.service.EventAssignmentService;
+import ru.team.up.core.service.ModeratorPresenceService;
 import ru.team.up.core.service.ModeratorsSessionsServiceImpl;
+import ru.team.up.core.service.SchedulerLockService;
 import ru.team.up.sup.service.ParameterService;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
+/**
+ * Снятие мероприятий с отключившихся модераторов. Присутствие по websocket-сессиям проверяется на экземплярах
+ * с ролью websocket, проверку по БД выполняет экземпляр с ролью scheduler, поэтому на остальных не загружается
+ */
 @Component
 @Slf4j
 @AllArgsConstructor(onConstructor = @__(@Autowired))
+@ConditionalOnExpression("${teamup.node.role.scheduler:true} or ${teamup.node.role.websocket:true}")
 public class ModeratorsSessionsScheduler {
 
     private final ModeratorsSessionsServiceImpl moderatorSessionsServiceImpl;
-    private final AssignedEventsServiceImpl assignedEventsServiceImpl;
+    private final ModeratorPresenceService moderatorPresenceService;
+    private final EventAssignmentService eventAssignmentService;
+    private final ObjectProvider<AssignEventsScheduler> assignEventsScheduler;
+    private final SchedulerLockService schedulerLockService;
 
     /**
-     * Метод удаляет сессию модератора по активности (удаляет не активных модераторов по полю время прогрева)
+     * Метод снимает мероприятия с модераторов, от которых перестали приходить сигналы websocket-сессий,
+     * и удаляет их сессии. Проверка выполняется на каждом шаге колеса таймеров.
+     * Сигналы приходят на экземпляр, к которому подключён модератор, поэтому проверка выполняется на каждом экземпляре,
+     * а модератор, успевший подключиться к другому экземпляру, не снимается благодаря проверке активности по БД
+     */
+    @Scheduled(fixedDelayString = "${moderator.presence.tick}")
+    public void removeDisconnectedModerators() {
+        releaseModerators(moderatorPresenceService.expire(), moderatorPresenceService.getInactiveBefore());
+    }
+
+    /**
+     * Метод удаляет сессию модератора по активности (удаляет не активных модераторов по полю время прогрева).
+     * Время прогрева обновляется из памяти периодически, поэтому проверка по БД нужна только для модераторов,
+     * сигналы от которых не дошли до памяти этого экземпляра, например после перезапуска.
+     * Проверку выполняет один экземпляр приложения, получивший аренду задачи
      */
-//    @Scheduled(fixedRate = 10000)
     @Scheduled(fixedDelayString = "${moderatorActivity.delay}")
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
     public void removeModeratorSession() {
+        schedulerLockService.runLocked("removeModeratorSession", this::removeInactiveModerators);
+    }
 
+    private void removeInactiveModerators() {
         log.debug("Получение листа ID неактивных модераторов");
-        List<Long> listInactiveModeratorsId = moderatorSessionsServiceImpl
-                // Длительность неактивной сессии модератора перед удалением (в минутах) получаемая из СУП
-                .getInactiveModerators(LocalDateTime.now().minusMinutes(ParameterService.getModeratorDisconnectTimeout.getValue()));
+        // Длительность неактивной сессии модератора перед удалением (в минутах) получаемая из СУП
+        LocalDateTime downtime = LocalDateTime.now().minusMinutes(ParameterService.getModeratorDisconnectTimeout.getValue());
+        List<Long> listInactiveModeratorsId = moderatorSessionsServiceImpl.getInactiveModerators(downtime);
 
         if (!listInactiveModeratorsId.isEmpty()) {
-            listInactiveModeratorsId
-                    .forEach(delete -> {
-//                          Сброс всех мероприятий, назначенных на неактивного модератора
-                        removeAssignedEventsOnModerator(delete);
-//                          Удаление сессии неактивного модератора
-                        moderatorSessionsServiceImpl.removeModeratorSession(delete);
-                        log.debug("Удалена сессия модератора с id {}", delete);
-                    });
+            releaseModerators(listInactiveModeratorsId, downtime);
         } else {
             log.debug("Неактивных модераторов нет");
         }
     }
 
     /**
-     * Метод удаляет все назначения мероприятий на неактивного модератора перед удалением его сессии
+     * Метод снимает все мероприятия с отключившихся модераторов, активность которых в БД не новее inactiveBefore,
+     * удаляет их сессии и сразу распределяет освобождённые мероприятия на оставшихся модераторов.
+     * На экземпляре без роли scheduler освобождённые мероприятия распределяются следующим запуском
+     * распределения на экземпляре с этой ролью
      */
-    public void removeAssignedEventsOnModerator(Long id) {
-        assignedEventsServiceImpl.getIdAssignedEventsByModeratorId(id)
-                .forEach(deleteEvents -> {
-                    assignedEventsServiceImpl.removeAssignedEvent(deleteEvents);
-                    log.debug("Удалено назначение мероприятия на модератора, id {}", deleteEvents);
-                });
+    private void releaseModerators(List<Long> moderatorIds, LocalDateTime inactiveBefore) {
+        if (moderatorIds.isEmpty()) {
+            return;
+        }
+        List<Long> releasedEvents = eventAssignmentService.releaseModerators(moderatorIds, inactiveBefore);
+        log.debug("Удалены сессии модераторов {}, освобождено мероприятий: {}", moderatorIds, releasedEvents.size());
+
+        AssignEventsScheduler scheduler = assignEventsScheduler.getIfAvailable();
+        if (!releasedEvents.isEmpty() && scheduler != null) {
+            scheduler.assignEvents();
+            ReassignmentStats stats = eventAssignmentService.getReassignmentStats();
+            log.info("Повторно назначено {} из {} снятых мероприятий, ожидают {}, " +
+                            "время до назначения: среднее {} мс, максимальное {} мс",
+                    stats.getReassigned(), stats.getReleased(), stats.getPending(),
+                    stats.getAverageLatencyMillis(), stats.getMaxLatencyMillis());
+        }
     }
 }
@@ -0,0 +1,13 @@
+package ru.team.up.monitoring;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@EnableScheduling
+@SpringBootApplication
+public class MonitoringConsumerApplicationContext {
+    public static void main(String[] args) {
+        SpringApplication.run(MonitoringConsumerApplicationContext.class, args);
+    }
+}
@@ -0,0 +1,63 @@
+package ru.team.up.monitoring.config;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import ru.team.up.dto.ReportDto;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Конфигурация consumer отчётов мониторинга. Отчёты читаются пачками несколькими консьюмерами,
+ * отчёт, который не удалось разобрать, приходит со значением null и пропускается
+ */
+@Configuration
+@EnableKafka
+@PropertySource("classpath:monitoring-consumer.properties")
+public class KafkaConsumerConfig {
+
+    @Value("${kafka.bootstrapAddress}")
+    private String server;
+
+    @Value("${kafka.group.id}")
+    private String groupId;
+
+    @Value("${kafka.listener.concurrency}")
+    private int concurrency;
+
+    @Value("${kafka.listener.max.poll.records}")
+    private int maxPollRecords;
+
+    @Bean
+    public ConsumerFactory<String, ReportDto> reportConsumerFactory() {
+        JsonDeserializer<ReportDto> jsonDeserializer = new JsonDeserializer<>(ReportDto.class);
+        jsonDeserializer.addTrustedPackages("*");
+
+        Map<String, Object> config = new HashMap<>();
+        config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, server);
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        return new DefaultKafkaConsumerFactory<>(config, new StringDeserializer(),
+                new ErrorHandlingDeserializer<>(jsonDeserializer));
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, ReportDto> reportKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, ReportDto> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(reportConsumerFactory());
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
+        return factory;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.team.up.monitoring.controller;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.team.up.monitoring.entity.ReportRollup;
+import ru.team.up.monitoring.service.ReportRollupService;
+
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Сводки отчётов мониторинга за окна времени
+ */
+@Slf4j
+@RestController
+@RequestMapping("/monitoring/reports")
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class ReportRollupController {
+
+    private ReportRollupService reportRollupService;
+
+    /**
+     * @param window Длительность окна в формате ISO-8601, например PT5M
+     * @return Сводка за последние window
+     */
+    @GetMapping("/sliding")
+    public ResponseEntity<ReportRollup> getSlidingRollup(@RequestParam(defaultValue = "PT5M") String window) {
+        log.debug("Запрос сводки отчётов за последние {}", window);
+        return ResponseEntity.ok(reportRollupService.getSlidingRollup(Duration.parse(window)));
+    }
+
+    /**
+     * @param size  Длительность окна в формате ISO-8601, например PT1M
+     * @param count Количество окон
+     * @return Сводки за последние count окон длительностью size
+     */
+    @GetMapping("/tumbling")
+    public ResponseEntity<List<ReportRollup>> getTumblingRollups(@RequestParam(defaultValue = "PT1M") String size,
+                                                                 @RequestParam(defaultValue = "10") int count) {
+        log.debug("Запрос сводок отчётов за {} окон по {}", count, size);
+        return ResponseEntity.ok(reportRollupService.getTumblingRollups(Duration.parse(size), count));
+    }
+
+    @ExceptionHandler({IllegalArgumentException.class, DateTimeException.class})
+    public ResponseEntity<String> handleIllegalWindow(RuntimeException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+}
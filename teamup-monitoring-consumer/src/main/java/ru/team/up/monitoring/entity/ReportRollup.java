@@ -0,0 +1,39 @@
+package ru.team.up.monitoring.entity;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Сводка отчётов мониторинга за окно времени
+ */
+@Value
+@Builder
+public class ReportRollup {
+    /**
+     * Начало окна включительно
+     */
+    Instant windowStart;
+    /**
+     * Конец окна не включительно
+     */
+    Instant windowEnd;
+    /**
+     * Все отчёты окна
+     */
+    RollupCounter total;
+    /**
+     * Отчёты по имени отчёта, имена сверх ограничения учитываются под именем other
+     */
+    Map<String, RollupCounter> reportNames;
+    /**
+     * Отчёты по модулю приложения
+     */
+    Map<String, RollupCounter> appModules;
+    /**
+     * Отчёты по типу инициатора
+     */
+    Map<String, RollupCounter> initiatorTypes;
+}
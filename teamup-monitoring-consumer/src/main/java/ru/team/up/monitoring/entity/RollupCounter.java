@@ -0,0 +1,19 @@
+package ru.team.up.monitoring.entity;
+
+import lombok.Value;
+
+/**
+ * Количество отчётов и отчётов со статусом FAILURE
+ */
+@Value
+public class RollupCounter {
+    long total;
+    long failures;
+
+    /**
+     * @return Доля отчётов с ошибкой
+     */
+    public double getErrorRatio() {
+        return total == 0 ? 0 : (double) failures / total;
+    }
+}
@@ -0,0 +1,37 @@
+package ru.team.up.monitoring.listener;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+import ru.team.up.dto.ReportDto;
+import ru.team.up.monitoring.service.ReportRollupService;
+
+import java.util.List;
+
+@Slf4j
+@Component
+public class KafkaReportListener {
+
+    private final ReportRollupService reportRollupService;
+
+    @Autowired
+    public KafkaReportListener(ReportRollupService reportRollupService) {
+        this.reportRollupService = reportRollupService;
+    }
+
+    @KafkaListener(topics = "${kafka.topic.name}", containerFactory = "reportKafkaListenerContainerFactory")
+    public void listener(List<ReportDto> reports) {
+        int skipped = 0;
+        for (ReportDto report : reports) {
+            if (report == null) {
+                skipped++;
+            } else {
+                reportRollupService.record(report);
+            }
+        }
+        if (skipped > 0) {
+            log.warn("Пропущено {} из {} отчётов, которые не удалось разобрать", skipped, reports.size());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ru.team.up.monitoring.service;
+
+import ru.team.up.dto.ReportDto;
+import ru.team.up.monitoring.entity.ReportRollup;
+
+import java.time.Duration;
+import java.util.List;
+
+public interface ReportRollupService {
+
+    void record(ReportDto report);
+
+    /**
+     * @param window Длительность окна, округляется вверх до интервала хранения
+     * @return Сводка за последние window
+     */
+    ReportRollup getSlidingRollup(Duration window);
+
+    /**
+     * @param size  Длительность окна, кратная интервалу хранения
+     * @param count Количество окон
+     * @return Сводки за последние count окон, выровненных по size, начиная с более раннего. Последнее окно текущее
+     */
+    List<ReportRollup> getTumblingRollups(Duration size, int count);
+
+    /**
+     * @return Количество отчётов, пришедших позже срока хранения интервала
+     */
+    long getDroppedReports();
+
+    /**
+     * Сжатие закрытых интервалов в одну запись на диске
+     */
+    void compact();
+}
@@ -0,0 +1,333 @@
+package ru.team.up.monitoring.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.team.up.dto.AppModuleNameDto;
+import ru.team.up.dto.InitiatorTypeDto;
+import ru.team.up.dto.ReportDto;
+import ru.team.up.dto.ReportStatusDto;
+import ru.team.up.monitoring.entity.ReportRollup;
+import ru.team.up.monitoring.entity.RollupCounter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Сводки отчётов мониторинга в памяти.
+ * <p>
+ * Время делится на интервалы фиксированной длины, интервалы хранятся в кольцевом буфере на срок хранения.
+ * Интервал - один массив счётчиков long: пары (всего, с ошибкой) по номеру имени отчёта, модулю и типу инициатора.
+ * Имена отчётов получают номера при первом появлении, их количество ограничено, поэтому память не растёт
+ * с потоком отчётов. Окна запросов собираются сложением интервалов. Закрытые интервалы периодически
+ * сжимаются в одну запись и дописываются в файл.
+ */
+@Slf4j
+@Service
+@PropertySource("classpath:monitoring-consumer.properties")
+public class ReportRollupServiceImpl implements ReportRollupService {
+
+    static final String OTHER = "other";
+    static final String UNKNOWN = "unknown";
+
+    private static final AppModuleNameDto[] MODULES = AppModuleNameDto.values();
+    private static final InitiatorTypeDto[] INITIATOR_TYPES = InitiatorTypeDto.values();
+
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final long bucketMillis;
+    private final int maxReportNames;
+    private final Path directory;
+
+    /**
+     * Смещения групп счётчиков в массиве интервала. Нулевой элемент каждой группы - имя other
+     * либо неизвестный модуль или тип инициатора
+     */
+    private final int moduleOffset;
+    private final int initiatorTypeOffset;
+    private final int counters;
+
+    private final Bucket[] ring;
+    private final Map<String, Integer> reportNameIndex = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> reportNames;
+    private final AtomicLong dropped = new AtomicLong();
+    private long compactedBucket;
+
+    @Autowired
+    public ReportRollupServiceImpl(ObjectMapper objectMapper,
+                                   @Value("${monitoring.rollup.bucket}") String bucket,
+                                   @Value("${monitoring.rollup.retention}") String retention,
+                                   @Value("${monitoring.rollup.report.names.max}") int maxReportNames,
+                                   @Value("${monitoring.rollup.dir}") String directory) {
+        this(objectMapper, Clock.systemUTC(), Duration.parse(bucket), Duration.parse(retention), maxReportNames,
+                Paths.get(directory));
+    }
+
+    ReportRollupServiceImpl(ObjectMapper objectMapper, Clock clock, Duration bucket, Duration retention,
+                            int maxReportNames, Path directory) {
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.bucketMillis = bucket.toMillis();
+        this.maxReportNames = maxReportNames;
+        this.directory = directory;
+
+        this.moduleOffset = 2 * (maxReportNames + 1);
+        this.initiatorTypeOffset = moduleOffset + 2 * (MODULES.length + 1);
+        this.counters = initiatorTypeOffset + 2 * (INITIATOR_TYPES.length + 1);
+
+        this.ring = new Bucket[(int) Math.max(1, retention.toMillis() / bucketMillis)];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new Bucket(counters);
+        }
+        this.reportNames = new AtomicReferenceArray<>(maxReportNames + 1);
+        this.reportNames.set(0, OTHER);
+        this.compactedBucket = currentBucket() - 1;
+    }
+
+    /**
+     * Отчёт учитывается в интервале своего времени. Отчёт без времени или из будущего - в текущем интервале
+     */
+    @Override
+    public void record(ReportDto report) {
+        long current = currentBucket();
+        long index = report.getTime() == null ? current : Math.min(current, report.getTime().getTime() / bucketMillis);
+        if (index <= current - ring.length) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        Bucket bucket = ring[(int) (index % ring.length)];
+        if (bucket.epoch != index && !bucket.rotate(index)) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        boolean failure = report.getReportStatus() == ReportStatusDto.FAILURE;
+        increment(bucket.counters, 2 * reportNameIndex(report.getReportName()), failure);
+        increment(bucket.counters, moduleOffset + 2 * ordinal(report.getAppModuleName()), failure);
+        increment(bucket.counters, initiatorTypeOffset + 2 * ordinal(report.getInitiatorType()), failure);
+    }
+
+    @Override
+    public ReportRollup getSlidingRollup(Duration window) {
+        long current = currentBucket();
+        long buckets = Math.min(ring.length, Math.max(1, (window.toMillis() + bucketMillis - 1) / bucketMillis));
+        return rollup(current - buckets + 1, current + 1);
+    }
+
+    /**
+     * Окна, целиком вышедшие за срок хранения, не возвращаются, поэтому count больше числа хранимых окон
+     * не увеличивает ответ
+     */
+    @Override
+    public List<ReportRollup> getTumblingRollups(Duration size, int count) {
+        if (size.toMillis() < bucketMillis || size.toMillis() % bucketMillis != 0) {
+            throw new IllegalArgumentException("Длительность окна должна быть кратна " + Duration.ofMillis(bucketMillis));
+        }
+        if (count < 1) {
+            throw new IllegalArgumentException("Количество окон должно быть положительным");
+        }
+        long windowBuckets = size.toMillis() / bucketMillis;
+        long current = currentBucket();
+        long oldest = Math.max(current - ring.length + 1, 0);
+        long lastWindow = current / windowBuckets;
+        long firstWindow = Math.max(lastWindow - count + 1, oldest / windowBuckets);
+
+        List<ReportRollup> rollups = new ArrayList<>((int) (lastWindow - firstWindow + 1));
+        for (long window = firstWindow; window <= lastWindow; window++) {
+            long from = window * windowBuckets;
+            rollups.add(rollup(from, from + windowBuckets));
+        }
+        return rollups;
+    }
+
+    @Override
+    public long getDroppedReports() {
+        return dropped.get();
+    }
+
+    /**
+     * Закрытые с прошлого сжатия интервалы складываются в одну сводку, сводка дописывается строкой JSON
+     * в файл текущего дня. Интервалы остаются в памяти до истечения срока хранения
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${monitoring.rollup.compaction.delay}")
+    public synchronized void compact() {
+        long current = currentBucket();
+        long from = Math.max(compactedBucket + 1, current - ring.length + 1);
+        if (from >= current) {
+            return;
+        }
+        ReportRollup rollup = rollup(from, current);
+        compactedBucket = current - 1;
+        if (rollup.getTotal().getTotal() == 0) {
+            return;
+        }
+
+        Path file = directory.resolve("reports-" + LocalDate.ofInstant(rollup.getWindowStart(), ZoneOffset.UTC) + ".jsonl");
+        try {
+            Files.createDirectories(directory);
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(objectMapper.writeValueAsString(rollup));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать сводку отчётов в " + file, e);
+        }
+        log.debug("Сводка отчётов с {} по {} записана в {}: отчётов {}, с ошибкой {}, отброшено опоздавших {}",
+                rollup.getWindowStart(), rollup.getWindowEnd(), file, rollup.getTotal().getTotal(),
+                rollup.getTotal().getFailures(), dropped.get());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compact();
+    }
+
+    /**
+     * @param from Номер первого интервала
+     * @param to   Номер интервала после последнего
+     */
+    private ReportRollup rollup(long from, long to) {
+        long[] sums = new long[counters];
+        for (long index = Math.max(from, currentBucket() - ring.length + 1); index < to; index++) {
+            Bucket bucket = ring[(int) (index % ring.length)];
+            if (bucket.epoch != index) {
+                continue;
+            }
+            for (int i = 0; i < counters; i++) {
+                sums[i] += bucket.counters.get(i);
+            }
+        }
+
+        Map<String, RollupCounter> byReportName = new LinkedHashMap<>();
+        for (int i = 0; i <= maxReportNames; i++) {
+            String name = reportNames.get(i);
+            if (name != null) {
+                putCounter(byReportName, name, sums, 2 * i);
+            }
+        }
+        Map<String, RollupCounter> byModule = new LinkedHashMap<>();
+        Map<String, RollupCounter> byInitiatorType = new LinkedHashMap<>();
+        long total = 0;
+        long failures = 0;
+        for (int i = 0; i <= MODULES.length; i++) {
+            putCounter(byModule, i == 0 ? UNKNOWN : MODULES[i - 1].name(), sums, moduleOffset + 2 * i);
+            total += sums[moduleOffset + 2 * i];
+            failures += sums[moduleOffset + 2 * i + 1];
+        }
+        for (int i = 0; i <= INITIATOR_TYPES.length; i++) {
+            putCounter(byInitiatorType, i == 0 ? UNKNOWN : INITIATOR_TYPES[i - 1].name(), sums,
+                    initiatorTypeOffset + 2 * i);
+        }
+
+        return ReportRollup.builder()
+                .windowStart(Instant.ofEpochMilli(from * bucketMillis))
+                .windowEnd(Instant.ofEpochMilli(to * bucketMillis))
+                .total(new RollupCounter(total, failures))
+                .reportNames(byReportName)
+                .appModules(byModule)
+                .initiatorTypes(byInitiatorType)
+                .build();
+    }
+
+    /**
+     * @return Номер имени отчёта. Новые имена сверх ограничения и отсутствующее имя получают номер 0 (other)
+     */
+    private int reportNameIndex(String reportName) {
+        if (reportName == null) {
+            return 0;
+        }
+        Integer index = reportNameIndex.get(reportName);
+        if (index != null) {
+            return index;
+        }
+        synchronized (reportNameIndex) {
+            index = reportNameIndex.get(reportName);
+            if (index != null) {
+                return index;
+            }
+            int size = reportNameIndex.size();
+            if (size == maxReportNames) {
+                return 0;
+            }
+            reportNames.set(size + 1, reportName);
+            reportNameIndex.put(reportName, size + 1);
+            return size + 1;
+        }
+    }
+
+    private long currentBucket() {
+        return clock.millis() / bucketMillis;
+    }
+
+    private static int ordinal(Enum<?> value) {
+        return value == null ? 0 : value.ordinal() + 1;
+    }
+
+    private static void increment(AtomicLongArray counters, int index, boolean failure) {
+        counters.incrementAndGet(index);
+        if (failure) {
+            counters.incrementAndGet(index + 1);
+        }
+    }
+
+    private static void putCounter(Map<String, RollupCounter> counters, String key, long[] sums, int index) {
+        if (sums[index] != 0) {
+            counters.put(key, new RollupCounter(sums[index], sums[index + 1]));
+        }
+    }
+
+    /**
+     * Ячейка кольцевого буфера. Номер интервала меняется только вперёд, счётчики при этом обнуляются
+     */
+    private static class Bucket {
+        private final AtomicLongArray counters;
+        private volatile long epoch = -1;
+
+        private Bucket(int counters) {
+            this.counters = new AtomicLongArray(counters);
+        }
+
+        /**
+         * @return false, если ячейка уже занята более поздним интервалом
+         */
+        private synchronized boolean rotate(long index) {
+            if (epoch > index) {
+                return false;
+            }
+            if (epoch < index) {
+                for (int i = 0; i < counters.length(); i++) {
+                    counters.set(i, 0);
+                }
+                epoch = index;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package ru.team.up.monitoring.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.team.up.dto.AppModuleNameDto;
+import ru.team.up.dto.InitiatorTypeDto;
+import ru.team.up.dto.ReportDto;
+import ru.team.up.dto.ReportStatusDto;
+import ru.team.up.monitoring.entity.ReportRollup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportRollupServiceImplTest {
+
+    @TempDir
+    Path directory;
+
+    private TestClock clock;
+    private ReportRollupService reportRollupService;
+
+    @BeforeEach
+    private void setUpEntity() {
+        clock = new TestClock(1_000_000L);
+        // Интервалы по 10 секунд хранятся минуту, не больше 2 имён отчётов
+        reportRollupService = new ReportRollupServiceImpl(new ObjectMapper().findAndRegisterModules(), clock,
+                Duration.ofSeconds(10), Duration.ofMinutes(1), 2, directory);
+    }
+
+    @Test
+    void slidingRollup() {
+        reportRollupService.record(report("EventController/createEvent", ReportStatusDto.SUCCESS));
+        reportRollupService.record(report("EventController/createEvent", ReportStatusDto.FAILURE));
+        clock.advance(10_000);
+        reportRollupService.record(report("UserController/getUser", ReportStatusDto.SUCCESS));
+        reportRollupService.record(report(null, ReportStatusDto.SUCCESS));
+
+        ReportRollup lastInterval = reportRollupService.getSlidingRollup(Duration.ofSeconds(10));
+        assertEquals(2, lastInterval.getTotal().getTotal());
+        assertNull(lastInterval.getReportNames().get("EventController/createEvent"));
+
+        ReportRollup rollup = reportRollupService.getSlidingRollup(Duration.ofSeconds(20));
+        assertEquals(4, rollup.getTotal().getTotal());
+        assertEquals(1, rollup.getTotal().getFailures());
+        assertEquals(0.5, rollup.getReportNames().get("EventController/createEvent").getErrorRatio());
+        assertEquals(1, rollup.getReportNames().get(ReportRollupServiceImpl.OTHER).getTotal());
+        assertEquals(4, rollup.getAppModules().get(AppModuleNameDto.TEAMUP_INPUT.name()).getTotal());
+        assertEquals(4, rollup.getInitiatorTypes().get(InitiatorTypeDto.USER.name()).getTotal());
+    }
+
+    @Test
+    void reportNamesAreLimited() {
+        reportRollupService.record(report("a", ReportStatusDto.SUCCESS));
+        reportRollupService.record(report("b", ReportStatusDto.SUCCESS));
+        reportRollupService.record(report("c", ReportStatusDto.FAILURE));
+
+        ReportRollup rollup = reportRollupService.getSlidingRollup(Duration.ofMinutes(1));
+        assertEquals(3, rollup.getReportNames().size());
+        assertEquals(1, rollup.getReportNames().get(ReportRollupServiceImpl.OTHER).getFailures());
+    }
+
+    @Test
+    void tumblingRollups() {
+        // 1 000 000 мс - начало 20-секундного окна
+        reportRollupService.record(report("a", ReportStatusDto.SUCCESS));
+        clock.advance(10_000);
+        reportRollupService.record(report("a", ReportStatusDto.SUCCESS));
+        clock.advance(10_000);
+        reportRollupService.record(report("a", ReportStatusDto.FAILURE));
+
+        List<ReportRollup> rollups = reportRollupService.getTumblingRollups(Duration.ofSeconds(20), 2);
+        assertEquals(2, rollups.size());
+        assertEquals(Instant.ofEpochMilli(1_000_000L), rollups.get(0).getWindowStart());
+        assertEquals(2, rollups.get(0).getTotal().getTotal());
+        assertEquals(1, rollups.get(1).getTotal().getFailures());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> reportRollupService.getTumblingRollups(Duration.ofSeconds(15), 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> reportRollupService.getTumblingRollups(Duration.ofSeconds(20), 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> reportRollupService.getTumblingRollups(Duration.ofSeconds(20), -1));
+    }
+
+    @Test
+    void tumblingRollupsAreLimitedByRetention() {
+        reportRollupService.record(report("a", ReportStatusDto.SUCCESS));
+
+        // Минута хранения покрывает не больше 4 окон по 20 секунд, включая частично вышедшее за срок
+        List<ReportRollup> rollups = reportRollupService.getTumblingRollups(Duration.ofSeconds(20), Integer.MAX_VALUE);
+        assertTrue(rollups.size() <= 4);
+        assertEquals(1, rollups.get(rollups.size() - 1).getTotal().getTotal());
+    }
+
+    @Test
+    void expiredIntervalsAreDropped() {
+        ReportDto late = report("a", ReportStatusDto.SUCCESS);
+        reportRollupService.record(late);
+        clock.advance(60_000);
+
+        assertEquals(0, reportRollupService.getSlidingRollup(Duration.ofMinutes(1)).getTotal().getTotal());
+        reportRollupService.record(late);
+        assertEquals(1, reportRollupService.getDroppedReports());
+    }
+
+    @Test
+    void compact() throws Exception {
+        reportRollupService.record(report("a", ReportStatusDto.SUCCESS));
+        reportRollupService.record(report("a", ReportStatusDto.FAILURE));
+        // Текущий интервал не закрыт и не сжимается
+        reportRollupService.compact();
+        assertFalse(Files.exists(directory.resolve("reports-1970-01-01.jsonl")));
+
+        clock.advance(20_000);
+        reportRollupService.record(report("b", ReportStatusDto.SUCCESS));
+        reportRollupService.compact();
+        reportRollupService.compact();
+
+        List<String> lines = Files.readAllLines(directory.resolve("reports-1970-01-01.jsonl"));
+        assertEquals(1, lines.size());
+        JsonNode rollup = new ObjectMapper().readTree(lines.get(0));
+        assertEquals(2, rollup.at("/total/total").asLong());
+        assertEquals(0.5, rollup.at("/reportNames/a/errorRatio").asDouble());
+    }
+
+    private ReportDto report(String reportName, ReportStatusDto status) {
+        return ReportDto.builder()
+                .reportName(reportName)
+                .appModuleName(AppModuleNameDto.TEAMUP_INPUT)
+                .initiatorType(InitiatorTypeDto.USER)
+                .reportStatus(status)
+                .time(new Date(clock.millis()))
+                .build();
+    }
+
+    private static class TestClock extends Clock {
+        private long millis;
+
+        private TestClock(long millis) {
+            this.millis = millis;
+        }
+
+        private void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
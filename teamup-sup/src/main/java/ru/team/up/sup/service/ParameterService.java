@@ -157,9 +157,21 @@ public interface ParameterService {
     SupParameter<Boolean> getAllEventByCityEnabled = new SupParameter<>(
             "TEAMUP_CORE_COUNT_RETURN_ALL_EVENTS_BY_CITY",
             true);
+    SupParameter<Boolean> getTrendingEventsByCityEnabled = new SupParameter<>(
+            "TEAMUP_CORE_COUNT_RETURN_TRENDING_EVENTS_BY_CITY",
+            true);
+    SupParameter<Boolean> getRecommendedEventsEnabled = new SupParameter<>(
+            "TEAMUP_CORE_COUNT_RETURN_RECOMMENDED_EVENTS",
+            true);
+    SupParameter<Boolean> getUserInboxEnabled = new SupParameter<>(
+            "TEAMUP_CORE_COUNT_RETURN_USER_INBOX",
+            true);
     SupParameter<Boolean> getFindEventsByNameEnabled = new SupParameter<>(
             "TEAMUP_CORE_COUNT_RETURN_EVENTS_BY_NAME",
             true);
+    SupParameter<Boolean> getSearchEventsEnabled = new SupParameter<>(
+            "TEAMUP_CORE_COUNT_RETURN_SEARCH_EVENTS",
+            true);
     SupParameter<Boolean> getFindEventsByAuthorEnabled = new SupParameter<>(
             "TEAMUP_CORE_COUNT_RETURN_EVENTS_BY_AUTHOR",
             true);
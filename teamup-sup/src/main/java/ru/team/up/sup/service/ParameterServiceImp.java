@@ -47,7 +47,11 @@ public class ParameterServiceImp implements ParameterService {
             getIsAvailableEmailEnabled,
             getAllEventsPrivateEnabled,
             getAllEventByCityEnabled,
+            getTrendingEventsByCityEnabled,
+            getRecommendedEventsEnabled,
+            getUserInboxEnabled,
             getFindEventsByNameEnabled,
+            getSearchEventsEnabled,
             getFindEventsByAuthorEnabled,
             getFindEventsByTypeEnabled,
             getCreateEventEnabled,
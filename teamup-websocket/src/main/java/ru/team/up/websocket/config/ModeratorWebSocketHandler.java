@@ -1,35 +1,104 @@
 package ru.team.up.websocket.config;
 
 import lombok.AllArgsConstructor;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.json.JSONArray;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponentsBuilder;
 import ru.team.up.core.service.AssignedEventsService;
+import ru.team.up.core.service.ModeratorPresenceService;
+import ru.team.up.websocket.service.ModeratorSessionRegistry;
 
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Обработчик websocket-сессий модераторов.
+ * <p>
+ * Модератор указывает свой id параметром moderatorId при подключении либо первым сообщением.
+ * После этого сессия попадает в реестр, и новые назначения мероприятий приходят в неё без запроса.
+ * Сообщение с id модератора возвращает список назначенных ему мероприятий: первый раз полностью,
+ * дальше только новые мероприятия и id снятых с модератора.
+ * Сообщения модератора и ответы pong на периодический ping считаются сигналами его присутствия.
+ * Сессия с id, которому не соответствует модератор в БД, закрывается.
+ */
 @Slf4j
 @Component
+@ConditionalOnProperty(name = "teamup.node.role.websocket", matchIfMissing = true)
 @AllArgsConstructor(onConstructor = @__(@Autowired))
 public class ModeratorWebSocketHandler extends TextWebSocketHandler {
 
     AssignedEventsService assignedEventsService;
+    ModeratorSessionRegistry moderatorSessionRegistry;
+    ModeratorPresenceService moderatorPresenceService;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        URI uri = session.getUri();
+        String moderatorIdParam = uri == null ? null : UriComponentsBuilder.fromUri(uri).build()
+                .getQueryParams().getFirst("moderatorId");
+        if (moderatorIdParam != null) {
+            Long moderatorId = Long.parseLong(moderatorIdParam);
+            if (!moderatorPresenceService.heartbeat(moderatorId)) {
+                reject(session, moderatorId);
+                return;
+            }
+            moderatorSessionRegistry.register(moderatorId, session);
+        }
+    }
 
-    @SneakyThrows
     @Override
     public void handleTextMessage(WebSocketSession session, TextMessage message) {
 
         log.debug("Выполняется метод handleTextMessage с входным параметром {}", message.toString());
 
-        session.sendMessage(new TextMessage(
-                (new JSONArray(
-                        assignedEventsService.getAllEventsByModeratorId(Long.parseLong(message.getPayload()))
-                )).toString()));
+        Long moderatorId = Long.parseLong(message.getPayload());
+        if (!moderatorPresenceService.heartbeat(moderatorId)) {
+            reject(session, moderatorId);
+            return;
+        }
+        // Ответ отправляется через сессию из реестра, чтобы не пересекаться с отправкой назначений
+        moderatorSessionRegistry.synchronize(moderatorId, session,
+                assignedEventsService.getEventViewsByModeratorId(moderatorId));
 
         log.debug("Выполнение метода handleTextMessage завершено");
     }
 
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        Long moderatorId = moderatorSessionRegistry.getModeratorId(session);
+        if (moderatorId != null) {
+            moderatorPresenceService.heartbeat(moderatorId);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        moderatorSessionRegistry.unregister(session);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("Ошибка websocket-сессии {}: {}", session.getId(), exception.toString());
+        moderatorSessionRegistry.unregister(session);
+    }
+
+    /**
+     * Закрытие сессии, указавшей id несуществующего модератора
+     */
+    private void reject(WebSocketSession session, Long moderatorId) {
+        log.debug("Сессия {} закрыта: модератора с ID {} нет", session.getId(), moderatorId);
+        moderatorSessionRegistry.unregister(session);
+        try {
+            session.close(CloseStatus.POLICY_VIOLATION);
+        } catch (IOException e) {
+            log.debug("Не удалось закрыть сессию {}: {}", session.getId(), e.toString());
+        }
+    }
 }
@@ -1,6 +1,7 @@
 package ru.team.up.websocket.config;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.WebSocketHandler;
@@ -10,8 +11,12 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
 import org.springframework.web.socket.server.support.HttpSessionHandshakeInterceptor;
 
+/**
+ * Точка подключения websocket-сессий модераторов. Поднимается только на экземплярах с ролью websocket
+ */
 @Configuration
 @EnableWebSocket
+@ConditionalOnProperty(name = "teamup.node.role.websocket", matchIfMissing = true)
 public class WebSocketConfig implements WebSocketConfigurer {
 
     @Autowired
@@ -0,0 +1,43 @@
+package ru.team.up.websocket.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Value;
+import ru.team.up.core.projections.ModeratorEventView;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Сообщение модератору через websocket.
+ * Кроме первого списка (SNAPSHOT) отправляются только изменения: новые мероприятия целиком
+ * и id снятых мероприятий. Пустые поля не сериализуются
+ */
+@Value
+@Builder
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class ModeratorMessage {
+
+    public static final int CURRENT_VERSION = 1;
+
+    int version;
+    ModeratorMessageType type;
+    List<ModeratorEventView> events;
+    Collection<Long> eventIds;
+
+    public static ModeratorMessage snapshot(List<ModeratorEventView> events) {
+        return of(ModeratorMessageType.SNAPSHOT).events(events).build();
+    }
+
+    public static ModeratorMessage assigned(List<ModeratorEventView> events) {
+        return of(ModeratorMessageType.ASSIGNED).events(events).build();
+    }
+
+    public static ModeratorMessage unassigned(Collection<Long> eventIds) {
+        return of(ModeratorMessageType.UNASSIGNED).eventIds(eventIds).build();
+    }
+
+    private static ModeratorMessageBuilder of(ModeratorMessageType type) {
+        return builder().version(CURRENT_VERSION).type(type);
+    }
+}
@@ -0,0 +1,19 @@
+package ru.team.up.websocket.payload;
+
+/**
+ * Тип сообщения модератору
+ */
+public enum ModeratorMessageType {
+    /**
+     * Полный список назначенных мероприятий, отправляется сессии один раз
+     */
+    SNAPSHOT,
+    /**
+     * Новые назначенные мероприятия
+     */
+    ASSIGNED,
+    /**
+     * Id мероприятий, снятых с модератора
+     */
+    UNASSIGNED
+}
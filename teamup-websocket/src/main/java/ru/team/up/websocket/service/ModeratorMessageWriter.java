@@ -0,0 +1,30 @@
+package ru.team.up.websocket.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.stereotype.Component;
+import ru.team.up.websocket.payload.ModeratorMessage;
+
+/**
+ * Сериализация сообщений модераторам в JSON.
+ * ObjectWriter настраивается один раз и потокобезопасен, поэтому используется всеми отправками
+ */
+@Component
+public class ModeratorMessageWriter {
+
+    private static final ObjectWriter WRITER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .writerFor(ModeratorMessage.class);
+
+    public String write(ModeratorMessage message) {
+        try {
+            return WRITER.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Ошибка преобразования сообщения модератору в JSON", e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package ru.team.up.websocket.service;
+
+import org.springframework.web.socket.WebSocketSession;
+import ru.team.up.core.projections.ModeratorEventView;
+import ru.team.up.websocket.payload.ModeratorMessage;
+
+import java.util.List;
+
+/**
+ * Реестр открытых websocket-сессий модераторов
+ */
+public interface ModeratorSessionRegistry {
+
+    WebSocketSession register(Long moderatorId, WebSocketSession session);
+
+    void unregister(WebSocketSession session);
+
+    int send(Long moderatorId, String message);
+
+    int push(Long moderatorId, ModeratorMessage message);
+
+    void synchronize(Long moderatorId, WebSocketSession session, List<ModeratorEventView> events);
+
+    boolean isConnected(Long moderatorId);
+
+    Long getModeratorId(WebSocketSession session);
+
+    int ping();
+}
@@ -0,0 +1,285 @@
+package ru.team.up.websocket.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import ru.team.up.core.projections.ModeratorEventView;
+import ru.team.up.websocket.payload.ModeratorMessage;
+import ru.team.up.websocket.payload.ModeratorMessageType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр открытых websocket-сессий модераторов по id модератора.
+ * <p>
+ * Назначения мероприятий отправляются модератору сразу в уже открытые сессии, без нового подключения.
+ * Каждая сессия обёрнута в ConcurrentWebSocketSessionDecorator: отправка из разных потоков
+ * становится потокобезопасной, а очередь неотправленных сообщений ограничена по объёму и времени,
+ * поэтому медленный клиент не задерживает отправку остальным модераторам. При переполнении очереди сессия
+ * закрывается, а не теряет сообщения молча: после переподключения клиент получает полный список заново.
+ * <p>
+ * Для каждой сессии запоминаются id уже отправленных мероприятий: полный список отправляется сессии
+ * один раз, дальше только изменения. Сообщение сериализуется один раз для всех сессий модератора.
+ */
+@Slf4j
+@Service
+@PropertySource("classpath:websocket.properties")
+public class ModeratorSessionRegistryImpl implements ModeratorSessionRegistry {
+
+    private static final PingMessage PING = new PingMessage();
+
+    private final ModeratorMessageWriter moderatorMessageWriter;
+    private final int sendTimeLimit;
+    private final int bufferSizeLimit;
+
+    private final Map<Long, Set<WebSocketSession>> sessionsByModerator = new ConcurrentHashMap<>();
+    private final Map<String, Long> moderatorBySessionId = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> deliveredEventsBySessionId = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ModeratorSessionRegistryImpl(ModeratorMessageWriter moderatorMessageWriter,
+                                        @Value("${websocket.moderator.send.time.limit}") int sendTimeLimit,
+                                        @Value("${websocket.moderator.buffer.size.limit}") int bufferSizeLimit) {
+        this.moderatorMessageWriter = moderatorMessageWriter;
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = bufferSizeLimit;
+    }
+
+    /**
+     * @param moderatorId Идентификатор модератора
+     * @param session     Открытая сессия
+     * @return Сессия с ограниченной очередью отправки, через которую нужно отправлять сообщения
+     */
+    @Override
+    public WebSocketSession register(Long moderatorId, WebSocketSession session) {
+        Long previous = moderatorBySessionId.put(session.getId(), moderatorId);
+        if (previous != null && !previous.equals(moderatorId)) {
+            removeSession(previous, session.getId());
+            deliveredEventsBySessionId.remove(session.getId());
+        }
+
+        WebSocketSession[] result = new WebSocketSession[1];
+        sessionsByModerator.compute(moderatorId, (id, sessions) -> {
+            Set<WebSocketSession> moderatorSessions = sessions == null ? ConcurrentHashMap.newKeySet() : sessions;
+            for (WebSocketSession registered : moderatorSessions) {
+                if (registered.getId().equals(session.getId())) {
+                    result[0] = registered;
+                    return moderatorSessions;
+                }
+            }
+            result[0] = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimit, bufferSizeLimit,
+                    ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE);
+            moderatorSessions.add(result[0]);
+            log.debug("Сессия {} зарегистрирована для модератора с ID {}", session.getId(), moderatorId);
+            return moderatorSessions;
+        });
+
+        return result[0];
+    }
+
+    @Override
+    public void unregister(WebSocketSession session) {
+        Long moderatorId = moderatorBySessionId.remove(session.getId());
+        deliveredEventsBySessionId.remove(session.getId());
+        if (moderatorId != null) {
+            removeSession(moderatorId, session.getId());
+            log.debug("Сессия {} модератора с ID {} удалена из реестра", session.getId(), moderatorId);
+        }
+    }
+
+    /**
+     * @param moderatorId Идентификатор модератора
+     * @param message     Текст сообщения
+     * @return Количество сессий модератора, в которые поставлено сообщение
+     */
+    @Override
+    public int send(Long moderatorId, String message) {
+        return send(moderatorId, new TextMessage(message), null);
+    }
+
+    /**
+     * Отправка изменения списка мероприятий во все сессии модератора
+     *
+     * @param moderatorId Идентификатор модератора
+     * @param message     Новые или снятые мероприятия
+     * @return Количество сессий модератора, в которые поставлено сообщение
+     */
+    @Override
+    public int push(Long moderatorId, ModeratorMessage message) {
+        if (!isConnected(moderatorId)) {
+            log.debug("Модератор с ID {} не подключён", moderatorId);
+            return 0;
+        }
+        return send(moderatorId, new TextMessage(moderatorMessageWriter.write(message)), message);
+    }
+
+    /**
+     * Отправка сессии актуального списка мероприятий модератора.
+     * Первый раз отправляется полный список, дальше только отличия от уже отправленного
+     *
+     * @param moderatorId Идентификатор модератора
+     * @param session     Сессия, запросившая список
+     * @param events      Мероприятия, назначенные на модератора
+     */
+    @Override
+    public void synchronize(Long moderatorId, WebSocketSession session, List<ModeratorEventView> events) {
+        WebSocketSession registered = register(moderatorId, session);
+        Set<Long> delivered = deliveredEventsBySessionId.get(session.getId());
+
+        List<ModeratorMessage> messages = new ArrayList<>(2);
+        if (delivered == null) {
+            messages.add(ModeratorMessage.snapshot(events));
+        } else {
+            Set<Long> removed = new HashSet<>(delivered);
+            List<ModeratorEventView> added = new ArrayList<>();
+            for (ModeratorEventView event : events) {
+                if (!removed.remove(event.getId())) {
+                    added.add(event);
+                }
+            }
+            if (!added.isEmpty()) {
+                messages.add(ModeratorMessage.assigned(added));
+            }
+            if (!removed.isEmpty()) {
+                messages.add(ModeratorMessage.unassigned(removed));
+            }
+        }
+
+        for (ModeratorMessage message : messages) {
+            if (!sendTo(moderatorId, registered, new TextMessage(moderatorMessageWriter.write(message)), message)) {
+                return;
+            }
+        }
+        log.debug("Сессии {} модератора с ID {} отправлено изменений: {}", session.getId(), moderatorId,
+                messages.size());
+    }
+
+    @Override
+    public boolean isConnected(Long moderatorId) {
+        Set<WebSocketSession> sessions = sessionsByModerator.get(moderatorId);
+        return sessions != null && !sessions.isEmpty();
+    }
+
+    @Override
+    public Long getModeratorId(WebSocketSession session) {
+        return moderatorBySessionId.get(session.getId());
+    }
+
+    /**
+     * Отправка ping во все сессии. Браузер отвечает pong без участия клиентского кода,
+     * ответы служат сигналами присутствия модератора
+     *
+     * @return Количество сессий, в которые отправлен ping
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${websocket.moderator.ping.interval}")
+    public int ping() {
+        int sent = 0;
+        for (Map.Entry<Long, Set<WebSocketSession>> entry : sessionsByModerator.entrySet()) {
+            for (WebSocketSession session : entry.getValue()) {
+                if (sendTo(entry.getKey(), session, PING, null)) {
+                    sent++;
+                }
+            }
+        }
+        return sent;
+    }
+
+    private int send(Long moderatorId, TextMessage textMessage, ModeratorMessage message) {
+        Set<WebSocketSession> sessions = sessionsByModerator.get(moderatorId);
+        if (sessions == null) {
+            log.debug("Модератор с ID {} не подключён", moderatorId);
+            return 0;
+        }
+
+        int delivered = 0;
+        for (WebSocketSession session : sessions) {
+            if (sendTo(moderatorId, session, textMessage, message)) {
+                delivered++;
+            }
+        }
+        log.debug("Сообщение отправлено модератору с ID {} в {} сессий", moderatorId, delivered);
+
+        return delivered;
+    }
+
+    /**
+     * @param message Отправляемое изменение списка мероприятий, null - произвольное сообщение
+     * @return Поставлено ли сообщение в очередь сессии
+     */
+    private boolean sendTo(Long moderatorId, WebSocketSession session, WebSocketMessage<?> webSocketMessage,
+                           ModeratorMessage message) {
+        if (!session.isOpen()) {
+            unregister(session);
+            return false;
+        }
+        try {
+            session.sendMessage(webSocketMessage);
+        } catch (IOException | RuntimeException e) {
+            // Превышено время отправки, переполнена очередь или сессия закрыта: отправленное ранее
+            // могло не дойти, поэтому сессия закрывается и забывается вместе со списком отправленного
+            log.debug("Не удалось отправить сообщение в сессию {} модератора с ID {}: {}",
+                    session.getId(), moderatorId, e.toString());
+            unregister(session);
+            close(session);
+            return false;
+        }
+        if (message != null) {
+            markDelivered(session.getId(), message);
+        }
+        return true;
+    }
+
+    private void markDelivered(String sessionId, ModeratorMessage message) {
+        if (message.getType() == ModeratorMessageType.SNAPSHOT) {
+            Set<Long> delivered = ConcurrentHashMap.newKeySet();
+            message.getEvents().forEach(event -> delivered.add(event.getId()));
+            deliveredEventsBySessionId.put(sessionId, delivered);
+            // Сессия могла закрыться во время отправки, тогда её список не должен остаться в памяти
+            if (!moderatorBySessionId.containsKey(sessionId)) {
+                deliveredEventsBySessionId.remove(sessionId);
+            }
+            return;
+        }
+        // До первого полного списка изменения не запоминаются: они войдут в полный список
+        Set<Long> delivered = deliveredEventsBySessionId.get(sessionId);
+        if (delivered == null) {
+            return;
+        }
+        if (message.getType() == ModeratorMessageType.ASSIGNED) {
+            message.getEvents().forEach(event -> delivered.add(event.getId()));
+        } else {
+            delivered.removeAll(message.getEventIds());
+        }
+    }
+
+    private static void close(WebSocketSession session) {
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Не удалось закрыть сессию {}: {}", session.getId(), e.toString());
+        }
+    }
+
+    private void removeSession(Long moderatorId, String sessionId) {
+        sessionsByModerator.computeIfPresent(moderatorId, (id, sessions) -> {
+            sessions.removeIf(s -> s.getId().equals(sessionId));
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+}
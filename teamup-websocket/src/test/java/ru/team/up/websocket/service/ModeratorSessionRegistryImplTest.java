@@ -0,0 +1,163 @@
+package ru.team.up.websocket.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.WebSocketSession;
+import ru.team.up.core.projections.ModeratorEventView;
+import ru.team.up.websocket.payload.ModeratorMessage;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Slf4j
+class ModeratorSessionRegistryImplTest {
+
+    private ModeratorSessionRegistry moderatorSessionRegistry;
+    private WebSocketSession firstSession;
+    private WebSocketSession secondSession;
+
+    @BeforeEach
+    private void setUpEntity() {
+        moderatorSessionRegistry = new ModeratorSessionRegistryImpl(new ModeratorMessageWriter(), 1000, 1024);
+        firstSession = session("1");
+        secondSession = session("2");
+    }
+
+    @Test
+    void send() throws Exception {
+        // Модератор подключён в двух вкладках, повторная регистрация не дублирует сессию
+        moderatorSessionRegistry.register(1L, firstSession);
+        moderatorSessionRegistry.register(1L, secondSession);
+        WebSocketSession registered = moderatorSessionRegistry.register(1L, firstSession);
+        assertNotSame(firstSession, registered);
+
+        assertEquals(2, moderatorSessionRegistry.send(1L, "assign"));
+        verify(firstSession).sendMessage(new TextMessage("assign"));
+        verify(secondSession).sendMessage(new TextMessage("assign"));
+        // Неподключённому модератору сообщение не отправляется
+        assertEquals(0, moderatorSessionRegistry.send(2L, "assign"));
+    }
+
+    @Test
+    void unregister() {
+        moderatorSessionRegistry.register(1L, firstSession);
+        assertTrue(moderatorSessionRegistry.isConnected(1L));
+
+        moderatorSessionRegistry.unregister(firstSession);
+        assertFalse(moderatorSessionRegistry.isConnected(1L));
+        assertEquals(0, moderatorSessionRegistry.send(1L, "assign"));
+    }
+
+    @Test
+    void sendToBrokenSession() throws Exception {
+        moderatorSessionRegistry.register(1L, firstSession);
+        moderatorSessionRegistry.register(1L, secondSession);
+        doThrow(new IOException("Broken pipe")).when(firstSession).sendMessage(any());
+
+        // Сессия с ошибкой удаляется из реестра, остальные получают сообщение
+        assertEquals(1, moderatorSessionRegistry.send(1L, "assign"));
+        assertEquals(1, moderatorSessionRegistry.send(1L, "assign"));
+        verify(firstSession, times(1)).sendMessage(any());
+    }
+
+    @Test
+    void registerForAnotherModerator() {
+        moderatorSessionRegistry.register(1L, firstSession);
+        moderatorSessionRegistry.register(2L, firstSession);
+
+        // Сессия принадлежит только последнему указанному модератору
+        assertFalse(moderatorSessionRegistry.isConnected(1L));
+        assertTrue(moderatorSessionRegistry.isConnected(2L));
+    }
+
+    @Test
+    void synchronize() throws Exception {
+        ModeratorEventView first = event(1L);
+        ModeratorEventView second = event(2L);
+
+        // Первый запрос получает полный список
+        moderatorSessionRegistry.synchronize(1L, firstSession, List.of(first));
+        // Назначение через Kafka запоминается как отправленное
+        moderatorSessionRegistry.push(1L, ModeratorMessage.assigned(List.of(second)));
+        // Повторный запрос без изменений ничего не отправляет, снятое мероприятие приходит только id
+        moderatorSessionRegistry.synchronize(1L, firstSession, List.of(first, second));
+        moderatorSessionRegistry.synchronize(1L, firstSession, List.of(second));
+
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(firstSession, times(3)).sendMessage(captor.capture());
+        List<TextMessage> messages = captor.getAllValues();
+        assertTrue(messages.get(0).getPayload().startsWith("{\"version\":1,\"type\":\"SNAPSHOT\",\"events\":[{\"id\":1,"));
+        assertTrue(messages.get(0).getPayload().contains("\"timeEvent\":\"2022-05-01T10:00:00\""));
+        assertTrue(messages.get(1).getPayload().contains("\"type\":\"ASSIGNED\",\"events\":[{\"id\":2,"));
+        assertEquals("{\"version\":1,\"type\":\"UNASSIGNED\",\"eventIds\":[1]}", messages.get(2).getPayload());
+    }
+
+    @Test
+    void pushBeforeSnapshot() throws Exception {
+        moderatorSessionRegistry.register(1L, firstSession);
+        moderatorSessionRegistry.push(1L, ModeratorMessage.assigned(List.of(event(2L))));
+
+        // Полный список отправляется, даже если до него пришло назначение
+        moderatorSessionRegistry.synchronize(1L, firstSession, List.of(event(1L), event(2L)));
+
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(firstSession, times(2)).sendMessage(captor.capture());
+        assertTrue(captor.getValue().getPayload().contains("\"type\":\"SNAPSHOT\""));
+    }
+
+    @Test
+    void overflowClosesSession() throws Exception {
+        // Очередь сессии не вмещает ни одного сообщения
+        moderatorSessionRegistry = new ModeratorSessionRegistryImpl(new ModeratorMessageWriter(), 10_000, 1);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sending.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return null;
+        }).when(firstSession).sendMessage(any());
+
+        // Полный список отправляется медленно, назначение встаёт в очередь и переполняет её
+        Thread snapshot = new Thread(() ->
+                moderatorSessionRegistry.synchronize(1L, firstSession, List.of(event(1L))));
+        snapshot.start();
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        assertEquals(0, moderatorSessionRegistry.push(1L, ModeratorMessage.assigned(List.of(event(2L)))));
+        release.countDown();
+        snapshot.join(5000);
+
+        // Сессия закрыта и удалена из реестра вместе со списком отправленного
+        verify(firstSession).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertFalse(moderatorSessionRegistry.isConnected(1L));
+
+        // Новая сессия с тем же id получает полный список, а не отличия
+        moderatorSessionRegistry.synchronize(1L, firstSession, List.of(event(1L), event(2L)));
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(firstSession, times(2)).sendMessage(captor.capture());
+        assertTrue(captor.getValue().getPayload().contains("\"type\":\"SNAPSHOT\""));
+    }
+
+    private static ModeratorEventView event(Long id) {
+        return new ModeratorEventView(id, "Event " + id, "Place", "Moscow",
+                LocalDateTime.of(2022, 5, 1, 10, 0), LocalDateTime.of(2022, 5, 1, 12, 0),
+                "Game", 10L, "author");
+    }
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(id);
+        when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+}